@@ -4,8 +4,17 @@ import fan.summer.api.SwissKitJPlugin;
 import fan.summer.buildintool.dev.Base64Plugin;
 import fan.summer.buildintool.dev.HashCalculatorPlugin;
 import fan.summer.buildintool.dev.JsonFormatterPlugin;
+import fan.summer.buildintool.dev.JsonPlugin;
 import fan.summer.buildintool.email.EmailPlugin;
+import fan.summer.buildintool.excelaggregate.AggregatePlugin;
+import fan.summer.buildintool.excelcompact.CompactPlugin;
+import fan.summer.buildintool.exceldedup.DedupPlugin;
+import fan.summer.buildintool.exceldiff.DiffPlugin;
+import fan.summer.buildintool.excellookup.LookupPlugin;
+import fan.summer.buildintool.excelprofile.ProfilePlugin;
+import fan.summer.buildintool.excelreport.ReportPlugin;
 import fan.summer.buildintool.excelsplitter.ExcelSplitterPlugin;
+import fan.summer.buildintool.excelsql.SqlPlugin;
 import fan.summer.buildintool.image.ColorConverterPlugin;
 import fan.summer.buildintool.text.MarkdownEditorPlugin;
 import fan.summer.plugin.PluginLoader;
@@ -28,6 +37,15 @@ public class BuiltinToolRegistrar {
             new Base64Plugin(),
             new HashCalculatorPlugin(),
             new ExcelSplitterPlugin(),
+            new LookupPlugin(),
+            new AggregatePlugin(),
+            new DiffPlugin(),
+            new DedupPlugin(),
+            new SqlPlugin(),
+            new JsonPlugin(),
+            new ProfilePlugin(),
+            new CompactPlugin(),
+            new ReportPlugin(),
             new ColorConverterPlugin(),
             new MarkdownEditorPlugin(),
             new EmailPlugin()
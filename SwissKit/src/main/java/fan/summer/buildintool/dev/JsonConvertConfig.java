@@ -0,0 +1,34 @@
+package fan.summer.buildintool.dev;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class JsonConvertConfig {
+
+    public enum Direction { JSON_TO_EXCEL, EXCEL_TO_JSON }
+
+    /** ARRAY writes one top-level array, NDJSON one object per line. */
+    public enum Format { ARRAY, NDJSON }
+
+    public Direction direction = Direction.JSON_TO_EXCEL;
+
+    // JSON → Excel: a top-level array of objects, or one object per line
+    public Path jsonFile;
+
+    // Excel → JSON
+    public Path   sourceFile;
+    public String sheet;
+    public Map<Integer, String> headers;   // colIndex → header
+    public List<Integer> columns = new ArrayList<>();   // exported columns in sheet order
+    public Format format = Format.ARRAY;
+    // a.b headers back into nested objects, and JSON array cells back into arrays
+    public boolean nested = true;
+    // Number and TRUE / FALSE cells as JSON numbers and booleans instead of strings
+    public boolean typed = true;
+    // Leave blank cells out instead of writing null
+    public boolean omitBlanks = false;
+
+    public Path outputDir;
+}
@@ -0,0 +1,305 @@
+package fan.summer.buildintool.dev;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import fan.summer.buildintool.excelsplitter.SheetPicker;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel ⇄ JSON tool: streams a JSON array or NDJSON file into a sheet with nested fields
+ * flattened to columns, or a sheet out as JSON / NDJSON, computed by {@link JsonSheetConverter}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class JsonPlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.exceljson"; }
+    @Override public String getName()        { return "Excel⇄JSON"; }
+    @Override public String getDescription() { return "JSON数组/NDJSON与Excel互转，嵌套字段展开为列，大文件流式处理"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "code-json"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new JsonView();
+        return view;
+    }
+
+    static class JsonView extends ScrollPane {
+        private final ComboBox<String> directionCombo = new ComboBox<>();
+        private final Label jsonLabel = new Label("未选择文件");
+        private final SheetPicker picker = new SheetPicker("数据表");
+        private final SheetPicker.ColumnList columns;
+        private final ComboBox<String> formatCombo = new ComboBox<>();
+        private final CheckBox nestedBox = new CheckBox("按「a.b」列名还原嵌套对象，JSON数组文本还原为数组");
+        private final CheckBox typedBox = new CheckBox("数值与 TRUE/FALSE 输出为 JSON 数字与布尔值");
+        private final CheckBox omitBlanksBox = new CheckBox("省略空单元格（默认输出 null）");
+        private final Label dirLabel = new Label("未选择（默认与来源文件同目录）");
+        private final Label hintLabel = new Label();
+        private final Button runBtn = glassBtn("▶  开始转换", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label progressLabel = new Label();
+        private final VBox resultBox = new VBox(8);
+        private Path jsonFile;
+        private Path outputDir;
+        private volatile JsonSheetConverter converter;
+
+        JsonView() {
+            directionCombo.getItems().addAll("JSON → Excel", "Excel → JSON");
+            directionCombo.getSelectionModel().select(0);
+            directionCombo.setStyle(comboStyle());
+
+            jsonLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            jsonLabel.setWrapText(true);
+            Button jsonBtn = glassBtn("📄  选择 JSON 文件", false);
+            jsonBtn.setOnAction(e -> pickJsonFile());
+            Label jsonHint = new Label("支持顶层为对象数组的 JSON，或每行一个对象的 NDJSON。嵌套对象展开为「a.b」列，"
+                + "数组以 JSON 文本写入一个单元格；列按字段首次出现的顺序排列，超过 1,048,575 行续写到新Sheet");
+            jsonHint.setWrapText(true);
+            jsonHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+            VBox jsonPane = new VBox(8, sectionTitle("JSON 文件"), jsonBtn, jsonLabel, jsonHint);
+
+            columns = picker.addColumnList("输出列", true);
+            picker.setOnChange(this::validate);
+            formatCombo.getItems().addAll("JSON 数组（.json）", "NDJSON，每行一个对象（.ndjson）");
+            formatCombo.getSelectionModel().select(0);
+            formatCombo.setStyle(comboStyle());
+            nestedBox.setSelected(true);
+            typedBox.setSelected(true);
+            for (CheckBox box : new CheckBox[]{nestedBox, typedBox, omitBlanksBox}) {
+                box.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+                box.setWrapText(true);
+            }
+            VBox excelPane = new VBox(8, picker, sectionTitle("输出格式"), formatCombo,
+                nestedBox, typedBox, omitBlanksBox);
+
+            jsonPane.managedProperty().bind(jsonPane.visibleProperty());
+            excelPane.managedProperty().bind(excelPane.visibleProperty());
+            excelPane.setVisible(false);
+            directionCombo.getSelectionModel().selectedIndexProperty().addListener((o, ov, nv) -> {
+                jsonPane.setVisible(nv.intValue() == 0);
+                excelPane.setVisible(nv.intValue() == 1);
+                validate();
+            });
+
+            dirLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            dirLabel.setWrapText(true);
+            Button dirBtn = glassBtn("📁  选择输出目录", false);
+            dirBtn.setOnAction(e -> pickOutputDir());
+
+            hintLabel.setWrapText(true);
+            hintLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            resultBox.setStyle("-fx-background-color: transparent;");
+
+            runBtn.setOnAction(e -> startConvert());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                if (converter != null) converter.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+            HBox actions = new HBox(12, runBtn, cancelBtn);
+            actions.setAlignment(Pos.CENTER_LEFT);
+
+            VBox content = new VBox(16, sectionTitle("转换方向"), directionCombo, jsonPane, excelPane,
+                new Separator(), sectionTitle("输出目录"), dirBtn, dirLabel,
+                hintLabel, actions, progressBar, progressLabel, resultBox);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validate();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private boolean toExcel() {
+            return directionCombo.getSelectionModel().getSelectedIndex() == 0;
+        }
+
+        private void validate() {
+            String error = null;
+            if (toExcel()) {
+                if (jsonFile == null) error = "请先选择 JSON 文件";
+            } else if (picker.headers() == null) {
+                error = "请先选择文件和Sheet";
+            } else if (columns.selected().isEmpty()) {
+                error = "请至少勾选一个输出列";
+            }
+            hintLabel.setText(error != null ? "❌ " + error : "");
+            runBtn.setDisable(error != null || converter != null);
+        }
+
+        private void pickJsonFile() {
+            FileChooser fc = new FileChooser();
+            fc.setTitle("选择 JSON 文件");
+            fc.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("JSON / NDJSON", "*.json", "*.ndjson", "*.jsonl"),
+                new FileChooser.ExtensionFilter("所有文件", "*.*"));
+            File file = fc.showOpenDialog(getScene() != null ? getScene().getWindow() : null);
+            if (file != null) {
+                jsonFile = file.toPath();
+                jsonLabel.setText(file.getAbsolutePath());
+                jsonLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+            validate();
+        }
+
+        private void pickOutputDir() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择输出目录");
+            Path source = toExcel() ? jsonFile : picker.file();
+            if (source != null) dc.setInitialDirectory(source.getParent().toFile());
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) {
+                outputDir = dir.toPath();
+                dirLabel.setText(dir.getAbsolutePath());
+                dirLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+        }
+
+        private JsonConvertConfig buildConfig() {
+            JsonConvertConfig config = new JsonConvertConfig();
+            if (toExcel()) {
+                config.direction = JsonConvertConfig.Direction.JSON_TO_EXCEL;
+                config.jsonFile = jsonFile;
+            } else {
+                config.direction = JsonConvertConfig.Direction.EXCEL_TO_JSON;
+                config.sourceFile = picker.file();
+                config.sheet = picker.sheet();
+                config.headers = picker.headers();
+                config.columns = new ArrayList<>(columns.selected());
+                config.format = formatCombo.getSelectionModel().getSelectedIndex() == 1
+                    ? JsonConvertConfig.Format.NDJSON : JsonConvertConfig.Format.ARRAY;
+                config.nested = nestedBox.isSelected();
+                config.typed = typedBox.isSelected();
+                config.omitBlanks = omitBlanksBox.isSelected();
+            }
+            Path source = toExcel() ? jsonFile : picker.file();
+            config.outputDir = outputDir != null ? outputDir : source.getParent();
+            return config;
+        }
+
+        private void startConvert() {
+            resultBox.getChildren().clear();
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            JsonSheetConverter current = new JsonSheetConverter(buildConfig(), (pct, msg) ->
+                Platform.runLater(() -> {
+                    if (cancelBtn.isDisabled()) return;
+                    progressBar.setProgress(pct);
+                    progressLabel.setText(msg);
+                })
+            );
+            converter = current;
+            runBtn.setDisable(true);
+            Task<JsonSheetConverter.ConvertResult> task = new Task<>() {
+                @Override
+                protected JsonSheetConverter.ConvertResult call() throws Exception {
+                    return current.convert();
+                }
+            };
+            task.setOnSucceeded(e -> finish(task.getValue(), null));
+            task.setOnFailed(e -> finish(null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finish(JsonSheetConverter.ConvertResult result, Throwable err) {
+            converter = null;
+            cancelBtn.setVisible(false);
+            validate();
+            progressBar.setProgress(1.0);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                progressBar.setProgress(0);
+                progressLabel.setText("已取消");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                progressBar.getStyleClass().add("danger");
+                progressLabel.setText("❌ 转换失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                progressLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            progressBar.getStyleClass().add("success");
+            progressLabel.setText("✓ 转换完成：" + result.output().getFileName());
+            progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+
+            resultBox.getChildren().add(subLabel("转换结果"));
+            addResult("共 " + result.records() + " 条记录，" + result.columns() + " 列");
+            if (result.truncatedCells() > 0) {
+                addResult("有 " + result.truncatedCells() + " 个单元格超过 Excel 单元格 32,767 字符上限，已截断");
+            }
+
+            Button openBtn = glassBtn("打开文件夹", false);
+            openBtn.setOnAction(e -> {
+                try {
+                    java.awt.Desktop.getDesktop().open(result.output().getParent().toFile());
+                } catch (Exception ex) { /* skip */ }
+            });
+            resultBox.getChildren().add(openBtn);
+        }
+
+        private void addResult(String text) {
+            Label l = new Label(text);
+            l.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+            l.setWrapText(true);
+            resultBox.getChildren().add(l);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package fan.summer.buildintool.dev;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pull parser for the records of a JSON file: a top-level array of objects, or a sequence of
+ * objects one per line (NDJSON, or simply concatenated). Each record is handed out flattened:
+ * nested object fields become {@code a.b} paths, arrays are kept as their compact JSON text in
+ * one cell, and values are {@link String}, {@link BigDecimal}, {@link Boolean} or null. Only
+ * the current record is held in memory, so the file size does not matter.
+ * <p>
+ * Strings and array texts are cut after {@link #MAX_CELL_CHARS} + 1 characters, enough for the
+ * caller to see that the value does not fit in an Excel cell.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+final class JsonRecordReader implements Closeable {
+
+    /** Excel's cell text limit. */
+    static final int MAX_CELL_CHARS = 32_767;
+    /** Column of a record that is not an object, e.g. a number in a top-level array. */
+    static final String VALUE_COLUMN = "value";
+
+    private static final int BUFFER = 1 << 16;
+    private static final int MAX_DEPTH = 512;
+
+    private final Reader reader;
+    private final CountingInputStream counter;
+    private final char[] buf = new char[BUFFER];
+    private int pos;
+    private int limit;
+    private long consumed;
+
+    private boolean started;
+    private boolean array;
+    private boolean ended;
+    private long records;
+
+    JsonRecordReader(Path file) throws IOException {
+        counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER));
+        reader = new InputStreamReader(counter, StandardCharsets.UTF_8);
+    }
+
+    private JsonRecordReader(Reader reader) {
+        this.counter = null;
+        this.reader = reader;
+    }
+
+    /**
+     * True when the text is one well-formed JSON array, e.g. a cell written by the import.
+     */
+    static boolean isJsonArray(String text) {
+        if (text.isEmpty() || text.charAt(0) != '[') return false;
+        try (JsonRecordReader r = new JsonRecordReader(new StringReader(text))) {
+            r.copyValue(new StringBuilder(), 0);
+            return r.skipWhitespace() == -1;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Next record flattened to column path → value, in field order, or null when the input ends.
+     *
+     * @throws IOException when the input is not well-formed JSON
+     */
+    Map<String, Object> next() throws IOException {
+        if (ended) return null;
+        int c = skipWhitespace();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                pos++;
+                c = skipWhitespace();
+            }
+            if (c == '[') {
+                array = true;
+                pos++;
+                c = skipWhitespace();
+                if (c == ']') return endArray();
+            }
+        } else if (array) {
+            if (c == ']') return endArray();
+            if (c != ',') throw error("Expected ',' or ']' after record " + records);
+            pos++;
+            c = skipWhitespace();
+        }
+        if (c == -1) {
+            if (array) throw error("Unexpected end of input, ']' is missing");
+            ended = true;
+            return null;
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        parseValue(c == '{' ? "" : VALUE_COLUMN, record, 0);
+        records++;
+        return record;
+    }
+
+    /** Bytes of the file consumed so far, for progress. */
+    long getBytesRead() {
+        return counter != null ? counter.count : 0;
+    }
+
+    long getRecordCount() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private Map<String, Object> endArray() throws IOException {
+        pos++;
+        ended = true;
+        if (skipWhitespace() != -1) throw error("Unexpected content after the top-level array");
+        return null;
+    }
+
+    private void parseValue(String path, Map<String, Object> out, int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw error("Nesting deeper than " + MAX_DEPTH + " levels");
+        int c = skipWhitespace();
+        switch (c) {
+            case '{' -> {
+                pos++;
+                c = skipWhitespace();
+                if (c == '}') {
+                    pos++;
+                    if (!path.isEmpty()) out.put(path, null);
+                    return;
+                }
+                while (true) {
+                    if (c != '"') throw error("Expected a field name");
+                    pos++;
+                    String key = readString();
+                    if (skipWhitespace() != ':') throw error("Expected ':' after field \"" + key + "\"");
+                    pos++;
+                    parseValue(path.isEmpty() ? key : path + "." + key, out, depth + 1);
+                    c = skipWhitespace();
+                    if (c == '}') {
+                        pos++;
+                        return;
+                    }
+                    if (c != ',') throw error("Expected ',' or '}'");
+                    pos++;
+                    c = skipWhitespace();
+                }
+            }
+            case '[' -> {
+                StringBuilder sb = new StringBuilder();
+                copyValue(sb, depth);
+                out.put(path, sb.toString());
+            }
+            case '"' -> {
+                pos++;
+                out.put(path, readString());
+            }
+            default -> {
+                String literal = readLiteral();
+                switch (literal) {
+                    case "true" -> out.put(path, Boolean.TRUE);
+                    case "false" -> out.put(path, Boolean.FALSE);
+                    case "null" -> out.put(path, null);
+                    default -> out.put(path, number(literal));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies one value as compact JSON text: whitespace outside strings is dropped, strings are
+     * kept with their escapes as written.
+     */
+    private void copyValue(StringBuilder sb, int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw error("Nesting deeper than " + MAX_DEPTH + " levels");
+        int c = skipWhitespace();
+        if (c == '[' || c == '{') {
+            char close = c == '[' ? ']' : '}';
+            pos++;
+            append(sb, (char) c);
+            c = skipWhitespace();
+            if (c == close) {
+                pos++;
+                append(sb, close);
+                return;
+            }
+            while (true) {
+                if (close == '}') {
+                    if (c != '"') throw error("Expected a field name");
+                    copyString(sb);
+                    if (skipWhitespace() != ':') throw error("Expected ':'");
+                    pos++;
+                    append(sb, ':');
+                }
+                copyValue(sb, depth + 1);
+                c = skipWhitespace();
+                if (c == close) {
+                    pos++;
+                    append(sb, close);
+                    return;
+                }
+                if (c != ',') throw error("Expected ',' or '" + close + "'");
+                pos++;
+                append(sb, ',');
+                c = skipWhitespace();
+            }
+        }
+        if (c == '"') {
+            copyString(sb);
+            return;
+        }
+        String literal = readLiteral();
+        if (!literal.equals("true") && !literal.equals("false") && !literal.equals("null")) number(literal);
+        for (int i = 0; i < literal.length(); i++) append(sb, literal.charAt(i));
+    }
+
+    private void copyString(StringBuilder sb) throws IOException {
+        pos++;
+        append(sb, '"');
+        while (true) {
+            int c = read();
+            if (c == -1) throw error("Unterminated string");
+            append(sb, (char) c);
+            if (c == '"') return;
+            if (c == '\\') {
+                int e = read();
+                if (e == -1) throw error("Unterminated string");
+                append(sb, (char) e);
+            }
+        }
+    }
+
+    /** Reads a string whose opening quote is consumed, unescaping it. */
+    private String readString() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == -1) throw error("Unterminated string");
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                append(sb, (char) c);
+                continue;
+            }
+            int e = read();
+            switch (e) {
+                case '"', '\\', '/' -> append(sb, (char) e);
+                case 'b' -> append(sb, '\b');
+                case 'f' -> append(sb, '\f');
+                case 'n' -> append(sb, '\n');
+                case 'r' -> append(sb, '\r');
+                case 't' -> append(sb, '\t');
+                case 'u' -> {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int d = Character.digit(read(), 16);
+                        if (d < 0) throw error("Invalid \\u escape");
+                        code = code * 16 + d;
+                    }
+                    append(sb, (char) code);
+                }
+                default -> throw error("Invalid escape \\" + (e == -1 ? "" : String.valueOf((char) e)));
+            }
+        }
+    }
+
+    /** Reads a number or true / false / null up to the next delimiter. */
+    private String readLiteral() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = peek();
+            if (c == -1 || c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) break;
+            if (sb.length() > 64) throw error("Unexpected value");
+            sb.append((char) c);
+            pos++;
+        }
+        if (sb.isEmpty()) throw error("Expected a value");
+        return sb.toString();
+    }
+
+    private BigDecimal number(String literal) throws IOException {
+        char first = literal.charAt(0);
+        if (first != '-' && (first < '0' || first > '9')) throw error("Unexpected value '" + literal + "'");
+        try {
+            return new BigDecimal(literal);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + literal + "'");
+        }
+    }
+
+    /** Appends while the text still fits in a cell, plus one character to mark it as cut. */
+    private static void append(StringBuilder sb, char c) {
+        if (sb.length() <= MAX_CELL_CHARS) sb.append(c);
+    }
+
+    /** The next non-whitespace character without consuming it, or -1 at the end. */
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos];
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int n = reader.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        limit = n;
+        return true;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Invalid JSON at character " + (consumed + pos) + ": " + message);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
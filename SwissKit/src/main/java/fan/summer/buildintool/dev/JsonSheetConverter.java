@@ -0,0 +1,346 @@
+package fan.summer.buildintool.dev;
+
+import fan.summer.buildintool.excelsplitter.FileNameUtil;
+import fan.summer.buildintool.excelsplitter.GroupSheetWriter;
+import fan.summer.buildintool.excelsplitter.RowCodec;
+import fan.summer.buildintool.excelsplitter.SheetRowReader;
+import fan.summer.buildintool.excelsplitter.SplitConfig;
+import fan.summer.buildintool.excelsplitter.StreamingRowListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Converts between JSON records and a sheet in both directions, streaming so files of several
+ * gigabytes need no more memory than a small one.
+ * <p>
+ * JSON → Excel: records are parsed by {@link JsonRecordReader} with nested fields flattened
+ * to {@code a.b} columns. Columns are only known once every record has been seen, so the rows
+ * are spooled to a temp file in {@link RowCodec} form while the columns are collected, then
+ * replayed through {@link GroupSheetWriter} under the complete header; rows beyond the Excel
+ * limit continue in a new sheet.
+ * <p>
+ * Excel → JSON: the sheet is read through {@link SheetRowReader} and every row is written as
+ * one object as it arrives, either inside one top-level array or one per line (NDJSON).
+ * {@code a.b} headers are nested back into objects and array cells back into arrays.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class JsonSheetConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonSheetConverter.class);
+
+    private static final int IO_BUFFER = 1 << 16;
+    private static final int PROGRESS_ROWS = 65_536;
+    // Excel's column limit
+    private static final int MAX_COLUMNS = 16_384;
+    // Digits Excel keeps in a number; longer ones (IDs, account numbers) are written as text
+    private static final int EXCEL_DIGITS = 15;
+    private static final Pattern JSON_NUMBER = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
+
+    public record ConvertResult(Path output, long records, int columns, long truncatedCells) {}
+
+    private final JsonConvertConfig config;
+    private final BiConsumer<Double, String> progress;
+    private volatile boolean cancelled;
+    private long truncatedCells;
+
+    public JsonSheetConverter(JsonConvertConfig config, BiConsumer<Double, String> progress) {
+        this.config = config;
+        this.progress = progress;
+    }
+
+    /**
+     * Asks a running {@link #convert()} to stop; it throws {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public ConvertResult convert() throws Exception {
+        return config.direction == JsonConvertConfig.Direction.JSON_TO_EXCEL ? jsonToExcel() : excelToJson();
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private ConvertResult jsonToExcel() throws Exception {
+        String baseName = FileNameUtil.getFileName(config.jsonFile.getFileName().toString());
+        Path output = config.outputDir.resolve(baseName + ".xlsx");
+        long size = Math.max(1, Files.size(config.jsonFile));
+        logger.info("JSON to Excel started | file={}, bytes={}", config.jsonFile.getFileName(), size);
+        long start = System.nanoTime();
+
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        Path spool = Files.createTempFile("swisskit-json-", ".rows");
+        long records = 0;
+        try {
+            progress.accept(0.0, "Reading: " + config.jsonFile.getFileName());
+            try (JsonRecordReader reader = new JsonRecordReader(config.jsonFile);
+                 DataOutputStream out = new DataOutputStream(
+                         new BufferedOutputStream(Files.newOutputStream(spool), IO_BUFFER))) {
+                for (Map<String, Object> record; (record = reader.next()) != null; ) {
+                    for (String path : record.keySet()) {
+                        if (columns.containsKey(path)) continue;
+                        if (columns.size() == MAX_COLUMNS) {
+                            throw new IllegalStateException("More than " + MAX_COLUMNS
+                                    + " distinct fields, beyond Excel's column limit: " + path);
+                        }
+                        columns.put(path, columns.size());
+                    }
+                    // Columns only ever grow, so a row stops at the last column it has so far
+                    List<Object> row = new ArrayList<>(Collections.nCopies(columns.size(), null));
+                    record.forEach((path, value) -> row.set(columns.get(path), value));
+                    RowCodec.write(out, row);
+                    if (++records % PROGRESS_ROWS == 0) {
+                        checkCancelled();
+                        progress.accept(0.8 * reader.getBytesRead() / size, "Reading: " + records + " records");
+                    }
+                }
+            }
+
+            if (records == 0) throw new IllegalStateException("No JSON records found in " + config.jsonFile.getFileName());
+
+            progress.accept(0.8, "Writing: " + output.getFileName());
+            List<List<String>> head = new ArrayList<>();
+            for (String path : columns.keySet()) head.add(Collections.singletonList(path));
+            long written = 0;
+            try (DataInputStream in = new DataInputStream(
+                         new BufferedInputStream(Files.newInputStream(spool), IO_BUFFER));
+                 OutputStream os = Files.newOutputStream(output);
+                 GroupSheetWriter writer = new GroupSheetWriter(os, head, SplitConfig.OverflowPolicy.NEW_SHEET)) {
+                for (List<Object> row; (row = RowCodec.read(in)) != null; ) {
+                    row.replaceAll(this::excelCell);
+                    writer.accept(baseName, row);
+                    if (++written % PROGRESS_ROWS == 0) {
+                        checkCancelled();
+                        progress.accept(0.8 + 0.2 * written / records, "Writing: " + written + " / " + records + " rows");
+                    }
+                }
+            } catch (Exception e) {
+                Files.deleteIfExists(output);
+                throw e;
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+        progress.accept(1.0, "Done");
+        logger.info("JSON to Excel completed | records={}, columns={}, truncatedCells={}, elapsedMs={}",
+                records, columns.size(), truncatedCells, (System.nanoTime() - start) / 1_000_000);
+        return new ConvertResult(output, records, columns.size(), truncatedCells);
+    }
+
+    /**
+     * A JSON value as an Excel cell: numbers Excel cannot hold exactly and over-long text are
+     * written as text, the latter cut at the cell limit.
+     */
+    private Object excelCell(Object value) {
+        if (value instanceof BigDecimal number) {
+            double d = number.doubleValue();
+            if (number.precision() > EXCEL_DIGITS || Double.isInfinite(d)) return number.toString();
+            return number;
+        }
+        if (value instanceof String text && text.length() > JsonRecordReader.MAX_CELL_CHARS) {
+            truncatedCells++;
+            return text.substring(0, JsonRecordReader.MAX_CELL_CHARS);
+        }
+        return value;
+    }
+
+    private ConvertResult excelToJson() throws Exception {
+        String ext = config.format == JsonConvertConfig.Format.NDJSON ? ".ndjson" : ".json";
+        Path output = config.outputDir.resolve(
+                FileNameUtil.getFileName(config.sourceFile.getFileName().toString()) + "_" + config.sheet + ext);
+        Member root = layout();
+        boolean array = config.format == JsonConvertConfig.Format.ARRAY;
+        logger.info("Excel to JSON started | file={}, sheet={}, columns={}, format={}, nested={}",
+                config.sourceFile.getFileName(), config.sheet, config.columns.size(), config.format, config.nested);
+        long start = System.nanoTime();
+
+        BitSet decode = new BitSet();
+        config.columns.forEach(decode::set);
+        long[] records = {0};
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(output), StandardCharsets.UTF_8), IO_BUFFER)) {
+            if (array) out.write('[');
+            StringBuilder sb = new StringBuilder();
+            StreamingRowListener listener = new StreamingRowListener(row -> {
+                sb.setLength(0);
+                if (array) sb.append(records[0] == 0 ? "\n" : ",\n");
+                writeObject(root, row, sb);
+                if (!array) sb.append('\n');
+                records[0]++;
+                try {
+                    out.append(sb);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            long[] read = {0};
+            listener.setRowTicker(n -> {
+                checkCancelled();
+                if ((read[0] += n) / PROGRESS_ROWS != (read[0] - n) / PROGRESS_ROWS) {
+                    progress.accept(-1.0, "Converting: " + read[0] + " rows");
+                }
+            });
+            progress.accept(-1.0, "Reading: " + config.sheet);
+            SheetRowReader.read(config.sourceFile, config.sheet, decode, listener);
+            if (array) out.write(records[0] == 0 ? "]\n" : "\n]\n");
+        } catch (Exception e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+        progress.accept(1.0, "Done");
+        logger.info("Excel to JSON completed | records={}, elapsedMs={}",
+                records[0], (System.nanoTime() - start) / 1_000_000);
+        return new ConvertResult(output, records[0], config.columns.size(), 0);
+    }
+
+    /**
+     * Object layout of the exported columns. With nesting, {@code a.b} and {@code a.c} become
+     * members of an object {@code a}; a header that clashes with another one's path (a column
+     * {@code a} next to {@code a.b}) stays a flat member under its full name. Repeated names get
+     * a {@code _2}, {@code _3}... suffix.
+     */
+    private Member layout() {
+        Member root = new Member(null, -1);
+        for (int col : config.columns) {
+            String header = config.headers.get(col);
+            header = header == null || header.isBlank() ? "column" + (col + 1) : header.trim();
+            String[] path = config.nested ? header.split("\\.", -1) : new String[]{header};
+            if (Arrays.asList(path).contains("")) path = new String[]{header};
+            Member parent = root;
+            for (int i = 0; i < path.length - 1 && parent != null; i++) {
+                Member child = parent.children.get(path[i]);
+                if (child == null) {
+                    child = new Member(path[i], -1);
+                    parent.children.put(path[i], child);
+                }
+                parent = child.column < 0 ? child : null;
+            }
+            String name = path[path.length - 1];
+            if (parent == null || parent.children.containsKey(name)) {
+                parent = root;
+                name = header;
+            }
+            String unique = name;
+            for (int n = 2; parent.children.containsKey(unique); n++) unique = name + "_" + n;
+            parent.children.put(unique, new Member(unique, col));
+        }
+        return root;
+    }
+
+    private void writeObject(Member object, Map<Integer, Object> row, StringBuilder sb) {
+        sb.append('{');
+        boolean first = true;
+        for (Member m : object.children.values()) {
+            if (config.omitBlanks && !hasValue(m, row)) continue;
+            if (!first) sb.append(',');
+            first = false;
+            sb.append(m.quotedName).append(':');
+            if (m.column < 0) {
+                writeObject(m, row, sb);
+            } else {
+                writeValue(row.get(m.column), sb);
+            }
+        }
+        sb.append('}');
+    }
+
+    private boolean hasValue(Member m, Map<Integer, Object> row) {
+        if (m.column >= 0) return !isBlank(row.get(m.column));
+        for (Member child : m.children.values()) {
+            if (hasValue(child, row)) return true;
+        }
+        return false;
+    }
+
+    private void writeValue(Object cell, StringBuilder sb) {
+        if (isBlank(cell)) {
+            sb.append("null");
+            return;
+        }
+        String text = cell.toString();
+        if (config.typed) {
+            if (JSON_NUMBER.matcher(text).matches()) {
+                sb.append(text);
+                return;
+            }
+            if (text.equals("TRUE") || text.equals("FALSE")) {
+                sb.append(text.equals("TRUE"));
+                return;
+            }
+        }
+        if (config.nested && JsonRecordReader.isJsonArray(text)) {
+            sb.append(text);
+            return;
+        }
+        quote(text, sb);
+    }
+
+    private static boolean isBlank(Object cell) {
+        return cell == null || cell.toString().isEmpty();
+    }
+
+    static void quote(String text, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Conversion cancelled");
+    }
+
+    /** An exported column (column ≥ 0) or a nested object of them, in header order. */
+    private static final class Member {
+        final String quotedName;
+        final int column;
+        final Map<String, Member> children = new LinkedHashMap<>();
+
+        Member(String name, int column) {
+            StringBuilder sb = new StringBuilder();
+            if (name != null) quote(name, sb);
+            this.quotedName = sb.toString();
+            this.column = column;
+        }
+    }
+}
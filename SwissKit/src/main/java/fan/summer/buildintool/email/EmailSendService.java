@@ -20,6 +20,11 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -32,6 +37,9 @@ import java.util.stream.Collectors;
  *  2. Load mass sending config by taskId
  *  3. Parse attachment folder, grouping files by tag suffix (between last "_" and ".")
  *  4. For each tag, resolve recipients from address book and send
+ *
+ * Pipelined mass mode ({@link #startMass}) skips step 3: the producer of the attachments
+ * submits each tag with its files as soon as they exist.
  */
 public class EmailSendService {
 
@@ -94,15 +102,86 @@ public class EmailSendService {
      */
     public Result sendMass(String subject, String htmlBody, String taskId, ProgressCallback progress) {
         Result result = new Result();
-        if (progress != null) progress.update(0.0, "Loading address book...");
+        MassContext context = loadMassContext(taskId, result, progress);
+        if (context == null) return result;
+
+        if (progress != null) progress.update(0.15, "Parsing attachments...");
+        Map<String, List<File>> taggedFiles = parseAttachmentFiles(context.config().getAttFolderPath());
+        if (taggedFiles.isEmpty()) {
+            result.errorMessage = "No attachment files found with valid tag format in: " + context.config().getAttFolderPath();
+            return result;
+        }
+
+        int total = taggedFiles.size();
+        int processed = 0;
+        for (Map.Entry<String, List<File>> entry : taggedFiles.entrySet()) {
+            processed++;
+            if (progress != null) {
+                double pct = 0.15 + 0.85 * processed / total;
+                progress.update(pct, "Sending [" + processed + "/" + total + "] " + entry.getKey());
+            }
+            sendTag(context, subject, htmlBody, entry.getKey(), entry.getValue(), result);
+        }
+
+        if (progress != null) progress.update(1.0, "Done");
+        return result;
+    }
+
+    /**
+     * Starts a mass send that is fed one tag at a time instead of scanning the attachment folder,
+     * so sending overlaps with whatever produces the attachments, e.g. a split handing over each
+     * output as it is written. Address book, tags and config are loaded once, here; emails go out
+     * in submission order on one background thread.
+     *
+     * @throws IllegalStateException when the address book, tags or config cannot be loaded
+     */
+    public MassDispatch startMass(String subject, String htmlBody, String taskId, ProgressCallback progress) {
+        Result result = new Result();
+        MassContext context = loadMassContext(taskId, result, null);
+        if (context == null) throw new IllegalStateException(result.errorMessage);
+        log.info("Pipelined mass send started | taskId={}, sentAtt={}", taskId, context.config().isSentAtt());
+        return new MassDispatch(this, context, subject, htmlBody, result, progress);
+    }
+
+    /**
+     * Parses attachment files in the given directory. Tag is the substring between the last
+     * underscore (_) and the file extension dot (.).
+     * Example: report_2024_Q1.xlsx → tag "Q1"; data_test_important.xlsx → tag "important".
+     */
+    public Map<String, List<File>> parseAttachmentFiles(String attachmentPath) {
+        Map<String, List<File>> result = new HashMap<>();
+        if (attachmentPath == null || attachmentPath.trim().isEmpty()) return result;
+        File dir = new File(attachmentPath);
+        if (!dir.exists() || !dir.isDirectory()) return result;
+        File[] files = dir.listFiles();
+        if (files == null) return result;
 
+        for (File f : files) {
+            if (!f.isFile()) continue;
+            String name = f.getName();
+            int lastUnderscore = name.lastIndexOf('_');
+            int lastDot = name.lastIndexOf('.');
+            if (lastUnderscore > 0 && lastDot > lastUnderscore) {
+                String tag = name.substring(lastUnderscore + 1, lastDot);
+                result.computeIfAbsent(tag, k -> new ArrayList<>()).add(f);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads what every email of a mass send needs; on failure records the reason in the result
+     * and returns null.
+     */
+    private MassContext loadMassContext(String taskId, Result result, ProgressCallback progress) {
+        if (progress != null) progress.update(0.0, "Loading address book...");
         List<EmailAddressBookEntity> allAddresses;
         try (SqlSession session = DatabaseInit.getSqlSession()) {
             allAddresses = session.getMapper(EmailAddressBookMapper.class).selectEmailAddressBook();
         } catch (Exception e) {
             log.error("Failed to load address book", e);
             result.errorMessage = "Failed to load address book: " + e.getMessage();
-            return result;
+            return null;
         }
 
         if (progress != null) progress.update(0.05, "Loading tags...");
@@ -111,12 +190,12 @@ public class EmailSendService {
             emailTags = session.getMapper(EmailTagMapper.class).selectAll();
             if (emailTags == null) {
                 result.errorMessage = "No email tags found in database";
-                return result;
+                return null;
             }
         } catch (Exception e) {
             log.error("Failed to load email tags", e);
             result.errorMessage = "Failed to load tags: " + e.getMessage();
-            return result;
+            return null;
         }
         Map<String, List<EmailTagEntity>> tagByName =
                 emailTags.stream().collect(Collectors.groupingBy(EmailTagEntity::getTag));
@@ -127,127 +206,88 @@ public class EmailSendService {
             config = session.getMapper(EmailMassSentConfigMapper.class).selectByTaskId(taskId);
             if (config == null) {
                 result.errorMessage = "No configuration found for taskId: " + taskId;
-                return result;
+                return null;
             }
         } catch (Exception e) {
             log.error("Failed to load mass config", e);
             result.errorMessage = "Failed to load config: " + e.getMessage();
-            return result;
+            return null;
         }
+        return new MassContext(allAddresses, tagByName, config);
+    }
 
-        if (progress != null) progress.update(0.15, "Parsing attachments...");
-        Map<String, List<File>> taggedFiles = parseAttachmentFiles(config.getAttFolderPath());
-        if (taggedFiles.isEmpty()) {
-            result.errorMessage = "No attachment files found with valid tag format in: " + config.getAttFolderPath();
-            return result;
+    /**
+     * Sends the email of one tag to the contacts carrying that tag and logs it. Tags unknown to
+     * the database or without recipients are counted as skipped.
+     *
+     * @return false only when the email was due but could not be sent
+     */
+    private boolean sendTag(MassContext context, String subject, String htmlBody,
+                         String tagName, List<File> files, Result result) {
+        List<EmailTagEntity> matchedTags = context.tagByName().get(tagName);
+        if (matchedTags == null || matchedTags.isEmpty()) {
+            log.warn("No matching tag found in database for: {}", tagName);
+            result.skippedCount++;
+            return true;
         }
+        EmailTagEntity fileTag = matchedTags.get(0);
 
-        int total = taggedFiles.size();
-        int processed = 0;
         List<String> toList = new ArrayList<>();
         List<String> ccList = new ArrayList<>();
+        Long toTagId = parseLong(context.config().getToTag());
+        Long ccTagId = parseLong(context.config().getCcTag());
 
-        for (Map.Entry<String, List<File>> entry : taggedFiles.entrySet()) {
-            processed++;
-            String tagName = entry.getKey();
-            List<File> files = entry.getValue();
+        for (EmailAddressBookEntity addr : context.addresses()) {
+            List<Long> contactTagIds = parseTagIds(addr.getTags());
+            if (!contactTagIds.contains(fileTag.getId())) continue;
 
-            List<EmailTagEntity> matchedTags = tagByName.get(tagName);
-            if (matchedTags == null || matchedTags.isEmpty()) {
-                log.warn("No matching tag found in database for: {}", tagName);
-                continue;
+            if (toTagId != null && contactTagIds.contains(toTagId)) {
+                toList.add(addr.getEmailAddress());
             }
-            EmailTagEntity fileTag = matchedTags.get(0);
-
-            toList.clear();
-            ccList.clear();
-            Long toTagId = parseLong(config.getToTag());
-            Long ccTagId = parseLong(config.getCcTag());
-
-            for (EmailAddressBookEntity addr : allAddresses) {
-                List<Long> contactTagIds = parseTagIds(addr.getTags());
-                if (!contactTagIds.contains(fileTag.getId())) continue;
-
-                if (toTagId != null && contactTagIds.contains(toTagId)) {
-                    toList.add(addr.getEmailAddress());
-                }
-                if (ccTagId != null && contactTagIds.contains(ccTagId)) {
-                    ccList.add(addr.getEmailAddress());
-                }
-            }
-
-            if (toList.isEmpty()) {
-                log.warn("No recipients found for tag {}", tagName);
-                continue;
-            }
-
-            if (progress != null) {
-                double pct = 0.15 + 0.85 * processed / total;
-                progress.update(pct, "Sending [" + processed + "/" + total + "] " + tagName);
-            }
-
-            EmailSentLogEntity logEntity = new EmailSentLogEntity();
-            logEntity.setSubject(subject);
-            logEntity.setTo(toList.toString());
-            logEntity.setCc(ccList.isEmpty() ? null : ccList.toString());
-            logEntity.setContent(htmlBody);
-            logEntity.setAttachment(files.toString());
-            logEntity.setSendTime(new Date());
-
-            try {
-                EmailUtil.EmailMessage message = EmailUtil.EmailMessage.builder()
-                        .to(new ArrayList<>(toList))
-                        .cc(ccList.isEmpty() ? null : new ArrayList<>(ccList))
-                        .subject(subject)
-                        .htmlBody(htmlBody)
-                        .attachments(config.isSentAtt() ? files : null)
-                        .build();
-                EmailUtil.sendEmail(message);
-                logEntity.setSuccess(true);
-                result.successCount++;
-                log.info("Email sent successfully for tag {} to {} recipients", tagName, toList.size());
-            } catch (Exception e) {
-                logEntity.setSuccess(false);
-                result.failCount++;
-                log.error("Email send failed for tag {}", tagName, e);
+            if (ccTagId != null && contactTagIds.contains(ccTagId)) {
+                ccList.add(addr.getEmailAddress());
             }
+        }
 
-            try (SqlSession session = DatabaseInit.getSqlSession()) {
-                session.getMapper(EmailSentLogMapper.class).insert(logEntity);
-                session.commit();
-            } catch (Exception dbEx) {
-                log.error("Failed to persist sent log", dbEx);
-            }
+        if (toList.isEmpty()) {
+            log.warn("No recipients found for tag {}", tagName);
+            result.skippedCount++;
+            return true;
         }
 
-        if (progress != null) progress.update(1.0, "Done");
-        return result;
-    }
+        EmailSentLogEntity logEntity = new EmailSentLogEntity();
+        logEntity.setSubject(subject);
+        logEntity.setTo(toList.toString());
+        logEntity.setCc(ccList.isEmpty() ? null : ccList.toString());
+        logEntity.setContent(htmlBody);
+        logEntity.setAttachment(files.toString());
+        logEntity.setSendTime(new Date());
 
-    /**
-     * Parses attachment files in the given directory. Tag is the substring between the last
-     * underscore (_) and the file extension dot (.).
-     * Example: report_2024_Q1.xlsx → tag "Q1"; data_test_important.xlsx → tag "important".
-     */
-    public Map<String, List<File>> parseAttachmentFiles(String attachmentPath) {
-        Map<String, List<File>> result = new HashMap<>();
-        if (attachmentPath == null || attachmentPath.trim().isEmpty()) return result;
-        File dir = new File(attachmentPath);
-        if (!dir.exists() || !dir.isDirectory()) return result;
-        File[] files = dir.listFiles();
-        if (files == null) return result;
+        try {
+            EmailUtil.EmailMessage message = EmailUtil.EmailMessage.builder()
+                    .to(toList)
+                    .cc(ccList.isEmpty() ? null : ccList)
+                    .subject(subject)
+                    .htmlBody(htmlBody)
+                    .attachments(context.config().isSentAtt() ? files : null)
+                    .build();
+            EmailUtil.sendEmail(message);
+            logEntity.setSuccess(true);
+            result.successCount++;
+            log.info("Email sent successfully for tag {} to {} recipients", tagName, toList.size());
+        } catch (Exception e) {
+            logEntity.setSuccess(false);
+            result.failCount++;
+            log.error("Email send failed for tag {}", tagName, e);
+        }
 
-        for (File f : files) {
-            if (!f.isFile()) continue;
-            String name = f.getName();
-            int lastUnderscore = name.lastIndexOf('_');
-            int lastDot = name.lastIndexOf('.');
-            if (lastUnderscore > 0 && lastDot > lastUnderscore) {
-                String tag = name.substring(lastUnderscore + 1, lastDot);
-                result.computeIfAbsent(tag, k -> new ArrayList<>()).add(f);
-            }
+        try (SqlSession session = DatabaseInit.getSqlSession()) {
+            session.getMapper(EmailSentLogMapper.class).insert(logEntity);
+            session.commit();
+        } catch (Exception dbEx) {
+            log.error("Failed to persist sent log", dbEx);
         }
-        return result;
+        return logEntity.isSuccess();
     }
 
     /**
@@ -276,9 +316,99 @@ public class EmailSendService {
         }
     }
 
+    private record MassContext(List<EmailAddressBookEntity> addresses,
+                               Map<String, List<EmailTagEntity>> tagByName,
+                               EmailMassSentConfigEntity config) {
+    }
+
+    /**
+     * A running pipelined mass send, see {@link #startMass}. {@link #submit} may be called from
+     * any thread until {@link #finish}.
+     */
+    public static final class MassDispatch {
+        private final EmailSendService service;
+        private final MassContext context;
+        private final String subject;
+        private final String htmlBody;
+        private final Result result;
+        private final ProgressCallback progress;
+        private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "mass-send");
+            t.setDaemon(true);
+            return t;
+        });
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        private MassDispatch(EmailSendService service, MassContext context, String subject, String htmlBody,
+                             Result result, ProgressCallback progress) {
+            this.service = service;
+            this.context = context;
+            this.subject = subject;
+            this.htmlBody = htmlBody;
+            this.result = result;
+            this.progress = progress;
+        }
+
+        /**
+         * Queues the email of one tag and returns at once. The future completes with true once
+         * the email is sent or there was nothing to send (tag skipped), and with false when sending
+         * failed or the email was dropped by {@link #cancel}.
+         */
+        public CompletableFuture<Boolean> submit(String tagName, List<File> files) {
+            submitted.incrementAndGet();
+            List<File> attachments = List.copyOf(files);
+            CompletableFuture<Boolean> delivered = new CompletableFuture<>();
+            sender.execute(() -> {
+                boolean ok = false;
+                try {
+                    if (cancelled) {
+                        result.cancelledCount++;
+                        return;
+                    }
+                    // Only the sender thread touches the result until finish() has joined it
+                    ok = service.sendTag(context, subject, htmlBody, tagName, attachments, result);
+                    int done = processed.incrementAndGet();
+                    if (progress != null) {
+                        int total = submitted.get();
+                        progress.update((double) done / total, "Sent [" + done + "/" + total + "] " + tagName);
+                    }
+                } finally {
+                    delivered.complete(ok);
+                }
+            });
+            return delivered;
+        }
+
+        /**
+         * Stops taking submissions, waits for every queued email and returns the totals.
+         */
+        public Result finish() throws InterruptedException {
+            sender.shutdown();
+            // A slow SMTP server is not a reason to drop queued emails
+            sender.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            log.info("Pipelined mass send finished | submitted={}, success={}, failed={}, skipped={}, cancelled={}",
+                    submitted.get(), result.successCount, result.failCount, result.skippedCount, result.cancelledCount);
+            return result;
+        }
+
+        /**
+         * Drops emails not yet sent, counted as cancelled, and completes their futures with false;
+         * the one in progress completes.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
     public static class Result {
         public int successCount;
         public int failCount;
+        // Tags unknown to the database or without recipients
+        public int skippedCount;
+        // Queued emails dropped by MassDispatch.cancel()
+        public int cancelledCount;
         public String errorMessage;
     }
 }
@@ -0,0 +1,35 @@
+package fan.summer.buildintool.excelaggregate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class AggregateConfig {
+
+    public enum Function {
+        SUM("求和"), COUNT("计数"), MIN("最小值"), MAX("最大值"), DISTINCT("去重计数");
+
+        private final String label;
+
+        Function(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** One output column: a function applied to a source column. */
+    public record Measure(int column, Function function) {}
+
+    public Path   sourceFile;
+    public String sheet;
+    public Map<Integer, String> headers;   // colIndex → header
+    // Rows are grouped by the values of these columns, blank values under INVALID as in the splitter
+    public List<Integer> groupColumns = new ArrayList<>();
+    public List<Measure> measures = new ArrayList<>();
+
+    public Path outputDir;
+}
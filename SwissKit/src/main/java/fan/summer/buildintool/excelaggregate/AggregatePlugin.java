@@ -0,0 +1,285 @@
+package fan.summer.buildintool.excelaggregate;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import fan.summer.buildintool.excelsplitter.SheetPicker;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.util.StringConverter;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel summary (pivot) tool: sum, count, min, max and distinct count of columns grouped by
+ * one or more columns, streamed through {@link GroupAggregator}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class AggregatePlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.excelaggregate"; }
+    @Override public String getName()        { return "Excel汇总"; }
+    @Override public String getDescription() { return "按分组列对超大表做求和/计数/最值/去重计数汇总（数据透视）"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "sigma"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new AggregateView();
+        return view;
+    }
+
+    static class AggregateView extends ScrollPane {
+        private final SheetPicker picker = new SheetPicker("数据表");
+        private final SheetPicker.ColumnList groupColumns;
+        private final ComboBox<Integer> measureColumnCombo = new ComboBox<>();
+        private final ComboBox<AggregateConfig.Function> functionCombo = new ComboBox<>();
+        private final ListView<AggregateConfig.Measure> measureList = new ListView<>();
+        private final Label dirLabel = new Label("未选择（默认与数据表同目录）");
+        private final Label hintLabel = new Label();
+        private final Button runBtn = glassBtn("▶  开始汇总", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label progressLabel = new Label();
+        private final VBox resultBox = new VBox(8);
+        private Map<Integer, String> headers;
+        private Path outputDir;
+        private volatile GroupAggregator aggregator;
+
+        AggregateView() {
+            groupColumns = picker.addColumnList("分组列（可多选，均不勾选时汇总全表）", false);
+            picker.setOnChange(this::sheetChanged);
+
+            StringConverter<Integer> columnName = new StringConverter<>() {
+                @Override public String toString(Integer idx) { return idx == null || headers == null ? "" : headers.get(idx); }
+                @Override public Integer fromString(String s) { return null; }
+            };
+            measureColumnCombo.setConverter(columnName);
+            measureColumnCombo.setPromptText("选择列...");
+            measureColumnCombo.setStyle(comboStyle());
+            measureColumnCombo.setMaxWidth(Double.MAX_VALUE);
+            HBox.setHgrow(measureColumnCombo, Priority.ALWAYS);
+
+            functionCombo.getItems().addAll(AggregateConfig.Function.values());
+            functionCombo.getSelectionModel().select(AggregateConfig.Function.SUM);
+            functionCombo.setConverter(new StringConverter<>() {
+                @Override public String toString(AggregateConfig.Function f) { return f == null ? "" : f.getLabel(); }
+                @Override public AggregateConfig.Function fromString(String s) { return null; }
+            });
+            functionCombo.setStyle(comboStyle());
+
+            Button addBtn = glassBtn("添加", false);
+            addBtn.setOnAction(e -> {
+                Integer col = measureColumnCombo.getValue();
+                AggregateConfig.Function fn = functionCombo.getValue();
+                AggregateConfig.Measure m = col == null || fn == null ? null : new AggregateConfig.Measure(col, fn);
+                if (m != null && !measureList.getItems().contains(m)) measureList.getItems().add(m);
+                validate();
+            });
+            Button removeBtn = glassBtn("删除所选", false);
+            removeBtn.setOnAction(e -> {
+                int idx = measureList.getSelectionModel().getSelectedIndex();
+                if (idx >= 0) measureList.getItems().remove(idx);
+                validate();
+            });
+            HBox measureRow = new HBox(8, measureColumnCombo, functionCombo, addBtn, removeBtn);
+            measureRow.setAlignment(Pos.CENTER_LEFT);
+
+            measureList.setPrefHeight(140);
+            measureList.setStyle(
+                "-fx-background-color: rgba(255,255,255,0.04);" +
+                "-fx-border-color: rgba(255,255,255,0.10); -fx-border-radius: 8;" +
+                "-fx-background-radius: 8;"
+            );
+            measureList.setCellFactory(lv -> new ListCell<>() {
+                @Override
+                protected void updateItem(AggregateConfig.Measure m, boolean empty) {
+                    super.updateItem(m, empty);
+                    setText(empty || m == null || headers == null ? null
+                        : headers.get(m.column()) + " · " + m.function().getLabel());
+                }
+            });
+
+            dirLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            dirLabel.setWrapText(true);
+            Button dirBtn = glassBtn("📁  选择输出目录", false);
+            dirBtn.setOnAction(e -> pickOutputDir());
+
+            hintLabel.setWrapText(true);
+            hintLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            resultBox.setStyle("-fx-background-color: transparent;");
+
+            runBtn.setOnAction(e -> startAggregate());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                if (aggregator != null) aggregator.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+            HBox actions = new HBox(12, runBtn, cancelBtn);
+            actions.setAlignment(Pos.CENTER_LEFT);
+
+            VBox content = new VBox(16, picker, new Separator(),
+                sectionTitle("汇总列"), subLabel("选择列和汇总方式后点击「添加」"), measureRow, measureList,
+                sectionTitle("输出目录"), dirBtn, dirLabel,
+                hintLabel, actions, progressBar, progressLabel, resultBox);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validate();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private void sheetChanged() {
+            Map<Integer, String> current = picker.headers();
+            if (current != headers) {
+                headers = current;
+                measureColumnCombo.getItems().clear();
+                measureList.getItems().clear();
+                if (headers != null) measureColumnCombo.getItems().addAll(new TreeMap<>(headers).keySet());
+            }
+            validate();
+        }
+
+        private void validate() {
+            String error = null;
+            if (headers == null) {
+                error = "请先选择文件和Sheet";
+            } else if (measureList.getItems().isEmpty()) {
+                error = "请至少添加一个汇总列";
+            }
+            hintLabel.setText(error != null ? "❌ " + error : "");
+            runBtn.setDisable(error != null || aggregator != null);
+        }
+
+        private void pickOutputDir() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择输出目录");
+            if (picker.file() != null) dc.setInitialDirectory(picker.file().getParent().toFile());
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) {
+                outputDir = dir.toPath();
+                dirLabel.setText(dir.getAbsolutePath());
+                dirLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+        }
+
+        private AggregateConfig buildConfig() {
+            AggregateConfig config = new AggregateConfig();
+            config.sourceFile = picker.file();
+            config.sheet = picker.sheet();
+            config.headers = headers;
+            config.groupColumns = new ArrayList<>(groupColumns.selected());
+            config.measures = new ArrayList<>(measureList.getItems());
+            config.outputDir = outputDir != null ? outputDir : config.sourceFile.getParent();
+            return config;
+        }
+
+        private void startAggregate() {
+            resultBox.getChildren().clear();
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            GroupAggregator current = new GroupAggregator(buildConfig(), (pct, msg) ->
+                Platform.runLater(() -> {
+                    if (cancelBtn.isDisabled()) return;
+                    progressBar.setProgress(pct);
+                    progressLabel.setText(msg);
+                })
+            );
+            aggregator = current;
+            runBtn.setDisable(true);
+            Task<GroupAggregator.AggregateResult> task = new Task<>() {
+                @Override
+                protected GroupAggregator.AggregateResult call() throws Exception {
+                    return current.aggregate();
+                }
+            };
+            task.setOnSucceeded(e -> finish(task.getValue(), null));
+            task.setOnFailed(e -> finish(null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finish(GroupAggregator.AggregateResult result, Throwable err) {
+            aggregator = null;
+            cancelBtn.setVisible(false);
+            validate();
+            progressBar.setProgress(1.0);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                progressBar.setProgress(0);
+                progressLabel.setText("已取消");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                progressBar.getStyleClass().add("danger");
+                progressLabel.setText("❌ 汇总失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                progressLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            progressBar.getStyleClass().add("success");
+            progressLabel.setText("✓ 汇总完成：" + result.output().getFileName());
+            progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+
+            Label summary = new Label("读取 " + result.rows() + " 行，汇总为 " + result.groups() + " 组（"
+                + result.partitions() + " 路并行汇总后合并）");
+            summary.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+            summary.setWrapText(true);
+            Button openBtn = glassBtn("打开文件夹", false);
+            openBtn.setOnAction(e -> {
+                try {
+                    java.awt.Desktop.getDesktop().open(result.output().getParent().toFile());
+                } catch (Exception ex) { /* skip */ }
+            });
+            resultBox.getChildren().addAll(subLabel("汇总结果"), summary, openBtn);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package fan.summer.buildintool.excelaggregate;
+
+import fan.summer.buildintool.excelsplitter.ExcelUtil;
+import fan.summer.buildintool.excelsplitter.FileNameUtil;
+import fan.summer.buildintool.excelsplitter.GroupSheetWriter;
+import fan.summer.buildintool.excelsplitter.LongHashSet;
+import fan.summer.buildintool.excelsplitter.RowFilter;
+import fan.summer.buildintool.excelsplitter.SheetRowReader;
+import fan.summer.buildintool.excelsplitter.SplitConfig;
+import fan.summer.buildintool.excelsplitter.StreamingRowListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Streaming group-by aggregation (a pivot table for sheets too large for Excel): sum, count,
+ * min, max and distinct count of columns per combination of group column values.
+ * <p>
+ * The reading thread only cuts rows into batches; the batches are aggregated on all cores,
+ * each worker folding into one of several partial aggregates, and the partials are merged
+ * once the sheet ends. Per group the accumulators are plain arrays of doubles and longs, and
+ * distinct counts keep 64-bit value hashes in a primitive open-addressing set rather than
+ * the values themselves. The summary is written as a new workbook, groups sorted by key.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class GroupAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupAggregator.class);
+
+    static final String SUMMARY_SHEET = "汇总";
+
+    private static final int BATCH_ROWS = 4096;
+    private static final int PROGRESS_ROWS = 65_536;
+    private static final char KEY_SEPARATOR = '\u0001';
+    // Sums are rounded to Excel's 15 significant digits to drop binary noise such as 0.30000000000000004
+    private static final MathContext EXCEL_PRECISION = new MathContext(15);
+    private static final String INVALID = "INVALID";
+    // Kind of value held by a MIN / MAX slot
+    private static final byte NONE = 0;
+    private static final byte NUMBER = 1;
+    private static final byte DATE = 2;
+
+    public record AggregateResult(Path output, long rows, long groups, int partitions) {}
+
+    private final AggregateConfig config;
+    private final BiConsumer<Double, String> progress;
+    private final AggregateConfig.Function[] functions;
+    private final int[] measureColumns;
+    private volatile boolean cancelled;
+
+    public GroupAggregator(AggregateConfig config, BiConsumer<Double, String> progress) {
+        if (config.measures.isEmpty()) throw new IllegalArgumentException("At least one measure is required");
+        this.config = config;
+        this.progress = progress;
+        this.functions = config.measures.stream().map(AggregateConfig.Measure::function)
+                .toArray(AggregateConfig.Function[]::new);
+        this.measureColumns = config.measures.stream().mapToInt(AggregateConfig.Measure::column).toArray();
+    }
+
+    /**
+     * Asks a running {@link #aggregate()} to stop; it throws {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public AggregateResult aggregate() throws Exception {
+        Path output = config.outputDir.resolve(
+                FileNameUtil.getFileName(config.sourceFile.getFileName().toString()) + "_summary.xlsx");
+        int partitions = Math.max(1, Runtime.getRuntime().availableProcessors());
+        logger.info("Aggregation started | file={}, sheet={}, groupColumns={}, measures={}, partitions={}",
+                config.sourceFile.getFileName(), config.sheet, config.groupColumns.size(), functions.length, partitions);
+        long start = System.nanoTime();
+
+        BlockingQueue<Partial> partials = new ArrayBlockingQueue<>(partitions);
+        for (int i = 0; i < partitions; i++) partials.add(new Partial());
+        Semaphore inFlight = new Semaphore(partitions * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(partitions, r -> {
+            Thread t = new Thread(r, "aggregate-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long rows;
+        Map<String, GroupState> groups;
+        try {
+            Batch[] batch = {new Batch()};
+            Runnable dispatch = () -> {
+                Batch full = batch[0];
+                batch[0] = new Batch();
+                inFlight.acquireUninterruptibly();
+                pool.execute(() -> {
+                    Partial partial = null;
+                    try {
+                        partial = partials.take();
+                        partial.add(full);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        if (partial != null) partials.add(partial);
+                        inFlight.release();
+                    }
+                });
+            };
+
+            StreamingRowListener listener = new StreamingRowListener(row -> {
+                Batch b = batch[0];
+                b.keys[b.size] = key(row);
+                Object[] cells = new Object[measureColumns.length];
+                for (int i = 0; i < cells.length; i++) cells[i] = row.get(measureColumns[i]);
+                b.cells[b.size++] = cells;
+                if (b.size == BATCH_ROWS) dispatch.run();
+            });
+            long[] read = {0};
+            listener.setRowTicker(n -> {
+                checkCancelled();
+                if (failure.get() != null) throw new IllegalStateException("Aggregation failed", failure.get());
+                if ((read[0] += n) / PROGRESS_ROWS != (read[0] - n) / PROGRESS_ROWS) {
+                    progress.accept(-1.0, "Aggregating: " + read[0] + " rows");
+                }
+            });
+            progress.accept(-1.0, "Reading: " + config.sheet);
+            SheetRowReader.read(config.sourceFile, config.sheet, decodeColumns(), listener);
+            if (batch[0].size > 0) dispatch.run();
+            inFlight.acquireUninterruptibly(partitions * 2);
+            if (failure.get() != null) throw new IllegalStateException("Aggregation failed", failure.get());
+            rows = listener.getRowCount();
+
+            progress.accept(0.8, "Merging " + partitions + " partial aggregates");
+            Partial merged = partials.take();
+            while (!partials.isEmpty()) merged.merge(partials.take());
+            groups = merged.groups;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        progress.accept(0.9, "Writing: " + output.getFileName());
+        try (OutputStream os = Files.newOutputStream(output);
+             GroupSheetWriter writer = new GroupSheetWriter(os, head(), SplitConfig.OverflowPolicy.NEW_SHEET)) {
+            for (Map.Entry<String, GroupState> e : sortedGroups(groups)) {
+                checkCancelled();
+                writer.accept(SUMMARY_SHEET, summaryRow(e.getKey(), e.getValue()));
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+        progress.accept(1.0, "Done");
+        logger.info("Aggregation completed | rows={}, groups={}, partitions={}, elapsedMs={}",
+                rows, groups.size(), partitions, (System.nanoTime() - start) / 1_000_000);
+        return new AggregateResult(output, rows, groups.size(), partitions);
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Aggregation cancelled");
+    }
+
+    private BitSet decodeColumns() {
+        BitSet decode = new BitSet();
+        config.groupColumns.forEach(decode::set);
+        for (int col : measureColumns) decode.set(col);
+        return decode;
+    }
+
+    private String key(Map<Integer, Object> row) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < config.groupColumns.size(); i++) {
+            if (i > 0) sb.append(KEY_SEPARATOR);
+            sb.append(ExcelUtil.normalizeOrInvalid(row.get(config.groupColumns.get(i))));
+        }
+        return sb.toString();
+    }
+
+    private List<List<String>> head() {
+        List<List<String>> head = new ArrayList<>();
+        for (Integer col : config.groupColumns) head.add(Collections.singletonList(config.headers.get(col)));
+        head.add(Collections.singletonList("行数"));
+        for (AggregateConfig.Measure m : config.measures) {
+            head.add(Collections.singletonList(config.headers.get(m.column()) + " " + m.function().getLabel()));
+        }
+        return head;
+    }
+
+    /**
+     * Groups ordered by key, column by column: numbers numerically before text.
+     */
+    private List<Map.Entry<String, GroupState>> sortedGroups(Map<String, GroupState> groups) {
+        List<Map.Entry<String, GroupState>> entries = new ArrayList<>(groups.entrySet());
+        Map<String, String[]> parts = new HashMap<>(groups.size() * 2);
+        for (String key : groups.keySet()) parts.put(key, key.split(String.valueOf(KEY_SEPARATOR), -1));
+        Comparator<String> cell = (a, b) -> {
+            Double x = RowFilter.numberOf(a);
+            Double y = RowFilter.numberOf(b);
+            if (x != null && y != null) return Double.compare(x, y);
+            if (x != null || y != null) return x != null ? -1 : 1;
+            return a.compareTo(b);
+        };
+        entries.sort((a, b) -> {
+            String[] x = parts.get(a.getKey());
+            String[] y = parts.get(b.getKey());
+            for (int i = 0; i < Math.min(x.length, y.length); i++) {
+                int c = cell.compare(x[i], y[i]);
+                if (c != 0) return c;
+            }
+            return Integer.compare(x.length, y.length);
+        });
+        return entries;
+    }
+
+    private List<Object> summaryRow(String key, GroupState state) {
+        List<Object> row = new ArrayList<>(config.groupColumns.size() + 1 + functions.length);
+        if (!config.groupColumns.isEmpty()) {
+            Collections.addAll(row, (Object[]) key.split(String.valueOf(KEY_SEPARATOR), -1));
+        }
+        row.add(state.rows);
+        for (int i = 0; i < functions.length; i++) {
+            row.add(switch (functions[i]) {
+                case COUNT -> state.counts[i];
+                case DISTINCT -> (long) state.distinct[i].size();
+                case SUM -> state.counts[i] == 0 ? ""
+                        : new BigDecimal(state.values[i] - state.compensation[i]).round(EXCEL_PRECISION).doubleValue();
+                case MIN, MAX -> switch (state.kinds[i]) {
+                    case NUMBER -> state.values[i];
+                    case DATE -> LocalDate.ofEpochDay((long) state.values[i]).toString();
+                    default -> "";
+                };
+            });
+        }
+        return row;
+    }
+
+    /** Rows cut off the reading thread: group keys and the raw measure cells. */
+    private static final class Batch {
+        final String[] keys = new String[BATCH_ROWS];
+        final Object[][] cells = new Object[BATCH_ROWS][];
+        int size;
+    }
+
+    /**
+     * Accumulators of one group, one slot per measure. SUM keeps a Kahan-compensated total,
+     * MIN / MAX the extreme number, or the extreme date while the column has held only dates.
+     */
+    private final class GroupState {
+        long rows;
+        final double[] values = new double[functions.length];
+        final double[] compensation = new double[functions.length];
+        final long[] counts = new long[functions.length];
+        final byte[] kinds = new byte[functions.length];
+        final LongHashSet[] distinct = new LongHashSet[functions.length];
+
+        GroupState() {
+            for (int i = 0; i < functions.length; i++) {
+                if (functions[i] == AggregateConfig.Function.DISTINCT) distinct[i] = new LongHashSet();
+            }
+        }
+
+        void add(Object[] cells) {
+            rows++;
+            for (int i = 0; i < functions.length; i++) {
+                String s = ExcelUtil.normalizeOrInvalid(cells[i]);
+                if (INVALID.equals(s)) continue;
+                switch (functions[i]) {
+                    case COUNT -> counts[i]++;
+                    case DISTINCT -> distinct[i].add(LongHashSet.hash64(s));
+                    case SUM -> {
+                        Double n = RowFilter.numberOf(s);
+                        if (n != null) {
+                            sum(i, n, 0);
+                            counts[i]++;
+                        }
+                    }
+                    case MIN, MAX -> {
+                        Double n = RowFilter.numberOf(s);
+                        if (n != null) {
+                            extreme(i, NUMBER, n);
+                        } else {
+                            LocalDate d = RowFilter.dateOf(s);
+                            if (d != null) extreme(i, DATE, d.toEpochDay());
+                        }
+                    }
+                }
+            }
+        }
+
+        void merge(GroupState other) {
+            rows += other.rows;
+            for (int i = 0; i < functions.length; i++) {
+                switch (functions[i]) {
+                    case COUNT -> counts[i] += other.counts[i];
+                    case DISTINCT -> distinct[i].addAll(other.distinct[i]);
+                    case SUM -> {
+                        sum(i, other.values[i], other.compensation[i]);
+                        counts[i] += other.counts[i];
+                    }
+                    case MIN, MAX -> {
+                        if (other.kinds[i] != NONE) extreme(i, other.kinds[i], other.values[i]);
+                    }
+                }
+            }
+        }
+
+        // compensation holds the negated low-order part lost so far, so a total is values - compensation
+        private void sum(int i, double value, double valueCompensation) {
+            double y = value - valueCompensation - compensation[i];
+            double t = values[i] + y;
+            compensation[i] = (t - values[i]) - y;
+            values[i] = t;
+        }
+
+        // Numbers take precedence over dates, as in the splitter's sort order
+        private void extreme(int i, byte kind, double value) {
+            if (kind < kinds[i] || kinds[i] == NONE) {
+                kinds[i] = kind;
+                values[i] = value;
+            } else if (kind == kinds[i]) {
+                values[i] = functions[i] == AggregateConfig.Function.MIN
+                        ? Math.min(values[i], value) : Math.max(values[i], value);
+            }
+        }
+    }
+
+    /** One worker's share of the groups; merged with the others once the sheet ends. */
+    private final class Partial {
+        final Map<String, GroupState> groups = new HashMap<>();
+
+        void add(Batch batch) {
+            for (int r = 0; r < batch.size; r++) {
+                groups.computeIfAbsent(batch.keys[r], k -> new GroupState()).add(batch.cells[r]);
+            }
+        }
+
+        void merge(Partial other) {
+            other.groups.forEach((key, state) -> {
+                GroupState mine = groups.putIfAbsent(key, state);
+                if (mine != null) mine.merge(state);
+            });
+        }
+    }
+}
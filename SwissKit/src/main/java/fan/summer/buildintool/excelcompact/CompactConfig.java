@@ -0,0 +1,11 @@
+package fan.summer.buildintool.excelcompact;
+
+import java.nio.file.Path;
+
+public class CompactConfig {
+
+    public Path sourceFile;    // .xlsx / .xlsm to compact; the source is never modified
+
+    // Where <file>_compact.xlsx goes
+    public Path outputDir;
+}
@@ -0,0 +1,248 @@
+package fan.summer.buildintool.excelcompact;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel compaction tool: rewrites a workbook with only the styles, fonts, formats and shared
+ * strings its cells use, deduplicated by content, computed by {@link WorkbookCompactor}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class CompactPlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.excelcompact"; }
+    @Override public String getName()        { return "Excel瘦身"; }
+    @Override public String getDescription() { return "清除工作簿中未使用和重复的样式、字体、数字格式与共享字符串，加快打开速度"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "archive-arrow-down-outline"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new CompactView();
+        return view;
+    }
+
+    static class CompactView extends ScrollPane {
+        private final Label fileLabel = new Label("未选择文件");
+        private final Label dirLabel = new Label("未选择（默认与来源文件同目录）");
+        private final Label hintLabel = new Label();
+        private final Button runBtn = glassBtn("▶  开始瘦身", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label progressLabel = new Label();
+        private final VBox resultBox = new VBox(8);
+        private Path sourceFile;
+        private Path outputDir;
+        private volatile WorkbookCompactor compactor;
+
+        CompactView() {
+            fileLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            fileLabel.setWrapText(true);
+            Button fileBtn = glassBtn("📄  选择 Excel 文件", false);
+            fileBtn.setOnAction(e -> pickSourceFile());
+            Label fileHint = new Label("只保留单元格、行、列实际用到的样式（含其字体、填充、边框与数字格式）和共享字符串，"
+                + "内容相同的合并为一个；命名样式与条件格式不受影响，原文件不会被修改。仅支持 .xlsx / .xlsm");
+            fileHint.setWrapText(true);
+            fileHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            dirLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            dirLabel.setWrapText(true);
+            Button dirBtn = glassBtn("📁  选择输出目录", false);
+            dirBtn.setOnAction(e -> pickOutputDir());
+
+            hintLabel.setWrapText(true);
+            hintLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            resultBox.setStyle("-fx-background-color: transparent;");
+
+            runBtn.setOnAction(e -> startCompact());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                if (compactor != null) compactor.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+            HBox actions = new HBox(12, runBtn, cancelBtn);
+            actions.setAlignment(Pos.CENTER_LEFT);
+
+            VBox content = new VBox(16, sectionTitle("工作簿"), fileBtn, fileLabel, fileHint, new Separator(),
+                sectionTitle("输出目录"), dirBtn, dirLabel,
+                hintLabel, actions, progressBar, progressLabel, resultBox);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validate();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private void validate() {
+            String error = sourceFile == null ? "请先选择 Excel 文件" : null;
+            hintLabel.setText(error != null ? "❌ " + error : "");
+            runBtn.setDisable(error != null || compactor != null);
+        }
+
+        private void pickSourceFile() {
+            FileChooser fc = new FileChooser();
+            fc.setTitle("选择 Excel 文件");
+            fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Excel 工作簿", "*.xlsx", "*.xlsm"));
+            File file = fc.showOpenDialog(getScene() != null ? getScene().getWindow() : null);
+            if (file != null) {
+                sourceFile = file.toPath();
+                fileLabel.setText(file.getAbsolutePath());
+                fileLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+            validate();
+        }
+
+        private void pickOutputDir() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择输出目录");
+            if (sourceFile != null) dc.setInitialDirectory(sourceFile.getParent().toFile());
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) {
+                outputDir = dir.toPath();
+                dirLabel.setText(dir.getAbsolutePath());
+                dirLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+        }
+
+        private void startCompact() {
+            CompactConfig config = new CompactConfig();
+            config.sourceFile = sourceFile;
+            config.outputDir = outputDir != null ? outputDir : sourceFile.getParent();
+
+            resultBox.getChildren().clear();
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            WorkbookCompactor current;
+            try {
+                current = new WorkbookCompactor(config, (pct, msg) ->
+                    Platform.runLater(() -> {
+                        if (cancelBtn.isDisabled()) return;
+                        progressBar.setProgress(pct);
+                        progressLabel.setText(msg);
+                    })
+                );
+            } catch (IllegalArgumentException ex) {
+                finish(null, ex);
+                return;
+            }
+            compactor = current;
+            runBtn.setDisable(true);
+            Task<WorkbookCompactor.CompactResult> task = new Task<>() {
+                @Override
+                protected WorkbookCompactor.CompactResult call() throws Exception {
+                    return current.compact();
+                }
+            };
+            task.setOnSucceeded(e -> finish(task.getValue(), null));
+            task.setOnFailed(e -> finish(null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finish(WorkbookCompactor.CompactResult result, Throwable err) {
+            compactor = null;
+            cancelBtn.setVisible(false);
+            validate();
+            progressBar.setProgress(1.0);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                progressBar.setProgress(0);
+                progressLabel.setText("已取消");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                progressBar.getStyleClass().add("danger");
+                progressLabel.setText("❌ 瘦身失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                progressLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            progressBar.getStyleClass().add("success");
+            progressLabel.setText("✓ 瘦身完成：" + result.output().getFileName());
+            progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+
+            resultBox.getChildren().add(subLabel("瘦身结果"));
+            addResult("单元格样式 " + result.stylesBefore() + " → " + result.stylesAfter()
+                + "，字体 " + result.fontsBefore() + " → " + result.fontsAfter()
+                + "，自定义数字格式 " + result.formatsBefore() + " → " + result.formatsAfter());
+            addResult("共享字符串 " + result.stringsBefore() + " → " + result.stringsAfter());
+            addResult("文件大小 " + size(result.bytesBefore()) + " → " + size(result.bytesAfter()));
+
+            Button openBtn = glassBtn("打开文件夹", false);
+            openBtn.setOnAction(e -> {
+                try {
+                    java.awt.Desktop.getDesktop().open(result.output().getParent().toFile());
+                } catch (Exception ex) { /* skip */ }
+            });
+            resultBox.getChildren().add(openBtn);
+        }
+
+        private void addResult(String text) {
+            Label l = new Label(text);
+            l.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+            l.setWrapText(true);
+            resultBox.getChildren().add(l);
+        }
+
+        private static String size(long bytes) {
+            if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+            return String.format("%.1f MB", bytes / 1024.0 / 1024.0);
+        }
+    }
+}
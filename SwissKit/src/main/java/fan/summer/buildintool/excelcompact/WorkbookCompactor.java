@@ -0,0 +1,737 @@
+package fan.summer.buildintool.excelcompact;
+
+import fan.summer.buildintool.excelsplitter.ExcelUtil;
+import fan.summer.buildintool.excelsplitter.FileNameUtil;
+import fan.summer.buildintool.excelsplitter.LongHashSet;
+import fan.summer.buildintool.excelsplitter.ParallelZipOutputStream;
+import fan.summer.buildintool.excelsplitter.XlsxStreamReader;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.util.XMLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+/**
+ * Rewrites an .xlsx keeping only the cell styles, fonts, fills, borders, number formats and
+ * shared strings that cells actually use, each deduplicated by content. Workbooks that went
+ * through many copy passes (e.g. {@code ExcelUtil.copySheetRows}, which clones one style per
+ * source style) carry thousands of identical or orphaned styles and strings, open slowly and
+ * can hit Excel's limit of 64,000 cell styles.
+ * <p>
+ * The package is transformed part by part, never through a workbook model: a first pass
+ * streams every sheet part (worksheets, macro sheets and dialog sheets, which all hold cells)
+ * with StAX and records the style and string indices its cells, rows and columns refer to;
+ * the style sheet (small) is then compacted as a DOM, the shared strings are streamed twice
+ * (map, then copy) and the sheet parts are streamed again with their indices renumbered. All
+ * other parts are copied unchanged. Memory is bounded by the style sheet, one int per shared
+ * string and, per string kept, its content plus a 64-bit fingerprint and an int, not by the
+ * number of cells.
+ * <p>
+ * Style records a workbook may reference from elsewhere are left alone: named cell styles
+ * ({@code cellStyleXfs}) and differential formats ({@code dxfs}, used by conditional formats
+ * and tables) are kept as they are, and so are number formats referenced by id from pivot
+ * tables, pivot caches or charts. Fill 0 and 1 stay in place as Excel requires.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class WorkbookCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkbookCompactor.class);
+
+    private static final String STYLES = "xl/styles.xml";
+    private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+    // Parts whose cells, rows and columns refer to styles and shared strings
+    private static final List<String> SHEET_FOLDERS = List.of("xl/worksheets/", "xl/macrosheets/", "xl/dialogsheets/");
+    // Parts that may refer to number formats by numFmtId outside the style sheet
+    private static final List<String> FORMAT_FOLDERS = List.of("xl/pivotTables/", "xl/pivotCache/", "xl/charts/");
+    private static final int CANCEL_CHECK_ROWS = 4096;
+
+    public record CompactResult(Path output, int stylesBefore, int stylesAfter, int fontsBefore, int fontsAfter,
+                                int formatsBefore, int formatsAfter, int stringsBefore, int stringsAfter,
+                                long bytesBefore, long bytesAfter) {}
+
+    private final CompactConfig config;
+    private final BiConsumer<Double, String> progress;
+    private final XMLInputFactory inputFactory = XMLHelper.newXMLInputFactory();
+    private final XMLOutputFactory outputFactory = XMLHelper.newXMLOutputFactory();
+    private final XMLEventFactory eventFactory = XMLHelper.newXMLEventFactory();
+    private volatile boolean cancelled;
+
+    public WorkbookCompactor(CompactConfig config, BiConsumer<Double, String> progress) {
+        if (!XlsxStreamReader.supports(config.sourceFile)) {
+            throw new IllegalArgumentException("Only .xlsx / .xlsm workbooks can be compacted");
+        }
+        this.config = config;
+        this.progress = progress;
+        // Parts are copied event by event with their own namespace declarations
+        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, false);
+    }
+
+    /**
+     * Asks a running {@link #compact()} to stop; it throws {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public CompactResult compact() throws Exception {
+        String name = config.sourceFile.getFileName().toString();
+        Path output = config.outputDir.resolve(FileNameUtil.getFileName(name) + "_compact"
+                + name.substring(name.lastIndexOf('.')));
+        logger.info("Compaction started | file={}, output={}", name, output.getFileName());
+        long start = System.nanoTime();
+
+        try (ZipFile zip = ZipFile.builder().setPath(config.sourceFile).get()) {
+            List<ZipArchiveEntry> entries = Collections.list(zip.getEntriesInPhysicalOrder());
+            List<ZipArchiveEntry> sheets = entries.stream().filter(e -> isSheetPart(e.getName())).toList();
+
+            Usage usage = new Usage();
+            for (int i = 0; i < sheets.size(); i++) {
+                checkCancelled();
+                progress.accept(0.4 * i / sheets.size(), "Scanning: " + sheets.get(i).getName());
+                try (InputStream in = zip.getInputStream(sheets.get(i))) {
+                    scan(in, usage);
+                }
+            }
+            for (ZipArchiveEntry entry : entries) {
+                if (!refersToFormats(entry.getName())) continue;
+                checkCancelled();
+                try (InputStream in = zip.getInputStream(entry)) {
+                    scanFormats(in, usage.formats);
+                }
+            }
+
+            ZipArchiveEntry stylesEntry = zip.getEntry(STYLES);
+            StyleMap styles = null;
+            if (stylesEntry != null) {
+                progress.accept(0.4, "Compacting styles");
+                try (InputStream in = zip.getInputStream(stylesEntry)) {
+                    styles = compactStyles(XMLHelper.newDocumentBuilder().parse(in), usage.styles, usage.formats);
+                }
+            }
+            ZipArchiveEntry stringsEntry = zip.getEntry(SHARED_STRINGS);
+            StringMap strings = null;
+            if (stringsEntry != null) {
+                progress.accept(0.45, "Mapping shared strings");
+                try (InputStream in = zip.getInputStream(stringsEntry)) {
+                    strings = mapStrings(in, usage.strings);
+                }
+            }
+
+            try (OutputStream os = Files.newOutputStream(output);
+                 ParallelZipOutputStream zos = new ParallelZipOutputStream(os, ParallelZipOutputStream.DEFAULT_LEVEL)) {
+                int done = 0;
+                for (ZipArchiveEntry entry : entries) {
+                    checkCancelled();
+                    zos.putArchiveEntry(new ZipArchiveEntry(entry.getName()));
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        if (styles != null && entry.getName().equals(STYLES)) {
+                            XMLHelper.newTransformer().transform(new DOMSource(styles.document), new StreamResult(zos));
+                        } else if (strings != null && entry.getName().equals(SHARED_STRINGS)) {
+                            writeStrings(in, zos, strings, usage.stringRefs);
+                        } else if (isSheetPart(entry.getName())) {
+                            progress.accept(0.5 + 0.5 * done++ / sheets.size(), "Rewriting: " + entry.getName());
+                            rewriteSheet(in, zos, styles, strings);
+                        } else {
+                            in.transferTo(zos);
+                        }
+                    }
+                    zos.closeArchiveEntry();
+                }
+            }
+
+            long bytesBefore = Files.size(config.sourceFile);
+            long bytesAfter = Files.size(output);
+            CompactResult result = new CompactResult(output,
+                    styles != null ? styles.xfsBefore : 0, styles != null ? styles.xfsAfter : 0,
+                    styles != null ? styles.fontsBefore : 0, styles != null ? styles.fontsAfter : 0,
+                    styles != null ? styles.formatsBefore : 0, styles != null ? styles.formatsAfter : 0,
+                    strings != null ? strings.map.length : 0, strings != null ? strings.kept : 0,
+                    bytesBefore, bytesAfter);
+            progress.accept(1.0, "Done");
+            logger.info("Compaction completed | styles={}→{}, fonts={}→{}, strings={}→{}, bytes={}→{}, elapsedMs={}",
+                    result.stylesBefore(), result.stylesAfter(), result.fontsBefore(), result.fontsAfter(),
+                    result.stringsBefore(), result.stringsAfter(), bytesBefore, bytesAfter,
+                    (System.nanoTime() - start) / 1_000_000);
+            return result;
+        } catch (Exception e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Compaction cancelled");
+    }
+
+    private static boolean isSheetPart(String name) {
+        if (!name.endsWith(".xml")) return false;
+        for (String folder : SHEET_FOLDERS) {
+            if (name.startsWith(folder) && name.indexOf('/', folder.length()) < 0) return true;
+        }
+        return false;
+    }
+
+    private static boolean refersToFormats(String name) {
+        // Cache records hold only values, and can be as large as the source data
+        if (!name.endsWith(".xml") || name.contains("pivotCacheRecords")) return false;
+        for (String folder : FORMAT_FOLDERS) {
+            if (name.startsWith(folder)) return true;
+        }
+        return false;
+    }
+
+    /** Style and shared string indices referenced by the sheets, and number formats referenced elsewhere. */
+    private static final class Usage {
+        final BitSet styles = new BitSet();
+        final BitSet formats = new BitSet();
+        final BitSet strings = new BitSet();
+        long stringRefs;
+    }
+
+    /** Records the s of cells and rows, the style of columns and the values of shared string cells. */
+    private void scan(InputStream in, Usage usage) throws XMLStreamException {
+        XMLStreamReader r = inputFactory.createXMLStreamReader(in);
+        try {
+            boolean sharedString = false;
+            boolean inValue = false;
+            StringBuilder value = new StringBuilder();
+            int rows = 0;
+            while (r.hasNext()) {
+                switch (r.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        switch (r.getLocalName()) {
+                            case "c" -> {
+                                markStyle(usage.styles, r.getAttributeValue(null, "s"));
+                                sharedString = "s".equals(r.getAttributeValue(null, "t"));
+                            }
+                            case "row" -> {
+                                markStyle(usage.styles, r.getAttributeValue(null, "s"));
+                                if (++rows % CANCEL_CHECK_ROWS == 0) checkCancelled();
+                            }
+                            case "col" -> markStyle(usage.styles, r.getAttributeValue(null, "style"));
+                            case "v" -> {
+                                inValue = sharedString;
+                                value.setLength(0);
+                            }
+                            default -> { }
+                        }
+                    }
+                    case XMLStreamConstants.CHARACTERS -> {
+                        if (inValue) value.append(r.getText());
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if (inValue && r.getLocalName().equals("v")) {
+                            inValue = false;
+                            int index = index(value.toString());
+                            if (index >= 0) {
+                                usage.strings.set(index);
+                                usage.stringRefs++;
+                            }
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        } finally {
+            r.close();
+        }
+    }
+
+    /** Records the numFmtId of every element of a part outside the style sheet. */
+    private void scanFormats(InputStream in, BitSet formats) throws XMLStreamException {
+        XMLStreamReader r = inputFactory.createXMLStreamReader(in);
+        try {
+            while (r.hasNext()) {
+                if (r.next() == XMLStreamConstants.START_ELEMENT) {
+                    markStyle(formats, r.getAttributeValue(null, "numFmtId"));
+                }
+            }
+        } finally {
+            r.close();
+        }
+    }
+
+    private static void markStyle(BitSet used, String s) {
+        int index = s == null ? -1 : index(s);
+        if (index >= 0) used.set(index);
+    }
+
+    private static int index(String s) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ---------- styles ----------
+
+    /** The compacted style sheet and the old → new cell style index. */
+    private static final class StyleMap {
+        Document document;
+        int[] xfs;
+        int xfsBefore;
+        int xfsAfter;
+        int fontsBefore;
+        int fontsAfter;
+        int formatsBefore;
+        int formatsAfter;
+
+        int map(int xf) {
+            return xf >= 0 && xf < xfs.length ? xfs[xf] : 0;
+        }
+    }
+
+    /**
+     * @param pinnedFormats number formats referenced from other parts, kept with their ids
+     */
+    private StyleMap compactStyles(Document doc, BitSet usedXfs, BitSet pinnedFormats) {
+        Element root = doc.getDocumentElement();
+        Element cellXfs = child(root, "cellXfs");
+        List<Element> xfs = children(cellXfs, "xf");
+        List<Element> styleXfs = children(child(root, "cellStyleXfs"), "xf");
+        StyleMap result = new StyleMap();
+        result.document = doc;
+        result.xfsBefore = xfs.size();
+
+        // Resources referenced by the cell styles kept and by all named styles
+        usedXfs.set(0);
+        List<Element> referencing = new ArrayList<>(styleXfs);
+        for (int i = usedXfs.nextSetBit(0); i >= 0 && i < xfs.size(); i = usedXfs.nextSetBit(i + 1)) {
+            referencing.add(xfs.get(i));
+        }
+        BitSet fonts = new BitSet();
+        BitSet fills = new BitSet();
+        BitSet borders = new BitSet();
+        BitSet formats = new BitSet();
+        for (Element xf : referencing) {
+            markStyle(fonts, xf.getAttribute("fontId"));
+            markStyle(fills, xf.getAttribute("fillId"));
+            markStyle(borders, xf.getAttribute("borderId"));
+            markStyle(formats, xf.getAttribute("numFmtId"));
+        }
+        Element fontsElement = child(root, "fonts");
+        result.fontsBefore = children(fontsElement, "font").size();
+        int[] fontMap = compactRecords(fontsElement, "font", fonts, 1);
+        result.fontsAfter = children(fontsElement, "font").size();
+        int[] fillMap = compactRecords(child(root, "fills"), "fill", fills, 2);
+        int[] borderMap = compactRecords(child(root, "borders"), "border", borders, 1);
+        Map<Integer, Integer> formatMap = compactFormats(root, formats, pinnedFormats, result);
+
+        for (Element xf : referencing) {
+            remap(xf, "fontId", fontMap);
+            remap(xf, "fillId", fillMap);
+            remap(xf, "borderId", borderMap);
+            int format = index(xf.getAttribute("numFmtId"));
+            if (formatMap.containsKey(format)) xf.setAttribute("numFmtId", String.valueOf(formatMap.get(format)));
+        }
+
+        // Cell styles deduplicated by content once their references are renumbered; unused ones fall back to 0
+        result.xfs = new int[xfs.size()];
+        Map<String, Integer> seen = new HashMap<>();
+        List<Element> kept = new ArrayList<>();
+        for (int i = usedXfs.nextSetBit(0); i >= 0 && i < xfs.size(); i = usedXfs.nextSetBit(i + 1)) {
+            Integer existing = seen.putIfAbsent(canonical(xfs.get(i)), kept.size());
+            if (existing != null) {
+                result.xfs[i] = existing;
+            } else {
+                result.xfs[i] = kept.size();
+                kept.add(xfs.get(i));
+            }
+        }
+        retain(cellXfs, xfs, kept);
+        result.xfsAfter = kept.size();
+        doc.setXmlStandalone(true);
+        return result;
+    }
+
+    /**
+     * Keeps the records in use plus the first {@code fixed} ones, merging records with the same
+     * content into the first of them. Returns the old → new index, -1 for dropped records.
+     */
+    private static int[] compactRecords(Element parent, String tag, BitSet used, int fixed) {
+        List<Element> records = children(parent, tag);
+        int[] map = new int[records.size()];
+        Arrays.fill(map, -1);
+        Map<String, Integer> seen = new HashMap<>();
+        List<Element> kept = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (i >= fixed && !used.get(i)) continue;
+            String key = canonical(records.get(i));
+            Integer existing = i < fixed ? null : seen.get(key);
+            if (existing != null) {
+                map[i] = existing;
+            } else {
+                seen.putIfAbsent(key, kept.size());
+                map[i] = kept.size();
+                kept.add(records.get(i));
+            }
+        }
+        if (parent != null) retain(parent, records, kept);
+        return map;
+    }
+
+    /**
+     * Drops unused custom number formats and merges those with the same format code into the
+     * first; ids stay as they are. Pinned formats are always kept and never merged away, as the
+     * parts referring to them are not rewritten. Returns the ids that changed.
+     */
+    private static Map<Integer, Integer> compactFormats(Element root, BitSet used, BitSet pinned, StyleMap result) {
+        Map<Integer, Integer> changed = new HashMap<>();
+        Element numFmts = child(root, "numFmts");
+        List<Element> records = children(numFmts, "numFmt");
+        result.formatsBefore = records.size();
+        Map<String, Integer> byCode = new HashMap<>();
+        List<Element> kept = new ArrayList<>();
+        for (Element f : records) {
+            int id = index(f.getAttribute("numFmtId"));
+            if (id >= 0 && pinned.get(id)) {
+                byCode.putIfAbsent(f.getAttribute("formatCode"), id);
+                kept.add(f);
+                continue;
+            }
+            if (id >= 0 && !used.get(id)) continue;
+            Integer first = byCode.putIfAbsent(f.getAttribute("formatCode"), id);
+            if (first != null) {
+                changed.put(id, first);
+            } else {
+                kept.add(f);
+            }
+        }
+        result.formatsAfter = kept.size();
+        if (numFmts == null) return changed;
+        if (kept.isEmpty()) {
+            root.removeChild(numFmts);
+        } else {
+            retain(numFmts, records, kept);
+        }
+        return changed;
+    }
+
+    private static void remap(Element xf, String attribute, int[] map) {
+        int old = index(xf.getAttribute(attribute));
+        if (old >= 0 && old < map.length && map[old] >= 0) xf.setAttribute(attribute, String.valueOf(map[old]));
+    }
+
+    /** Removes the records not kept, puts the kept ones in order and updates the count. */
+    private static void retain(Element parent, List<Element> records, List<Element> kept) {
+        for (Element e : records) parent.removeChild(e);
+        // Re-insert before any trailing non-record children (extLst)
+        Node anchor = parent.getFirstChild();
+        while (anchor != null && anchor.getNodeType() != Node.ELEMENT_NODE) anchor = anchor.getNextSibling();
+        for (Element e : kept) parent.insertBefore(e, anchor);
+        if (parent.hasAttribute("count")) parent.setAttribute("count", String.valueOf(kept.size()));
+    }
+
+    /** Content of an element as text: name, sorted attributes and children, namespaces ignored. */
+    private static String canonical(Element e) {
+        StringBuilder sb = new StringBuilder();
+        canonical(e, sb);
+        return sb.toString();
+    }
+
+    private static void canonical(Element e, StringBuilder sb) {
+        sb.append('<').append(e.getLocalName() != null ? e.getLocalName() : e.getTagName());
+        NamedNodeMap attrs = e.getAttributes();
+        Map<String, String> sorted = new TreeMap<>();
+        for (int i = 0; i < attrs.getLength(); i++) {
+            Node a = attrs.item(i);
+            if (!a.getNodeName().startsWith("xmlns")) sorted.put(a.getNodeName(), a.getNodeValue());
+        }
+        sorted.forEach((k, v) -> sb.append(' ').append(k).append("=\"").append(v).append('"'));
+        sb.append('>');
+        for (Node n = e.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element c) {
+                canonical(c, sb);
+            } else if (n.getNodeType() == Node.TEXT_NODE || n.getNodeType() == Node.CDATA_SECTION_NODE) {
+                sb.append(n.getNodeValue().strip());
+            }
+        }
+        sb.append("</>");
+    }
+
+    private static Element child(Element parent, String name) {
+        if (parent == null) return null;
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element e && name.equals(e.getLocalName())) return e;
+        }
+        return null;
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> list = new ArrayList<>();
+        if (parent == null) return list;
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element e && name.equals(e.getLocalName())) list.add(e);
+        }
+        return list;
+    }
+
+    // ---------- shared strings ----------
+
+    /** Old → new shared string index, and which old entries are written. */
+    private static final class StringMap {
+        int[] map;
+        BitSet written = new BitSet();
+        int kept;
+
+        int map(int index) {
+            return index >= 0 && index < map.length && map[index] >= 0 ? map[index] : index;
+        }
+    }
+
+    /**
+     * First pass over the shared strings: numbers the entries in use, merging entries with the
+     * same content (text and rich text runs). Entries are looked up by a 64-bit fingerprint, see
+     * {@link LongHashSet#hash64}, and only merged when their content is equal too; an entry whose
+     * fingerprint collides with a different one is kept as it is.
+     */
+    private StringMap mapStrings(InputStream in, BitSet used) throws XMLStreamException {
+        StringMap result = new StringMap();
+        int[] map = new int[Math.max(16, used.length())];
+        FingerprintIndex seen = new FingerprintIndex();
+        List<String> keptContent = new ArrayList<>();
+        int index = -1;
+        XMLStreamReader r = inputFactory.createXMLStreamReader(in);
+        try {
+            int depth = 0;
+            StringBuilder content = new StringBuilder();
+            while (r.hasNext()) {
+                int event = r.next();
+                if (depth == 0) {
+                    if (event == XMLStreamConstants.START_ELEMENT && r.getLocalName().equals("si")) {
+                        index++;
+                        depth = 1;
+                        content.setLength(0);
+                        if (index % (CANCEL_CHECK_ROWS * 16) == 0) checkCancelled();
+                    }
+                    continue;
+                }
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        depth++;
+                        content.append('<').append(r.getLocalName());
+                        for (int i = 0; i < r.getAttributeCount(); i++) {
+                            content.append(' ').append(r.getAttributeLocalName(i)).append('=').append(r.getAttributeValue(i));
+                        }
+                        content.append('>');
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA,
+                         XMLStreamConstants.SPACE -> content.append(r.getText());
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if (--depth > 0) {
+                            content.append("</>");
+                            continue;
+                        }
+                        if (index >= map.length) map = Arrays.copyOf(map, map.length * 2);
+                        if (!used.get(index)) {
+                            map[index] = -1;
+                            continue;
+                        }
+                        String text = content.toString();
+                        int existing = seen.putIfAbsent(LongHashSet.hash64(text), result.kept);
+                        if (existing >= 0 && keptContent.get(existing).equals(text)) {
+                            map[index] = existing;
+                        } else {
+                            keptContent.add(text);
+                            map[index] = result.kept++;
+                            result.written.set(index);
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        } finally {
+            r.close();
+        }
+        result.map = Arrays.copyOf(map, index + 1);
+        return result;
+    }
+
+    /**
+     * Fingerprint → new index of the strings kept, open-addressing like {@link LongHashSet}:
+     * a long and an int per slot instead of a boxed entry. 0 marks a free slot, so a
+     * fingerprint of 0 is stored as 1.
+     */
+    private static final class FingerprintIndex {
+        private long[] keys = new long[16];
+        private int[] values = new int[16];
+        private int size;
+
+        /** Returns the index already stored for the fingerprint, or stores this one and returns -1. */
+        int putIfAbsent(long key, int value) {
+            if (key == 0) key = 1;
+            int mask = keys.length - 1;
+            int i = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == key) return values[i];
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            if (++size * 2 > keys.length) grow();
+            return -1;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) putIfAbsent(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /** Second pass: copies the entries to keep, in order, with the counts updated. */
+    private void writeStrings(InputStream in, OutputStream out, StringMap strings, long refs) throws XMLStreamException {
+        XMLEventReader r = inputFactory.createXMLEventReader(in);
+        XMLEventWriter w = outputFactory.createXMLEventWriter(out, "UTF-8");
+        try {
+            int index = -1;
+            int depth = 0;
+            boolean skip = false;
+            while (r.hasNext()) {
+                XMLEvent e = r.nextEvent();
+                if (e.isStartElement()) {
+                    StartElement s = e.asStartElement();
+                    String name = s.getName().getLocalPart();
+                    if (depth == 0 && name.equals("sst")) {
+                        e = withAttributes(s, Map.of("count", String.valueOf(refs),
+                                "uniqueCount", String.valueOf(strings.kept)));
+                    } else if (depth == 1 && name.equals("si")) {
+                        skip = !strings.written.get(++index);
+                    }
+                    depth++;
+                } else if (e.isEndElement()) {
+                    depth--;
+                    if (depth == 1 && skip) {
+                        skip = false;
+                        continue;
+                    }
+                }
+                if (!skip) w.add(e);
+            }
+            w.flush();
+        } finally {
+            w.close();
+            r.close();
+        }
+    }
+
+    // ---------- sheets ----------
+
+    /** Copies a sheet part with the style indices of cells, rows and columns and the shared string values renumbered. */
+    private void rewriteSheet(InputStream in, OutputStream out, StyleMap styles, StringMap strings) throws XMLStreamException {
+        XMLEventReader r = inputFactory.createXMLEventReader(in);
+        XMLEventWriter w = outputFactory.createXMLEventWriter(out, "UTF-8");
+        try {
+            boolean sharedString = false;
+            StringBuilder value = null;
+            int rows = 0;
+            while (r.hasNext()) {
+                XMLEvent e = r.nextEvent();
+                if (value != null) {
+                    if (e.isCharacters()) {
+                        value.append(e.asCharacters().getData());
+                        continue;
+                    }
+                    int index = index(value.toString());
+                    w.add(eventFactory.createCharacters(index >= 0 ? String.valueOf(strings.map(index)) : value.toString()));
+                    value = null;
+                }
+                if (e.isStartElement()) {
+                    StartElement s = e.asStartElement();
+                    switch (s.getName().getLocalPart()) {
+                        case "c" -> {
+                            sharedString = "s".equals(attribute(s, "t"));
+                            e = restyle(s, "s", styles);
+                        }
+                        case "row" -> {
+                            if (++rows % CANCEL_CHECK_ROWS == 0) checkCancelled();
+                            e = restyle(s, "s", styles);
+                        }
+                        case "col" -> e = restyle(s, "style", styles);
+                        case "v" -> {
+                            if (sharedString && strings != null) value = new StringBuilder();
+                        }
+                        default -> { }
+                    }
+                }
+                w.add(e);
+            }
+            w.flush();
+        } finally {
+            w.close();
+            r.close();
+        }
+    }
+
+    private XMLEvent restyle(StartElement s, String attribute, StyleMap styles) {
+        String old = attribute(s, attribute);
+        if (styles == null || old == null) return s;
+        int index = index(old);
+        return index < 0 ? s : withAttributes(s, Map.of(attribute, String.valueOf(styles.map(index))));
+    }
+
+    private static String attribute(StartElement s, String name) {
+        Attribute a = s.getAttributeByName(new QName(name));
+        return a == null ? null : a.getValue();
+    }
+
+    /** Copy of a start element with the given unprefixed attributes replaced or added. */
+    private StartElement withAttributes(StartElement s, Map<String, String> values) {
+        List<Attribute> attrs = new ArrayList<>();
+        Map<String, String> pending = new HashMap<>(values);
+        for (Iterator<Attribute> it = s.getAttributes(); it.hasNext(); ) {
+            Attribute a = it.next();
+            String replacement = a.getName().getNamespaceURI().isEmpty() ? pending.remove(a.getName().getLocalPart()) : null;
+            attrs.add(replacement != null ? eventFactory.createAttribute(a.getName(), replacement) : a);
+        }
+        pending.forEach((k, v) -> attrs.add(eventFactory.createAttribute(k, v)));
+        QName name = s.getName();
+        return eventFactory.createStartElement(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(),
+                attrs.iterator(), s.getNamespaces(), s.getNamespaceContext());
+    }
+}
@@ -0,0 +1,26 @@
+package fan.summer.buildintool.exceldedup;
+
+import fan.summer.buildintool.excelsplitter.ExternalRowSorter;
+import fan.summer.buildintool.excelsplitter.RowDeduplicator;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DedupConfig {
+
+    public Path   sourceFile;
+    public String sheet;
+    public Map<Integer, String> headers;   // colIndex → header
+
+    // Rows whose trimmed values in these columns repeat another row are duplicates
+    public List<Integer> keyColumns = new ArrayList<>();
+    public RowDeduplicator.Keep keep = RowDeduplicator.Keep.FIRST;
+    // Compare the key text instead of a 64-bit fingerprint
+    public boolean exact = false;
+
+    public Path outputDir;
+    // Heap for exact keys; beyond it they are partitioned to disk by key
+    public long memoryBudget = ExternalRowSorter.DEFAULT_MEMORY_BUDGET;
+}
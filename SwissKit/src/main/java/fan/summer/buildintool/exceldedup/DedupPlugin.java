@@ -0,0 +1,237 @@
+package fan.summer.buildintool.exceldedup;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import fan.summer.buildintool.excelsplitter.RowDeduplicator;
+import fan.summer.buildintool.excelsplitter.SheetPicker;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel dedup tool: drops rows that repeat other rows by key columns, keeping the first or
+ * the last occurrence, and lists the dropped rows, computed by {@link SheetDeduplicator}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class DedupPlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.exceldedup"; }
+    @Override public String getName()        { return "Excel去重"; }
+    @Override public String getDescription() { return "按关键列去除重复行，可保留首次或最后出现的行，并输出重复行明细"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "content-duplicate"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new DedupView();
+        return view;
+    }
+
+    static class DedupView extends ScrollPane {
+        private final SheetPicker picker = new SheetPicker("数据表");
+        private final SheetPicker.ColumnList keyColumns;
+        private final ComboBox<String> keepCombo = new ComboBox<>();
+        private final CheckBox exactBox = new CheckBox("精确比较（默认按 64 位指纹比较，极低概率误判）");
+        private final Label dirLabel = new Label("未选择（默认与数据表同目录）");
+        private final Label hintLabel = new Label();
+        private final Button runBtn = glassBtn("▶  开始去重", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label progressLabel = new Label();
+        private final VBox resultBox = new VBox(8);
+        private Path outputDir;
+        private volatile SheetDeduplicator deduplicator;
+
+        DedupView() {
+            keyColumns = picker.addColumnList("关键列（可多选，取值去除首尾空格后完全相同即视为重复）", false);
+            picker.setOnChange(this::validate);
+
+            keepCombo.getItems().addAll("保留首次出现的行", "保留最后出现的行");
+            keepCombo.getSelectionModel().select(0);
+            keepCombo.setStyle(comboStyle());
+            exactBox.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+            Label keepHint = new Label("关键列全空的行不去重。保留最后出现或精确比较时会先扫描一遍关键列，再读取全表");
+            keepHint.setWrapText(true);
+            keepHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            dirLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            dirLabel.setWrapText(true);
+            Button dirBtn = glassBtn("📁  选择输出目录", false);
+            dirBtn.setOnAction(e -> pickOutputDir());
+
+            hintLabel.setWrapText(true);
+            hintLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            resultBox.setStyle("-fx-background-color: transparent;");
+
+            runBtn.setOnAction(e -> startDedup());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                if (deduplicator != null) deduplicator.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+            HBox actions = new HBox(12, runBtn, cancelBtn);
+            actions.setAlignment(Pos.CENTER_LEFT);
+
+            VBox content = new VBox(16, picker, new Separator(),
+                sectionTitle("去重方式"), keepCombo, exactBox, keepHint,
+                sectionTitle("输出目录"), dirBtn, dirLabel,
+                hintLabel, actions, progressBar, progressLabel, resultBox);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validate();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private void validate() {
+            String error = null;
+            if (picker.headers() == null) {
+                error = "请先选择文件和Sheet";
+            } else if (keyColumns.selected().isEmpty()) {
+                error = "请勾选关键列";
+            }
+            hintLabel.setText(error != null ? "❌ " + error : "");
+            runBtn.setDisable(error != null || deduplicator != null);
+        }
+
+        private void pickOutputDir() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择输出目录");
+            if (picker.file() != null) dc.setInitialDirectory(picker.file().getParent().toFile());
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) {
+                outputDir = dir.toPath();
+                dirLabel.setText(dir.getAbsolutePath());
+                dirLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+        }
+
+        private DedupConfig buildConfig() {
+            DedupConfig config = new DedupConfig();
+            config.sourceFile = picker.file();
+            config.sheet = picker.sheet();
+            config.headers = picker.headers();
+            config.keyColumns = new ArrayList<>(keyColumns.selected());
+            config.keep = keepCombo.getSelectionModel().getSelectedIndex() == 1
+                ? RowDeduplicator.Keep.LAST : RowDeduplicator.Keep.FIRST;
+            config.exact = exactBox.isSelected();
+            config.outputDir = outputDir != null ? outputDir : config.sourceFile.getParent();
+            return config;
+        }
+
+        private void startDedup() {
+            resultBox.getChildren().clear();
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            SheetDeduplicator current = new SheetDeduplicator(buildConfig(), (pct, msg) ->
+                Platform.runLater(() -> {
+                    if (cancelBtn.isDisabled()) return;
+                    progressBar.setProgress(pct);
+                    progressLabel.setText(msg);
+                })
+            );
+            deduplicator = current;
+            runBtn.setDisable(true);
+            Task<SheetDeduplicator.DedupResult> task = new Task<>() {
+                @Override
+                protected SheetDeduplicator.DedupResult call() throws Exception {
+                    return current.dedup();
+                }
+            };
+            task.setOnSucceeded(e -> finish(task.getValue(), null));
+            task.setOnFailed(e -> finish(null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finish(SheetDeduplicator.DedupResult result, Throwable err) {
+            deduplicator = null;
+            cancelBtn.setVisible(false);
+            validate();
+            progressBar.setProgress(1.0);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                progressBar.setProgress(0);
+                progressLabel.setText("已取消");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                progressBar.getStyleClass().add("danger");
+                progressLabel.setText("❌ 去重失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                progressLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            progressBar.getStyleClass().add("success");
+            progressLabel.setText("✓ 去重完成：" + result.output().getFileName());
+            progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+
+            resultBox.getChildren().add(subLabel("去重结果"));
+            addResult("读取 " + result.rows() + " 行，保留 " + result.keptRows() + " 行，去掉重复 "
+                + result.duplicateRows() + " 行（明细见「" + SheetDeduplicator.DUPLICATES_SHEET + "」Sheet）");
+            if (result.partitioned()) addResult("关键列超出内存预算，已按键分区落盘比较");
+
+            Button openBtn = glassBtn("打开文件夹", false);
+            openBtn.setOnAction(e -> {
+                try {
+                    java.awt.Desktop.getDesktop().open(result.output().getParent().toFile());
+                } catch (Exception ex) { /* skip */ }
+            });
+            resultBox.getChildren().add(openBtn);
+        }
+
+        private void addResult(String text) {
+            Label l = new Label(text);
+            l.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+            l.setWrapText(true);
+            resultBox.getChildren().add(l);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package fan.summer.buildintool.exceldedup;
+
+import fan.summer.buildintool.excelsplitter.ColumnProjection;
+import fan.summer.buildintool.excelsplitter.FileNameUtil;
+import fan.summer.buildintool.excelsplitter.GroupSheetWriter;
+import fan.summer.buildintool.excelsplitter.RowDeduplicator;
+import fan.summer.buildintool.excelsplitter.SheetRowReader;
+import fan.summer.buildintool.excelsplitter.SplitConfig;
+import fan.summer.buildintool.excelsplitter.StreamingRowListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Removes rows that repeat other rows by key columns, using {@link RowDeduplicator}. Kept
+ * rows are written in sheet order with all their columns; dropped rows go to a second sheet
+ * of the output with their source row number, so every removal can be checked.
+ * <p>
+ * Keeping the first occurrence by fingerprint takes a single streaming pass. Keeping the
+ * last occurrence, or exact comparison, first scans the key columns only and then streams
+ * the sheet a second time.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class SheetDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SheetDeduplicator.class);
+
+    static final String RESULT_SHEET = "去重结果";
+    static final String DUPLICATES_SHEET = "重复行";
+
+    private static final int PROGRESS_ROWS = 65_536;
+
+    public record DedupResult(Path output, long rows, long keptRows, long duplicateRows, boolean twoPass,
+                              boolean partitioned) {}
+
+    private final DedupConfig config;
+    private final BiConsumer<Double, String> progress;
+    private final ColumnProjection projection;
+    private volatile boolean cancelled;
+
+    public SheetDeduplicator(DedupConfig config, BiConsumer<Double, String> progress) {
+        if (config.keyColumns.isEmpty()) throw new IllegalArgumentException("At least one key column is required");
+        this.config = config;
+        this.progress = progress;
+        this.projection = ColumnProjection.all(config.headers);
+    }
+
+    /**
+     * Asks a running {@link #dedup()} to stop; it throws {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public DedupResult dedup() throws Exception {
+        Path output = config.outputDir.resolve(
+                FileNameUtil.getFileName(config.sourceFile.getFileName().toString()) + "_dedup.xlsx");
+        logger.info("Dedup started | file={}, sheet={}, keyColumns={}, keep={}, exact={}",
+                config.sourceFile.getFileName(), config.sheet, config.keyColumns, config.keep, config.exact);
+        long start = System.nanoTime();
+
+        long rows;
+        long kept;
+        boolean twoPass;
+        boolean partitioned;
+        try (RowDeduplicator dedup = new RowDeduplicator(config.keyColumns, config.keep, config.exact,
+                config.memoryBudget)) {
+            twoPass = dedup.needsScan();
+            if (twoPass) {
+                BitSet keys = new BitSet();
+                config.keyColumns.forEach(keys::set);
+                StreamingRowListener scan = new StreamingRowListener(dedup::scan);
+                scan.setRowTicker(ticker("Scanning keys"));
+                progress.accept(-1.0, "Scanning keys: " + config.sheet);
+                SheetRowReader.read(config.sourceFile, config.sheet, keys, scan);
+                dedup.finishScan();
+            }
+
+            try (OutputStream os = Files.newOutputStream(output);
+                 GroupSheetWriter writer = new GroupSheetWriter(os, projection.headers(),
+                         SplitConfig.OverflowPolicy.NEW_SHEET)) {
+                List<List<String>> duplicatesHead = projection.headers();
+                duplicatesHead.add(Collections.singletonList("源行号"));
+                writer.head(DUPLICATES_SHEET, duplicatesHead);
+                StreamingRowListener listener = new StreamingRowListener(
+                        row -> writer.accept(RESULT_SHEET, projection.project(row)));
+                // Duplicates carry the sheet row number the reader reports, blank rows included
+                listener.setRowGate(row -> {
+                    if (dedup.accept(row)) return true;
+                    List<Object> values = projection.project(row);
+                    values.add(listener.getRowNumber());
+                    writer.accept(DUPLICATES_SHEET, values);
+                    return false;
+                });
+                listener.setRowTicker(ticker("Deduplicating"));
+                progress.accept(-1.0, "Reading: " + config.sheet);
+                SheetRowReader.read(config.sourceFile, config.sheet, null, listener);
+                rows = listener.getRowCount();
+                kept = writer.getRowCount(RESULT_SHEET);
+                progress.accept(0.9, "Writing: " + output.getFileName());
+            }
+            partitioned = dedup.isPartitioned();
+        } catch (Exception e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+        progress.accept(1.0, "Done");
+        logger.info("Dedup completed | rows={}, kept={}, duplicates={}, twoPass={}, partitioned={}, elapsedMs={}",
+                rows, kept, rows - kept, twoPass, partitioned, (System.nanoTime() - start) / 1_000_000);
+        return new DedupResult(output, rows, kept, rows - kept, twoPass, partitioned);
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Dedup cancelled");
+    }
+
+    private LongConsumer ticker(String label) {
+        long[] read = {0};
+        return n -> {
+            checkCancelled();
+            if ((read[0] += n) / PROGRESS_ROWS != (read[0] - n) / PROGRESS_ROWS) {
+                progress.accept(-1.0, label + ": " + read[0] + " rows");
+            }
+        };
+    }
+}
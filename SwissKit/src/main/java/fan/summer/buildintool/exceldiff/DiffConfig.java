@@ -0,0 +1,28 @@
+package fan.summer.buildintool.exceldiff;
+
+import fan.summer.buildintool.excelsplitter.ExternalRowSorter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DiffConfig {
+
+    // Old version of the sheet
+    public Path   oldFile;
+    public String oldSheet;
+    public Map<Integer, String> oldHeaders;   // colIndex → header
+
+    // New version of the sheet; columns are matched to the old one by header name
+    public Path   newFile;
+    public String newSheet;
+    public Map<Integer, String> newHeaders;
+
+    // Header names identifying a row in both versions
+    public List<String> keyColumns = new ArrayList<>();
+
+    public Path outputDir;
+    // Heap for the old rows held by key; beyond it both versions are partitioned to disk by key
+    public long memoryBudget = ExternalRowSorter.DEFAULT_MEMORY_BUDGET;
+}
@@ -0,0 +1,239 @@
+package fan.summer.buildintool.exceldiff;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import fan.summer.buildintool.excelsplitter.SheetPicker;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel compare tool: added, removed and changed rows between two versions of a sheet,
+ * matched by key columns, computed by {@link WorkbookDiffer}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class DiffPlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.exceldiff"; }
+    @Override public String getName()        { return "Excel比对"; }
+    @Override public String getDescription() { return "按关键列比对两个版本的表，输出新增/删除/变更行并高亮变更单元格"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "file-compare"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new DiffView();
+        return view;
+    }
+
+    static class DiffView extends ScrollPane {
+        private final SheetPicker oldPicker = new SheetPicker("旧版本");
+        private final SheetPicker newPicker = new SheetPicker("新版本");
+        private final SheetPicker.ColumnList keyColumns;
+        private final Label dirLabel = new Label("未选择（默认与新版本同目录）");
+        private final Label hintLabel = new Label();
+        private final Button runBtn = glassBtn("▶  开始比对", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label progressLabel = new Label();
+        private final VBox resultBox = new VBox(8);
+        private Path outputDir;
+        private volatile WorkbookDiffer differ;
+
+        DiffView() {
+            keyColumns = newPicker.addColumnList("关键列（按列名与旧版本对应，可多选）", false);
+            oldPicker.setOnChange(this::validate);
+            newPicker.setOnChange(this::validate);
+
+            dirLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            dirLabel.setWrapText(true);
+            Button dirBtn = glassBtn("📁  选择输出目录", false);
+            dirBtn.setOnAction(e -> pickOutputDir());
+
+            hintLabel.setWrapText(true);
+            hintLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            resultBox.setStyle("-fx-background-color: transparent;");
+
+            runBtn.setOnAction(e -> startDiff());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                if (differ != null) differ.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+            HBox actions = new HBox(12, runBtn, cancelBtn);
+            actions.setAlignment(Pos.CENTER_LEFT);
+
+            VBox content = new VBox(16, oldPicker, new Separator(), newPicker, new Separator(),
+                sectionTitle("输出目录"), dirBtn, dirLabel,
+                hintLabel, actions, progressBar, progressLabel, resultBox);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validate();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private List<String> keyNames() {
+            return keyColumns.selected().stream().map(idx -> newPicker.headers().get(idx).trim()).toList();
+        }
+
+        private void validate() {
+            String error = null;
+            if (oldPicker.headers() == null || newPicker.headers() == null) {
+                error = "请先为两个版本选择文件和Sheet";
+            } else if (keyColumns.selected().isEmpty()) {
+                error = "请勾选关键列";
+            } else {
+                for (String name : keyNames()) {
+                    if (oldPicker.headers().values().stream().noneMatch(h -> h != null && h.trim().equals(name))) {
+                        error = "旧版本中没有关键列「" + name + "」";
+                        break;
+                    }
+                }
+            }
+            hintLabel.setText(error != null ? "❌ " + error : "");
+            runBtn.setDisable(error != null || differ != null);
+        }
+
+        private void pickOutputDir() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择输出目录");
+            if (newPicker.file() != null) dc.setInitialDirectory(newPicker.file().getParent().toFile());
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) {
+                outputDir = dir.toPath();
+                dirLabel.setText(dir.getAbsolutePath());
+                dirLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+        }
+
+        private DiffConfig buildConfig() {
+            DiffConfig config = new DiffConfig();
+            config.oldFile = oldPicker.file();
+            config.oldSheet = oldPicker.sheet();
+            config.oldHeaders = oldPicker.headers();
+            config.newFile = newPicker.file();
+            config.newSheet = newPicker.sheet();
+            config.newHeaders = newPicker.headers();
+            config.keyColumns = keyNames();
+            config.outputDir = outputDir != null ? outputDir : config.newFile.getParent();
+            return config;
+        }
+
+        private void startDiff() {
+            resultBox.getChildren().clear();
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            WorkbookDiffer current = new WorkbookDiffer(buildConfig(), (pct, msg) ->
+                Platform.runLater(() -> {
+                    if (cancelBtn.isDisabled()) return;
+                    progressBar.setProgress(pct);
+                    progressLabel.setText(msg);
+                })
+            );
+            differ = current;
+            runBtn.setDisable(true);
+            Task<WorkbookDiffer.DiffResult> task = new Task<>() {
+                @Override
+                protected WorkbookDiffer.DiffResult call() throws Exception {
+                    return current.diff();
+                }
+            };
+            task.setOnSucceeded(e -> finish(task.getValue(), null));
+            task.setOnFailed(e -> finish(null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finish(WorkbookDiffer.DiffResult result, Throwable err) {
+            differ = null;
+            cancelBtn.setVisible(false);
+            validate();
+            progressBar.setProgress(1.0);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                progressBar.setProgress(0);
+                progressLabel.setText("已取消");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                progressBar.getStyleClass().add("danger");
+                progressLabel.setText("❌ 比对失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                progressLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            progressBar.getStyleClass().add("success");
+            progressLabel.setText("✓ 比对完成：" + result.output().getFileName());
+            progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+
+            resultBox.getChildren().add(subLabel("比对结果"));
+            addResult("旧版本 " + result.oldRows() + " 行，新版本 " + result.newRows() + " 行");
+            addResult("新增 " + result.addedRows() + " 行，删除 " + result.removedRows() + " 行，变更 "
+                + result.changedRows() + " 行，未变 " + result.unchangedRows() + " 行");
+            if (result.partitioned()) addResult("旧版本超出内存预算，已按键分区落盘比对");
+
+            Button openBtn = glassBtn("打开文件夹", false);
+            openBtn.setOnAction(e -> {
+                try {
+                    java.awt.Desktop.getDesktop().open(result.output().getParent().toFile());
+                } catch (Exception ex) { /* skip */ }
+            });
+            resultBox.getChildren().add(openBtn);
+        }
+
+        private void addResult(String text) {
+            Label l = new Label(text);
+            l.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+            l.setWrapText(true);
+            resultBox.getChildren().add(l);
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package fan.summer.buildintool.exceldiff;
+
+import fan.summer.buildintool.excelsplitter.ExternalRowSorter;
+import fan.summer.buildintool.excelsplitter.FileNameUtil;
+import fan.summer.buildintool.excelsplitter.GroupSheetWriter;
+import fan.summer.buildintool.excelsplitter.LongHashSet;
+import fan.summer.buildintool.excelsplitter.RowCodec;
+import fan.summer.buildintool.excelsplitter.SheetRowReader;
+import fan.summer.buildintool.excelsplitter.StreamingRowListener;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Key-based diff of two versions of a sheet. Rows are matched by the key columns (the n-th
+ * row of a key in the old version with the n-th row of that key in the new one) and
+ * compared by a 64-bit hash of their contents, cell by cell only when the hashes differ.
+ * Columns are matched by header name; columns present in only one version are listed in the
+ * summary but not compared.
+ * <p>
+ * The old version is held by key in memory while it fits the memory budget; beyond it both
+ * versions are partitioned to temp files by key hash and diffed partition by partition, like
+ * {@link fan.summer.buildintool.excellookup.HashJoiner}. Added, removed and changed rows go through {@link ExternalRowSorter}
+ * by row number, so every sheet of the diff workbook lists its rows in source order either
+ * way. The workbook is written with POI's streaming SXSSF writer, which allows the changed
+ * cells to be highlighted.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class WorkbookDiffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkbookDiffer.class);
+
+    static final String SUMMARY_SHEET = "概要";
+    static final String ADDED_SHEET = "新增";
+    static final String REMOVED_SHEET = "删除";
+    static final String CHANGED_SHEET = "变更";
+
+    private static final int PARTITIONS = 64;
+    private static final int SXSSF_WINDOW = 1_000;
+    private static final char KEY_SEPARATOR = '\u0001';
+    private static final int IO_BUFFER = 1 << 16;
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int CELL_OVERHEAD = 48;
+
+    public record DiffResult(Path output, long oldRows, long newRows, long addedRows, long removedRows,
+                             long changedRows, long unchangedRows, boolean partitioned) {}
+
+    private final DiffConfig config;
+    private final BiConsumer<Double, String> progress;
+    // Compared columns in new-version order, with their positions in both versions
+    private final List<String> columns = new ArrayList<>();
+    private final int[] oldIndex;
+    private final int[] newIndex;
+    private final int[] keyPositions;
+    private final List<String> oldOnly = new ArrayList<>();
+    private final List<String> newOnly = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    private long oldRows;
+    private long newRows;
+    private long changedRows;
+    private long unchangedRows;
+
+    public WorkbookDiffer(DiffConfig config, BiConsumer<Double, String> progress) {
+        if (config.keyColumns.isEmpty()) throw new IllegalArgumentException("At least one key column is required");
+        this.config = config;
+        this.progress = progress;
+        Map<String, Integer> oldByName = byName(config.oldHeaders);
+        Map<String, Integer> newByName = byName(config.newHeaders);
+        List<Integer> oldCols = new ArrayList<>();
+        List<Integer> newCols = new ArrayList<>();
+        newByName.forEach((name, col) -> {
+            Integer oldCol = oldByName.get(name);
+            if (oldCol == null) {
+                newOnly.add(name);
+            } else {
+                columns.add(name);
+                oldCols.add(oldCol);
+                newCols.add(col);
+            }
+        });
+        oldByName.keySet().stream().filter(name -> !newByName.containsKey(name)).forEach(oldOnly::add);
+        this.oldIndex = oldCols.stream().mapToInt(Integer::intValue).toArray();
+        this.newIndex = newCols.stream().mapToInt(Integer::intValue).toArray();
+        this.keyPositions = new int[config.keyColumns.size()];
+        for (int i = 0; i < keyPositions.length; i++) {
+            keyPositions[i] = columns.indexOf(config.keyColumns.get(i));
+            if (keyPositions[i] < 0) {
+                throw new IllegalArgumentException("Key column not found in both versions: " + config.keyColumns.get(i));
+            }
+        }
+    }
+
+    /**
+     * Asks a running {@link #diff()} to stop; it throws {@link CancellationException} and
+     * deletes the partial output.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public DiffResult diff() throws Exception {
+        Path output = config.outputDir.resolve(
+                FileNameUtil.getFileName(config.newFile.getFileName().toString()) + "_diff.xlsx");
+        logger.info("Workbook diff | old={}, new={}, keys={}, columns={}, oldOnly={}, newOnly={}",
+                config.oldFile.getFileName(), config.newFile.getFileName(), config.keyColumns, columns.size(),
+                oldOnly.size(), newOnly.size());
+        long start = System.nanoTime();
+        long sortBudget = Math.max(1, config.memoryBudget / 4);
+        boolean partitioned;
+        try (Index index = new Index();
+             ExternalRowSorter added = new ExternalRowSorter(0, false, sortBudget);
+             ExternalRowSorter removed = new ExternalRowSorter(0, false, sortBudget);
+             ExternalRowSorter changed = new ExternalRowSorter(0, false, sortBudget)) {
+            Sinks sinks = new Sinks(added, removed, changed);
+            progress.accept(0.05, "Reading: " + config.oldSheet);
+            readRows(config.oldFile, config.oldSheet, oldIndex, values -> index.add(oldRows++, values));
+            partitioned = index.isPartitioned();
+            progress.accept(0.35, "Comparing: " + config.newSheet);
+            if (!partitioned) {
+                Map<String, Slot> slots = index.memory();
+                readRows(config.newFile, config.newSheet, newIndex,
+                        values -> compare(slots, newRows++, key(values), values, sinks));
+                unmatched(slots, sinks);
+            } else {
+                diffPartitions(index, sinks);
+            }
+            progress.accept(0.8, "Writing: " + output.getFileName());
+            write(output, added, removed, changed);
+        } catch (Exception e) {
+            Files.deleteIfExists(output);
+            if (cancelled) throw new CancellationException("Diff cancelled");
+            throw e;
+        }
+        long addedRows = newRows - changedRows - unchangedRows;
+        long removedRows = oldRows - changedRows - unchangedRows;
+        progress.accept(1.0, "Done");
+        logger.info("Workbook diff completed | oldRows={}, newRows={}, added={}, removed={}, changed={}, "
+                        + "unchanged={}, partitioned={}, elapsedMs={}", oldRows, newRows, addedRows, removedRows,
+                changedRows, unchangedRows, partitioned, (System.nanoTime() - start) / 1_000_000);
+        return new DiffResult(output, oldRows, newRows, addedRows, removedRows, changedRows, unchangedRows, partitioned);
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private record Sinks(ExternalRowSorter added, ExternalRowSorter removed, ExternalRowSorter changed) {}
+
+    /** An old row waiting for its counterpart: row number, content hash and values. */
+    private record OldRow(long seq, long hash, List<Object> values) {}
+
+    /** Old rows of one key in sheet order; {@code next} is the first one not yet matched. */
+    private static final class Slot {
+        final List<OldRow> rows = new ArrayList<>(1);
+        int next;
+    }
+
+    private static Map<String, Integer> byName(Map<Integer, String> headers) {
+        Map<String, Integer> byName = new LinkedHashMap<>();
+        // First column of a repeated header name wins
+        new TreeMap<>(headers).forEach((col, name) -> {
+            if (name != null && !name.isBlank()) byName.putIfAbsent(name.trim(), col);
+        });
+        return byName;
+    }
+
+    private void readRows(Path file, String sheet, int[] index, Consumer<List<Object>> sink) throws IOException {
+        StreamingRowListener listener = new StreamingRowListener(row -> {
+            List<Object> values = new ArrayList<>(index.length);
+            for (int col : index) {
+                Object v = row.get(col);
+                values.add(v == null ? "" : v.toString().trim());
+            }
+            sink.accept(values);
+        });
+        listener.setRowTicker(rows -> checkCancelled());
+        BitSet decode = new BitSet();
+        for (int col : index) decode.set(col);
+        SheetRowReader.read(file, sheet, decode, listener);
+    }
+
+    private String key(List<Object> values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keyPositions.length; i++) {
+            if (i > 0) sb.append(KEY_SEPARATOR);
+            sb.append(values.get(keyPositions[i]));
+        }
+        return sb.toString();
+    }
+
+    private static long hash(List<Object> values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object v : values) sb.append(v).append(KEY_SEPARATOR);
+        return LongHashSet.hash64(sb.toString());
+    }
+
+    /**
+     * Matches one new row against the next unmatched old row of its key.
+     */
+    private void compare(Map<String, Slot> slots, long seq, String key, List<Object> values, Sinks sinks) {
+        Slot slot = slots.get(key);
+        if (slot == null || slot.next >= slot.rows.size()) {
+            sinks.added().add(tagged(seq, values));
+            return;
+        }
+        OldRow old = slot.rows.get(slot.next);
+        slot.rows.set(slot.next++, null);
+        if (old.hash() == hash(values) && old.values().equals(values)) {
+            unchangedRows++;
+            return;
+        }
+        changedRows++;
+        StringBuilder mask = new StringBuilder();
+        StringBuilder detail = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (old.values().get(i).equals(values.get(i))) continue;
+            if (!mask.isEmpty()) {
+                mask.append(',');
+                detail.append("; ");
+            }
+            mask.append(i);
+            detail.append(columns.get(i)).append(": ").append(old.values().get(i)).append(" → ").append(values.get(i));
+        }
+        List<Object> row = tagged(seq, values);
+        row.add(detail.toString());
+        row.add(mask.toString());
+        sinks.changed().add(row);
+    }
+
+    private void unmatched(Map<String, Slot> slots, Sinks sinks) {
+        for (Slot slot : slots.values()) {
+            for (int i = slot.next; i < slot.rows.size(); i++) {
+                OldRow old = slot.rows.get(i);
+                sinks.removed().add(tagged(old.seq(), old.values()));
+            }
+        }
+    }
+
+    private static List<Object> tagged(long seq, List<Object> values) {
+        List<Object> row = new ArrayList<>(values.size() + 3);
+        row.add(String.valueOf(seq));
+        row.addAll(values);
+        return row;
+    }
+
+    /**
+     * Partitions the new version like the old one, then diffs partition by partition; every
+     * row of a key lands in the same partition, in sheet order.
+     */
+    private void diffPartitions(Index index, Sinks sinks) throws IOException {
+        List<Path> newParts = new ArrayList<>(PARTITIONS);
+        try {
+            List<DataOutputStream> outs = new ArrayList<>(PARTITIONS);
+            try {
+                for (int p = 0; p < PARTITIONS; p++) {
+                    Path file = Files.createTempFile("swisskit-diff-new-", ".part");
+                    newParts.add(file);
+                    outs.add(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER)));
+                }
+                readRows(config.newFile, config.newSheet, newIndex, values -> {
+                    String key = key(values);
+                    try {
+                        RowCodec.write(outs.get(partition(key)), partitionRow(newRows++, key, values));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to write diff partition", e);
+                    }
+                });
+            } finally {
+                for (DataOutputStream out : outs) out.close();
+            }
+
+            for (int p = 0; p < PARTITIONS; p++) {
+                progress.accept(0.5 + 0.3 * p / PARTITIONS, "Comparing partition " + (p + 1) + "/" + PARTITIONS);
+                Map<String, Slot> slots = index.loadPartition(p);
+                try (DataInputStream in = open(newParts.get(p))) {
+                    for (List<Object> row; (row = RowCodec.read(in)) != null; ) {
+                        checkCancelled();
+                        compare(slots, Long.parseLong((String) row.get(0)), (String) row.get(1),
+                                new ArrayList<>(row.subList(2, row.size())), sinks);
+                    }
+                }
+                unmatched(slots, sinks);
+                Files.deleteIfExists(newParts.get(p));
+            }
+        } finally {
+            for (Path file : newParts) Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<Object> partitionRow(long seq, String key, List<Object> values) {
+        List<Object> row = new ArrayList<>(values.size() + 2);
+        row.add(String.valueOf(seq));
+        row.add(key);
+        row.addAll(values);
+        return row;
+    }
+
+    private void write(Path output, ExternalRowSorter added, ExternalRowSorter removed,
+                       ExternalRowSorter changed) throws Exception {
+        SXSSFWorkbook wb = new SXSSFWorkbook(SXSSF_WINDOW);
+        wb.setCompressTempFiles(true);
+        try (OutputStream os = Files.newOutputStream(output)) {
+            CellStyle headStyle = wb.createCellStyle();
+            Font bold = wb.createFont();
+            bold.setBold(true);
+            headStyle.setFont(bold);
+            CellStyle changedStyle = wb.createCellStyle();
+            changedStyle.setFillForegroundColor(IndexedColors.LIGHT_YELLOW.getIndex());
+            changedStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            Sheet summary = wb.createSheet(SUMMARY_SHEET);
+            List<String> changedHead = new ArrayList<>(columns);
+            changedHead.add("变更明细");
+            SheetStream addedOut = new SheetStream(wb, ADDED_SHEET, columns, headStyle);
+            added.forEachSorted(row -> addedOut.row(row.subList(1, row.size()), null, null));
+            SheetStream removedOut = new SheetStream(wb, REMOVED_SHEET, columns, headStyle);
+            removed.forEachSorted(row -> removedOut.row(row.subList(1, row.size()), null, null));
+            SheetStream changedOut = new SheetStream(wb, CHANGED_SHEET, changedHead, headStyle);
+            changed.forEachSorted(row -> {
+                Set<Integer> cells = new LinkedHashSet<>();
+                for (String i : ((String) row.get(row.size() - 1)).split(",")) cells.add(Integer.parseInt(i));
+                changedOut.row(row.subList(1, row.size() - 1), cells, changedStyle);
+            });
+
+            String[][] lines = {
+                {"旧版本", config.oldFile.getFileName() + " / " + config.oldSheet},
+                {"新版本", config.newFile.getFileName() + " / " + config.newSheet},
+                {"键列", String.join("、", config.keyColumns)},
+                {"旧版本行数", String.valueOf(oldRows)},
+                {"新版本行数", String.valueOf(newRows)},
+                {"新增行", String.valueOf(added.getRowCount())},
+                {"删除行", String.valueOf(removed.getRowCount())},
+                {"变更行", String.valueOf(changedRows)},
+                {"未变行", String.valueOf(unchangedRows)},
+                {"仅旧版本有的列（未比较）", String.join("、", oldOnly)},
+                {"仅新版本有的列（未比较）", String.join("、", newOnly)},
+            };
+            for (int r = 0; r < lines.length; r++) {
+                Row row = summary.createRow(r);
+                Cell label = row.createCell(0);
+                label.setCellValue(lines[r][0]);
+                label.setCellStyle(headStyle);
+                row.createCell(1).setCellValue(lines[r][1]);
+            }
+            summary.setColumnWidth(0, 28 * 256);
+            summary.setColumnWidth(1, 60 * 256);
+            wb.write(os);
+        } finally {
+            wb.dispose();
+            wb.close();
+        }
+    }
+
+    /**
+     * Rows of one diff sheet, continued in a numbered sheet past Excel's row limit.
+     */
+    private final class SheetStream {
+        private final SXSSFWorkbook wb;
+        private final String name;
+        private final List<String> head;
+        private final CellStyle headStyle;
+        private Sheet sheet;
+        private int part = 1;
+        private int next;
+        private long rows;
+
+        SheetStream(SXSSFWorkbook wb, String name, List<String> head, CellStyle headStyle) {
+            this.wb = wb;
+            this.name = name;
+            this.head = head;
+            this.headStyle = headStyle;
+            newSheet(name);
+        }
+
+        void row(List<Object> values, Set<Integer> highlighted, CellStyle style) {
+            if (next > GroupSheetWriter.MAX_DATA_ROWS) newSheet(name + " (" + ++part + ")");
+            Row row = sheet.createRow(next++);
+            for (int i = 0; i < values.size(); i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(String.valueOf(values.get(i)));
+                if (highlighted != null && highlighted.contains(i)) cell.setCellStyle(style);
+            }
+            if ((++rows & 1023) == 0) checkCancelled();
+        }
+
+        private void newSheet(String sheetName) {
+            sheet = wb.createSheet(sheetName);
+            sheet.createFreezePane(0, 1);
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < head.size(); i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(head.get(i));
+                cell.setCellStyle(headStyle);
+            }
+            next = 1;
+        }
+    }
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Diff cancelled");
+    }
+
+    private static int partition(String key) {
+        return Math.floorMod(key.hashCode() * 0x9E3779B9, PARTITIONS);
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER));
+    }
+
+    private static long estimateBytes(String key, List<Object> values) {
+        long bytes = ENTRY_OVERHEAD + 2L * key.length();
+        for (Object cell : values) bytes += CELL_OVERHEAD + (cell instanceof String s ? 2L * s.length() : 16);
+        return bytes;
+    }
+
+    /**
+     * The old version by key: in memory while it fits the budget, then partition files of
+     * row number, key and values.
+     */
+    private final class Index implements AutoCloseable {
+        private Map<String, Slot> memory = new HashMap<>();
+        private long bytes;
+        private List<Path> parts;
+        private List<DataOutputStream> outs;
+
+        void add(long seq, List<Object> values) {
+            String key = key(values);
+            try {
+                if (outs != null) {
+                    RowCodec.write(outs.get(partition(key)), partitionRow(seq, key, values));
+                    return;
+                }
+                memory.computeIfAbsent(key, k -> new Slot()).rows.add(new OldRow(seq, hash(values), values));
+                bytes += estimateBytes(key, values);
+                if (bytes > config.memoryBudget) spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write diff partition", e);
+            }
+        }
+
+        boolean isPartitioned() throws IOException {
+            if (outs != null) {
+                for (DataOutputStream out : outs) out.close();
+                outs = List.of();
+            }
+            return parts != null;
+        }
+
+        Map<String, Slot> memory() {
+            return memory;
+        }
+
+        Map<String, Slot> loadPartition(int p) throws IOException {
+            Map<String, Slot> slots = new HashMap<>();
+            try (DataInputStream in = open(parts.get(p))) {
+                for (List<Object> row; (row = RowCodec.read(in)) != null; ) {
+                    List<Object> values = new ArrayList<>(row.subList(2, row.size()));
+                    slots.computeIfAbsent((String) row.get(1), k -> new Slot()).rows
+                            .add(new OldRow(Long.parseLong((String) row.get(0)), hash(values), values));
+                }
+            }
+            Files.deleteIfExists(parts.get(p));
+            return slots;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (parts == null) return;
+            isPartitioned();
+            for (Path part : parts) Files.deleteIfExists(part);
+        }
+
+        private void spill() throws IOException {
+            logger.info("Diff index exceeds memory budget, partitioning to disk | keys={}, budgetBytes={}",
+                    memory.size(), config.memoryBudget);
+            parts = new ArrayList<>(PARTITIONS);
+            outs = new ArrayList<>(PARTITIONS);
+            for (int p = 0; p < PARTITIONS; p++) {
+                Path file = Files.createTempFile("swisskit-diff-old-", ".part");
+                parts.add(file);
+                outs.add(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER)));
+            }
+            // A slot holds its rows in sheet order, which is all the partition needs to keep
+            for (Map.Entry<String, Slot> e : memory.entrySet()) {
+                for (OldRow row : e.getValue().rows) {
+                    RowCodec.write(outs.get(partition(e.getKey())), partitionRow(row.seq(), e.getKey(), row.values()));
+                }
+            }
+            memory = Map.of();
+        }
+    }
+}
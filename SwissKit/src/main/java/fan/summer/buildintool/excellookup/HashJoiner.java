@@ -0,0 +1,463 @@
+package fan.summer.buildintool.excellookup;
+
+import fan.summer.buildintool.excelsplitter.ColumnProjection;
+import fan.summer.buildintool.excelsplitter.FileNameUtil;
+import fan.summer.buildintool.excelsplitter.GroupSheetWriter;
+import fan.summer.buildintool.excelsplitter.RowCodec;
+import fan.summer.buildintool.excelsplitter.SheetRowReader;
+import fan.summer.buildintool.excelsplitter.SplitConfig;
+import fan.summer.buildintool.excelsplitter.StreamingRowListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Streaming hash join of two sheets (a VLOOKUP at scale). The lookup sheet is indexed in a
+ * hash map by its key columns, the main sheet is streamed through it once, and every main
+ * row is written with the lookup columns appended. Main rows without a match are kept with
+ * blank lookup columns (LEFT) or dropped (INNER); their keys are counted and written to a
+ * second sheet of the output.
+ * <p>
+ * When the index outgrows the memory budget, the join turns into a partitioned (grace) hash
+ * join: both sheets are split by key hash into partitions on disk ({@link RowCodec}), each
+ * partition is joined in memory on its own, and the partition results are merged back into
+ * main-sheet order, so the output looks the same either way.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class HashJoiner {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashJoiner.class);
+
+    static final String RESULT_SHEET = "匹配结果";
+    static final String UNMATCHED_SHEET = "未匹配键";
+
+    private static final int PARTITIONS = 64;
+    // Distinct unmatched keys listed in the report; beyond that they are only counted
+    private static final int MAX_REPORTED_KEYS = 100_000;
+    private static final char KEY_SEPARATOR = '\u0001';
+    private static final int IO_BUFFER = 1 << 16;
+    private static final int ENTRY_OVERHEAD = 112;
+    private static final int CELL_OVERHEAD = 48;
+
+    public record JoinResult(Path output, long mainRows, long lookupRows, long outputRows, long matchedRows,
+                             long unmatchedRows, long unmatchedKeys, long duplicateLookupKeys, boolean partitioned) {}
+
+    private final LookupConfig config;
+    private final BiConsumer<Double, String> progress;
+    private final ColumnProjection mainProjection;
+    private final ColumnProjection lookupProjection;
+    private volatile boolean cancelled;
+
+    private long mainRows;
+    private long lookupRows;
+    private long outputRows;
+    private long matchedRows;
+    private long unmatchedRows;
+    private long unmatchedKeys;
+    private long duplicateLookupKeys;
+    private final Map<String, long[]> reportedKeys = new LinkedHashMap<>();
+
+    public HashJoiner(LookupConfig config, BiConsumer<Double, String> progress) {
+        if (config.mainKeys.isEmpty() || config.mainKeys.size() != config.lookupKeys.size()) {
+            throw new IllegalArgumentException("Main and lookup sheets need the same number of key columns");
+        }
+        this.config = config;
+        this.progress = progress;
+        this.mainProjection = ColumnProjection.all(config.mainHeaders);
+        List<Integer> columns = config.lookupColumns.isEmpty()
+                ? new ArrayList<>(new TreeMap<>(config.lookupHeaders).keySet())
+                : new ArrayList<>(config.lookupColumns);
+        if (config.lookupColumns.isEmpty()) columns.removeAll(config.lookupKeys);
+        this.lookupProjection = ColumnProjection.of(config.lookupHeaders, columns);
+    }
+
+    /**
+     * Asks a running {@link #join()} to stop; it throws {@link CancellationException} within
+     * about a thousand rows and deletes the partial output.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public JoinResult join() throws Exception {
+        Path output = config.outputDir.resolve(
+                FileNameUtil.getFileName(config.mainFile.getFileName().toString()) + "_lookup.xlsx");
+        logger.info("Lookup join | main={}, lookup={}, keys={}, joinType={}, firstMatchOnly={}",
+                config.mainFile.getFileName(), config.lookupFile.getFileName(), config.mainKeys.size(),
+                config.joinType, config.firstMatchOnly);
+        long start = System.nanoTime();
+        boolean partitioned;
+        try (Index index = new Index();
+             OutputStream os = Files.newOutputStream(output);
+             GroupSheetWriter writer = new GroupSheetWriter(os, resultHead(), SplitConfig.OverflowPolicy.NEW_SHEET)) {
+            writer.head(UNMATCHED_SHEET, unmatchedHead());
+            progress.accept(0.05, "Indexing: " + config.lookupSheet);
+            readRows(config.lookupFile, config.lookupSheet, lookupDecode(), row -> {
+                lookupRows++;
+                index.add(key(row, config.lookupKeys), lookupProjection.project(row));
+            });
+            partitioned = index.isPartitioned();
+            progress.accept(0.3, "Joining: " + config.mainSheet);
+            if (!partitioned) {
+                Map<String, List<List<Object>>> map = index.memory();
+                readRows(config.mainFile, config.mainSheet, null, row -> {
+                    mainRows++;
+                    String key = key(row, config.mainKeys);
+                    emit(mainProjection.project(row), key, key == null ? null : map.get(key),
+                            out -> writer.accept(RESULT_SHEET, out));
+                });
+            } else {
+                joinPartitions(index, writer);
+            }
+            progress.accept(0.9, "Writing report");
+            writeUnmatched(writer);
+        } catch (Exception e) {
+            Files.deleteIfExists(output);
+            if (cancelled) throw new CancellationException("Lookup cancelled");
+            throw e;
+        }
+        progress.accept(1.0, "Done");
+        logger.info("Lookup join completed | mainRows={}, lookupRows={}, outputRows={}, matched={}, unmatched={}, "
+                        + "unmatchedKeys={}, duplicateLookupKeys={}, partitioned={}, elapsedMs={}",
+                mainRows, lookupRows, outputRows, matchedRows, unmatchedRows, unmatchedKeys, duplicateLookupKeys,
+                partitioned, (System.nanoTime() - start) / 1_000_000);
+        return new JoinResult(output, mainRows, lookupRows, outputRows, matchedRows, unmatchedRows, unmatchedKeys,
+                duplicateLookupKeys, partitioned);
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void readRows(Path file, String sheet, BitSet decode, Consumer<Map<Integer, Object>> sink)
+            throws IOException {
+        StreamingRowListener listener = new StreamingRowListener(sink);
+        listener.setRowTicker(rows -> {
+            if (cancelled) throw new CancellationException("Lookup cancelled");
+        });
+        SheetRowReader.read(file, sheet, decode, listener);
+    }
+
+    private BitSet lookupDecode() {
+        BitSet decode = new BitSet();
+        config.lookupKeys.forEach(decode::set);
+        for (int col : lookupProjection.columns()) decode.set(col);
+        return decode;
+    }
+
+    /**
+     * Composite key of a row: trimmed key cells joined by a control character; null when
+     * every key cell is blank, which never matches.
+     */
+    private static String key(Map<Integer, Object> row, List<Integer> keyColumns) {
+        StringBuilder sb = new StringBuilder();
+        boolean blank = true;
+        for (int i = 0; i < keyColumns.size(); i++) {
+            Object v = row.get(keyColumns.get(i));
+            String s = v == null ? "" : v.toString().trim();
+            if (!s.isEmpty()) blank = false;
+            if (i > 0) sb.append(KEY_SEPARATOR);
+            sb.append(s);
+        }
+        return blank ? null : sb.toString();
+    }
+
+    /**
+     * Joins one main row with its matches (null when none) and hands the output rows to the sink.
+     */
+    private void emit(List<Object> mainValues, String key, List<List<Object>> matches,
+                      Consumer<List<Object>> sink) {
+        if (matches == null) {
+            unmatchedRows++;
+            countUnmatched(key);
+            if (config.joinType == LookupConfig.JoinType.LEFT) {
+                List<Object> out = new ArrayList<>(mainValues);
+                for (int i = 0; i < lookupProjection.size(); i++) out.add("");
+                sink.accept(out);
+                outputRows++;
+            }
+            return;
+        }
+        matchedRows++;
+        for (List<Object> match : matches) {
+            List<Object> out = new ArrayList<>(mainValues.size() + match.size());
+            out.addAll(mainValues);
+            out.addAll(match);
+            sink.accept(out);
+            outputRows++;
+        }
+    }
+
+    private void countUnmatched(String key) {
+        String reported = key == null ? "" : key;
+        long[] count = reportedKeys.get(reported);
+        if (count != null) {
+            count[0]++;
+        } else {
+            unmatchedKeys++;
+            if (reportedKeys.size() < MAX_REPORTED_KEYS) reportedKeys.put(reported, new long[]{1});
+        }
+    }
+
+    /**
+     * Joins partition by partition, writing each partition's output rows tagged with the main
+     * row number, then merges the partition outputs by that number into the writer.
+     */
+    private void joinPartitions(Index index, GroupSheetWriter writer) throws Exception {
+        List<Path> mainParts = new ArrayList<>(PARTITIONS);
+        List<Path> outParts = new ArrayList<>(PARTITIONS);
+        try {
+            List<DataOutputStream> outs = new ArrayList<>(PARTITIONS);
+            try {
+                for (int p = 0; p < PARTITIONS; p++) {
+                    Path file = Files.createTempFile("swisskit-join-main-", ".part");
+                    mainParts.add(file);
+                    outs.add(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER)));
+                }
+                readRows(config.mainFile, config.mainSheet, null, row -> {
+                    String key = key(row, config.mainKeys);
+                    List<Object> tagged = new ArrayList<>(mainProjection.size() + 2);
+                    tagged.add(String.valueOf(mainRows++));
+                    tagged.add(key);
+                    tagged.addAll(mainProjection.project(row));
+                    try {
+                        RowCodec.write(outs.get(partition(key)), tagged);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to write join partition", e);
+                    }
+                });
+            } finally {
+                for (DataOutputStream out : outs) out.close();
+            }
+
+            for (int p = 0; p < PARTITIONS; p++) {
+                progress.accept(0.3 + 0.5 * p / PARTITIONS, "Joining partition " + (p + 1) + "/" + PARTITIONS);
+                Map<String, List<List<Object>>> map = index.loadPartition(p);
+                Path outFile = Files.createTempFile("swisskit-join-out-", ".part");
+                outParts.add(outFile);
+                try (DataInputStream in = open(mainParts.get(p));
+                     DataOutputStream out = new DataOutputStream(
+                             new BufferedOutputStream(Files.newOutputStream(outFile), IO_BUFFER))) {
+                    for (List<Object> tagged; (tagged = RowCodec.read(in)) != null; ) {
+                        checkCancelled();
+                        Object seq = tagged.get(0);
+                        String key = (String) tagged.get(1);
+                        emit(tagged.subList(2, tagged.size()), key, key == null ? null : map.get(key), row -> {
+                            List<Object> seqRow = new ArrayList<>(row.size() + 1);
+                            seqRow.add(seq);
+                            seqRow.addAll(row);
+                            try {
+                                RowCodec.write(out, seqRow);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException("Failed to write join output", e);
+                            }
+                        });
+                    }
+                }
+                Files.deleteIfExists(mainParts.get(p));
+            }
+            mergeByRowNumber(outParts, writer);
+        } finally {
+            for (Path file : mainParts) Files.deleteIfExists(file);
+            for (Path file : outParts) Files.deleteIfExists(file);
+        }
+    }
+
+    private void mergeByRowNumber(List<Path> parts, GroupSheetWriter writer) throws IOException {
+        record Head(long seq, List<Object> row, DataInputStream in) {}
+        PriorityQueue<Head> heap = new PriorityQueue<>((a, b) -> Long.compare(a.seq(), b.seq()));
+        List<DataInputStream> ins = new ArrayList<>();
+        try {
+            for (Path part : parts) {
+                DataInputStream in = open(part);
+                ins.add(in);
+                List<Object> row = RowCodec.read(in);
+                if (row != null) heap.add(new Head(Long.parseLong((String) row.get(0)), row, in));
+            }
+            long merged = 0;
+            while (!heap.isEmpty()) {
+                Head head = heap.poll();
+                writer.accept(RESULT_SHEET, new ArrayList<>(head.row().subList(1, head.row().size())));
+                if ((++merged & 1023) == 0) checkCancelled();
+                List<Object> next = RowCodec.read(head.in());
+                if (next != null) heap.add(new Head(Long.parseLong((String) next.get(0)), next, head.in()));
+            }
+        } finally {
+            for (DataInputStream in : ins) in.close();
+        }
+    }
+
+    private void writeUnmatched(GroupSheetWriter writer) {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(reportedKeys.entrySet());
+        // Keys that miss most often first
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        for (Map.Entry<String, long[]> e : entries) {
+            List<Object> row = new ArrayList<>(config.mainKeys.size() + 1);
+            String[] parts = e.getKey().split(String.valueOf(KEY_SEPARATOR), -1);
+            for (int i = 0; i < config.mainKeys.size(); i++) row.add(i < parts.length ? parts[i] : "");
+            row.add(String.valueOf(e.getValue()[0]));
+            writer.accept(UNMATCHED_SHEET, row);
+        }
+        if (unmatchedKeys > reportedKeys.size()) {
+            logger.warn("Unmatched key report truncated | reported={}, total={}", reportedKeys.size(), unmatchedKeys);
+        }
+    }
+
+    private List<List<String>> resultHead() {
+        List<List<String>> head = new ArrayList<>(mainProjection.headers());
+        Set<String> names = new HashSet<>(config.mainHeaders.values());
+        for (List<String> h : lookupProjection.headers()) {
+            String name = h.get(0);
+            // A lookup column named like a main column is marked with its sheet
+            head.add(Collections.singletonList(names.contains(name) ? name + " (" + config.lookupSheet + ")" : name));
+        }
+        return head;
+    }
+
+    private List<List<String>> unmatchedHead() {
+        List<List<String>> head = new ArrayList<>();
+        for (Integer col : config.mainKeys) head.add(Collections.singletonList(config.mainHeaders.get(col)));
+        head.add(Collections.singletonList("行数"));
+        return head;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Lookup cancelled");
+    }
+
+    private static int partition(String key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode() * 0x9E3779B9, PARTITIONS);
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER));
+    }
+
+    private static long estimateBytes(String key, List<Object> row) {
+        long bytes = ENTRY_OVERHEAD + 2L * key.length();
+        for (Object cell : row) bytes += CELL_OVERHEAD + (cell instanceof String s ? 2L * s.length() : 16);
+        return bytes;
+    }
+
+    /**
+     * The lookup index: a hash map while it fits the memory budget, then partition files
+     * holding the key and values of every lookup row.
+     */
+    private final class Index implements AutoCloseable {
+        private Map<String, List<List<Object>>> memory = new HashMap<>();
+        private long bytes;
+        private List<Path> parts;
+        private List<DataOutputStream> outs;
+
+        void add(String key, List<Object> values) {
+            if (key == null) return;
+            try {
+                if (outs != null) {
+                    write(key, values);
+                    return;
+                }
+                List<List<Object>> rows = memory.get(key);
+                if (rows == null) {
+                    memory.put(key, rows = new ArrayList<>(1));
+                } else {
+                    duplicateLookupKeys++;
+                    if (config.firstMatchOnly) return;
+                }
+                rows.add(values);
+                bytes += estimateBytes(key, values);
+                if (bytes > config.memoryBudget) spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write lookup partition", e);
+            }
+        }
+
+        boolean isPartitioned() throws IOException {
+            if (outs != null) {
+                for (DataOutputStream out : outs) out.close();
+                outs = List.of();
+            }
+            return parts != null;
+        }
+
+        Map<String, List<List<Object>>> memory() {
+            return memory;
+        }
+
+        /**
+         * Loads one partition into a map, keeping each key's rows in lookup-sheet order.
+         */
+        Map<String, List<List<Object>>> loadPartition(int p) throws IOException {
+            Map<String, List<List<Object>>> map = new HashMap<>();
+            try (DataInputStream in = open(parts.get(p))) {
+                for (List<Object> row; (row = RowCodec.read(in)) != null; ) {
+                    String key = (String) row.get(0);
+                    List<List<Object>> rows = map.computeIfAbsent(key, k -> new ArrayList<>(1));
+                    if (!rows.isEmpty()) {
+                        duplicateLookupKeys++;
+                        if (config.firstMatchOnly) continue;
+                    }
+                    rows.add(new ArrayList<>(row.subList(1, row.size())));
+                }
+            }
+            Files.deleteIfExists(parts.get(p));
+            return map;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (parts == null) return;
+            isPartitioned();
+            for (Path part : parts) Files.deleteIfExists(part);
+        }
+
+        private void spill() throws IOException {
+            logger.info("Lookup index exceeds memory budget, partitioning to disk | keys={}, budgetBytes={}",
+                    memory.size(), config.memoryBudget);
+            parts = new ArrayList<>(PARTITIONS);
+            outs = new ArrayList<>(PARTITIONS);
+            for (int p = 0; p < PARTITIONS; p++) {
+                Path file = Files.createTempFile("swisskit-join-lookup-", ".part");
+                parts.add(file);
+                outs.add(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER)));
+            }
+            for (Map.Entry<String, List<List<Object>>> e : memory.entrySet()) {
+                for (List<Object> values : e.getValue()) write(e.getKey(), values);
+            }
+            memory = Map.of();
+            // Rows kept in memory are written out and counted again per partition; duplicates
+            // already dropped by firstMatchOnly keep their count
+            if (!config.firstMatchOnly) duplicateLookupKeys = 0;
+        }
+
+        private void write(String key, List<Object> values) throws IOException {
+            List<Object> row = new ArrayList<>(values.size() + 1);
+            row.add(key);
+            row.addAll(values);
+            RowCodec.write(outs.get(partition(key)), row);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package fan.summer.buildintool.excellookup;
+
+import fan.summer.buildintool.excelsplitter.ExternalRowSorter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class LookupConfig {
+
+    public enum JoinType { INNER, LEFT }
+
+    // Main sheet (the large one): streamed once, every row is looked up
+    public Path   mainFile;
+    public String mainSheet;
+    public Map<Integer, String> mainHeaders;   // colIndex → header
+    public List<Integer> mainKeys = new ArrayList<>();
+
+    // Lookup sheet (the smaller one): indexed by its key columns, in the same order as mainKeys
+    public Path   lookupFile;
+    public String lookupSheet;
+    public Map<Integer, String> lookupHeaders;
+    public List<Integer> lookupKeys = new ArrayList<>();
+    // Lookup columns appended to every main row (all non-key columns if empty)
+    public List<Integer> lookupColumns = new ArrayList<>();
+
+    // INNER drops main rows without a match, LEFT keeps them with blank lookup columns
+    public JoinType joinType = JoinType.LEFT;
+    // Only the first lookup row of a key is used, like VLOOKUP; otherwise one output row per match
+    public boolean firstMatchOnly = true;
+
+    public Path outputDir;
+    // Heap for the in-memory index; beyond it both sheets are partitioned to disk by key
+    public long memoryBudget = ExternalRowSorter.DEFAULT_MEMORY_BUDGET;
+}
@@ -0,0 +1,261 @@
+package fan.summer.buildintool.excellookup;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import fan.summer.buildintool.excelsplitter.SheetPicker;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel lookup (VLOOKUP) tool: appends columns of a lookup sheet to every row of a main
+ * sheet by matching key columns, streamed through {@link HashJoiner}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class LookupPlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.excellookup"; }
+    @Override public String getName()        { return "Excel匹配"; }
+    @Override public String getDescription() { return "按关键列将查找表的列匹配到主表（VLOOKUP），支持超大文件"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "table-search"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new LookupView();
+        return view;
+    }
+
+    static class LookupView extends ScrollPane {
+        private final SheetPicker mainPicker = new SheetPicker("主表（逐行匹配）");
+        private final SheetPicker lookupPicker = new SheetPicker("查找表（按关键列建立索引）");
+        private final SheetPicker.ColumnList mainKeys;
+        private final SheetPicker.ColumnList lookupKeys;
+        private final SheetPicker.ColumnList lookupColumns;
+        private final ComboBox<String> joinCombo = new ComboBox<>();
+        private final CheckBox firstMatchBox = new CheckBox("同一键有多行时只取第一行（与 VLOOKUP 一致）");
+        private final Label dirLabel = new Label("未选择（默认与主表同目录）");
+        private final Label hintLabel = new Label();
+        private final Button runBtn = glassBtn("▶  开始匹配", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label progressLabel = new Label();
+        private final VBox resultBox = new VBox(8);
+        private Path outputDir;
+        private volatile HashJoiner joiner;
+
+        LookupView() {
+            mainKeys = mainPicker.addColumnList("关键列（可多选）", false);
+            lookupKeys = lookupPicker.addColumnList("关键列（与主表关键列按顺序一一对应）", false);
+            lookupColumns = lookupPicker.addColumnList("带出列（勾选要追加到主表的列）", true);
+            mainPicker.setOnChange(this::validate);
+            lookupPicker.setOnChange(this::validate);
+
+            joinCombo.getItems().addAll("保留未匹配的行（左连接）", "只保留匹配到的行（内连接）");
+            joinCombo.getSelectionModel().selectFirst();
+            joinCombo.setMaxWidth(Double.MAX_VALUE);
+            joinCombo.setStyle(comboStyle());
+
+            firstMatchBox.setSelected(true);
+            firstMatchBox.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+            firstMatchBox.setWrapText(true);
+
+            dirLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            dirLabel.setWrapText(true);
+            Button dirBtn = glassBtn("📁  选择输出目录", false);
+            dirBtn.setOnAction(e -> pickOutputDir());
+
+            hintLabel.setWrapText(true);
+            hintLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            resultBox.setStyle("-fx-background-color: transparent;");
+
+            runBtn.setOnAction(e -> startJoin());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                if (joiner != null) joiner.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+            HBox actions = new HBox(12, runBtn, cancelBtn);
+            actions.setAlignment(Pos.CENTER_LEFT);
+
+            VBox content = new VBox(16, mainPicker, new Separator(), lookupPicker, new Separator(),
+                sectionTitle("匹配方式"), joinCombo, firstMatchBox,
+                sectionTitle("输出目录"), dirBtn, dirLabel,
+                hintLabel, actions, progressBar, progressLabel, resultBox);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validate();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private void validate() {
+            String error = null;
+            if (mainPicker.headers() == null || lookupPicker.headers() == null) {
+                error = "请先为主表和查找表选择文件和Sheet";
+            } else if (mainKeys.selected().isEmpty()) {
+                error = "请勾选主表的关键列";
+            } else if (mainKeys.selected().size() != lookupKeys.selected().size()) {
+                error = "主表与查找表的关键列数量必须相同";
+            } else if (lookupColumns.selected().stream().allMatch(lookupKeys.selected()::contains)) {
+                error = "请勾选至少一个查找表的非关键列作为带出列";
+            }
+            hintLabel.setText(error != null ? "❌ " + error : "");
+            runBtn.setDisable(error != null || joiner != null);
+        }
+
+        private void pickOutputDir() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择输出目录");
+            if (mainPicker.file() != null) dc.setInitialDirectory(mainPicker.file().getParent().toFile());
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) {
+                outputDir = dir.toPath();
+                dirLabel.setText(dir.getAbsolutePath());
+                dirLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+        }
+
+        private LookupConfig buildConfig() {
+            LookupConfig config = new LookupConfig();
+            config.mainFile = mainPicker.file();
+            config.mainSheet = mainPicker.sheet();
+            config.mainHeaders = mainPicker.headers();
+            config.mainKeys = new ArrayList<>(mainKeys.selected());
+            config.lookupFile = lookupPicker.file();
+            config.lookupSheet = lookupPicker.sheet();
+            config.lookupHeaders = lookupPicker.headers();
+            config.lookupKeys = new ArrayList<>(lookupKeys.selected());
+            List<Integer> columns = new ArrayList<>(lookupColumns.selected());
+            columns.removeAll(config.lookupKeys);
+            config.lookupColumns = columns;
+            config.joinType = joinCombo.getSelectionModel().getSelectedIndex() == 1
+                ? LookupConfig.JoinType.INNER : LookupConfig.JoinType.LEFT;
+            config.firstMatchOnly = firstMatchBox.isSelected();
+            config.outputDir = outputDir != null ? outputDir : config.mainFile.getParent();
+            return config;
+        }
+
+        private void startJoin() {
+            resultBox.getChildren().clear();
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            HashJoiner current = new HashJoiner(buildConfig(), (pct, msg) ->
+                Platform.runLater(() -> {
+                    if (cancelBtn.isDisabled()) return;
+                    progressBar.setProgress(pct);
+                    progressLabel.setText(msg);
+                })
+            );
+            joiner = current;
+            runBtn.setDisable(true);
+            Task<HashJoiner.JoinResult> task = new Task<>() {
+                @Override
+                protected HashJoiner.JoinResult call() throws Exception {
+                    return current.join();
+                }
+            };
+            task.setOnSucceeded(e -> finish(task.getValue(), null));
+            task.setOnFailed(e -> finish(null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finish(HashJoiner.JoinResult result, Throwable err) {
+            joiner = null;
+            cancelBtn.setVisible(false);
+            validate();
+            progressBar.setProgress(1.0);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                progressBar.setProgress(0);
+                progressLabel.setText("已取消");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                progressBar.getStyleClass().add("danger");
+                progressLabel.setText("❌ 匹配失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                progressLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            progressBar.getStyleClass().add("success");
+            progressLabel.setText("✓ 匹配完成：" + result.output().getFileName());
+            progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+
+            resultBox.getChildren().add(subLabel("匹配结果"));
+            addResult("主表 " + result.mainRows() + " 行，查找表 " + result.lookupRows() + " 行，输出 "
+                + result.outputRows() + " 行");
+            addResult("匹配到 " + result.matchedRows() + " 行，未匹配 " + result.unmatchedRows() + " 行（"
+                + result.unmatchedKeys() + " 个不同的键，明细见「" + HashJoiner.UNMATCHED_SHEET + "」Sheet）");
+            if (result.duplicateLookupKeys() > 0) {
+                addResult("查找表中有 " + result.duplicateLookupKeys() + " 行的键与前面的行重复"
+                    + (firstMatchBox.isSelected() ? "，已按第一行匹配" : "，每个匹配行各输出一行"));
+            }
+            if (result.partitioned()) addResult("查找表超出内存预算，已按键分区落盘匹配");
+
+            Button openBtn = glassBtn("打开文件夹", false);
+            openBtn.setOnAction(e -> {
+                try {
+                    java.awt.Desktop.getDesktop().open(result.output().getParent().toFile());
+                } catch (Exception ex) { /* skip */ }
+            });
+            resultBox.getChildren().add(openBtn);
+        }
+
+        private void addResult(String text) {
+            Label l = new Label(text);
+            l.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+            l.setWrapText(true);
+            resultBox.getChildren().add(l);
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package fan.summer.buildintool.excelprofile;
+
+import fan.summer.buildintool.excelaggregate.GroupAggregator;
+import fan.summer.buildintool.excelsplitter.ExcelUtil;
+import fan.summer.buildintool.excelsplitter.FileNameUtil;
+import fan.summer.buildintool.excelsplitter.GroupSheetWriter;
+import fan.summer.buildintool.excelsplitter.LongHashSet;
+import fan.summer.buildintool.excelsplitter.SheetRowReader;
+import fan.summer.buildintool.excelsplitter.SplitConfig;
+import fan.summer.buildintool.excelsplitter.StreamingRowListener;
+import fan.summer.buildintool.excelsql.SheetTableImporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Streaming column profile of a sheet: per column the blank and invalid-marker ratios, the
+ * inferred type, an estimated distinct count, min / max and the distribution of value lengths.
+ * <p>
+ * Cells follow {@link ExcelUtil#normalizeOrInvalid}: a missing or whitespace-only cell is
+ * blank, a known marker such as N/A or #REF! is invalid, anything else is a value, trimmed and
+ * typed as the SQL import would type it ({@link SheetTableImporter#classify}). Every column
+ * state is a fixed-size mergeable sketch (counters, extremes, a length histogram and a
+ * {@link DistinctSketch}), so as in {@link GroupAggregator} the reading thread only cuts rows
+ * into batches, the batches are profiled on all cores into partial states, and the partials
+ * are merged once the sheet ends. Memory does not grow with the number of rows.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class ColumnProfiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnProfiler.class);
+
+    static final String SUMMARY_SHEET = "列画像";
+    static final List<String> SUMMARY_HEAD = List.of(
+            "列名", "行数", "空值", "空值率", "无效标记", "无效率", "推断类型", "主要类型占比", "类型分布",
+            "不同值(估算)", "最小值", "最大值", "最短长度", "最长长度", "平均长度", "长度P50", "长度P95");
+
+    private static final int BATCH_ROWS = 4096;
+    private static final int PROGRESS_ROWS = 65_536;
+    // Lengths 0..255 are counted one by one, longer values share the last bucket
+    private static final int LENGTH_BUCKETS = 256;
+    private static final MathContext EXCEL_PRECISION = new MathContext(15);
+    private static final String INVALID = "INVALID";
+    private static final SheetTableImporter.Kind[] KINDS = SheetTableImporter.Kind.values();
+
+    /**
+     * Profile of one column. Ratios are of all rows, type shares of the values; min and max
+     * are numbers for numeric columns and text otherwise, null when the column has no values.
+     * Length percentiles beyond 255 are reported as 256, the histogram's last bucket.
+     */
+    public record ColumnProfile(String header, long rows, long blanks, long invalid, String type,
+                                double dominantShare, String typeMix, long distinct, boolean distinctExact,
+                                Object min, Object max, int minLength, int maxLength, double avgLength,
+                                int p50Length, int p95Length) {
+
+        public long values() {
+            return rows - blanks - invalid;
+        }
+    }
+
+    public record ProfileResult(long rows, List<ColumnProfile> columns, int partitions) {}
+
+    private final ProfileConfig config;
+    private final BiConsumer<Double, String> progress;
+    private final int[] columns;
+    private volatile boolean cancelled;
+
+    public ColumnProfiler(ProfileConfig config, BiConsumer<Double, String> progress) {
+        if (config.columns.isEmpty()) throw new IllegalArgumentException("At least one column is required");
+        this.config = config;
+        this.progress = progress;
+        this.columns = config.columns.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Asks a running {@link #profile()} or {@link #export} to stop; it throws {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public ProfileResult profile() throws Exception {
+        int partitions = Math.max(1, Runtime.getRuntime().availableProcessors());
+        logger.info("Profiling started | file={}, sheet={}, columns={}, partitions={}",
+                config.sourceFile.getFileName(), config.sheet, columns.length, partitions);
+        long start = System.nanoTime();
+
+        BlockingQueue<Partial> partials = new ArrayBlockingQueue<>(partitions);
+        for (int i = 0; i < partitions; i++) partials.add(new Partial());
+        Semaphore inFlight = new Semaphore(partitions * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(partitions, r -> {
+            Thread t = new Thread(r, "profile-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long rows;
+        Partial merged;
+        try {
+            Batch[] batch = {new Batch()};
+            Runnable dispatch = () -> {
+                Batch full = batch[0];
+                batch[0] = new Batch();
+                inFlight.acquireUninterruptibly();
+                pool.execute(() -> {
+                    Partial partial = null;
+                    try {
+                        partial = partials.take();
+                        partial.add(full);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        if (partial != null) partials.add(partial);
+                        inFlight.release();
+                    }
+                });
+            };
+
+            StreamingRowListener listener = new StreamingRowListener(row -> {
+                Batch b = batch[0];
+                Object[] cells = new Object[columns.length];
+                for (int i = 0; i < cells.length; i++) cells[i] = row.get(columns[i]);
+                b.cells[b.size++] = cells;
+                if (b.size == BATCH_ROWS) dispatch.run();
+            });
+            long[] read = {0};
+            listener.setRowTicker(n -> {
+                checkCancelled();
+                if (failure.get() != null) throw new IllegalStateException("Profiling failed", failure.get());
+                if ((read[0] += n) / PROGRESS_ROWS != (read[0] - n) / PROGRESS_ROWS) {
+                    progress.accept(-1.0, "Profiling: " + read[0] + " rows");
+                }
+            });
+            progress.accept(-1.0, "Reading: " + config.sheet);
+            SheetRowReader.read(config.sourceFile, config.sheet, decodeColumns(), listener);
+            if (batch[0].size > 0) dispatch.run();
+            inFlight.acquireUninterruptibly(partitions * 2);
+            if (failure.get() != null) throw new IllegalStateException("Profiling failed", failure.get());
+            rows = listener.getRowCount();
+
+            progress.accept(0.9, "Merging " + partitions + " partial profiles");
+            merged = partials.take();
+            while (!partials.isEmpty()) merged.merge(partials.take());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<ColumnProfile> profiles = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            profiles.add(merged.states[i].toProfile(config.headers.get(columns[i])));
+        }
+        progress.accept(1.0, "Done");
+        logger.info("Profiling completed | rows={}, columns={}, partitions={}, elapsedMs={}",
+                rows, columns.length, partitions, (System.nanoTime() - start) / 1_000_000);
+        return new ProfileResult(rows, profiles, partitions);
+    }
+
+    /**
+     * Writes the profile as one summary row per column to {@code <file>_<sheet>_profile.xlsx}
+     * in the output directory.
+     */
+    public Path export(ProfileResult result) throws Exception {
+        Path output = config.outputDir.resolve(FileNameUtil.getFileName(config.sourceFile.getFileName().toString())
+                + "_" + config.sheet + "_profile.xlsx");
+        List<List<String>> head = new ArrayList<>();
+        for (String h : SUMMARY_HEAD) head.add(Collections.singletonList(h));
+        try (OutputStream os = Files.newOutputStream(output);
+             GroupSheetWriter writer = new GroupSheetWriter(os, head, SplitConfig.OverflowPolicy.NEW_SHEET)) {
+            for (ColumnProfile p : result.columns()) {
+                checkCancelled();
+                writer.accept(SUMMARY_SHEET, summaryRow(p));
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+        logger.info("Profile exported | output={}", output);
+        return output;
+    }
+
+    /**
+     * One summary row in {@link #SUMMARY_HEAD} order: counts and lengths as numbers, ratios
+     * as percent text.
+     */
+    static List<Object> summaryRow(ColumnProfile p) {
+        List<Object> row = new ArrayList<>(SUMMARY_HEAD.size());
+        row.add(p.header());
+        row.add(p.rows());
+        row.add(p.blanks());
+        row.add(percent(p.blanks(), p.rows()));
+        row.add(p.invalid());
+        row.add(percent(p.invalid(), p.rows()));
+        row.add(p.type());
+        row.add(p.values() == 0 ? "" : String.format(Locale.ROOT, "%.2f%%", p.dominantShare() * 100));
+        row.add(p.typeMix());
+        row.add(p.distinctExact() ? (Object) p.distinct() : "≈" + p.distinct());
+        row.add(p.min() != null ? p.min() : "");
+        row.add(p.max() != null ? p.max() : "");
+        if (p.values() == 0) {
+            for (int i = 0; i < 5; i++) row.add("");
+        } else {
+            row.add(p.minLength());
+            row.add(length(p.maxLength()));
+            row.add(Math.round(p.avgLength() * 100) / 100.0);
+            row.add(length(p.p50Length()));
+            row.add(length(p.p95Length()));
+        }
+        return row;
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Profiling cancelled");
+    }
+
+    private BitSet decodeColumns() {
+        BitSet decode = new BitSet();
+        for (int col : columns) decode.set(col);
+        return decode;
+    }
+
+    private static String percent(long part, long whole) {
+        return whole == 0 ? "" : String.format(Locale.ROOT, "%.2f%%", part * 100.0 / whole);
+    }
+
+    private static Object length(int length) {
+        return length >= LENGTH_BUCKETS ? "≥" + LENGTH_BUCKETS : (Object) length;
+    }
+
+    private static String typeLabel(SheetTableImporter.Kind kind) {
+        return switch (kind) {
+            case BIGINT -> "整数";
+            case NUMERIC -> "小数";
+            case DATE -> "日期";
+            case TIMESTAMP -> "日期时间";
+            case VARCHAR -> "文本";
+        };
+    }
+
+    /** Rows cut off the reading thread: the raw cells of the profiled columns. */
+    private static final class Batch {
+        final Object[][] cells = new Object[BATCH_ROWS][];
+        int size;
+    }
+
+    /**
+     * Sketch of one column. Numeric extremes are kept as doubles, temporal ones as the value
+     * and its text, and text extremes in string order over all values for mixed columns.
+     */
+    private static final class ColumnState {
+        long rows;
+        long blanks;
+        long invalid;
+        final long[] kinds = new long[KINDS.length];
+        final DistinctSketch distinct = new DistinctSketch();
+        double numMin = Double.POSITIVE_INFINITY;
+        double numMax = Double.NEGATIVE_INFINITY;
+        LocalDateTime timeMin;
+        LocalDateTime timeMax;
+        String timeMinText;
+        String timeMaxText;
+        String textMin;
+        String textMax;
+        final long[] lengths = new long[LENGTH_BUCKETS + 1];
+        long lengthSum;
+        int minLength = Integer.MAX_VALUE;
+        int maxLength;
+
+        void add(Object cell) {
+            rows++;
+            String s = ExcelUtil.normalizeOrInvalid(cell);
+            if (INVALID.equals(s)) {
+                if (cell == null || cell.toString().isBlank()) {
+                    blanks++;
+                } else {
+                    invalid++;
+                }
+                return;
+            }
+            SheetTableImporter.Kind kind = SheetTableImporter.classify(s);
+            kinds[kind.ordinal()]++;
+            distinct.add(LongHashSet.hash64(s));
+            switch (kind) {
+                case BIGINT, NUMERIC -> {
+                    double n = Double.parseDouble(s.replace(",", ""));
+                    numMin = Math.min(numMin, n);
+                    numMax = Math.max(numMax, n);
+                }
+                case DATE -> time(SheetTableImporter.date(s).atStartOfDay(), s);
+                case TIMESTAMP -> time(SheetTableImporter.timestamp(s), s);
+                default -> { }
+            }
+            text(s, s);
+            int length = s.length();
+            lengths[Math.min(length, LENGTH_BUCKETS)]++;
+            lengthSum += length;
+            minLength = Math.min(minLength, length);
+            maxLength = Math.max(maxLength, length);
+        }
+
+        void merge(ColumnState other) {
+            rows += other.rows;
+            blanks += other.blanks;
+            invalid += other.invalid;
+            for (int i = 0; i < kinds.length; i++) kinds[i] += other.kinds[i];
+            distinct.merge(other.distinct);
+            numMin = Math.min(numMin, other.numMin);
+            numMax = Math.max(numMax, other.numMax);
+            if (other.timeMin != null) {
+                time(other.timeMin, other.timeMinText);
+                time(other.timeMax, other.timeMaxText);
+            }
+            if (other.textMin != null) text(other.textMin, other.textMax);
+            for (int i = 0; i < lengths.length; i++) lengths[i] += other.lengths[i];
+            lengthSum += other.lengthSum;
+            minLength = Math.min(minLength, other.minLength);
+            maxLength = Math.max(maxLength, other.maxLength);
+        }
+
+        ColumnProfile toProfile(String header) {
+            long values = rows - blanks - invalid;
+            SheetTableImporter.Kind type = null;
+            int dominant = 0;
+            for (int i = 0; i < kinds.length; i++) {
+                if (kinds[i] == 0) continue;
+                type = type == null ? KINDS[i] : SheetTableImporter.merge(type, KINDS[i]);
+                if (kinds[i] > kinds[dominant]) dominant = i;
+            }
+            if (type == null) {
+                return new ColumnProfile(header, rows, blanks, invalid, "空", 0, "", 0, true,
+                        null, null, 0, 0, 0, 0, 0);
+            }
+            Object min;
+            Object max;
+            switch (type) {
+                case BIGINT, NUMERIC -> {
+                    min = excelDouble(numMin);
+                    max = excelDouble(numMax);
+                }
+                case DATE, TIMESTAMP -> {
+                    min = timeMinText;
+                    max = timeMaxText;
+                }
+                default -> {
+                    min = textMin;
+                    max = textMax;
+                }
+            }
+            return new ColumnProfile(header, rows, blanks, invalid, typeLabel(type),
+                    (double) kinds[dominant] / values, typeMix(values), distinct.estimate(), distinct.isExact(),
+                    min, max, minLength, maxLength, (double) lengthSum / values,
+                    percentile(values, 0.5), percentile(values, 0.95));
+        }
+
+        private void time(LocalDateTime value, String text) {
+            if (timeMin == null || value.isBefore(timeMin)) {
+                timeMin = value;
+                timeMinText = text;
+            }
+            if (timeMax == null || value.isAfter(timeMax)) {
+                timeMax = value;
+                timeMaxText = text;
+            }
+        }
+
+        private void text(String min, String max) {
+            if (textMin == null || min.compareTo(textMin) < 0) textMin = min;
+            if (textMax == null || max.compareTo(textMax) > 0) textMax = max;
+        }
+
+        /** Type shares of the values, largest first, e.g. "整数 98.00% / 文本 2.00%". */
+        private String typeMix(long values) {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < kinds.length; i++) {
+                if (kinds[i] > 0) order.add(i);
+            }
+            order.sort((a, b) -> Long.compare(kinds[b], kinds[a]));
+            StringBuilder sb = new StringBuilder();
+            for (int i : order) {
+                if (!sb.isEmpty()) sb.append(" / ");
+                sb.append(typeLabel(KINDS[i])).append(' ').append(percent(kinds[i], values));
+            }
+            return sb.toString();
+        }
+
+        /** Smallest length with at least the given share of the values at or below it. */
+        private int percentile(long values, double q) {
+            long target = Math.max(1, (long) Math.ceil(values * q));
+            long seen = 0;
+            for (int i = 0; i < lengths.length; i++) {
+                seen += lengths[i];
+                if (seen >= target) return i;
+            }
+            return LENGTH_BUCKETS;
+        }
+
+        private static double excelDouble(double value) {
+            return new BigDecimal(value).round(EXCEL_PRECISION).doubleValue();
+        }
+    }
+
+    /** One worker's states of all columns; merged with the others once the sheet ends. */
+    private final class Partial {
+        final ColumnState[] states = new ColumnState[columns.length];
+
+        Partial() {
+            for (int i = 0; i < states.length; i++) states[i] = new ColumnState();
+        }
+
+        void add(Batch batch) {
+            for (int r = 0; r < batch.size; r++) {
+                Object[] cells = batch.cells[r];
+                for (int i = 0; i < states.length; i++) states[i].add(cells[i]);
+            }
+        }
+
+        void merge(Partial other) {
+            for (int i = 0; i < states.length; i++) states[i].merge(other.states[i]);
+        }
+    }
+}
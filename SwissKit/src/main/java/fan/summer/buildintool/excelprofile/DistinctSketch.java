@@ -0,0 +1,78 @@
+package fan.summer.buildintool.excelprofile;
+
+import fan.summer.buildintool.excelsplitter.LongHashSet;
+
+/**
+ * Mergeable distinct-count sketch over 64-bit value fingerprints ({@link LongHashSet#hash64}).
+ * Up to {@link #EXACT_LIMIT} values the fingerprints themselves are kept and the count is
+ * exact; beyond that they are folded into a HyperLogLog of 2^12 one-byte registers (4 KB,
+ * about 1.6% standard error), so memory stays fixed whatever the cardinality. Two sketches
+ * merge into the sketch of the union. Not thread-safe.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+final class DistinctSketch {
+
+    static final int EXACT_LIMIT = 256;
+
+    private static final int P = 12;
+    private static final int M = 1 << P;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+
+    private LongHashSet exact = new LongHashSet();
+    private byte[] registers;
+
+    void add(long hash) {
+        if (registers != null) {
+            update(registers, hash);
+        } else if (exact.add(hash) && exact.size() > EXACT_LIMIT) {
+            toRegisters();
+        }
+    }
+
+    void merge(DistinctSketch other) {
+        if (other.registers == null) {
+            other.exact.forEach(this::add);
+            return;
+        }
+        if (registers == null) toRegisters();
+        for (int i = 0; i < M; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    boolean isExact() {
+        return registers == null;
+    }
+
+    long estimate() {
+        if (registers == null) return exact.size();
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double e = ALPHA * M * M / sum;
+        // Small-range correction: linear counting while many registers are still empty
+        if (e <= 2.5 * M && zeros > 0) e = M * Math.log((double) M / zeros);
+        return Math.round(e);
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void toRegisters() {
+        registers = new byte[M];
+        exact.forEach(h -> update(registers, h));
+        exact = null;
+    }
+
+    private static void update(byte[] registers, long hash) {
+        int index = (int) (hash >>> (64 - P));
+        // Rank of the first set bit in the remaining 52 bits, 53 when they are all zero
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << P), 64 - P) + 1;
+        if (rank > registers[index]) registers[index] = (byte) rank;
+    }
+}
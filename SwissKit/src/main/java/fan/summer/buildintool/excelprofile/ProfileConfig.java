@@ -0,0 +1,18 @@
+package fan.summer.buildintool.excelprofile;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ProfileConfig {
+
+    public Path   sourceFile;
+    public String sheet;
+    public Map<Integer, String> headers;   // colIndex → header
+    // Columns to profile, in display order
+    public List<Integer> columns = new ArrayList<>();
+
+    // Where the exported summary goes
+    public Path outputDir;
+}
@@ -0,0 +1,287 @@
+package fan.summer.buildintool.excelprofile;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import fan.summer.buildintool.excelsplitter.SheetPicker;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel profile tool: streams the chosen columns of a sheet once and shows per column the
+ * blank and invalid ratios, inferred type, distinct count, min / max and value lengths,
+ * computed by {@link ColumnProfiler}. The summary can be exported as a workbook.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class ProfilePlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.excelprofile"; }
+    @Override public String getName()        { return "Excel列画像"; }
+    @Override public String getDescription() { return "流式统计各列的空值率、无效标记、推断类型、不同值个数、最值与长度分布，可导出汇总表"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "chart-box-outline"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new ProfileView();
+        return view;
+    }
+
+    static class ProfileView extends ScrollPane {
+        // Longer min / max texts are cut in the grid; the export keeps them whole
+        private static final int MAX_GRID_TEXT = 60;
+
+        private final SheetPicker picker = new SheetPicker("数据表");
+        private final SheetPicker.ColumnList columns;
+        private final Label dirLabel = new Label("未选择（默认与数据表同目录）");
+        private final Label hintLabel = new Label();
+        private final Button runBtn = glassBtn("▶  开始分析", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final Button exportBtn = glassBtn("导出汇总表", false);
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label progressLabel = new Label();
+        private final TableView<List<String>> grid = new TableView<>();
+        private final VBox resultBox = new VBox(8);
+        private Path outputDir;
+        private volatile ColumnProfiler profiler;
+        private ColumnProfiler lastProfiler;
+        private ColumnProfiler.ProfileResult lastResult;
+
+        ProfileView() {
+            columns = picker.addColumnList("分析列（可多选）", true);
+            picker.setOnChange(this::validate);
+
+            Label ruleHint = new Label("空白单元格计为空值，NA、N/A、NULL、#REF! 等计为无效标记，与拆分时的 INVALID 规则一致。"
+                + "不同值超过 " + DistinctSketch.EXACT_LIMIT + " 个时为估算值（误差约 1.6%），以 ≈ 标出");
+            ruleHint.setWrapText(true);
+            ruleHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            dirLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            dirLabel.setWrapText(true);
+            Button dirBtn = glassBtn("📁  选择输出目录", false);
+            dirBtn.setOnAction(e -> pickOutputDir());
+
+            hintLabel.setWrapText(true);
+            hintLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            resultBox.setStyle("-fx-background-color: transparent;");
+
+            runBtn.setOnAction(e -> startProfile());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                if (profiler != null) profiler.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+            exportBtn.setDisable(true);
+            exportBtn.setOnAction(e -> startExport());
+            HBox actions = new HBox(12, runBtn, cancelBtn, exportBtn);
+            actions.setAlignment(Pos.CENTER_LEFT);
+
+            for (int i = 0; i < ColumnProfiler.SUMMARY_HEAD.size(); i++) {
+                int idx = i;
+                TableColumn<List<String>, String> col = new TableColumn<>(ColumnProfiler.SUMMARY_HEAD.get(i));
+                col.setCellValueFactory(c -> new ReadOnlyStringWrapper(c.getValue().get(idx)));
+                col.setPrefWidth(i == 0 || i == 8 ? 180 : 100);
+                grid.getColumns().add(col);
+            }
+            grid.setPrefHeight(360);
+            grid.setStyle("-fx-background-color: transparent;");
+            grid.setPlaceholder(new Label("无数据"));
+
+            VBox content = new VBox(16, picker, ruleHint, new Separator(),
+                sectionTitle("输出目录"), dirBtn, dirLabel,
+                hintLabel, actions, progressBar, progressLabel, grid, resultBox);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validate();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private void validate() {
+            String error = null;
+            if (picker.headers() == null) {
+                error = "请先选择文件和Sheet";
+            } else if (columns.selected().isEmpty()) {
+                error = "请勾选要分析的列";
+            }
+            hintLabel.setText(error != null ? "❌ " + error : "");
+            runBtn.setDisable(error != null || profiler != null);
+        }
+
+        private void pickOutputDir() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择输出目录");
+            if (picker.file() != null) dc.setInitialDirectory(picker.file().getParent().toFile());
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) {
+                outputDir = dir.toPath();
+                dirLabel.setText(dir.getAbsolutePath());
+                dirLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+        }
+
+        private ProfileConfig buildConfig() {
+            ProfileConfig config = new ProfileConfig();
+            config.sourceFile = picker.file();
+            config.sheet = picker.sheet();
+            config.headers = picker.headers();
+            config.columns = new ArrayList<>(columns.selected());
+            config.outputDir = outputDir != null ? outputDir : config.sourceFile.getParent();
+            return config;
+        }
+
+        private void startProfile() {
+            resultBox.getChildren().clear();
+            grid.getItems().clear();
+            lastResult = null;
+            exportBtn.setDisable(true);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            ColumnProfiler current = new ColumnProfiler(buildConfig(), (pct, msg) ->
+                Platform.runLater(() -> {
+                    if (cancelBtn.isDisabled()) return;
+                    progressBar.setProgress(pct);
+                    progressLabel.setText(msg);
+                })
+            );
+            profiler = current;
+            runBtn.setDisable(true);
+            Task<ColumnProfiler.ProfileResult> task = new Task<>() {
+                @Override
+                protected ColumnProfiler.ProfileResult call() throws Exception {
+                    return current.profile();
+                }
+            };
+            task.setOnSucceeded(e -> finish(current, task.getValue(), null));
+            task.setOnFailed(e -> finish(current, null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finish(ColumnProfiler current, ColumnProfiler.ProfileResult result, Throwable err) {
+            profiler = null;
+            cancelBtn.setVisible(false);
+            validate();
+            progressBar.setProgress(1.0);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                progressBar.setProgress(0);
+                progressLabel.setText("已取消");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                progressBar.getStyleClass().add("danger");
+                progressLabel.setText("❌ 分析失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                progressLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            progressBar.getStyleClass().add("success");
+            progressLabel.setText("✓ 分析完成：" + result.rows() + " 行，" + result.columns().size() + " 列");
+            progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+
+            for (ColumnProfiler.ColumnProfile p : result.columns()) {
+                List<String> row = new ArrayList<>();
+                for (Object cell : ColumnProfiler.summaryRow(p)) row.add(text(cell));
+                grid.getItems().add(row);
+            }
+            lastProfiler = current;
+            lastResult = result;
+            exportBtn.setDisable(false);
+        }
+
+        private void startExport() {
+            ColumnProfiler current = lastProfiler;
+            ColumnProfiler.ProfileResult result = lastResult;
+            exportBtn.setDisable(true);
+            resultBox.getChildren().clear();
+            Task<Path> task = new Task<>() {
+                @Override
+                protected Path call() throws Exception {
+                    return current.export(result);
+                }
+            };
+            task.setOnSucceeded(e -> {
+                exportBtn.setDisable(false);
+                Path output = task.getValue();
+                addResult("✓ 已导出：" + output.getFileName(), "#4cd97b");
+                Button openBtn = glassBtn("打开文件夹", false);
+                openBtn.setOnAction(ev -> {
+                    try {
+                        java.awt.Desktop.getDesktop().open(output.getParent().toFile());
+                    } catch (Exception ex) { /* skip */ }
+                });
+                resultBox.getChildren().add(openBtn);
+            });
+            task.setOnFailed(e -> {
+                exportBtn.setDisable(false);
+                Throwable err = task.getException();
+                addResult("❌ 导出失败：" + (err.getMessage() != null ? err.getMessage() : err), "#f25c5c");
+            });
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void addResult(String text, String color) {
+            Label l = new Label(text);
+            l.setStyle("-fx-text-fill: " + color + "; -fx-font-size: 12px;");
+            l.setWrapText(true);
+            resultBox.getChildren().add(l);
+        }
+
+        private static String text(Object cell) {
+            if (cell instanceof Double d) return BigDecimal.valueOf(d).stripTrailingZeros().toPlainString();
+            String s = String.valueOf(cell);
+            return s.length() > MAX_GRID_TEXT ? s.substring(0, MAX_GRID_TEXT) + "…" : s;
+        }
+    }
+}
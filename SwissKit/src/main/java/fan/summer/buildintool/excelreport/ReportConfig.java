@@ -0,0 +1,25 @@
+package fan.summer.buildintool.excelreport;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ReportConfig {
+
+    // Template workbook (.xlsx / .xlsm), its sheet that receives the rows and the first data
+    // cell, e.g. "A5": rows are written from there on, styled like that row of the template
+    public Path   templateFile;
+    public String templateSheet;
+    public String dataCell = "A2";
+
+    public Path   sourceFile;
+    public String sheet;
+    public Map<Integer, String> headers;   // colIndex → header
+    // One report per value of this column, blank values under INVALID as in the splitter
+    public int keyColumn = -1;
+    // Source columns written side by side from the data cell on, in this order
+    public List<Integer> columns = new ArrayList<>();
+
+    public Path outputDir;
+}
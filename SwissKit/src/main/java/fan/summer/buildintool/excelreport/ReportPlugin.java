@@ -0,0 +1,261 @@
+package fan.summer.buildintool.excelreport;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import fan.summer.buildintool.excelsplitter.SheetPicker;
+import fan.summer.buildintool.excelsplitter.XlsxStreamReader;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.util.StringConverter;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel template report tool: groups a data sheet by a key column and fills one copy of a
+ * template workbook per group, generated in parallel by {@link TemplateReportGenerator}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class ReportPlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.excelreport"; }
+    @Override public String getName()        { return "Excel模板报表"; }
+    @Override public String getDescription() { return "按分组列把数据填入报表模板，一次并行生成每个分组的报表"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "file-document-multiple-outline"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new ReportView();
+        return view;
+    }
+
+    static class ReportView extends ScrollPane {
+        private final SheetPicker templatePicker = new SheetPicker("报表模板");
+        private final TextField dataCellField = new TextField("A2");
+        private final SheetPicker picker = new SheetPicker("数据表");
+        private final ComboBox<Integer> keyCombo = new ComboBox<>();
+        private final SheetPicker.ColumnList columns;
+        private final Label dirLabel = new Label("未选择（默认与报表模板同目录）");
+        private final Label hintLabel = new Label();
+        private final Button runBtn = glassBtn("▶  生成报表", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final ProgressBar progressBar = new ProgressBar(0);
+        private final Label progressLabel = new Label();
+        private final VBox resultBox = new VBox(8);
+        private Map<Integer, String> headers;
+        private Path outputDir;
+        private volatile TemplateReportGenerator generator;
+
+        ReportView() {
+            templatePicker.setOnChange(this::validate);
+            dataCellField.setStyle(comboStyle());
+            dataCellField.setMaxWidth(160);
+            dataCellField.textProperty().addListener((obs, o, n) -> validate());
+            Label templateHint = new Label("从数据起始单元格所在行起，模板中的行由数据替换，并沿用该行各列的样式；"
+                + "其上方单元格中的 " + ReportTemplate.KEY_PLACEHOLDER + " 替换为分组值，其余内容（图片、公式、其他Sheet）原样保留，"
+                + "公式在打开时重新计算。仅支持 .xlsx / .xlsm 模板");
+            templateHint.setWrapText(true);
+            templateHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            columns = picker.addColumnList("写入列（按顺序从起始单元格向右）", true);
+            picker.setOnChange(this::sheetChanged);
+            keyCombo.setConverter(new StringConverter<>() {
+                @Override public String toString(Integer idx) { return idx == null || headers == null ? "" : headers.get(idx); }
+                @Override public Integer fromString(String s) { return null; }
+            });
+            keyCombo.setPromptText("选择分组列...");
+            keyCombo.setStyle(comboStyle());
+            keyCombo.setMaxWidth(Double.MAX_VALUE);
+            keyCombo.valueProperty().addListener((obs, o, n) -> validate());
+            Label keyHint = new Label("每个分组值生成一份报表，空值与无效标记归入 INVALID");
+            keyHint.setWrapText(true);
+            keyHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            dirLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            dirLabel.setWrapText(true);
+            Button dirBtn = glassBtn("📁  选择输出目录", false);
+            dirBtn.setOnAction(e -> pickOutputDir());
+
+            hintLabel.setWrapText(true);
+            hintLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            progressBar.setMaxWidth(Double.MAX_VALUE);
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            resultBox.setStyle("-fx-background-color: transparent;");
+
+            runBtn.setOnAction(e -> startGenerate());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                if (generator != null) generator.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+            HBox actions = new HBox(12, runBtn, cancelBtn);
+            actions.setAlignment(Pos.CENTER_LEFT);
+
+            VBox content = new VBox(16, templatePicker, subLabel("数据起始单元格"), dataCellField, templateHint,
+                new Separator(), picker, subLabel("分组列"), keyCombo, keyHint, new Separator(),
+                sectionTitle("输出目录"), dirBtn, dirLabel,
+                hintLabel, actions, progressBar, progressLabel, resultBox);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validate();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private void sheetChanged() {
+            Map<Integer, String> current = picker.headers();
+            if (current != headers) {
+                headers = current;
+                keyCombo.getItems().clear();
+                if (headers != null) keyCombo.getItems().addAll(new TreeMap<>(headers).keySet());
+            }
+            validate();
+        }
+
+        private void validate() {
+            String error = null;
+            if (templatePicker.sheet() == null) {
+                error = "请先选择报表模板和Sheet";
+            } else if (!XlsxStreamReader.supports(templatePicker.file())) {
+                error = "报表模板仅支持 .xlsx / .xlsm";
+            } else if (!dataCellField.getText().trim().matches("[A-Za-z]{1,3}[1-9]\\d*")) {
+                error = "数据起始单元格格式应如 A2";
+            } else if (headers == null) {
+                error = "请先选择数据文件和Sheet";
+            } else if (keyCombo.getValue() == null) {
+                error = "请选择分组列";
+            } else if (columns.selected().isEmpty()) {
+                error = "请勾选要写入的列";
+            }
+            hintLabel.setText(error != null ? "❌ " + error : "");
+            runBtn.setDisable(error != null || generator != null);
+        }
+
+        private void pickOutputDir() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择输出目录");
+            if (templatePicker.file() != null) dc.setInitialDirectory(templatePicker.file().getParent().toFile());
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) {
+                outputDir = dir.toPath();
+                dirLabel.setText(dir.getAbsolutePath());
+                dirLabel.setStyle(
+                    "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+                    "-fx-font-family: 'SF Mono','Consolas',monospace;"
+                );
+            }
+        }
+
+        private void startGenerate() {
+            ReportConfig config = new ReportConfig();
+            config.templateFile = templatePicker.file();
+            config.templateSheet = templatePicker.sheet();
+            config.dataCell = dataCellField.getText().trim().toUpperCase();
+            config.sourceFile = picker.file();
+            config.sheet = picker.sheet();
+            config.headers = headers;
+            config.keyColumn = keyCombo.getValue();
+            config.columns = new ArrayList<>(columns.selected());
+            config.outputDir = outputDir != null ? outputDir : config.templateFile.getParent();
+
+            resultBox.getChildren().clear();
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            TemplateReportGenerator current = new TemplateReportGenerator(config, (pct, msg) ->
+                Platform.runLater(() -> {
+                    if (cancelBtn.isDisabled()) return;
+                    progressBar.setProgress(pct);
+                    progressLabel.setText(msg);
+                })
+            );
+            generator = current;
+            runBtn.setDisable(true);
+            Task<TemplateReportGenerator.ReportResult> task = new Task<>() {
+                @Override
+                protected TemplateReportGenerator.ReportResult call() throws Exception {
+                    return current.generate();
+                }
+            };
+            task.setOnSucceeded(e -> finish(task.getValue(), null));
+            task.setOnFailed(e -> finish(null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finish(TemplateReportGenerator.ReportResult result, Throwable err) {
+            generator = null;
+            cancelBtn.setVisible(false);
+            validate();
+            progressBar.setProgress(1.0);
+            progressBar.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                progressBar.setProgress(0);
+                progressLabel.setText("已取消，已生成的报表保留在输出目录");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                progressBar.getStyleClass().add("danger");
+                progressLabel.setText("❌ 生成失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                progressLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            progressBar.getStyleClass().add("success");
+            progressLabel.setText("✓ 生成完成：" + result.groups() + " 份报表，共 " + result.rows() + " 行，"
+                + result.threads() + " 个线程");
+            progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+            if (result.outputs().isEmpty()) return;
+
+            Button openBtn = glassBtn("打开文件夹", false);
+            openBtn.setOnAction(e -> {
+                try {
+                    java.awt.Desktop.getDesktop().open(result.outputs().get(0).getParent().toFile());
+                } catch (Exception ex) { /* skip */ }
+            });
+            resultBox.getChildren().add(openBtn);
+        }
+    }
+}
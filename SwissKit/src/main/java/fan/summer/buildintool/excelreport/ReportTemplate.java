@@ -0,0 +1,643 @@
+package fan.summer.buildintool.excelreport;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.util.XMLHelper;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A report template prepared once and rendered for any number of groups, concurrently.
+ * <p>
+ * Preparing reads the template package a single time. Every part except the data sheet
+ * (drawings and logos, styles, shared strings, the other sheets, ...) is kept as its raw
+ * compressed bytes and copied into each report as is, without being inflated or parsed
+ * again. The data sheet part is cut at the first data row into a head (everything above,
+ * with {@link #KEY_PLACEHOLDER} cells left open for the group value) and a tail (from the
+ * end of the sheet data on: merged cells, page setup, the drawing reference). Rendering
+ * writes head, the group's rows and tail; rows are inline cells styled per column like the
+ * template's first data row, so the shared strings part never changes.
+ * <p>
+ * Template rows from the first data row down are replaced by the data. The calculation chain
+ * is dropped and the workbook is flagged to recalculate on open, so formulas over the data
+ * region (e.g. a total in the heading) show current values.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+final class ReportTemplate {
+
+    /** Text in a template cell that is replaced by the group value, e.g. "{{key}} 月报". */
+    static final String KEY_PLACEHOLDER = "{{key}}";
+
+    private static final int MAX_ROWS = 1_048_576;
+    private static final int MAX_CELL_CHARS = 32_767;
+    private static final int EXCEL_DIGITS = 15;
+    private static final Pattern CELL_REF = Pattern.compile("([A-Za-z]{1,3})(\\d+)");
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String WORKBOOK = "xl/workbook.xml";
+    private static final String WORKBOOK_RELS = "xl/_rels/workbook.xml.rels";
+    private static final String CONTENT_TYPES = "[Content_Types].xml";
+    private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+    // Workbook children that follow calcPr in schema order
+    private static final List<String> AFTER_CALC_PR = List.of("oleSize", "customWorkbookViews", "pivotCaches",
+            "smartTagPr", "smartTagTypes", "webPublishing", "fileRecoveryPr", "webPublishObjects", "extLst");
+
+    /** A package part copied into every report as stored; raw is null for the data sheet. */
+    private record Part(String name, int method, long crc, long size, long compressedSize, byte[] raw) {}
+
+    private final List<Part> parts = new ArrayList<>();
+    private final List<Object> head = new ArrayList<>();   // byte[] or the text of a placeholder cell
+    private byte[] tail;
+    private final int firstRow;
+    private final int firstColumn;
+    private final int columnCount;
+    private final String[] columnNames;
+    private int[] columnStyles;
+    private String rowAttributes = "";
+
+    private ReportTemplate(int firstRow, int firstColumn, int columnCount) {
+        this.firstRow = firstRow;
+        this.firstColumn = firstColumn;
+        this.columnCount = columnCount;
+        this.columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) columnNames[i] = columnName(firstColumn + i);
+        this.columnStyles = new int[columnCount];
+    }
+
+    /**
+     * Prepares a template for reports of {@code columnCount} data columns.
+     *
+     * @param dataCell first data cell of the sheet, e.g. "A5"
+     * @throws IllegalArgumentException when the sheet or the cell reference is not valid
+     */
+    static ReportTemplate load(Path file, String sheet, String dataCell, int columnCount) throws Exception {
+        Matcher m = CELL_REF.matcher(dataCell == null ? "" : dataCell.trim());
+        if (!m.matches()) throw new IllegalArgumentException("Invalid data cell: " + dataCell);
+        int row = Integer.parseInt(m.group(2)) - 1;
+        int column = columnIndex(m.group(1));
+        if (row < 0 || row >= MAX_ROWS || column + columnCount > 16_384) {
+            throw new IllegalArgumentException("Data cell out of range: " + dataCell);
+        }
+        ReportTemplate template = new ReportTemplate(row, column, columnCount);
+        try (ZipFile zip = ZipFile.builder().setPath(file).get()) {
+            template.prepare(zip, sheet);
+        }
+        return template;
+    }
+
+    int getCapacity() {
+        return MAX_ROWS - firstRow;
+    }
+
+    /**
+     * Writes one report. Cells are written as numbers when they are plain numbers Excel holds
+     * exactly, as booleans for TRUE / FALSE, and as text otherwise. Thread-safe.
+     */
+    void write(Path output, String key, List<List<Object>> rows) throws IOException {
+        if (rows.size() > getCapacity()) {
+            throw new IllegalStateException("Group '" + key + "' has " + rows.size()
+                    + " rows, more than the template's data region holds (" + getCapacity() + ")");
+        }
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(output)) {
+            for (Part part : parts) {
+                if (part.raw() == null) {
+                    zos.putArchiveEntry(new ZipArchiveEntry(part.name()));
+                    writeSheet(zos, key, rows);
+                    zos.closeArchiveEntry();
+                } else {
+                    ZipArchiveEntry entry = new ZipArchiveEntry(part.name());
+                    entry.setMethod(part.method());
+                    entry.setCrc(part.crc());
+                    entry.setSize(part.size());
+                    entry.setCompressedSize(part.compressedSize());
+                    zos.addRawArchiveEntry(entry, new ByteArrayInputStream(part.raw()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(output);
+            throw e;
+        }
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void prepare(ZipFile zip, String sheet) throws Exception {
+        Document workbook = parse(zip, WORKBOOK);
+        Document rels = parse(zip, WORKBOOK_RELS);
+        if (workbook == null || rels == null) throw new IllegalArgumentException("Not a valid workbook template");
+        String sheetPart = sheetPart(workbook, rels, sheet);
+        if (zip.getEntry(sheetPart) == null) throw new IllegalArgumentException("Sheet part not found: " + sheetPart);
+
+        // No cached formula results or calculation chain may outlive the replaced rows
+        requestFullCalculation(workbook);
+        Map<String, byte[]> changed = new HashMap<>();
+        changed.put(WORKBOOK, serialize(workbook));
+        String calcChain = dropRelationship(rels, "calcChain");
+        if (calcChain != null) {
+            changed.put(WORKBOOK_RELS, serialize(rels));
+            Document types = parse(zip, CONTENT_TYPES);
+            if (types != null) {
+                for (Element e : children(types.getDocumentElement(), "Override")) {
+                    if (e.getAttribute("PartName").equals("/" + calcChain)) types.getDocumentElement().removeChild(e);
+                }
+                changed.put(CONTENT_TYPES, serialize(types));
+            }
+        }
+
+        Map<Integer, String> placeholders = placeholderStrings(zip);
+        for (ZipArchiveEntry entry : Collections.list(zip.getEntriesInPhysicalOrder())) {
+            String name = entry.getName();
+            if (name.equals(calcChain) || entry.isDirectory()) continue;
+            if (name.equals(sheetPart)) {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    cutSheet(in, placeholders);
+                }
+                parts.add(new Part(name, 0, 0, 0, 0, null));
+            } else if (changed.containsKey(name)) {
+                parts.add(deflated(name, changed.get(name)));
+            } else {
+                try (InputStream raw = zip.getRawInputStream(entry)) {
+                    parts.add(new Part(name, entry.getMethod(), entry.getCrc(), entry.getSize(),
+                            entry.getCompressedSize(), raw.readAllBytes()));
+                }
+            }
+        }
+    }
+
+    private static String sheetPart(Document workbook, Document rels, String sheet) {
+        Element sheets = child(workbook.getDocumentElement(), "sheets");
+        String relId = null;
+        for (Element s : children(sheets, "sheet")) {
+            if (s.getAttribute("name").equals(sheet)) relId = s.getAttributeNS(REL_NS, "id");
+        }
+        if (relId == null) throw new IllegalArgumentException("Sheet not found in template: " + sheet);
+        for (Element r : children(rels.getDocumentElement(), "Relationship")) {
+            if (r.getAttribute("Id").equals(relId)) {
+                String target = r.getAttribute("Target");
+                return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+            }
+        }
+        throw new IllegalArgumentException("Sheet part not found for: " + sheet);
+    }
+
+    private static void requestFullCalculation(Document workbook) {
+        Element root = workbook.getDocumentElement();
+        Element calcPr = child(root, "calcPr");
+        if (calcPr == null) {
+            calcPr = workbook.createElementNS(root.getNamespaceURI(), root.getPrefix() == null ? "calcPr" : root.getPrefix() + ":calcPr");
+            Node before = null;
+            for (Node n = root.getFirstChild(); n != null && before == null; n = n.getNextSibling()) {
+                if (n instanceof Element e && AFTER_CALC_PR.contains(e.getLocalName())) before = e;
+            }
+            root.insertBefore(calcPr, before);
+        }
+        calcPr.setAttribute("fullCalcOnLoad", "1");
+    }
+
+    /** Removes the workbook relationship whose type ends with the given name; returns its part or null. */
+    private static String dropRelationship(Document rels, String type) {
+        for (Element r : children(rels.getDocumentElement(), "Relationship")) {
+            if (r.getAttribute("Type").endsWith("/" + type)) {
+                rels.getDocumentElement().removeChild(r);
+                String target = r.getAttribute("Target");
+                return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+            }
+        }
+        return null;
+    }
+
+    /** Shared strings containing the placeholder, by index, as plain text. */
+    private Map<Integer, String> placeholderStrings(ZipFile zip) throws IOException, XMLStreamException {
+        Map<Integer, String> found = new HashMap<>();
+        ZipArchiveEntry entry = zip.getEntry(SHARED_STRINGS);
+        if (entry == null) return found;
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader r = XMLHelper.newXMLInputFactory().createXMLStreamReader(in);
+            try {
+                int index = -1;
+                boolean inText = false;
+                // Phonetic runs (rPh) carry their own t, which is not part of the displayed text
+                int phoneticDepth = 0;
+                StringBuilder text = new StringBuilder();
+                while (r.hasNext()) {
+                    switch (r.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            if (phoneticDepth > 0 || r.getLocalName().equals("rPh")) {
+                                phoneticDepth++;
+                            } else if (r.getLocalName().equals("si")) {
+                                index++;
+                                text.setLength(0);
+                            } else if (r.getLocalName().equals("t")) {
+                                inText = true;
+                            }
+                        }
+                        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                            if (inText) text.append(r.getText());
+                        }
+                        case XMLStreamConstants.END_ELEMENT -> {
+                            if (phoneticDepth > 0) {
+                                phoneticDepth--;
+                            } else if (r.getLocalName().equals("t")) {
+                                inText = false;
+                            } else if (r.getLocalName().equals("si") && text.indexOf(KEY_PLACEHOLDER) >= 0) {
+                                found.put(index, text.toString());
+                            }
+                        }
+                        default -> { }
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Streams the data sheet once into head segments and tail, and takes the row attributes
+     * and per-column cell styles of the first data row.
+     */
+    private void cutSheet(InputStream in, Map<Integer, String> placeholders) throws XMLStreamException, IOException {
+        XMLInputFactory inputFactory = XMLHelper.newXMLInputFactory();
+        XMLOutputFactory outputFactory = XMLHelper.newXMLOutputFactory();
+        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, false);
+        XMLEventFactory events = XMLHelper.newXMLEventFactory();
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        SwitchingOutputStream out = new SwitchingOutputStream(segment);
+        XMLEventReader r = inputFactory.createXMLEventReader(in);
+        XMLEventWriter w = outputFactory.createXMLEventWriter(out, "UTF-8");
+        try {
+            int depth = 0;
+            int row = -1;
+            boolean inSheetData = false;
+            while (r.hasNext()) {
+                XMLEvent e = r.nextEvent();
+                if (e.isStartElement()) {
+                    StartElement s = e.asStartElement();
+                    String name = s.getName().getLocalPart();
+                    if (depth == 1 && name.equals("dimension")) {
+                        // Optional; left out rather than rewritten per report
+                        skipElement(r);
+                        continue;
+                    }
+                    if (inSheetData && name.equals("row")) {
+                        String ref = attribute(s, "r");
+                        row = ref != null ? Integer.parseInt(ref) - 1 : row + 1;
+                        if (row >= firstRow) {
+                            if (row == firstRow) takeStyles(s, r);
+                            else skipElement(r);
+                            continue;
+                        }
+                    }
+                    if (inSheetData && name.equals("c") && "s".equals(attribute(s, "t")) && !placeholders.isEmpty()) {
+                        List<XMLEvent> cell = readElement(r);
+                        String text = placeholders.get(sharedStringIndex(cell));
+                        if (text == null) {
+                            w.add(e);
+                            for (XMLEvent c : cell) w.add(c);
+                            continue;
+                        }
+                        w.add(withAttribute(events, s, "t", "inlineStr"));
+                        w.add(events.createCharacters(""));
+                        w.flush();
+                        head.add(segment.toByteArray());
+                        head.add(text);
+                        segment = new ByteArrayOutputStream();
+                        out.target = segment;
+                        w.add(events.createEndElement(s.getName(), null));
+                        continue;
+                    }
+                    depth++;
+                    w.add(e);
+                    if (depth == 2 && name.equals("sheetData")) {
+                        inSheetData = true;
+                        // Close the start tag before the cut
+                        w.add(events.createCharacters(""));
+                    }
+                    continue;
+                }
+                if (e.isEndElement()) {
+                    depth--;
+                    if (depth == 1 && e.asEndElement().getName().getLocalPart().equals("sheetData")) {
+                        w.flush();
+                        head.add(segment.toByteArray());
+                        segment = new ByteArrayOutputStream();
+                        out.target = segment;
+                        inSheetData = false;
+                    }
+                }
+                w.add(e);
+            }
+            w.flush();
+            tail = segment.toByteArray();
+        } finally {
+            w.close();
+            r.close();
+        }
+        if (tail.length == 0 || head.isEmpty()) throw new IllegalArgumentException("Template sheet has no sheet data");
+    }
+
+    /** Reads the rest of the element whose start tag was just read, end tag included. */
+    private static List<XMLEvent> readElement(XMLEventReader r) throws XMLStreamException {
+        List<XMLEvent> list = new ArrayList<>();
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent e = r.nextEvent();
+            if (e.isStartElement()) depth++;
+            else if (e.isEndElement()) depth--;
+            list.add(e);
+        }
+        return list;
+    }
+
+    /** The shared string index in a cell's {@code <v>}, or -1. */
+    private static int sharedStringIndex(List<XMLEvent> cell) {
+        StringBuilder value = new StringBuilder();
+        boolean inValue = false;
+        for (XMLEvent e : cell) {
+            if (e.isStartElement()) inValue = e.asStartElement().getName().getLocalPart().equals("v");
+            else if (e.isEndElement()) inValue = false;
+            else if (inValue && e.isCharacters()) value.append(e.asCharacters().getData());
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void takeStyles(StartElement rowElement, XMLEventReader r) throws XMLStreamException {
+        StringBuilder attrs = new StringBuilder();
+        for (Iterator<Attribute> it = rowElement.getAttributes(); it.hasNext(); ) {
+            Attribute a = it.next();
+            String name = a.getName().getLocalPart();
+            if (!a.getName().getNamespaceURI().isEmpty() || name.equals("r") || name.equals("spans")) continue;
+            attrs.append(' ').append(name).append("=\"").append(escape(a.getValue())).append('"');
+        }
+        rowAttributes = attrs.toString();
+        int column = -1;
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent e = r.nextEvent();
+            if (e.isStartElement()) {
+                depth++;
+                StartElement s = e.asStartElement();
+                if (depth == 2 && s.getName().getLocalPart().equals("c")) {
+                    String ref = attribute(s, "r");
+                    Matcher m = ref == null ? null : CELL_REF.matcher(ref);
+                    column = m != null && m.matches() ? columnIndex(m.group(1)) : column + 1;
+                    String style = attribute(s, "s");
+                    int i = column - firstColumn;
+                    if (style != null && i >= 0 && i < columnCount) columnStyles[i] = Integer.parseInt(style);
+                }
+            } else if (e.isEndElement()) {
+                depth--;
+            }
+        }
+        // Columns without a cell in the template row take the row's style
+        String rowStyle = attribute(rowElement, "s");
+        if (rowStyle != null) {
+            for (int i = 0; i < columnCount; i++) {
+                if (columnStyles[i] == 0) columnStyles[i] = Integer.parseInt(rowStyle);
+            }
+        }
+    }
+
+    private void writeSheet(OutputStream zos, String key, List<List<Object>> rows) throws IOException {
+        OutputStream out = new BufferedOutputStream(new NonClosingOutputStream(zos), 1 << 16);
+        for (Object segment : head) {
+            if (segment instanceof byte[] bytes) {
+                out.write(bytes);
+            } else {
+                String text = ((String) segment).replace(KEY_PLACEHOLDER, key);
+                out.write(("<is><t xml:space=\"preserve\">" + escape(text) + "</t></is>").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        StringBuilder sb = new StringBuilder(256);
+        for (int r = 0; r < rows.size(); r++) {
+            sb.setLength(0);
+            int rowNumber = firstRow + r + 1;
+            sb.append("<row r=\"").append(rowNumber).append('"').append(rowAttributes).append('>');
+            List<Object> row = rows.get(r);
+            for (int i = 0; i < columnCount; i++) {
+                appendCell(sb, columnNames[i] + rowNumber, columnStyles[i], i < row.size() ? row.get(i) : null);
+            }
+            sb.append("</row>");
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        out.write(tail);
+        out.flush();
+    }
+
+    private static void appendCell(StringBuilder sb, String ref, int style, Object value) {
+        String text = value == null ? "" : value.toString();
+        if (text.isEmpty() && style == 0) return;
+        sb.append("<c r=\"").append(ref).append('"');
+        if (style != 0) sb.append(" s=\"").append(style).append('"');
+        if (text.isEmpty()) {
+            sb.append("/>");
+        } else if (isExcelNumber(text)) {
+            sb.append("><v>").append(text).append("</v></c>");
+        } else if (text.equals("TRUE") || text.equals("FALSE")) {
+            sb.append(" t=\"b\"><v>").append(text.equals("TRUE") ? 1 : 0).append("</v></c>");
+        } else {
+            if (text.length() > MAX_CELL_CHARS) text = text.substring(0, MAX_CELL_CHARS);
+            sb.append(" t=\"inlineStr\"><is><t xml:space=\"preserve\">").append(escape(text)).append("</t></is></c>");
+        }
+    }
+
+    // Numbers with more digits than Excel keeps (IDs, account numbers) stay text
+    private static boolean isExcelNumber(String text) {
+        if (!NUMBER.matcher(text).matches()) return false;
+        BigDecimal number = new BigDecimal(text);
+        return number.precision() <= EXCEL_DIGITS && !Double.isInfinite(number.doubleValue());
+    }
+
+    /** Escapes text for XML content and attributes, dropping characters XML 1.0 cannot hold. */
+    private static String escape(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                default -> c < 0x20 && c != '\t' && c != '\n' && c != '\r' || c == 0xFFFE || c == 0xFFFF ? "" : null;
+            };
+            if (replacement == null) {
+                if (sb != null) sb.append(c);
+                continue;
+            }
+            if (sb == null) sb = new StringBuilder(text.length() + 16).append(text, 0, i);
+            sb.append(replacement);
+        }
+        return sb == null ? text : sb.toString();
+    }
+
+    private static int columnIndex(String letters) {
+        int index = 0;
+        for (int i = 0; i < letters.length(); i++) index = index * 26 + (Character.toUpperCase(letters.charAt(i)) - 'A' + 1);
+        return index - 1;
+    }
+
+    private static String columnName(int index) {
+        StringBuilder sb = new StringBuilder();
+        for (int n = index + 1; n > 0; n = (n - 1) / 26) sb.insert(0, (char) ('A' + (n - 1) % 26));
+        return sb.toString();
+    }
+
+    private static String attribute(StartElement s, String name) {
+        Attribute a = s.getAttributeByName(new QName(name));
+        return a == null ? null : a.getValue();
+    }
+
+    private static StartElement withAttribute(XMLEventFactory events, StartElement s, String name, String value) {
+        List<Attribute> attrs = new ArrayList<>();
+        for (Iterator<Attribute> it = s.getAttributes(); it.hasNext(); ) {
+            Attribute a = it.next();
+            attrs.add(a.getName().getLocalPart().equals(name) && a.getName().getNamespaceURI().isEmpty()
+                    ? events.createAttribute(name, value) : a);
+        }
+        QName q = s.getName();
+        return events.createStartElement(q.getPrefix(), q.getNamespaceURI(), q.getLocalPart(),
+                attrs.iterator(), s.getNamespaces(), s.getNamespaceContext());
+    }
+
+    /** Skips the rest of the element whose start tag was just read. */
+    private static void skipElement(XMLEventReader r) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent e = r.nextEvent();
+            if (e.isStartElement()) depth++;
+            else if (e.isEndElement()) depth--;
+        }
+    }
+
+    private static Part deflated(String name, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(data);
+        } finally {
+            deflater.end();
+        }
+        byte[] raw = bytes.toByteArray();
+        return new Part(name, ZipArchiveEntry.DEFLATED, crc.getValue(), data.length, raw.length, raw);
+    }
+
+    private static Document parse(ZipFile zip, String name) throws Exception {
+        ZipArchiveEntry entry = zip.getEntry(name);
+        if (entry == null) return null;
+        try (InputStream in = zip.getInputStream(entry)) {
+            return XMLHelper.newDocumentBuilder().parse(in);
+        }
+    }
+
+    private static byte[] serialize(Document doc) throws Exception {
+        doc.setXmlStandalone(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLHelper.newTransformer().transform(new DOMSource(doc), new StreamResult(out));
+        return out.toByteArray();
+    }
+
+    private static Element child(Element parent, String name) {
+        List<Element> list = children(parent, name);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> list = new ArrayList<>();
+        if (parent == null) return list;
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element e && name.equals(e.getLocalName())) list.add(e);
+        }
+        return list;
+    }
+
+    /** Output stream whose target can be swapped between writes, to cut one XML stream into segments. */
+    private static final class SwitchingOutputStream extends OutputStream {
+        OutputStream target;
+
+        SwitchingOutputStream(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+        }
+    }
+
+    /** Keeps the zip stream open when the sheet writer is done with its entry. */
+    private static final class NonClosingOutputStream extends OutputStream {
+        private final OutputStream out;
+
+        NonClosingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package fan.summer.buildintool.excelreport;
+
+import fan.summer.buildintool.excelsplitter.ExcelUtil;
+import fan.summer.buildintool.excelsplitter.FileNameUtil;
+import fan.summer.buildintool.excelsplitter.SheetRowReader;
+import fan.summer.buildintool.excelsplitter.StreamingRowListener;
+import fan.summer.buildintool.excelsplitter.WriterScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Generates one report per group from a template workbook: the source sheet is streamed and
+ * grouped by the key column like split-by-column, and each group's rows are written into the
+ * template's data region as {@code <template>_<key>}, with the template's extension. Keys that
+ * would give the same file name get a numeric suffix ({@code _2}, {@code _3}, ...).
+ * <p>
+ * The template is prepared once by {@link ReportTemplate}; its unchanged parts are copied into
+ * every report as stored bytes, so a report costs about as much as writing its own rows.
+ * Reports are written in parallel by {@link WriterScheduler}, largest groups first.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class TemplateReportGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateReportGenerator.class);
+
+    private static final int PROGRESS_ROWS = 65_536;
+
+    public record ReportResult(List<Path> outputs, long rows, int groups, int threads) {}
+
+    private final ReportConfig config;
+    private final BiConsumer<Double, String> progress;
+    private final int[] columns;
+    private volatile boolean cancelled;
+
+    public TemplateReportGenerator(ReportConfig config, BiConsumer<Double, String> progress) {
+        if (config.keyColumn < 0) throw new IllegalArgumentException("A key column is required");
+        if (config.columns.isEmpty()) throw new IllegalArgumentException("At least one column is required");
+        this.config = config;
+        this.progress = progress;
+        this.columns = config.columns.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Asks a running {@link #generate()} to stop; it throws {@link CancellationException}.
+     * Reports already written are kept.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public ReportResult generate() throws Exception {
+        logger.info("Report generation started | template={}, sheet={}, source={}, keyColumn={}, columns={}",
+                config.templateFile.getFileName(), config.templateSheet, config.sourceFile.getFileName(),
+                config.keyColumn, columns.length);
+        long start = System.nanoTime();
+
+        progress.accept(-1.0, "Preparing template: " + config.templateFile.getFileName());
+        ReportTemplate template = ReportTemplate.load(config.templateFile, config.templateSheet,
+                config.dataCell, columns.length);
+
+        Map<Object, List<List<Object>>> groups = new LinkedHashMap<>();
+        int keyColumn = config.keyColumn;
+        StreamingRowListener listener = new StreamingRowListener(row -> {
+            List<Object> cells = new ArrayList<>(columns.length);
+            for (int col : columns) cells.add(row.get(col));
+            groups.computeIfAbsent(ExcelUtil.normalizeOrInvalid(row.getOrDefault(keyColumn, null)),
+                    k -> new ArrayList<>()).add(cells);
+        });
+        long[] read = {0};
+        listener.setRowTicker(n -> {
+            checkCancelled();
+            if ((read[0] += n) / PROGRESS_ROWS != (read[0] - n) / PROGRESS_ROWS) {
+                progress.accept(-1.0, "Reading: " + read[0] + " rows");
+            }
+        });
+        progress.accept(-1.0, "Reading: " + config.sheet);
+        SheetRowReader.read(config.sourceFile, config.sheet, decodeColumns(), listener);
+        checkCancelled();
+
+        String fileName = config.templateFile.getFileName().toString();
+        String baseName = FileNameUtil.getFileName(fileName);
+        String extension = fileName.substring(fileName.lastIndexOf('.'));
+        int total = groups.size();
+        Map<Object, String> fileNames = fileNames(groups.keySet());
+        AtomicInteger done = new AtomicInteger();
+        List<Path> outputs = Collections.synchronizedList(new ArrayList<>());
+        List<WriterScheduler.ThreadStats> stats;
+        try {
+            stats = WriterScheduler.run(groups, (key, rows) -> {
+                checkCancelled();
+                Path out = config.outputDir.resolve(baseName + "_" + fileNames.get(key) + extension);
+                template.write(out, String.valueOf(key), rows);
+                outputs.add(out);
+                progress.accept((double) done.incrementAndGet() / total, "Writing: " + key);
+            });
+        } catch (Exception e) {
+            // The writer pool wraps the cancellation in its own exception
+            checkCancelled();
+            throw e;
+        }
+
+        progress.accept(1.0, "Done");
+        logger.info("Report generation completed | rows={}, reports={}, threads={}, elapsedMs={}",
+                listener.getRowCount(), total, stats.size(), (System.nanoTime() - start) / 1_000_000);
+        return new ReportResult(outputs, listener.getRowCount(), total, stats.size());
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private BitSet decodeColumns() {
+        BitSet decode = new BitSet();
+        for (int col : columns) decode.set(col);
+        decode.set(config.keyColumn);
+        return decode;
+    }
+
+    /**
+     * File name part per group, unique ignoring case (Windows): keys that map to the same name,
+     * such as "A/B" and "A_B", get a numeric suffix in group order.
+     */
+    private static Map<Object, String> fileNames(Set<Object> keys) {
+        Map<Object, String> names = new HashMap<>();
+        Set<String> taken = new HashSet<>();
+        for (Object key : keys) {
+            String base = fileSafe(String.valueOf(key));
+            String name = base;
+            for (int n = 2; !taken.add(name.toLowerCase(Locale.ROOT)); n++) name = base + "_" + n;
+            names.put(key, name);
+        }
+        return names;
+    }
+
+    // Group values such as "华东/上海" must not become directories
+    private static String fileSafe(String key) {
+        return key.replaceAll("[\\\\/:*?\"<>|]", "_");
+    }
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Report generation cancelled");
+    }
+}
@@ -0,0 +1,78 @@
+package fan.summer.buildintool.excelsplitter;
+
+import java.util.*;
+
+/**
+ * Ordered subset of source columns to carry into the split outputs.
+ * Rows are projected as soon as they are parsed, so columns outside the
+ * projection are never buffered, grouped or written.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public final class ColumnProjection {
+
+    private final int[] columns;
+    private final List<String> headerNames;
+
+    private ColumnProjection(int[] columns, List<String> headerNames) {
+        this.columns = columns;
+        this.headerNames = headerNames;
+    }
+
+    /**
+     * Projection keeping every header column in sheet order.
+     */
+    public static ColumnProjection all(Map<Integer, String> headerMap) {
+        return of(headerMap, null);
+    }
+
+    /**
+     * Projection keeping the selected columns in the given order. Indices missing from
+     * headerMap are dropped; a null or empty selection keeps every header column.
+     */
+    public static ColumnProjection of(Map<Integer, String> headerMap, List<Integer> selected) {
+        List<Integer> keys = (selected == null || selected.isEmpty())
+                ? new ArrayList<>(new TreeMap<>(headerMap).keySet())
+                : selected.stream().filter(headerMap::containsKey).distinct().toList();
+        int[] columns = keys.stream().mapToInt(Integer::intValue).toArray();
+        List<String> names = keys.stream().map(headerMap::get).toList();
+        return new ColumnProjection(columns, names);
+    }
+
+    public int[] columns() {
+        return columns;
+    }
+
+    public int size() {
+        return columns.length;
+    }
+
+    /**
+     * Output position of a source column, or -1 when the projection drops it.
+     */
+    public int indexOf(int sourceColumn) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == sourceColumn) return i;
+        }
+        return -1;
+    }
+
+    public List<List<String>> headers() {
+        List<List<String>> headers = new ArrayList<>(columns.length);
+        headerNames.forEach(name -> headers.add(Collections.singletonList(name)));
+        return headers;
+    }
+
+    /**
+     * Returns the projected cell values of a parsed row, in output order.
+     */
+    public List<Object> project(Map<Integer, Object> row) {
+        List<Object> values = new ArrayList<>(columns.length);
+        for (int col : columns) {
+            values.add(row.getOrDefault(col, ""));
+        }
+        return values;
+    }
+}
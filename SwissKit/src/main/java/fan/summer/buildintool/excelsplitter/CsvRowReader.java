@@ -0,0 +1,244 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming CSV / TSV reader that feeds the splitter's row pipeline like a one-sheet workbook.
+ * <ul>
+ *   <li>Quoted fields may contain delimiters, doubled quotes and line breaks (RFC 4180)</li>
+ *   <li>UTF-8 / UTF-16 BOMs are honoured and stripped; without a BOM the file is checked
+ *       as UTF-8 and otherwise read as GBK (decoded with its superset GB18030)</li>
+ *   <li>.tsv files are tab-separated; other files use commas unless the first line only has tabs</li>
+ * </ul>
+ * Only one record is held in memory at a time, so file size is not limited by the heap.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class CsvRowReader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvRowReader.class);
+
+    private static final int SNIFF_BYTES = 64 * 1024;
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final Charset GBK = Charset.forName("GB18030");
+
+    private final Reader reader;
+    private final Charset charset;
+    private final char delimiter;
+    private final char[] buf = new char[BUFFER_CHARS];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    // Whether the last record read had any content, copied or not
+    private boolean recordHasValue;
+
+    public CsvRowReader(Path file) throws IOException {
+        byte[] head = new byte[SNIFF_BYTES];
+        int headLen;
+        try (InputStream in = Files.newInputStream(file)) {
+            headLen = in.readNBytes(head, 0, head.length);
+        }
+        int bomLength = bomLength(head, headLen);
+        charset = detectCharset(head, headLen, bomLength);
+
+        InputStream in = Files.newInputStream(file);
+        try {
+            in.skipNBytes(bomLength);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        reader = new InputStreamReader(in, charset);
+        delimiter = detectDelimiter(file, new String(head, bomLength, headLen - bomLength, charset));
+        logger.info("CSV source opened | file={}, charset={}, delimiter={}",
+                file.getFileName(), charset.name(), delimiter == '\t' ? "TAB" : String.valueOf(delimiter));
+    }
+
+    /**
+     * Returns true for the delimited text sources the splitter accepts (.csv / .tsv).
+     */
+    public static boolean supports(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".csv") || name.endsWith(".tsv");
+    }
+
+    /**
+     * Name of the single pseudo-sheet a delimited file is presented as: the file name
+     * without extension, made safe for use as an output sheet name.
+     */
+    public static String sheetName(Path file) {
+        return WorkbookUtil.createSafeSheetName(FileNameUtil.getFileName(file.getFileName().toString()), '_');
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Reads the next record, or returns null at end of file.
+     */
+    public List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        return readRecord(null, fields) ? fields : null;
+    }
+
+    /**
+     * Streams the whole file into the listener, the first headRowNumber records as header rows.
+     * Blank records are skipped, and empty fields are left out of the row map like empty cells.
+     *
+     * @param decodeColumns data-row columns to keep, or null for all; other fields are scanned but not copied
+     */
+    public void read(int headRowNumber, BitSet decodeColumns, StreamingRowListener listener) throws IOException {
+        List<String> fields = new ArrayList<>();
+        int recordIndex = 0;
+        while (readRecord(recordIndex < headRowNumber ? null : decodeColumns, fields)) {
+            if (recordIndex++ < headRowNumber) {
+                Map<Integer, String> head = new LinkedHashMap<>();
+                for (int i = 0; i < fields.size(); i++) {
+                    if (!fields.get(i).isEmpty()) head.put(i, fields.get(i).trim());
+                }
+                listener.onHead(head);
+                continue;
+            }
+            Map<Integer, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                String value = fields.get(i);
+                if (value != null && !value.isEmpty()) row.put(i, value);
+            }
+            // Blank records still take a row number, as they would when the file is opened in Excel.
+            // Fields that were not copied still make the record non-empty, so row counts match the full read
+            if (!row.isEmpty() || recordHasValue) listener.onRow(recordIndex - 1, row);
+        }
+        listener.onFinish();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    /**
+     * Parses one record into fields. Columns outside keep are added as null without
+     * copying their characters; {@link #recordHasValue} tells whether any field had content.
+     * Returns false at end of file.
+     */
+    private boolean readRecord(BitSet keep, List<String> fields) throws IOException {
+        fields.clear();
+        recordHasValue = false;
+        if (!fill()) return false;
+
+        StringBuilder field = new StringBuilder();
+        int column = 0;
+        boolean copy = keep == null || keep.get(0);
+        boolean quoted = false;
+        boolean fieldStart = true;
+
+        while (fill()) {
+            char c = buf[pos++];
+            if (quoted) {
+                if (c == '"') {
+                    if (fill() && buf[pos] == '"') {
+                        pos++;
+                        recordHasValue = true;
+                        if (copy) field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    recordHasValue = true;
+                    if (copy) field.append(c);
+                }
+                continue;
+            }
+            if (c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (c == delimiter) {
+                fields.add(copy ? field.toString() : null);
+                field.setLength(0);
+                column++;
+                copy = keep == null || keep.get(column);
+                fieldStart = true;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && fill() && buf[pos] == '\n') pos++;
+                fields.add(copy ? field.toString() : null);
+                return true;
+            } else {
+                // A quote inside an unquoted field is kept literally
+                recordHasValue = true;
+                if (copy) field.append(c);
+                fieldStart = false;
+            }
+        }
+        fields.add(copy ? field.toString() : null);
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        if (pos < limit) return true;
+        if (eof) return false;
+        int n = reader.read(buf, 0, buf.length);
+        if (n <= 0) {
+            eof = true;
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private static int bomLength(byte[] head, int len) {
+        if (len >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) return 3;
+        if (len >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) return 2;
+        if (len >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) return 2;
+        return 0;
+    }
+
+    private static Charset detectCharset(byte[] head, int len, int bomLength) {
+        if (bomLength == 3) return StandardCharsets.UTF_8;
+        if (bomLength == 2) return (head[0] & 0xFF) == 0xFF ? StandardCharsets.UTF_16LE : StandardCharsets.UTF_16BE;
+        CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // endOfInput=false so a multi-byte character cut off by the sample end is not an error
+        CharBuffer out = CharBuffer.allocate(len);
+        if (utf8.decode(ByteBuffer.wrap(head, 0, len), out, false).isError()) return GBK;
+        return StandardCharsets.UTF_8;
+    }
+
+    private static char detectDelimiter(Path file, String sample) {
+        if (file.getFileName().toString().toLowerCase().endsWith(".tsv")) return '\t';
+        int lineEnd = sample.indexOf('\n');
+        String firstLine = lineEnd >= 0 ? sample.substring(0, lineEnd) : sample;
+        return firstLine.indexOf('\t') >= 0 && firstLine.indexOf(',') < 0 ? '\t' : ',';
+    }
+}
@@ -4,44 +4,145 @@ import fan.summer.database.DatabaseInit;
 import fan.summer.database.entity.excel.ComplexSplitConfigEntity;
 import fan.summer.database.mapper.excel.ComplexSplitConfigMapper;
 import org.apache.fesod.sheet.ExcelReader;
+import org.apache.fesod.sheet.ExcelWriter;
 import org.apache.fesod.sheet.FesodSheet;
-import org.apache.fesod.sheet.read.metadata.ReadSheet;
+import org.apache.fesod.sheet.write.metadata.WriteSheet;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class ExcelSplitter {
 
     private static final Logger logger = LoggerFactory.getLogger(ExcelSplitter.class);
 
-    public record SplitResult(int fileCount, List<Path> outputFiles) {}
+    // Group key ExcelUtil.normalizeOrInvalid assigns to empty and invalid split values
+    private static final String INVALID_KEY = "INVALID";
+
+    private static final long TELEMETRY_INTERVAL_MS = 500;
+
+    /**
+     * @param filteredRows rows rejected by row filters, keyed by the config they belong to
+     * @param manifest     per-output rows, sizes and checksums with the row reconciliation
+     */
+    public record SplitResult(int fileCount, List<Path> outputFiles, Map<String, Long> filteredRows,
+                              SplitManifest manifest) {
+        public SplitResult(int fileCount, List<Path> outputFiles, Map<String, Long> filteredRows) {
+            this(fileCount, outputFiles, filteredRows, null);
+        }
+
+        public SplitResult(int fileCount, List<Path> outputFiles) {
+            this(fileCount, outputFiles, Map.of());
+        }
+    }
 
     private final SplitConfig config;
     private final BiConsumer<Double, String> progress;
 
+    // Source readers, opened on first use per source and shared by every sheet read of that source
+    private final Map<Path, ExcelReader> fesodReaders = new ConcurrentHashMap<>();
+    private final Map<Path, XlsxStreamReader> streamReaders = new ConcurrentHashMap<>();
+    private final SourceHeaders sourceHeaders = new SourceHeaders();
+    private SplitManifest manifest;
+
+    // Cancellation and resume: outputs are written as .part files and renamed when complete
+    private volatile boolean cancelled;
+    private final Set<Path> pendingParts = ConcurrentHashMap.newKeySet();
+    private SplitCheckpoint checkpoint;
+
+    private final SplitTelemetry telemetry = new SplitTelemetry();
+    private final Set<Path> sourcesRead = ConcurrentHashMap.newKeySet();
+    private Consumer<SplitTelemetry.Snapshot> telemetryListener;
+    private BiFunction<String, Path, CompletionStage<Boolean>> outputListener;
+    // Hand-overs still in flight, and whether any output was not handed on
+    private final List<CompletableFuture<Void>> deliveries = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicBoolean undelivered = new AtomicBoolean();
+    // Rows handed out by sort merges, which run on the calling thread
+    private long mergedRows;
+
     public ExcelSplitter(SplitConfig config, BiConsumer<Double, String> progress) {
         this.config = config;
-        this.progress = progress;
+        // The reported fraction also drives the telemetry ETA
+        this.progress = (fraction, message) -> {
+            telemetry.progress(fraction);
+            progress.accept(fraction, message);
+        };
+    }
+
+    /**
+     * Receives a telemetry snapshot about twice a second while {@link #split()} runs, and a
+     * final one when it ends. Called from a background thread.
+     */
+    public void setTelemetryListener(Consumer<SplitTelemetry.Snapshot> telemetryListener) {
+        this.telemetryListener = telemetryListener;
+    }
+
+    /**
+     * Receives each BY_COLUMN output (split value, file) as soon as it is complete under its
+     * final name, so work on the outputs can overlap with the rest of the split, e.g. mailing
+     * them. Called from the writer threads; the returned stage completes with true once the
+     * output has been handed on. {@link #split()} waits for every stage before it returns, and
+     * records the outputs handed on in the checkpoint: a rerun reports again the outputs it
+     * resumes that were not, and the checkpoint is kept until all have been.
+     */
+    public void setOutputListener(BiFunction<String, Path, CompletionStage<Boolean>> outputListener) {
+        this.outputListener = outputListener;
     }
 
     public static Map<String, Map<Integer, String>> analyze(Path file) throws Exception {
         Map<String, Map<Integer, String>> result = new LinkedHashMap<>();
+        if (CsvRowReader.supports(file)) {
+            // A delimited file is one pseudo-sheet whose header is the first record
+            Map<Integer, String> headers = new LinkedHashMap<>();
+            try (CsvRowReader reader = new CsvRowReader(file)) {
+                List<String> first = reader.next();
+                if (first != null) {
+                    for (int c = 0; c < first.size(); c++) {
+                        if (!first.get(c).isBlank()) headers.put(c, first.get(c).trim());
+                    }
+                }
+            }
+            result.put(CsvRowReader.sheetName(file), headers);
+            return result;
+        }
         try (Workbook workbook = WorkbookFactory.create(file.toFile(), null, true)) {
             for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
                 Sheet sheet = workbook.getSheetAt(i);
@@ -61,13 +162,97 @@ public class ExcelSplitter {
         return result;
     }
 
+    /**
+     * Lists the sources of a multi-source split: the workbooks and CSV / TSV files directly in
+     * the folder whose names match the glob (e.g. {@code *.xlsx}, {@code 分行_*.xls?}), by name.
+     * Office lock files ({@code ~$...}) are skipped.
+     */
+    public static List<Path> listSources(Path folder, String glob) throws IOException {
+        String pattern = glob == null || glob.isBlank() ? "*" : glob.trim();
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(f -> matcher.matches(f.getFileName()))
+                    .filter(f -> !f.getFileName().toString().startsWith("~$"))
+                    .filter(f -> CsvRowReader.supports(f) || isWorkbook(f))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean isWorkbook(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".xlsx") || name.endsWith(".xlsm") || name.endsWith(".xls");
+    }
+
+    /**
+     * Runs the split. Outputs completed by an earlier, interrupted run of the same job are
+     * verified against the checkpoint and skipped. On failure or {@link #cancel()} every
+     * partially written output is deleted, while the checkpoint is kept for the next run.
+     * With an output listener set, returns only after every output has been handed on.
+     *
+     * @throws CancellationException when the job was cancelled
+     */
     public SplitResult split() throws Exception {
         progress.accept(0.0, "Starting...");
-        return switch (config.mode) {
-            case BY_SHEET  -> splitBySheet();
-            case BY_COLUMN -> splitByColumn();
-            case COMPLEX   -> complexSplit();
-        };
+        manifest = new SplitManifest(config.mode, sources());
+        String prefix = (config.filePrefix == null || config.filePrefix.isBlank()) ? "" : config.filePrefix + "_";
+        String baseName = prefix + sourceBaseName();
+        List<ComplexSplitConfigEntity> complexConfigs =
+                config.mode == SplitConfig.SplitMode.COMPLEX ? loadComplexConfigs() : List.of();
+        checkpoint = SplitCheckpoint.open(config.outputDir.resolve(baseName + ".checkpoint"),
+                SplitCheckpoint.fingerprint(describeJob(complexConfigs)));
+        deleteStaleParts();
+
+        boolean finished = false;
+        ScheduledExecutorService sampler = startTelemetrySampler();
+        try {
+            SplitResult result;
+            try {
+                result = switch (config.mode) {
+                    case BY_SHEET  -> splitBySheet();
+                    case BY_COLUMN -> splitByColumn();
+                    case BY_COLUMN_TO_SHEETS -> splitByColumnToSheets();
+                    case COMPLEX   -> complexSplit(complexConfigs);
+                    case SORT      -> sortSheet();
+                };
+            } finally {
+                closeReaders();
+            }
+            // Everything the manifest needs was collected while reading and writing
+            manifest.write(config.outputDir, baseName, config.metadataWorkbook);
+            telemetry.phase(SplitTelemetry.Phase.DONE);
+            finished = true;
+            return new SplitResult(result.fileCount(), result.outputFiles(), result.filteredRows(), manifest);
+        } catch (Exception e) {
+            deletePendingParts();
+            // Readers and writer pools wrap the cancellation in their own exceptions
+            if (cancelled) {
+                logger.info("Split cancelled | completedOutputs={}", manifest.getOutputs().size());
+                throw new CancellationException("Split cancelled");
+            }
+            throw e;
+        } finally {
+            awaitDeliveries();
+            checkpoint.close(finished && !undelivered.get());
+            if (sampler != null) {
+                sampler.shutdownNow();
+                telemetryListener.accept(telemetry.sample());
+            }
+            telemetry.logSummary(config.mode, sources().size(), finished);
+        }
+    }
+
+    /**
+     * Asks a running {@link #split()} to stop. Reads stop within about a thousand rows and
+     * writes before the next output; the call itself does not wait. Safe from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
     }
 
     private SplitResult splitBySheet() throws Exception {
@@ -75,32 +260,65 @@ public class ExcelSplitter {
                 ? config.selectedSheets
                 : new ArrayList<>(config.analysisResult.keySet());
 
-        logger.info("Split by sheet | file={}, sheets={}", config.sourceFile.getFileName(), sheets.size());
+        logger.info("Split by sheet | file={}, sources={}, sheets={}",
+                config.sourceFile.getFileName(), sources().size(), sheets.size());
 
         List<Path> outputs = new ArrayList<>();
-        NoModelDataListener listener = new NoModelDataListener();
-
-        try (ExcelReader reader = FesodSheet.read(config.sourceFile.toFile()).build()) {
-            for (int i = 0; i < sheets.size(); i++) {
-                String sheetName = sheets.get(i);
-                progress.accept((double) i / sheets.size(), "Processing sheet: " + sheetName);
 
-                ReadSheet readSheet = FesodSheet.readSheet(sheetName)
-                        .registerReadListener(listener).build();
-                reader.read(readSheet);
+        for (int i = 0; i < sheets.size(); i++) {
+            String sheetName = sheets.get(i);
+            progress.accept((double) i / sheets.size(), "Processing sheet: " + sheetName);
 
-                List<Map<Integer, Object>> rows = listener.getCachedDataList();
-                Map<Integer, String> headerMap = config.analysisResult.get(sheetName);
+            ColumnProjection projection = ColumnProjection.all(config.analysisResult.get(sheetName));
+            Path out = config.outputDir.resolve(outputFileName(sheetName));
+            checkCancelled();
+            // Reading and writing overlap; the phase turns to WRITING once the sheet is read
+            telemetry.phase(SplitTelemetry.Phase.READING);
 
-                Path out = config.outputDir.resolve(outputFileName(sheetName));
-                FesodSheet.write(out.toFile())
-                        .sheet(sheetName)
-                        .head(buildHeaders(headerMap))
-                        .doWrite(buildRows(headerMap, rows));
+            // A sheet finished by an earlier run is only counted again, not written
+            if (checkpoint.contains(out)) {
+                long rows = countRows(sheetName);
+                if (resumed(sheetName, out, rows)) {
+                    manifest.addInput(rows, 0);
+                    outputs.add(out);
+                    continue;
+                }
+            }
 
-                outputs.add(out);
-                listener.clear();
+            // Rows go from reader to writer in windows instead of caching the whole sheet
+            long[] rowCount = {0};
+            SplitManifest.HashingOutputStream os = openOutput(out);
+            OutputStream zipOut = compressed(os);
+            ExcelWriter writer = FesodSheet.write(zipOut).build();
+            // The workbook is only written by finish(), so the streams are closed after it
+            try (os; zipOut) {
+                try {
+                    WriteSheet writeSheet = FesodSheet.writerSheet(sheetName).head(projection.headers()).build();
+                    List<List<Object>> window = new ArrayList<>(GroupSheetWriter.ROW_WINDOW);
+                    // Several sources are appended one after another into the same sheet
+                    forEachSource(false, (s, source) -> {
+                        StreamingRowListener listener = listener(sheetName, source, row -> {
+                            window.add(projection.project(row));
+                            if (window.size() >= GroupSheetWriter.ROW_WINDOW) {
+                                writer.write(window, writeSheet);
+                                telemetry.addRowsWritten(window.size());
+                                window.clear();
+                            }
+                        }, null);
+                        readSheet(source, sheetName, null, null, listener);
+                        rowCount[0] += listener.getRowCount();
+                    });
+                    telemetry.phase(SplitTelemetry.Phase.WRITING);
+                    writer.write(window, writeSheet);
+                    telemetry.addRowsWritten(window.size());
+                } finally {
+                    writer.finish();
+                }
             }
+
+            manifest.addInput(rowCount[0], 0);
+            completeOutput(sheetName, out, rowCount[0], os);
+            outputs.add(out);
         }
 
         progress.accept(1.0, "Done");
@@ -111,66 +329,206 @@ public class ExcelSplitter {
     private SplitResult splitByColumn() throws Exception {
         String sheetName = config.splitSheet;
         int colIdx = config.splitColumnIndex;
-        Map<Integer, String> headerMap = config.analysisResult.get(sheetName);
+        ColumnProjection projection = ColumnProjection.of(config.analysisResult.get(sheetName), config.outputColumns);
 
-        logger.info("Split by column | file={}, sheet={}, colIdx={}", config.sourceFile.getFileName(), sheetName, colIdx);
+        logger.info("Split by column | file={}, sources={}, sheet={}, colIdx={}, columns={}",
+                config.sourceFile.getFileName(), sources().size(), sheetName, colIdx, projection.size());
 
-        NoModelDataListener listener = new NoModelDataListener();
-        try (ExcelReader reader = FesodSheet.read(config.sourceFile.toFile()).build()) {
-            ReadSheet readSheet = FesodSheet.readSheet(sheetName)
-                    .registerReadListener(listener).build();
-            reader.read(readSheet);
+        // Rows are projected as they stream in, so unselected columns are never grouped or buffered.
+        // Each source groups into its own map; the maps are merged in source order afterwards.
+        int sortPosition = sortPosition(projection);
+        BitSet decode = decodeColumns(projection, colIdx);
+        List<Map<Object, List<List<Object>>>> sourceGroups = new ArrayList<>(Collections.nCopies(sources().size(), null));
+        AtomicLong filteredCount = new AtomicLong();
+        try (DuplicateStage dupes = duplicateStage(sheetName)) {
+            telemetry.phase(SplitTelemetry.Phase.READING);
+            forEachSource(true, (s, source) -> {
+                Map<Object, List<List<Object>>> groups = new LinkedHashMap<>();
+                StreamingRowListener listener = listener(sheetName, source, row ->
+                        groups.computeIfAbsent(ExcelUtil.normalizeOrInvalid(row.getOrDefault(colIdx, null)),
+                                k -> new ArrayList<>()).add(projection.project(row)), rowFilter());
+                if (dupes != null) listener.setRowGate(row -> dupes.test(row, listener.getRowNumber()));
+                readSheet(source, sheetName, null, decode, listener);
+                sourceGroups.set(s, groups);
+                filteredCount.addAndGet(listener.getFilteredCount());
+                manifest.addInput(listener.getRowCount(), listener.getFilteredCount());
+                manifest.addDuplicates(listener.getGatedCount());
+            });
+            if (dupes != null) dupes.finish();
         }
-
-        Map<Object, List<Map<Integer, Object>>> groups = new LinkedHashMap<>(
-                listener.getCachedDataList().stream()
-                        .collect(Collectors.groupingBy(row ->
-                                ExcelUtil.normalizeOrInvalid(row.getOrDefault(colIdx, null)))));
-        listener.clear();
+        Map<Object, List<List<Object>>> groups = mergeGroups(sourceGroups);
+        manifest.addInvalid(groups.getOrDefault(INVALID_KEY, List.of()).size());
 
         int total = groups.size();
         AtomicInteger current = new AtomicInteger(0);
         List<Path> outputs = Collections.synchronizedList(new ArrayList<>());
 
-        int threads = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
-        ForkJoinPool pool = new ForkJoinPool(threads);
-        try {
-            pool.submit(() ->
-                groups.entrySet().parallelStream().forEach(e -> {
-                    Object key = e.getKey();
-                    String suffix = FileNameUtil.getFileName(config.sourceFile.getFileName().toString()) + "_" + key;
-                    Path out = config.outputDir.resolve(outputFileName(suffix));
-                    FesodSheet.write(out.toFile())
+        // Largest groups are written first so no big group is left running alone at the end
+        telemetry.phase(SplitTelemetry.Phase.WRITING);
+        WriterScheduler.run(groups, (key, rows) -> {
+            checkCancelled();
+            String suffix = sourceBaseName() + "_" + key;
+            Path out = config.outputDir.resolve(outputFileName(suffix));
+            if (!resumed(String.valueOf(key), out, rows.size())) {
+                // Groups are already in memory, so each is sorted in place on the writer thread
+                if (sortPosition >= 0) ExternalRowSorter.sort(rows, sortPosition, config.sortDescending);
+                // Size and checksum are taken from the bytes as they are written
+                SplitManifest.HashingOutputStream os = openOutput(out);
+                try (os; OutputStream zipOut = compressed(os)) {
+                    FesodSheet.write(zipOut)
                             .sheet(sheetName)
-                            .head(buildHeaders(headerMap))
-                            .doWrite(buildRows(headerMap, e.getValue()));
-                    outputs.add(out);
-                    int n = current.incrementAndGet();
-                    progress.accept((double) n / total, "Writing: " + key);
-                })
-            ).get();
-        } finally {
-            pool.shutdown();
-        }
+                            .head(projection.headers())
+                            .doWrite(rows);
+                }
+                telemetry.addRowsWritten(rows.size());
+                completeOutput(String.valueOf(key), out, rows.size(), os);
+            }
+            deliver(String.valueOf(key), out);
+            outputs.add(out);
+            int n = current.incrementAndGet();
+            progress.accept((double) n / total, "Writing: " + key);
+        });
 
         progress.accept(1.0, "Done");
-        logger.info("Split by column completed | groups={}", total);
-        return new SplitResult(outputs.size(), outputs);
+        logger.info("Split by column completed | groups={}, filtered={}", total, filteredCount.get());
+        return new SplitResult(outputs.size(), outputs, filteredRows(sheetName, filteredCount.get()));
     }
 
-    private SplitResult complexSplit() throws Exception {
-        logger.info("Complex split | taskId={}", config.complexTaskId);
+    private SplitResult splitByColumnToSheets() throws Exception {
+        String sheetName = config.splitSheet;
+        int colIdx = config.splitColumnIndex;
+        ColumnProjection projection = ColumnProjection.of(config.analysisResult.get(sheetName), config.outputColumns);
 
-        List<ComplexSplitConfigEntity> splitConfigs;
-        try (SqlSession session = DatabaseInit.getSqlSession()) {
-            ComplexSplitConfigMapper mapper = session.getMapper(ComplexSplitConfigMapper.class);
-            splitConfigs = mapper.selectAllByTaskId(config.complexTaskId);
+        logger.info("Split by column to sheets | file={}, sources={}, sheet={}, colIdx={}, columns={}, overflow={}",
+                config.sourceFile.getFileName(), sources().size(), sheetName, colIdx, projection.size(),
+                config.overflowPolicy);
+
+        String suffix = sourceBaseName() + "_" + sheetName;
+        Path out = config.outputDir.resolve(outputFileName(suffix));
+        progress.accept(0.05, "Reading: " + sheetName);
+
+        int groupCount;
+        long[] filteredCount = {0};
+        long rowCount;
+        SplitManifest.HashingOutputStream os = openOutput(out);
+        try (os; OutputStream zipOut = compressed(os);
+             GroupSheetWriter writer = new GroupSheetWriter(zipOut, projection.headers(), config.overflowPolicy)) {
+            // The writer is single-threaded, so several sources are streamed into it in turn
+            BitSet decode = decodeColumns(projection, colIdx);
+            int sortPosition = sortPosition(projection);
+            try (DuplicateStage dupes = duplicateStage(sheetName);
+                 ExternalRowSorter sorter = sortPosition < 0 ? null
+                    : new ExternalRowSorter(sortPosition, config.sortDescending, ExternalRowSorter.DEFAULT_MEMORY_BUDGET)) {
+                telemetry.phase(SplitTelemetry.Phase.READING);
+                forEachSource(false, (s, source) -> {
+                    StreamingRowListener listener = listener(sheetName, source, row -> {
+                        Object key = ExcelUtil.normalizeOrInvalid(row.getOrDefault(colIdx, null));
+                        if (sorter != null) {
+                            // The group key rides along as an extra last cell through the sort
+                            List<Object> values = projection.project(row);
+                            values.add(key);
+                            sorter.add(values);
+                        } else {
+                            if (writer.accept(key, projection.project(row))) telemetry.addRowsWritten(1);
+                        }
+                    }, rowFilter());
+                    if (dupes != null) listener.setRowGate(row -> dupes.test(row, listener.getRowNumber()));
+                    readSheet(source, sheetName, null, decode, listener);
+                    filteredCount[0] += listener.getFilteredCount();
+                    manifest.addInput(listener.getRowCount(), listener.getFilteredCount());
+                    manifest.addDuplicates(listener.getGatedCount());
+                });
+                if (dupes != null) dupes.finish();
+                if (sorter != null) {
+                    // Globally sorted rows reach every group's sheet in sorted order
+                    telemetry.phase(SplitTelemetry.Phase.SORTING);
+                    progress.accept(0.5, "Sorting: " + sheetName);
+                    sorter.forEachSorted(values -> {
+                        Object key = values.remove(values.size() - 1);
+                        tickWritten(writer.accept(key, values));
+                    });
+                }
+            }
+            groupCount = writer.getGroupCount();
+            rowCount = writer.getRowCount();
+            manifest.addTruncated(writer.getTruncatedRows());
+            manifest.addInvalid(writer.getRowCount(INVALID_KEY));
+            telemetry.phase(SplitTelemetry.Phase.WRITING);
+            progress.accept(0.9, "Writing: " + out.getFileName());
         }
 
-        if (splitConfigs == null || splitConfigs.isEmpty()) {
-            throw new RuntimeException("No complex split config found for taskId: " + config.complexTaskId);
+        completeOutput(sheetName, out, rowCount, os);
+        progress.accept(1.0, "Done");
+        logger.info("Split by column to sheets completed | groups={}, filtered={}, file={}",
+                groupCount, filteredCount[0], out.getFileName());
+        return new SplitResult(1, List.of(out), filteredRows(sheetName, filteredCount[0]));
+    }
+
+    /**
+     * Writes a sorted copy of one sheet (all sources appended). Rows beyond the memory budget
+     * are sorted externally, so the sheet size is bounded by disk rather than heap.
+     */
+    private SplitResult sortSheet() throws Exception {
+        String sheetName = config.splitSheet;
+        ColumnProjection projection = ColumnProjection.of(config.analysisResult.get(sheetName), config.outputColumns);
+        int sortPosition = sortPosition(projection);
+        if (sortPosition < 0) throw new IllegalArgumentException("No sort column selected");
+
+        logger.info("Sort sheet | file={}, sources={}, sheet={}, sortColumn={}, descending={}",
+                config.sourceFile.getFileName(), sources().size(), sheetName, config.sortColumnIndex,
+                config.sortDescending);
+
+        Path out = config.outputDir.resolve(outputFileName(sourceBaseName() + "_" + sheetName + "_sorted"));
+        progress.accept(0.05, "Reading: " + sheetName);
+
+        long[] filteredCount = {0};
+        int runs;
+        long rowCount;
+        SplitManifest.HashingOutputStream os;
+        try (DuplicateStage dupes = duplicateStage(sheetName);
+             ExternalRowSorter sorter = new ExternalRowSorter(sortPosition, config.sortDescending,
+                ExternalRowSorter.DEFAULT_MEMORY_BUDGET)) {
+            BitSet decode = decodeColumns(projection, config.sortColumnIndex);
+            telemetry.phase(SplitTelemetry.Phase.READING);
+            forEachSource(false, (s, source) -> {
+                StreamingRowListener listener = listener(sheetName, source,
+                        row -> sorter.add(projection.project(row)), rowFilter());
+                if (dupes != null) listener.setRowGate(row -> dupes.test(row, listener.getRowNumber()));
+                readSheet(source, sheetName, null, decode, listener);
+                filteredCount[0] += listener.getFilteredCount();
+                manifest.addInput(listener.getRowCount(), listener.getFilteredCount());
+                manifest.addDuplicates(listener.getGatedCount());
+            });
+            if (dupes != null) dupes.finish();
+            runs = sorter.getRunCount();
+
+            telemetry.phase(SplitTelemetry.Phase.SORTING);
+            progress.accept(0.5, "Sorting: " + sheetName);
+            // Opened only once the runs are ready, so a failed or cancelled read leaves no open handle
+            os = openOutput(out);
+            // One group: the writer only adds sheets when the Excel row limit is reached
+            try (os; OutputStream zipOut = compressed(os);
+                 GroupSheetWriter writer = new GroupSheetWriter(zipOut, projection.headers(), config.overflowPolicy)) {
+                sorter.forEachSorted(values -> {
+                    tickWritten(writer.accept(sheetName, values));
+                });
+                rowCount = writer.getRowCount();
+                manifest.addTruncated(writer.getTruncatedRows());
+                telemetry.phase(SplitTelemetry.Phase.WRITING);
+                progress.accept(0.9, "Writing: " + out.getFileName());
+            }
         }
 
+        completeOutput(sheetName, out, rowCount, os);
+        progress.accept(1.0, "Done");
+        logger.info("Sort sheet completed | rows={}, runs={}, filtered={}, file={}",
+                rowCount, runs, filteredCount[0], out.getFileName());
+        return new SplitResult(1, List.of(out), filteredRows(sheetName, filteredCount[0]));
+    }
+
+    private SplitResult complexSplit(List<ComplexSplitConfigEntity> splitConfigs) throws Exception {
+        logger.info("Complex split | taskId={}", config.complexTaskId);
+
         List<ComplexSplitConfigEntity> normalConfigs = new ArrayList<>();
         List<ComplexSplitConfigEntity> copyAllConfigs = new ArrayList<>();
         for (ComplexSplitConfigEntity cfg : splitConfigs) {
@@ -181,62 +539,119 @@ public class ExcelSplitter {
                 normalConfigs.add(cfg);
             }
         }
+        for (ComplexSplitConfigEntity cfg : copyAllConfigs) {
+            // Copy-all sheets are copied whole; a stored filter would be silently ignored
+            if (complexFilter(cfg) != null) {
+                throw new IllegalArgumentException("Copy-all config for sheet '" + cfg.getSheetName()
+                        + "' cannot have a row filter: " + cfg.getFilterExpr());
+            }
+        }
 
         // === Phase 1: Single-pass read per normal config, build output plan ===
-        record WriteTask(ComplexSplitConfigEntity cfg, List<Map<Integer, Object>> rows) {}
+        record WriteTask(ComplexSplitConfigEntity cfg, Object key, List<Map<Integer, Object>> rows) {}
         Map<String, List<WriteTask>> plan = new LinkedHashMap<>();
+        Map<String, Long> filtered = new LinkedHashMap<>();
+
+        // Each source reads all configs on its own thread; results are merged in source order
+        record ConfigRead(Map<Object, List<Map<Integer, Object>>> groups, long rowCount, long filteredCount) {}
+        List<List<ConfigRead>> sourceReads = new ArrayList<>(Collections.nCopies(sources().size(), null));
+        AtomicInteger sourcesDone = new AtomicInteger();
+        telemetry.phase(SplitTelemetry.Phase.READING);
+        forEachSource(true, (s, source) -> {
+            List<ConfigRead> reads = new ArrayList<>();
+            for (ComplexSplitConfigEntity cfg : normalConfigs) {
+                // Group while streaming; rows rejected by the config's filter are never buffered
+                int colKey = cfg.getColumnIndex() - 1;
+                Map<Object, List<Map<Integer, Object>>> groups = new LinkedHashMap<>();
+                StreamingRowListener listener = listener(cfg.getSheetName(), source, row ->
+                        groups.computeIfAbsent(ExcelUtil.normalizeOrInvalid(row.getOrDefault(colKey, null)),
+                                k -> new ArrayList<>()).add(row), complexFilter(cfg));
+                readSheet(source, cfg.getSheetName(), cfg.getHeaderIndex(), null, listener);
+                reads.add(new ConfigRead(groups, listener.getRowCount(), listener.getFilteredCount()));
+                manifest.addInput(listener.getRowCount(), listener.getFilteredCount());
+                manifest.addInvalid(groups.getOrDefault(INVALID_KEY, List.of()).size());
+            }
+            sourceReads.set(s, reads);
+            progress.accept(0.05 + 0.3 * sourcesDone.incrementAndGet() / sources().size(),
+                    "Reading: " + source.getFileName());
+        });
 
         for (int i = 0; i < normalConfigs.size(); i++) {
             ComplexSplitConfigEntity cfg = normalConfigs.get(i);
-            progress.accept(0.05 + 0.3 * i / Math.max(1, normalConfigs.size()),
-                    "Reading: " + cfg.getSheetName());
-
-            NoModelDataListener listener = new NoModelDataListener();
-            try (ExcelReader reader = FesodSheet.read(config.sourceFile.toFile()).build()) {
-                ReadSheet sheet = FesodSheet.readSheet(cfg.getSheetName())
-                        .headRowNumber(cfg.getHeaderIndex())
-                        .registerReadListener(listener).build();
-                reader.read(sheet);
-            }
-
-            int colKey = cfg.getColumnIndex() - 1;
-            listener.getCachedDataList().stream()
-                    .collect(Collectors.groupingBy(row ->
-                            ExcelUtil.normalizeOrInvalid(row.getOrDefault(colKey, null))))
-                    .forEach((key, rows) -> {
-                        String baseName = FileNameUtil.getFileName(config.sourceFile.getFileName().toString())
-                                + "_" + key + ".xlsx";
-                        plan.computeIfAbsent(baseName, k -> new ArrayList<>())
-                                .add(new WriteTask(cfg, rows));
-                    });
-            listener.clear();
+            int c = i;
+            Map<Object, List<Map<Integer, Object>>> groups =
+                    mergeGroups(sourceReads.stream().map(reads -> reads.get(c).groups()).toList());
+            RowFilter filter = complexFilter(cfg);
+            if (filter != null) {
+                // Keyed by config id: two configs may share a sheet and a filter
+                filtered.put("#" + cfg.getId() + " " + cfg.getSheetName() + " [" + filter + "]",
+                        sourceReads.stream().mapToLong(reads -> reads.get(c).filteredCount()).sum());
+            }
+
+            groups.forEach((key, rows) -> {
+                String baseName = sourceBaseName() + "_" + key + ".xlsx";
+                plan.computeIfAbsent(baseName, k -> new ArrayList<>())
+                        .add(new WriteTask(cfg, key, rows));
+            });
         }
 
         // === Phase 2 & 3: source opened ONCE for both write + copyAll ===
         int totalFiles = plan.size();
         int writeDone = 0;
 
-        try (FileInputStream srcFis = new FileInputStream(config.sourceFile.toFile());
-             Workbook srcWb = WorkbookFactory.create(srcFis)) {
+        // Last source row each sheet contributes directly: header rows, or everything for copy-all.
+        // A CSV copy-all sheet is streamed from the file into each target instead (copyCsvSheet).
+        boolean csvSource = CsvRowReader.supports(config.sourceFile);
+        Map<String, Integer> neededRanges = new HashMap<>();
+        normalConfigs.forEach(cfg ->
+                neededRanges.merge(cfg.getSheetName(), cfg.getHeaderIndex() - 1, Math::max));
+        if (!csvSource) copyAllConfigs.forEach(cfg -> neededRanges.put(cfg.getSheetName(), Integer.MAX_VALUE));
 
-            // Phase 2: one XSSFWorkbook per output file, flushed to disk once
+        try (Workbook srcWb = openSourceWorkbook(neededRanges)) {
+
+            // Values-only: evaluate each needed formula range once
+            Map<String, Map<CellAddress, CellValue>> formulaValues = null;
+            if (config.valuesOnly) {
+                telemetry.phase(SplitTelemetry.Phase.EVALUATING);
+                progress.accept(0.35, "Evaluating formulas...");
+                formulaValues = ExcelUtil.evaluateFormulas(srcWb, neededRanges);
+            }
+
+            // Phase 2: one XSSFWorkbook per output file with its copy-all sheets, flushed to disk once
+            telemetry.phase(SplitTelemetry.Phase.WRITING);
             for (Map.Entry<String, List<WriteTask>> entry : plan.entrySet()) {
+                checkCancelled();
                 String baseName = entry.getKey();
                 Path outPath = config.outputDir.resolve(baseName);
+                String key = String.valueOf(entry.getValue().get(0).key());
+                long rows = entry.getValue().stream().mapToLong(task -> task.rows().size()).sum();
 
-                try (XSSFWorkbook tgtWb = new XSSFWorkbook()) {
-                    for (WriteTask task : entry.getValue()) {
-                        Sheet srcSheet = srcWb.getSheet(task.cfg().getSheetName());
-                        if (srcSheet == null) continue;
-                        ExcelUtil.copyHeaderToWorkbook(srcSheet, tgtWb,
-                                task.cfg().getSheetName(), task.cfg().getHeaderIndex() - 1);
-                        Sheet tgtSheet = tgtWb.getSheet(task.cfg().getSheetName());
-                        Row templateRow = srcSheet.getRow(task.cfg().getHeaderIndex());
-                        ExcelUtil.writeDataRowsToSheet(tgtSheet, tgtWb, templateRow,
-                                task.cfg().getHeaderIndex(), task.rows());
-                    }
-                    try (FileOutputStream fos = new FileOutputStream(outPath.toFile())) {
-                        tgtWb.write(fos);
+                if (!resumed(key, outPath, rows)) {
+                    // Streamed CSV sheets need a streaming target; rows are still written in order
+                    Workbook tgtWb = csvSource && !copyAllConfigs.isEmpty()
+                            ? new SXSSFWorkbook(GroupSheetWriter.ROW_WINDOW) : new XSSFWorkbook();
+                    try {
+                        for (WriteTask task : entry.getValue()) {
+                            Sheet srcSheet = srcWb.getSheet(task.cfg().getSheetName());
+                            if (srcSheet == null) continue;
+                            ExcelUtil.copyHeaderToWorkbook(srcSheet, tgtWb,
+                                    task.cfg().getSheetName(), task.cfg().getHeaderIndex() - 1,
+                                    sheetFormulaValues(formulaValues, srcSheet));
+                            Sheet tgtSheet = tgtWb.getSheet(task.cfg().getSheetName());
+                            Row templateRow = srcSheet.getRow(task.cfg().getHeaderIndex());
+                            ExcelUtil.writeDataRowsToSheet(tgtSheet, tgtWb, templateRow,
+                                    task.cfg().getHeaderIndex(), task.rows());
+                        }
+                        copyAllSheets(srcWb, tgtWb, copyAllConfigs, formulaValues);
+                        SplitManifest.HashingOutputStream os = openOutput(outPath);
+                        try (os) {
+                            writeWorkbook(tgtWb, os);
+                        }
+                        telemetry.addRowsWritten(rows);
+                        completeOutput(key, outPath, rows, os);
+                    } finally {
+                        if (tgtWb instanceof SXSSFWorkbook streaming) streaming.dispose();
+                        tgtWb.close();
                     }
                 }
 
@@ -244,26 +659,43 @@ public class ExcelSplitter {
                 progress.accept(0.35 + 0.5 * writeDone / Math.max(1, totalFiles), "Writing: " + baseName);
             }
 
-            // Phase 3: copyAll sheets — reuse already-open source workbook
+            // Phase 3: copyAll sheets into the other workbooks already in the output folder
             if (!copyAllConfigs.isEmpty()) {
+                telemetry.phase(SplitTelemetry.Phase.COPYING);
                 File[] outputFiles = config.outputDir.toFile().listFiles(
-                        (dir, name) -> name.endsWith(".xlsx") && !name.endsWith("_metadata.xlsx"));
+                        (dir, name) -> name.endsWith(".xlsx") && !name.endsWith("_metadata.xlsx")
+                                && !plan.containsKey(name));
 
                 if (outputFiles != null) {
+                    String copiedKey = copyAllConfigs.stream().map(ComplexSplitConfigEntity::getSheetName)
+                            .distinct().collect(Collectors.joining(","));
                     for (int i = 0; i < outputFiles.length; i++) {
+                        checkCancelled();
                         File targetFile = outputFiles[i];
+                        Path part = partFile(targetFile.toPath());
+                        SplitManifest.HashingOutputStream os;
                         try (FileInputStream tgtFis = new FileInputStream(targetFile);
-                             Workbook tgtWb = WorkbookFactory.create(tgtFis)) {
-                            for (ComplexSplitConfigEntity copyConfig : copyAllConfigs) {
-                                Sheet srcSheet = srcWb.getSheet(copyConfig.getSheetName());
-                                if (srcSheet != null && tgtWb.getSheet(copyConfig.getSheetName()) == null) {
-                                    ExcelUtil.copySheetToWorkbook(srcSheet, tgtWb);
+                             Workbook loaded = WorkbookFactory.create(tgtFis)) {
+                            // Sheets added through the SXSSF wrapper are streamed; existing ones stay as loaded
+                            Workbook tgtWb = csvSource && loaded instanceof XSSFWorkbook xssf
+                                    ? new SXSSFWorkbook(xssf, GroupSheetWriter.ROW_WINDOW) : loaded;
+                            try {
+                                copyAllSheets(srcWb, tgtWb, copyAllConfigs, formulaValues);
+                                pendingParts.add(part);
+                                checkpoint.started(part);
+                                os = SplitManifest.open(part);
+                                try (os) {
+                                    writeWorkbook(tgtWb, os);
                                 }
-                            }
-                            try (FileOutputStream fos = new FileOutputStream(targetFile)) {
-                                tgtWb.write(fos);
+                            } finally {
+                                if (tgtWb instanceof SXSSFWorkbook streaming) streaming.dispose();
                             }
                         }
+                        // Replaced only once fully written, so a cancelled copy leaves the file intact
+                        Files.move(part, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                        pendingParts.remove(part);
+                        // A rewritten workbook holds no routed rows, so the row balance is unchanged
+                        manifest.record(copiedKey, targetFile.toPath(), 0, os);
                         progress.accept(0.85 + 0.15 * (i + 1) / Math.max(1, outputFiles.length),
                                 "Copying sheets: " + targetFile.getName());
                     }
@@ -278,29 +710,657 @@ public class ExcelSplitter {
                 .collect(Collectors.toList());
 
         progress.accept(1.0, "Done");
-        logger.info("Complex split completed | normalConfigs={}, copyAllConfigs={}, outputFiles={}",
-                normalConfigs.size(), copyAllConfigs.size(), outputPaths.size());
-        return new SplitResult(outputPaths.size(), outputPaths);
+        logger.info("Complex split completed | normalConfigs={}, copyAllConfigs={}, outputFiles={}, filtered={}",
+                normalConfigs.size(), copyAllConfigs.size(), outputPaths.size(), filtered);
+        return new SplitResult(outputPaths.size(), outputPaths, filtered);
+    }
+
+    /**
+     * Dedup pre-stage of the column modes, or null when no dedup column is set. Keeping the
+     * last occurrence, or comparing exact keys, takes a first pass over the key columns here.
+     */
+    private DuplicateStage duplicateStage(String sheetName) throws Exception {
+        if (config.dedupColumns.isEmpty()) return null;
+        // Kept rows are decided by row number, which is only meaningful within one source
+        if (sources().size() > 1) throw new IllegalArgumentException("Deduplication needs a single source file");
+        Map<Integer, String> headers = config.analysisResult.get(sheetName);
+        RowDeduplicator dedup = new RowDeduplicator(config.dedupColumns, config.dedupKeep, config.dedupExact,
+                ExternalRowSorter.DEFAULT_MEMORY_BUDGET);
+        try {
+            if (dedup.needsScan()) {
+                telemetry.phase(SplitTelemetry.Phase.READING);
+                progress.accept(0.02, "Scanning duplicates: " + sheetName);
+                BitSet keys = new BitSet();
+                config.dedupColumns.forEach(keys::set);
+                StreamingRowListener scan = new StreamingRowListener(dedup::scan);
+                scan.setRowTicker(rows -> checkCancelled());
+                readSheetOnce(sources().get(0), sheetName, keys, scan);
+                dedup.finishScan();
+            }
+            // The report shows the output columns plus any key column the output drops
+            List<Integer> reported = new ArrayList<>(config.outputColumns);
+            if (!reported.isEmpty()) {
+                config.dedupColumns.stream().filter(c -> !reported.contains(c)).forEach(reported::add);
+            }
+            Path out = config.outputDir.resolve(outputFileName(sourceBaseName() + "_" + sheetName + "_duplicates"));
+            return new DuplicateStage(dedup, ColumnProjection.of(headers, reported), out);
+        } catch (Exception e) {
+            dedup.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a sheet with a reader of its own, so the job's cached FESOD reader, whose sheet
+     * streams can only be consumed once, is left for the main pass.
+     */
+    private void readSheetOnce(Path source, String sheetName, BitSet decodeColumns,
+                               StreamingRowListener listener) throws IOException {
+        if (CsvRowReader.supports(source) || (config.diskBackedStrings && XlsxStreamReader.supports(source))) {
+            readSheetFrom(source, sheetName, null, decodeColumns, listener);
+            return;
+        }
+        ExcelReader reader = FesodSheet.read(source.toFile()).build();
+        try {
+            reader.read(FesodSheet.readSheet(sheetName).registerReadListener(listener).build());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Row gate of the dedup pre-stage: passes kept rows on and writes dropped ones, with their
+     * sheet row number, to {@code <base>_<sheet>_duplicates.xlsx}, which is only created once
+     * there is a duplicate.
+     */
+    private final class DuplicateStage implements AutoCloseable {
+        private static final String SHEET = "重复行";
+
+        private final RowDeduplicator dedup;
+        private final ColumnProjection projection;
+        private final Path out;
+        private SplitManifest.HashingOutputStream os;
+        private GroupSheetWriter writer;
+
+        DuplicateStage(RowDeduplicator dedup, ColumnProjection projection, Path out) {
+            this.dedup = dedup;
+            this.projection = projection;
+            this.out = out;
+        }
+
+        boolean test(Map<Integer, Object> row, long rowNumber) {
+            if (dedup.accept(row)) return true;
+            if (writer == null) {
+                try {
+                    os = openOutput(out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to create duplicates report " + out.getFileName(), e);
+                }
+                List<List<String>> head = projection.headers();
+                head.add(Collections.singletonList("源行号"));
+                writer = new GroupSheetWriter(os, head, SplitConfig.OverflowPolicy.NEW_SHEET);
+            }
+            List<Object> values = projection.project(row);
+            values.add(rowNumber);
+            writer.accept(SHEET, values);
+            return false;
+        }
+
+        /**
+         * Moves the report into place; the report is not an output, so the manifest only counts its rows.
+         */
+        void finish() throws IOException {
+            if (writer == null) return;
+            try {
+                writer.close();
+            } finally {
+                os.close();
+            }
+            writer = null;
+            Path part = partFile(out);
+            Files.move(part, out, StandardCopyOption.REPLACE_EXISTING);
+            pendingParts.remove(part);
+            telemetry.untrack(os);
+            logger.info("Duplicates report written | file={}, rows={}, keep={}, exact={}, partitioned={}",
+                    out.getFileName(), dedup.getDuplicateCount(), config.dedupKeep, config.dedupExact,
+                    dedup.isPartitioned());
+        }
+
+        @Override
+        public void close() throws IOException {
+            // After a failure the writer is still open; its .part file goes with the other pending parts.
+            // Closing the writer also removes its temp files, whatever state the failure left it in.
+            try {
+                if (writer != null) writer.close();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to close duplicates report | file={}", out.getFileName(), e);
+            } finally {
+                try {
+                    if (os != null) os.close();
+                } finally {
+                    dedup.close();
+                }
+            }
+        }
     }
 
-    private static List<List<String>> buildHeaders(Map<Integer, String> headMap) {
-        List<List<String>> headers = new ArrayList<>();
-        new TreeMap<>(headMap).forEach((index, name) -> headers.add(Collections.singletonList(name)));
-        return headers;
+    /**
+     * Listener for one sheet read of a source, with the multi-source header check and the
+     * cancellation check attached.
+     */
+    private StreamingRowListener listener(String sheetName, Path source, Consumer<Map<Integer, Object>> sink,
+                                          RowFilter filter) {
+        StreamingRowListener listener = new StreamingRowListener(sink, filter);
+        listener.setHeadCheck(sourceHeaders.check(sheetName, source));
+        listener.setRowTicker(rows -> {
+            checkCancelled();
+            telemetry.addRowsRead(rows);
+        });
+        return listener;
     }
 
-    private static List<List<Object>> buildRows(Map<Integer, String> headMap,
-                                                List<Map<Integer, Object>> dataList) {
-        List<Integer> sortedKeys = new ArrayList<>(new TreeMap<>(headMap).keySet());
-        List<List<Object>> rows = new ArrayList<>();
-        for (Map<Integer, Object> rowMap : dataList) {
-            List<Object> row = new ArrayList<>();
-            for (Integer key : sortedKeys) {
-                row.add(rowMap.getOrDefault(key, ""));
+    /**
+     * Publishes telemetry snapshots to the listener every 500 ms; null when nobody listens.
+     */
+    private ScheduledExecutorService startTelemetrySampler() {
+        if (telemetryListener == null) return null;
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "split-telemetry");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(() -> {
+            // An exception escaping the task would silently cancel all further samples
+            try {
+                telemetryListener.accept(telemetry.sample());
+            } catch (Exception e) {
+                logger.warn("Telemetry listener failed", e);
             }
-            rows.add(row);
+        }, TELEMETRY_INTERVAL_MS, TELEMETRY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return sampler;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException("Split cancelled");
+    }
+
+    /**
+     * Opens an output as {@code <name>.part}; {@link #completeOutput} renames it once fully written,
+     * so a cancelled or failed job never leaves a truncated file under the final name.
+     */
+    private SplitManifest.HashingOutputStream openOutput(Path out) throws IOException {
+        Path part = partFile(out);
+        pendingParts.add(part);
+        checkpoint.started(part);
+        SplitManifest.HashingOutputStream os = SplitManifest.open(part);
+        telemetry.track(os);
+        return os;
+    }
+
+    /**
+     * Moves a closed output into place and records it in the manifest and the checkpoint.
+     */
+    private void completeOutput(String key, Path out, long rows, SplitManifest.HashingOutputStream os)
+            throws IOException {
+        Path part = partFile(out);
+        Files.move(part, out, StandardCopyOption.REPLACE_EXISTING);
+        pendingParts.remove(part);
+        telemetry.untrack(os);
+        manifest.record(key, out, rows, os);
+        checkpoint.completed(new SplitCheckpoint.Entry(out.getFileName().toString(), key, rows,
+                os.getByteCount(), os.getSha256()));
+    }
+
+    /**
+     * Hands a completed output to the output listener unless an earlier run already did.
+     */
+    private void deliver(String key, Path out) {
+        if (outputListener == null || checkpoint.isDelivered(out)) return;
+        deliveries.add(outputListener.apply(key, out).toCompletableFuture().handle((ok, e) -> {
+            if (!Boolean.TRUE.equals(ok)) {
+                undelivered.set(true);
+                return null;
+            }
+            try {
+                checkpoint.delivered(out);
+            } catch (IOException ex) {
+                // Not fatal: the output is handed on again by a rerun
+                undelivered.set(true);
+                logger.warn("Failed to record delivered output | file={}", out.getFileName(), ex);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Waits for every hand-over, also when the split failed or was cancelled, so the checkpoint
+     * records all outputs that were handed on before it is closed.
+     */
+    private void awaitDeliveries() {
+        List<CompletableFuture<Void>> pending;
+        synchronized (deliveries) {
+            pending = List.copyOf(deliveries);
+        }
+        if (!pending.isEmpty()) {
+            progress.accept(1.0, "Waiting for " + pending.size() + " outputs to be handed on...");
+        }
+        for (CompletableFuture<Void> d : pending) d.join();
+    }
+
+    /**
+     * Takes over an output an earlier run of this job completed, if it is still intact on disk.
+     *
+     * @return true when the output can be skipped
+     */
+    private boolean resumed(String key, Path out, long rows) {
+        SplitCheckpoint.Entry done = checkpoint.verified(out, rows);
+        if (done == null) return false;
+        manifest.resumed(key, out, rows, done.bytes(), done.sha256());
+        logger.info("Output already completed, skipped | file={}, rows={}", out.getFileName(), rows);
+        return true;
+    }
+
+    /**
+     * Stream for an output FESOD writes: the output itself at the default level (FESOD's own
+     * single-threaded deflate), otherwise re-encoded at the configured level once written.
+     * The re-encode inflates and deflates every entry again, so it buys a size, not speed.
+     */
+    private OutputStream compressed(OutputStream out) throws IOException {
+        if (config.compressionLevel == ParallelZipOutputStream.DEFAULT_LEVEL) return out;
+        return ParallelZipOutputStream.recompressing(out, config.compressionLevel);
+    }
+
+    /**
+     * Writes a workbook built by a complex split. An XSSF workbook hands its parts to a
+     * {@link ParallelZipOutputStream}, so they are deflated on all cores. SXSSF (CSV sources)
+     * wraps any stream in its own zip stream, so its output goes through {@link #compressed}.
+     */
+    private void writeWorkbook(Workbook workbook, OutputStream out) throws IOException {
+        if (workbook instanceof SXSSFWorkbook) {
+            try (OutputStream zipOut = compressed(out)) {
+                workbook.write(zipOut);
+            }
+            return;
+        }
+        try (ZipArchiveOutputStream zos = new ParallelZipOutputStream(out, config.compressionLevel)) {
+            workbook.write(zos);
+        }
+    }
+
+    private static Path partFile(Path out) {
+        return out.resolveSibling(out.getFileName() + ".part");
+    }
+
+    private void deletePendingParts() {
+        for (Path part : pendingParts) {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                logger.warn("Failed to delete partial output | file={}", part.getFileName(), e);
+            }
+        }
+        pendingParts.clear();
+    }
+
+    /**
+     * Removes the .part files an earlier run of this job left behind when it was killed before
+     * it could clean up. Parts of other jobs writing to the same folder are left alone.
+     */
+    private void deleteStaleParts() throws IOException {
+        for (Path part : checkpoint.staleParts()) {
+            if (Files.deleteIfExists(part)) logger.info("Stale partial output deleted | file={}", part.getFileName());
+        }
+    }
+
+    /**
+     * Rows of a sheet across all sources, read without decoding any cell.
+     */
+    private long countRows(String sheetName) throws Exception {
+        long[] rows = {0};
+        forEachSource(false, (s, source) -> {
+            StreamingRowListener listener = listener(sheetName, source, row -> {}, null);
+            readSheet(source, sheetName, null, new BitSet(), listener);
+            rows[0] += listener.getRowCount();
+        });
+        return rows[0];
+    }
+
+    private List<ComplexSplitConfigEntity> loadComplexConfigs() {
+        List<ComplexSplitConfigEntity> splitConfigs;
+        try (SqlSession session = DatabaseInit.getSqlSession()) {
+            ComplexSplitConfigMapper mapper = session.getMapper(ComplexSplitConfigMapper.class);
+            splitConfigs = mapper.selectAllByTaskId(config.complexTaskId);
+        }
+
+        if (splitConfigs == null || splitConfigs.isEmpty()) {
+            throw new RuntimeException("No complex split config found for taskId: " + config.complexTaskId);
+        }
+        return splitConfigs;
+    }
+
+    /**
+     * Everything that decides what a job writes: sources (with size and modification time) and
+     * settings. A checkpoint is only reused by a job with the same description.
+     */
+    private String describeJob(List<ComplexSplitConfigEntity> complexConfigs) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Path source : sources()) {
+            sb.append("source=").append(source.toAbsolutePath()).append('|').append(Files.size(source))
+              .append('|').append(Files.getLastModifiedTime(source).toMillis()).append('\n');
+        }
+        sb.append("mode=").append(config.mode).append('\n')
+          .append("sheets=").append(config.selectedSheets).append('\n')
+          .append("splitSheet=").append(config.splitSheet).append('|').append(config.splitColumnIndex).append('\n')
+          .append("columns=").append(config.outputColumns).append('\n')
+          .append("sort=").append(config.sortColumnIndex).append('|').append(config.sortDescending).append('\n')
+          .append("filter=").append(config.rowFilter).append('\n')
+          .append("dedup=").append(config.dedupColumns).append('|').append(config.dedupKeep)
+          .append('|').append(config.dedupExact).append('\n')
+          .append("overflow=").append(config.overflowPolicy).append('\n')
+          .append("prefix=").append(config.filePrefix).append('\n')
+          .append("valuesOnly=").append(config.valuesOnly).append('\n')
+          .append("compression=").append(config.compressionLevel).append('\n');
+        for (ComplexSplitConfigEntity cfg : complexConfigs) {
+            sb.append("config=").append(cfg.getSheetName()).append('|').append(cfg.getHeaderIndex())
+              .append('|').append(cfg.getColumnIndex()).append('|').append(cfg.getFilterExpr()).append('\n');
         }
-        return rows;
+        return sb.toString();
+    }
+
+    /**
+     * Copies the copy-all sheets a target workbook does not have yet.
+     */
+    private void copyAllSheets(Workbook srcWb, Workbook tgtWb, List<ComplexSplitConfigEntity> copyAllConfigs,
+                               Map<String, Map<CellAddress, CellValue>> formulaValues) throws IOException {
+        for (ComplexSplitConfigEntity copyConfig : copyAllConfigs) {
+            if (CsvRowReader.supports(config.sourceFile)) {
+                String sheetName = copyConfig.getSheetName();
+                if (sheetName.equals(CsvRowReader.sheetName(config.sourceFile)) && tgtWb.getSheet(sheetName) == null) {
+                    copyCsvSheet(tgtWb, sheetName);
+                    manifest.addCopiedSheet(sheetName);
+                }
+                continue;
+            }
+            Sheet srcSheet = srcWb.getSheet(copyConfig.getSheetName());
+            if (srcSheet != null && tgtWb.getSheet(copyConfig.getSheetName()) == null) {
+                ExcelUtil.copySheetToWorkbook(srcSheet, tgtWb, sheetFormulaValues(formulaValues, srcSheet));
+                manifest.addCopiedSheet(copyConfig.getSheetName());
+            }
+        }
+    }
+
+    /**
+     * Streams the whole CSV source into a new sheet of an SXSSF target, so a copy-all sheet of
+     * a large CSV never has to be held in memory, neither in the source nor in the target.
+     */
+    private void copyCsvSheet(Workbook tgtWb, String sheetName) throws IOException {
+        Sheet sheet = tgtWb.createSheet(sheetName);
+        try (CsvRowReader csv = new CsvRowReader(config.sourceFile)) {
+            List<String> record;
+            for (int r = 0; (record = csv.next()) != null; r++) {
+                if ((r & 0x3FF) == 0) checkCancelled();
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < record.size(); c++) {
+                    if (!record.get(c).isEmpty()) row.createCell(c).setCellValue(record.get(c));
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams one sheet of the source into the listener. CSV / TSV sources go through
+     * {@link CsvRowReader}. Large-file mode reads .xlsx sources
+     * through {@link XlsxStreamReader} with a disk-backed shared strings table; otherwise FESOD.
+     *
+     * @param headRowNumber number of header rows, or null for the reader default (1)
+     * @param decodeColumns data-row columns the job needs, or null for all (large-file mode and CSV)
+     */
+    private void readSheet(Path source, String sheetName, Integer headRowNumber, BitSet decodeColumns,
+                           StreamingRowListener listener) throws IOException {
+        readSheetFrom(source, sheetName, headRowNumber, decodeColumns, listener);
+        // Source bytes count once per job, however many of its sheets are read
+        if (sourcesRead.add(source)) telemetry.addBytesRead(Files.size(source));
+    }
+
+    private void readSheetFrom(Path source, String sheetName, Integer headRowNumber, BitSet decodeColumns,
+                               StreamingRowListener listener) throws IOException {
+        if (CsvRowReader.supports(source)) {
+            // Delimited sources have a single pseudo-sheet and are re-scanned per read
+            try (CsvRowReader csv = new CsvRowReader(source)) {
+                csv.read(headRowNumber == null ? 1 : headRowNumber, decodeColumns, listener);
+            }
+            return;
+        }
+        if (config.diskBackedStrings && XlsxStreamReader.supports(source)) {
+            // A source is only ever read by one thread at a time, so get-then-put is safe
+            XlsxStreamReader streamReader = streamReaders.get(source);
+            if (streamReader == null) {
+                streamReader = new XlsxStreamReader(source);
+                // Sources read concurrently share the cores; a single source gets all of them
+                streamReader.setParseThreads(Runtime.getRuntime().availableProcessors() / sources().size());
+                streamReaders.put(source, streamReader);
+            }
+            streamReader.read(sheetName, headRowNumber == null ? 1 : headRowNumber, decodeColumns, listener);
+            return;
+        }
+        ExcelReader fesodReader = fesodReaders.computeIfAbsent(source, f -> FesodSheet.read(f.toFile()).build());
+        var sheetBuilder = FesodSheet.readSheet(sheetName).registerReadListener(listener);
+        if (headRowNumber != null) sheetBuilder.headRowNumber(headRowNumber);
+        fesodReader.read(sheetBuilder.build());
+    }
+
+    /**
+     * Runs the task once per source, in source order or, when parallel is set and there are
+     * several sources, concurrently. With several sources each source's readers are closed as
+     * soon as its task is done, so only the sources being read hold parse state.
+     */
+    private void forEachSource(boolean parallel, SourceTask task) throws Exception {
+        List<Path> sources = sources();
+        if (sources.size() == 1) {
+            task.run(0, sources.get(0));
+            return;
+        }
+        if (!parallel) {
+            for (int i = 0; i < sources.size(); i++) {
+                try {
+                    task.run(i, sources.get(i));
+                } finally {
+                    closeReaders(sources.get(i));
+                }
+            }
+            return;
+        }
+        int threads = Math.max(1, Math.min(sources.size(), Runtime.getRuntime().availableProcessors() - 1));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() ->
+                IntStream.range(0, sources.size()).parallel().forEach(i -> {
+                    try {
+                        task.run(i, sources.get(i));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        try {
+                            closeReaders(sources.get(i));
+                        } catch (IOException e) {
+                            logger.warn("Failed to close source | file={}", sources.get(i).getFileName(), e);
+                        }
+                    }
+                })
+            ).get();
+        } catch (ExecutionException e) {
+            // Surface the source's own error (e.g. a header mismatch) rather than the pool wrapper
+            Throwable cause = e.getCause();
+            // ForkJoin re-creates exceptions thrown on workers as a same-type wrapper
+            while (cause.getCause() != null && cause.getCause().getClass() == cause.getClass()) cause = cause.getCause();
+            if (cause instanceof UncheckedIOException io) cause = io.getCause();
+            throw cause instanceof Exception ex ? ex : e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private interface SourceTask {
+        void run(int index, Path source) throws IOException;
+    }
+
+    private List<Path> sources() {
+        return config.sourceFiles.isEmpty() ? List.of(config.sourceFile) : config.sourceFiles;
+    }
+
+    /**
+     * Base of output file names: the source file name, or the folder name for a multi-source split.
+     */
+    private String sourceBaseName() {
+        Path folder = config.sourceFile.getParent();
+        if (config.sourceFiles.size() > 1 && folder != null && folder.getFileName() != null) {
+            return folder.getFileName().toString();
+        }
+        return FileNameUtil.getFileName(config.sourceFile.getFileName().toString());
+    }
+
+    /**
+     * Concatenates per-source groups key by key; keys keep first-seen order across sources.
+     */
+    private static <T> Map<Object, List<T>> mergeGroups(List<Map<Object, List<T>>> sourceGroups) {
+        if (sourceGroups.size() == 1) return sourceGroups.get(0);
+        Map<Object, List<T>> merged = new LinkedHashMap<>();
+        for (Map<Object, List<T>> groups : sourceGroups) {
+            groups.forEach((key, rows) -> merged.computeIfAbsent(key, k -> new ArrayList<>()).addAll(rows));
+        }
+        return merged;
+    }
+
+    /**
+     * Same-layout check for multi-source splits: every header row of a sheet must match the
+     * one read first from any source, otherwise the read fails naming both files.
+     */
+    private static final class SourceHeaders {
+        private record Seen(Path source, Map<Integer, String> header) {}
+
+        private final Map<String, Seen> seen = new ConcurrentHashMap<>();
+
+        Consumer<Map<Integer, String>> check(String sheetName, Path source) {
+            AtomicInteger headRow = new AtomicInteger();
+            return headMap -> {
+                Map<Integer, String> header = new TreeMap<>();
+                headMap.forEach((idx, name) -> {
+                    if (name != null && !name.isBlank()) header.put(idx, name.trim());
+                });
+                int row = headRow.getAndIncrement();
+                Seen first = seen.putIfAbsent(sheetName + "#" + row, new Seen(source, header));
+                if (first == null || first.header().equals(header)) return;
+
+                Set<Integer> columns = new TreeSet<>(first.header().keySet());
+                columns.addAll(header.keySet());
+                int col = columns.stream()
+                        .filter(c -> !Objects.equals(first.header().get(c), header.get(c)))
+                        .findFirst().orElse(0);
+                throw new IllegalStateException("Header mismatch in " + source.getFileName()
+                        + " (sheet " + sheetName + ", header row " + (row + 1) + ", column " + (col + 1) + "): '"
+                        + header.getOrDefault(col, "") + "' vs '" + first.header().getOrDefault(col, "")
+                        + "' in " + first.source().getFileName());
+            };
+        }
+    }
+
+    /**
+     * Opens the (first) source with POI for the copy phases of a complex split; with several
+     * same-layout sources, header rows and copy-all sheets come from the first. A CSV source is
+     * loaded only up to the last header row a config copies, as a single-sheet workbook; its
+     * copy-all sheet is streamed into each target by copyCsvSheet.
+     *
+     * @param lastRows sheet name → last 0-based row index the copy phases read
+     */
+    private Workbook openSourceWorkbook(Map<String, Integer> lastRows) throws IOException {
+        if (!CsvRowReader.supports(config.sourceFile)) {
+            try (FileInputStream fis = new FileInputStream(config.sourceFile.toFile())) {
+                return WorkbookFactory.create(fis);
+            }
+        }
+        String sheetName = CsvRowReader.sheetName(config.sourceFile);
+        int lastRow = lastRows.getOrDefault(sheetName, -1);
+        XSSFWorkbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet(sheetName);
+        try (CsvRowReader csv = new CsvRowReader(config.sourceFile)) {
+            List<String> record;
+            for (int r = 0; r <= lastRow && (record = csv.next()) != null; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < record.size(); c++) {
+                    if (!record.get(c).isEmpty()) row.createCell(c).setCellValue(record.get(c));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            wb.close();
+            throw e;
+        }
+        return wb;
+    }
+
+    private void closeReaders() throws IOException {
+        for (Path source : new ArrayList<>(fesodReaders.keySet())) closeReaders(source);
+        for (Path source : new ArrayList<>(streamReaders.keySet())) closeReaders(source);
+    }
+
+    private void closeReaders(Path source) throws IOException {
+        ExcelReader fesodReader = fesodReaders.remove(source);
+        XlsxStreamReader streamReader = streamReaders.remove(source);
+        try {
+            if (fesodReader != null) fesodReader.close();
+        } finally {
+            if (streamReader != null) streamReader.close();
+        }
+    }
+
+    /**
+     * Columns the column-split modes must decode: the projection, the split key, the dedup key
+     * and any filter column.
+     */
+    private BitSet decodeColumns(ColumnProjection projection, int splitColumnIndex) {
+        BitSet columns = new BitSet();
+        for (int col : projection.columns()) columns.set(col);
+        if (splitColumnIndex >= 0) columns.set(splitColumnIndex);
+        config.dedupColumns.forEach(columns::set);
+        RowFilter filter = rowFilter();
+        if (filter != null) columns.or(filter.referencedColumns(config.analysisResult.get(config.splitSheet)));
+        return columns;
+    }
+
+    /**
+     * Position of the sort column in projected rows, or -1 when the job keeps source order.
+     */
+    private int sortPosition(ColumnProjection projection) {
+        if (config.sortColumnIndex < 0) return -1;
+        int position = projection.indexOf(config.sortColumnIndex);
+        if (position < 0) throw new IllegalArgumentException("Sort column must be one of the output columns");
+        return position;
+    }
+
+    /**
+     * Counts a row from a sort merge, unless the writer truncated it; checks for cancellation
+     * every thousand rows or so.
+     */
+    private void tickWritten(boolean written) {
+        if (written) telemetry.addRowsWritten(1);
+        if ((++mergedRows & 1023) == 0) checkCancelled();
+    }
+
+    private static Map<CellAddress, CellValue> sheetFormulaValues(
+            Map<String, Map<CellAddress, CellValue>> formulaValues, Sheet sheet) {
+        return formulaValues == null ? null : formulaValues.getOrDefault(sheet.getSheetName(), Map.of());
+    }
+
+    private RowFilter rowFilter() {
+        return config.rowFilter == null || config.rowFilter.isBlank() ? null : RowFilter.parse(config.rowFilter);
+    }
+
+    private static RowFilter complexFilter(ComplexSplitConfigEntity cfg) {
+        return cfg.getFilterExpr() == null || cfg.getFilterExpr().isBlank() ? null : RowFilter.parse(cfg.getFilterExpr());
+    }
+
+    private Map<String, Long> filteredRows(String sheetName, long filteredCount) {
+        if (config.rowFilter == null || config.rowFilter.isBlank()) return Map.of();
+        return Map.of(sheetName + " [" + config.rowFilter.trim() + "]", filteredCount);
     }
 
     private String outputFileName(String suffix) {
@@ -5,26 +5,38 @@ import fan.summer.api.SwissKitJPlugin;
 import fan.summer.api.ToolCategory;
 import fan.summer.api.ToolType;
 import fan.summer.api.component.StepWizard;
+import fan.summer.buildintool.email.EmailSendService;
+import fan.summer.buildintool.email.RichTextEditor;
 import fan.summer.database.DatabaseInit;
+import fan.summer.database.entity.email.EmailMassSentConfigEntity;
 import fan.summer.database.entity.excel.ComplexSplitConfigEntity;
+import fan.summer.database.mapper.email.EmailMassSentConfigMapper;
 import fan.summer.database.mapper.excel.ComplexSplitConfigMapper;
+import fan.summer.database.mapper.setting.email.EmailTagMapper;
 import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.concurrent.Task;
 import javafx.geometry.*;
 import javafx.scene.Node;
 import javafx.scene.control.*;
+import javafx.scene.control.cell.CheckBoxListCell;
 import javafx.scene.input.TransferMode;
 import javafx.scene.layout.*;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
+import javafx.util.StringConverter;
 import org.apache.ibatis.session.SqlSession;
 
 import java.io.File;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
+import static fan.summer.ui.ToolStyles.*;
+
 public class ExcelSplitterPlugin implements SwissKitJPlugin {
 
     private Node view;
@@ -69,7 +81,10 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
         wizard.setOnStepChanged((from, to, total) -> {
             if (from == 0 && to == 1) step2.refresh(config);
             if (from == 1 && to == 2) step3.refresh(config);
-            if (from == 2 && to == 3) step4.startSplit();
+            if (from == 2 && to == 3) {
+                step3.applyMailOptions();
+                step4.startSplit();
+            }
         });
 
         VBox root = new VBox(wizard);
@@ -90,6 +105,10 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
         private final Label statusLabel;
         private final VBox dropZone;
         private final VBox loadingOverlay;
+        private final HBox globRow;
+        private final TextField globField;
+        // Folder of a multi-source split, null when a single file is selected
+        private Path folder;
 
         // Signals that analysis is already running so canProceed doesn't restart it
         private final AtomicBoolean analysisRunning = new AtomicBoolean(false);
@@ -102,7 +121,7 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             setStyle("-fx-background-color: transparent;");
             setSpacing(16);
 
-            Label title = sectionTitle("选择 Excel 文件");
+            Label title = sectionTitle("选择 Excel / CSV 文件");
 
             fileLabel = new Label("未选择文件");
             fileLabel.setStyle(
@@ -114,7 +133,13 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             Button pickBtn = glassBtn("📂  选择文件", true);
             pickBtn.setOnAction(e -> pickFile());
 
-            dropZone = new VBox(14, pickBtn, fileLabel);
+            Button folderBtn = glassBtn("🗂  选择文件夹（多来源）", false);
+            folderBtn.setOnAction(e -> pickFolder());
+
+            HBox pickRow = new HBox(10, pickBtn, folderBtn);
+            pickRow.setAlignment(Pos.CENTER);
+
+            dropZone = new VBox(14, pickRow, fileLabel);
             dropZone.setAlignment(Pos.CENTER);
             dropZone.setPrefHeight(150);
             dropZone.setPadding(new Insets(20));
@@ -130,12 +155,28 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             dropZone.setOnDragExited(e -> dropZone.setStyle(dropNormalStyle()));
             dropZone.setOnDragDropped(e -> {
                 List<File> files = e.getDragboard().getFiles();
-                if (!files.isEmpty()) loadFile(files.get(0).toPath());
+                if (!files.isEmpty()) {
+                    if (files.get(0).isDirectory()) loadFolder(files.get(0).toPath());
+                    else loadFile(files.get(0).toPath());
+                }
                 dropZone.setStyle(dropNormalStyle());
                 e.setDropCompleted(true);
                 e.consume();
             });
 
+            // Multi-source: which files of the folder to use; all must share the same layout
+            globField = new TextField("*.xlsx");
+            globField.setPromptText("如 *.xlsx、分行_*.xls?、*.csv");
+            globField.setStyle(fieldStyle());
+            HBox.setHgrow(globField, Priority.ALWAYS);
+            globField.textProperty().addListener((o, ov, nv) -> {
+                if (folder != null) loadFolder(folder);
+            });
+            globRow = new HBox(10, subLabel("文件匹配"), globField);
+            globRow.setAlignment(Pos.CENTER_LEFT);
+            globRow.managedProperty().bind(globRow.visibleProperty());
+            globRow.setVisible(false);
+
             statusLabel = new Label();
             statusLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
             statusLabel.setWrapText(true);
@@ -161,7 +202,7 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             loadingOverlay.prefWidthProperty().bind(container.widthProperty());
             loadingOverlay.prefHeightProperty().bind(container.heightProperty());
 
-            getChildren().addAll(title, container, statusLabel);
+            getChildren().addAll(title, container, globRow, statusLabel);
         }
 
         void showLoading(boolean show) {
@@ -198,7 +239,8 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
                 analysisRunning.set(false);
                 showLoading(false);
                 int sheetCount = config.analysisResult.size();
-                statusLabel.setText("✓ 共 " + sheetCount + " 个Sheet：" +
+                String sourcesText = config.sourceFiles.size() > 1 ? config.sourceFiles.size() + " 个来源文件，" : "";
+                statusLabel.setText("✓ " + sourcesText + "共 " + sheetCount + " 个Sheet：" +
                     config.analysisResult.keySet().stream().limit(5).collect(Collectors.joining(", ")) +
                     (sheetCount > 5 ? " …" : ""));
                 statusLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
@@ -219,15 +261,59 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
 
         private void pickFile() {
             FileChooser fc = new FileChooser();
-            fc.setTitle("选择 Excel 文件");
-            fc.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Excel 文件", "*.xlsx", "*.xls", "*.xlsm")
+            fc.setTitle("选择 Excel / CSV 文件");
+            fc.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Excel / CSV 文件", "*.xlsx", "*.xls", "*.xlsm", "*.csv", "*.tsv"),
+                new FileChooser.ExtensionFilter("Excel 文件", "*.xlsx", "*.xls", "*.xlsm"),
+                new FileChooser.ExtensionFilter("CSV / TSV 文件", "*.csv", "*.tsv")
             );
             File f = fc.showOpenDialog(getScene() != null ? getScene().getWindow() : null);
             if (f != null) loadFile(f.toPath());
         }
 
+        private void pickFolder() {
+            DirectoryChooser dc = new DirectoryChooser();
+            dc.setTitle("选择包含同结构文件的文件夹");
+            File dir = dc.showDialog(getScene() != null ? getScene().getWindow() : null);
+            if (dir != null) loadFolder(dir.toPath());
+        }
+
+        private void loadFolder(Path dir) {
+            folder = dir;
+            globRow.setVisible(true);
+            List<Path> sources;
+            String error = null;
+            try {
+                sources = ExcelSplitter.listSources(dir, globField.getText());
+            } catch (Exception ex) {
+                // Unreadable folder or malformed glob pattern
+                sources = List.of();
+                error = ex.getMessage();
+            }
+            config.sourceFiles = new ArrayList<>(sources);
+            config.sourceFile = sources.isEmpty() ? null : sources.get(0);
+            config.analysisResult = null;
+            analysisTriggered = false;
+            analysisRunning.set(false);
+            fileLabel.setText(dir.getFileName() + "  ·  " + sources.size() + " 个文件");
+            fileLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 13px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            if (sources.isEmpty()) {
+                statusLabel.setText("❌ " + (error != null ? "无法读取文件夹：" + error : "文件夹中没有匹配的 Excel / CSV 文件"));
+                statusLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+            } else {
+                statusLabel.setText("已选择 " + sources.size() + " 个同结构文件（以 " + sources.get(0).getFileName()
+                    + " 为结构样本，表头不一致时拆分会中止），点击「下一步」开始分析");
+                statusLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            }
+        }
+
         private void loadFile(Path path) {
+            folder = null;
+            globRow.setVisible(false);
+            config.sourceFiles = new ArrayList<>();
             config.sourceFile = path;
             config.analysisResult = null;
             analysisTriggered = false;
@@ -270,11 +356,18 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
         // BY_COLUMN controls
         private ComboBox<String> sheetCombo;
         private ComboBox<String> columnCombo;
+        private ListView<Integer> outputColumnList;
+        private final Map<Integer, BooleanProperty> outputColumnChecks = new HashMap<>();
         // COMPLEX controls
         private ComboBox<String> complexSheetCombo;
         private TextField headerIndexField;
         private TextField columnIndexField;
+        private TextField complexFilterField;
         private Label complexCountLabel;
+        // Sort controls (column modes and SORT)
+        private ComboBox<String> sortCombo;
+        // Row filter of the column modes; false while the expression does not parse
+        private boolean filterValid = true;
 
         Step2View(SplitConfig config) {
             this.config = config;
@@ -289,10 +382,14 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
                 "⊞", "按Sheet拆分",   "每个Sheet输出一个独立文件");
             HBox byColumnCard  = modeCard(modeGroup, SplitConfig.SplitMode.BY_COLUMN,
                 "≡", "按列值拆分",    "按某列的不同取值分组，每组输出一个文件");
+            HBox toSheetsCard  = modeCard(modeGroup, SplitConfig.SplitMode.BY_COLUMN_TO_SHEETS,
+                "▤", "按列值拆分到Sheet", "按某列的不同取值分组，每组写入同一文件的独立Sheet");
             HBox complexCard   = modeCard(modeGroup, SplitConfig.SplitMode.COMPLEX,
                 "⚙", "复杂拆分",      "多配置规则，支持列值拆分+整Sheet复制");
+            HBox sortCard      = modeCard(modeGroup, SplitConfig.SplitMode.SORT,
+                "↕", "排序整表",      "按某列排序，输出整张Sheet的排序副本（超大表外部排序）");
 
-            VBox modeCards = new VBox(8, bySheetCard, byColumnCard, complexCard);
+            VBox modeCards = new VBox(8, bySheetCard, byColumnCard, toSheetsCard, complexCard, sortCard);
 
             modeGroup.getToggles().get(0).setSelected(true);
             config.mode = SplitConfig.SplitMode.BY_SHEET;
@@ -318,7 +415,12 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
         java.util.function.BooleanSupplier canProceedSupplier() {
             return () -> switch (config.mode) {
                 case BY_SHEET  -> config.selectedSheets != null && !config.selectedSheets.isEmpty();
-                case BY_COLUMN -> config.splitSheet != null && config.splitColumn != null;
+                case BY_COLUMN, BY_COLUMN_TO_SHEETS -> config.splitSheet != null && config.splitColumn != null
+                        && outputColumnChecks.values().stream().anyMatch(BooleanProperty::get)
+                        && filterValid && sortColumnValid();
+                case SORT -> config.splitSheet != null && config.sortColumnIndex >= 0
+                        && outputColumnChecks.values().stream().anyMatch(BooleanProperty::get)
+                        && filterValid && sortColumnValid();
                 case COMPLEX   -> {
                     if (config.complexTaskId == null) yield false;
                     try (SqlSession session = DatabaseInit.getSqlSession()) {
@@ -339,8 +441,24 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
 
             switch (config.mode) {
                 case BY_SHEET -> buildBySheetDetail(sheets);
-                case BY_COLUMN -> buildByColumnDetail(sheets);
+                case BY_COLUMN -> {
+                    buildByColumnDetail(sheets, true);
+                    buildSortDetail(false);
+                    buildDedupDetail();
+                }
+                case BY_COLUMN_TO_SHEETS -> {
+                    buildByColumnDetail(sheets, true);
+                    buildSortDetail(false);
+                    buildDedupDetail();
+                    buildOverflowDetail();
+                }
                 case COMPLEX -> buildComplexDetail(sheets);
+                case SORT -> {
+                    buildByColumnDetail(sheets, false);
+                    buildSortDetail(true);
+                    buildDedupDetail();
+                    buildOverflowDetail();
+                }
             }
         }
 
@@ -388,7 +506,10 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             detailPane.getChildren().addAll(lbl, scroll, btns);
         }
 
-        private void buildByColumnDetail(List<String> sheets) {
+        /**
+         * @param withSplitColumn false for SORT, which uses the sheet, output columns and filter only
+         */
+        private void buildByColumnDetail(List<String> sheets, boolean withSplitColumn) {
             Label sheetLbl = subLabel("选择Sheet");
             sheetCombo = new ComboBox<>();
             sheetCombo.getItems().addAll(sheets);
@@ -403,17 +524,38 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             columnCombo.setStyle(comboStyle());
             columnCombo.setDisable(true);
 
+            Label outputLbl = subLabel("输出列（勾选并排序，默认全部）");
+            outputColumnList = new ListView<>();
+            outputColumnList.setPrefHeight(180);
+            outputColumnList.setStyle(
+                "-fx-background-color: rgba(255,255,255,0.04);" +
+                "-fx-border-color: rgba(255,255,255,0.10); -fx-border-radius: 8;" +
+                "-fx-background-radius: 8;"
+            );
+            outputColumnChecks.clear();
+            config.outputColumns = new ArrayList<>();
+
+            Button moveUp   = glassBtn("上移", false);
+            Button moveDown = glassBtn("下移", false);
+            moveUp.setOnAction(e -> moveOutputColumn(-1));
+            moveDown.setOnAction(e -> moveOutputColumn(1));
+            HBox orderBtns = new HBox(8, moveUp, moveDown);
+
             sheetCombo.valueProperty().addListener((o, ov, nv) -> {
                 config.splitSheet = nv;
                 config.splitColumn = null;
                 config.splitColumnIndex = -1;
                 columnCombo.getItems().clear();
                 columnCombo.setDisable(true);
+                outputColumnList.getItems().clear();
+                outputColumnChecks.clear();
+                config.outputColumns = new ArrayList<>();
                 if (nv != null) {
                     Map<Integer, String> headers = config.analysisResult.get(nv);
                     if (headers != null) {
                         // Preserve column order
                         new TreeMap<>(headers).forEach((idx, name) -> columnCombo.getItems().add(name));
+                        fillOutputColumns(headers);
                     }
                     columnCombo.setDisable(false);
                     columnCombo.setPromptText("请选择列...");
@@ -435,7 +577,213 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
                 }
             });
 
-            detailPane.getChildren().addAll(sheetLbl, sheetCombo, colLbl, columnCombo);
+            Label filterLbl = subLabel("行过滤条件（可选）");
+            Label filterHint = new Label();
+            filterHint.setWrapText(true);
+            TextField filterField = new TextField(config.rowFilter != null ? config.rowFilter : "");
+            filterField.setPromptText("例：金额 > 0 and 状态 in (A, B) and 日期 in this_month");
+            filterField.setStyle(fieldStyle());
+            Runnable validateFilter = () -> {
+                String expr = filterField.getText().trim();
+                config.rowFilter = expr.isEmpty() ? null : expr;
+                String error = validateFilter(config.rowFilter,
+                    config.splitSheet != null ? config.analysisResult.get(config.splitSheet) : null);
+                filterValid = error == null;
+                filterHint.setText(error != null ? "❌ " + error : "");
+                filterHint.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            };
+            filterField.textProperty().addListener((o, ov, nv) -> validateFilter.run());
+            sheetCombo.valueProperty().addListener((o, ov, nv) -> validateFilter.run());
+            validateFilter.run();
+
+            detailPane.getChildren().addAll(sheetLbl, sheetCombo);
+            if (withSplitColumn) detailPane.getChildren().addAll(colLbl, columnCombo);
+            detailPane.getChildren().addAll(outputLbl, outputColumnList, orderBtns, filterLbl, filterField, filterHint);
+        }
+
+        /**
+         * Sort column and order. Optional in the column modes, where it orders the rows of each
+         * group; required for SORT. Offers the columns of the sheet chosen above.
+         */
+        private void buildSortDetail(boolean required) {
+            String keepOrder = "不排序（保持原顺序）";
+            Label sortLbl = subLabel(required ? "排序列" : "组内排序列（可选）");
+            sortCombo = new ComboBox<>();
+            sortCombo.setMaxWidth(Double.MAX_VALUE);
+            sortCombo.setPromptText("请先选择Sheet...");
+            sortCombo.setStyle(comboStyle());
+            config.sortColumnIndex = -1;
+            config.sortDescending = false;
+
+            CheckBox descBox = new CheckBox("降序（空值始终排在最后）");
+            descBox.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+            descBox.selectedProperty().addListener((o, ov, nv) -> config.sortDescending = nv);
+
+            Label sortHint = new Label("数字按数值、日期按时间、其余按文本排序；排序列需包含在输出列中。"
+                + "超出内存预算的行分批排序后落盘，再多路归并写出");
+            sortHint.setWrapText(true);
+            sortHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            Runnable fillColumns = () -> {
+                sortCombo.getItems().clear();
+                if (!required) sortCombo.getItems().add(keepOrder);
+                Map<Integer, String> headers = config.splitSheet != null ? config.analysisResult.get(config.splitSheet) : null;
+                if (headers != null) {
+                    new TreeMap<>(headers).values().forEach(sortCombo.getItems()::add);
+                    sortCombo.setPromptText("请选择列...");
+                }
+                if (!required) sortCombo.getSelectionModel().select(0);
+            };
+            sheetCombo.valueProperty().addListener((o, ov, nv) -> fillColumns.run());
+            fillColumns.run();
+
+            sortCombo.valueProperty().addListener((o, ov, nv) -> {
+                config.sortColumnIndex = -1;
+                Map<Integer, String> headers = config.splitSheet != null ? config.analysisResult.get(config.splitSheet) : null;
+                if (nv == null || nv.equals(keepOrder) || headers == null) return;
+                for (Map.Entry<Integer, String> entry : headers.entrySet()) {
+                    if (nv.equals(entry.getValue())) {
+                        config.sortColumnIndex = entry.getKey();
+                        break;
+                    }
+                }
+            });
+
+            detailPane.getChildren().addAll(sortLbl, sortCombo, descBox, sortHint);
+        }
+
+        /**
+         * Optional dedup pre-stage of the column modes: key columns, which occurrence to keep and
+         * exact key comparison. Offers the columns of the sheet chosen above; single source only.
+         */
+        private void buildDedupDetail() {
+            Label dedupLbl = subLabel("按关键列去重（可选，均不勾选时不去重）");
+            config.dedupColumns = new ArrayList<>();
+            config.dedupKeep = RowDeduplicator.Keep.FIRST;
+            config.dedupExact = false;
+            if (config.sourceFiles.size() > 1) {
+                Label note = new Label("多文件合并拆分时不支持去重");
+                note.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+                detailPane.getChildren().addAll(dedupLbl, note);
+                return;
+            }
+
+            VBox keyBoxes = new VBox(6);
+            keyBoxes.setPadding(new Insets(8));
+            ScrollPane scroll = new ScrollPane(keyBoxes);
+            scroll.setFitToWidth(true);
+            scroll.setPrefHeight(120);
+            scroll.setStyle("-fx-background-color: transparent; -fx-border-color: transparent;");
+
+            Runnable fillColumns = () -> {
+                keyBoxes.getChildren().clear();
+                config.dedupColumns = new ArrayList<>();
+                Map<Integer, String> headers = config.splitSheet != null ? config.analysisResult.get(config.splitSheet) : null;
+                if (headers == null) return;
+                new TreeMap<>(headers).forEach((idx, name) -> {
+                    CheckBox cb = new CheckBox(name);
+                    cb.setStyle("-fx-text-fill: rgba(255,255,255,0.80); -fx-font-size: 12px;");
+                    cb.selectedProperty().addListener((o, ov, nv) -> {
+                        if (nv) {
+                            if (!config.dedupColumns.contains(idx)) config.dedupColumns.add(idx);
+                        } else {
+                            config.dedupColumns.remove(idx);
+                        }
+                    });
+                    keyBoxes.getChildren().add(cb);
+                });
+            };
+            sheetCombo.valueProperty().addListener((o, ov, nv) -> fillColumns.run());
+            fillColumns.run();
+
+            ComboBox<String> keepCombo = new ComboBox<>();
+            keepCombo.getItems().addAll("保留首次出现的行", "保留最后出现的行");
+            keepCombo.getSelectionModel().select(0);
+            keepCombo.setStyle(comboStyle());
+            keepCombo.valueProperty().addListener((o, ov, nv) ->
+                config.dedupKeep = keepCombo.getSelectionModel().getSelectedIndex() == 1
+                    ? RowDeduplicator.Keep.LAST : RowDeduplicator.Keep.FIRST);
+
+            CheckBox exactBox = new CheckBox("精确比较（默认按 64 位指纹比较，极低概率误判）");
+            exactBox.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+            exactBox.selectedProperty().addListener((o, ov, nv) -> config.dedupExact = nv);
+
+            Label dedupHint = new Label("去重在过滤之前进行，关键列取值（去除首尾空格）完全相同即视为重复，关键列全空的行不去重。"
+                + "保留最后出现或精确比较时会先扫描一遍关键列；被去掉的行写入 _duplicates.xlsx");
+            dedupHint.setWrapText(true);
+            dedupHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            detailPane.getChildren().addAll(dedupLbl, scroll, keepCombo, exactBox, dedupHint);
+        }
+
+        // The sort key is read from the projected rows, so it must be one of the output columns
+        private boolean sortColumnValid() {
+            return config.sortColumnIndex < 0 || config.outputColumns.isEmpty()
+                || config.outputColumns.contains(config.sortColumnIndex);
+        }
+
+        /**
+         * Returns null when the expression is empty or valid, otherwise the parse error.
+         * Column names are only checked when the header row is known.
+         */
+        private static String validateFilter(String expr, Map<Integer, String> headers) {
+            if (expr == null || expr.isBlank()) return null;
+            try {
+                RowFilter filter = RowFilter.parse(expr);
+                if (headers != null) filter.bind(headers);
+                return null;
+            } catch (IllegalArgumentException ex) {
+                return ex.getMessage();
+            }
+        }
+
+        private void fillOutputColumns(Map<Integer, String> headers) {
+            for (Integer idx : new TreeMap<>(headers).keySet()) {
+                BooleanProperty checked = new SimpleBooleanProperty(true);
+                checked.addListener((o, ov, nv) -> syncOutputColumns());
+                outputColumnChecks.put(idx, checked);
+                outputColumnList.getItems().add(idx);
+            }
+            outputColumnList.setCellFactory(CheckBoxListCell.forListView(outputColumnChecks::get,
+                new StringConverter<>() {
+                    @Override public String toString(Integer idx) { return headers.get(idx); }
+                    @Override public Integer fromString(String s) { return null; }
+                }));
+        }
+
+        private void moveOutputColumn(int delta) {
+            int from = outputColumnList.getSelectionModel().getSelectedIndex();
+            int to = from + delta;
+            if (from < 0 || to < 0 || to >= outputColumnList.getItems().size()) return;
+            Integer idx = outputColumnList.getItems().remove(from);
+            outputColumnList.getItems().add(to, idx);
+            outputColumnList.getSelectionModel().select(to);
+            syncOutputColumns();
+        }
+
+        // Empty list means "all columns in sheet order", so the default path stays unprojected
+        private void syncOutputColumns() {
+            List<Integer> ordered = outputColumnList.getItems().stream()
+                .filter(idx -> outputColumnChecks.get(idx).get())
+                .collect(Collectors.toList());
+            boolean unchanged = ordered.size() == outputColumnChecks.size()
+                && ordered.equals(new ArrayList<>(new TreeMap<>(outputColumnChecks).keySet()));
+            config.outputColumns = unchanged ? new ArrayList<>() : ordered;
+        }
+
+        private void buildOverflowDetail() {
+            Label overflowLbl = subLabel("超出单Sheet行数上限时");
+            ComboBox<String> overflowCombo = new ComboBox<>();
+            overflowCombo.getItems().addAll("续写到新Sheet", "截断多余行", "终止拆分");
+            overflowCombo.setMaxWidth(Double.MAX_VALUE);
+            overflowCombo.setStyle(comboStyle());
+            overflowCombo.getSelectionModel().select(config.overflowPolicy.ordinal());
+            overflowCombo.getSelectionModel().selectedIndexProperty().addListener((o, ov, nv) -> {
+                if (nv.intValue() >= 0) {
+                    config.overflowPolicy = SplitConfig.OverflowPolicy.values()[nv.intValue()];
+                }
+            });
+            detailPane.getChildren().addAll(overflowLbl, overflowCombo);
         }
 
         private void buildComplexDetail(List<String> sheets) {
@@ -461,6 +809,14 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             columnIndexField.setPromptText("例：3  或 -1");
             columnIndexField.setStyle(fieldStyle());
 
+            Label filterLbl    = subLabel("行过滤条件（可选）");
+            complexFilterField = new TextField();
+            complexFilterField.setPromptText("例：金额 > 0 and 状态 in (A, B)");
+            complexFilterField.setStyle(fieldStyle());
+            Label filterHint = new Label();
+            filterHint.setWrapText(true);
+            filterHint.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+
             Button addBtn = glassBtn("添加配置", true);
 
             complexCountLabel = new Label();
@@ -493,12 +849,21 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
                     return;
                 }
 
+                // Header rows other than the first are unknown until the split reads them
+                String filterText = complexFilterField.getText().trim();
+                String error = headerIdx == -1 && colIdx == -1 && !filterText.isEmpty()
+                    ? "整Sheet复制（-1）不支持行过滤"
+                    : validateFilter(filterText, headerIdx == 1 ? config.analysisResult.get(sheet) : null);
+                filterHint.setText(error != null ? "❌ " + error : "");
+                if (error != null) return;
+
                 ComplexSplitConfigEntity entity = new ComplexSplitConfigEntity();
                 entity.setTaskId(config.complexTaskId);
                 entity.setFieldName(config.sourceFile != null ? config.sourceFile.getFileName().toString() : "");
                 entity.setSheetName(sheet);
                 entity.setHeaderIndex(headerIdx);
                 entity.setColumnIndex(colIdx);
+                entity.setFilterExpr(filterText.isEmpty() ? null : filterText);
 
                 try (SqlSession session = DatabaseInit.getSqlSession()) {
                     ComplexSplitConfigMapper mapper = session.getMapper(ComplexSplitConfigMapper.class);
@@ -510,6 +875,7 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
 
                 headerIndexField.clear();
                 columnIndexField.clear();
+                complexFilterField.clear();
                 refreshComplexCount();
             });
 
@@ -522,6 +888,7 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
                 sheetLbl, complexSheetCombo,
                 headerLbl, headerIndexField,
                 colIdxLbl, columnIndexField,
+                filterLbl, complexFilterField, filterHint,
                 addBtn, footer
             );
         }
@@ -591,6 +958,17 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
         private final SplitConfig config;
         private final VBox        summaryContent;
         private final Label       dirLabel;
+        private final CheckBox    valuesOnlyBox;
+        private final CheckBox    largeFileBox;
+        private final CheckBox    metadataBox;
+        private final VBox        mailPane;
+        private final CheckBox    mailBox;
+        private final ComboBox<EmailMassSentConfigEntity> mailTaskCombo;
+        private final TextField   mailSubjectField;
+        private final RichTextEditor mailBodyEditor;
+
+        // Compression choices in combo order; -1 keeps the default level
+        private static final int[] COMPRESSION_LEVELS = {-1, 0, 1, 3, 6, 9};
 
         Step3View(SplitConfig config) {
             this.config = config;
@@ -639,14 +1017,81 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
                 }
             });
 
-            getChildren().addAll(configTitle, summaryCard, sep, outputTitle, dirBtn, dirLabel);
+            valuesOnlyBox = new CheckBox("仅输出数值：公式预先计算后以数值写入，避免引用缺失的Sheet");
+            valuesOnlyBox.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+            valuesOnlyBox.setWrapText(true);
+            valuesOnlyBox.selectedProperty().addListener((o, ov, nv) -> config.valuesOnly = nv);
+            valuesOnlyBox.managedProperty().bind(valuesOnlyBox.visibleProperty());
+
+            largeFileBox = new CheckBox("大文件模式：共享字符串表落盘，按需解码（仅 .xlsx）");
+            largeFileBox.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+            largeFileBox.setWrapText(true);
+            largeFileBox.selectedProperty().addListener((o, ov, nv) -> config.diskBackedStrings = nv);
+            largeFileBox.managedProperty().bind(largeFileBox.visibleProperty());
+
+            metadataBox = new CheckBox("同时生成 _metadata.xlsx 对账表（_manifest.json 始终生成）");
+            metadataBox.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+            metadataBox.setWrapText(true);
+            metadataBox.selectedProperty().addListener((o, ov, nv) -> config.metadataWorkbook = nv);
+
+            Label compressionLbl = subLabel("输出压缩级别（复杂拆分多核并行压缩；其他模式写完后再重新压缩一遍，默认级别最快）");
+            ComboBox<String> compressionCombo = new ComboBox<>();
+            compressionCombo.getItems().addAll("默认", "不压缩（最快，文件最大）", "1 - 快速", "3", "6 - 均衡", "9 - 文件最小（最慢）");
+            compressionCombo.setMaxWidth(Double.MAX_VALUE);
+            compressionCombo.setStyle(comboStyle());
+            int selected = 0;
+            for (int i = 0; i < COMPRESSION_LEVELS.length; i++) {
+                if (COMPRESSION_LEVELS[i] == config.compressionLevel) selected = i;
+            }
+            compressionCombo.getSelectionModel().select(selected);
+            compressionCombo.getSelectionModel().selectedIndexProperty().addListener((o, ov, nv) -> {
+                if (nv.intValue() >= 0) config.compressionLevel = COMPRESSION_LEVELS[nv.intValue()];
+            });
+
+            // BY_COLUMN only: each output is mailed through a mass-send task as soon as it is written
+            mailBox = new CheckBox("边拆分边群发：每个文件写完即以拆分值为标签发送邮件");
+            mailBox.setStyle("-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 12px;");
+            mailBox.setWrapText(true);
+            mailTaskCombo = new ComboBox<>();
+            mailTaskCombo.setPromptText("选择群发任务（在邮件工具中配置收件人/抄送标签与是否带附件）");
+            mailTaskCombo.setMaxWidth(Double.MAX_VALUE);
+            mailTaskCombo.setStyle(comboStyle());
+            mailSubjectField = new TextField();
+            mailSubjectField.setPromptText("邮件主题");
+            mailSubjectField.setStyle(fieldStyle());
+            mailBodyEditor = new RichTextEditor();
+            mailBodyEditor.setPrefHeight(220);
+            Label mailHint = new Label("拆分值须与邮件标签同名，收件人为同时带有该标签与任务收件人/抄送标签的联系人；"
+                + "邮件在拆分进行中依次发出，取消拆分时已完成文件的邮件仍会发送，断点续跑跳过的文件不再重复发送。");
+            mailHint.setWrapText(true);
+            mailHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+            VBox mailFields = new VBox(8, mailTaskCombo, mailSubjectField, mailBodyEditor, mailHint);
+            mailFields.visibleProperty().bind(mailBox.selectedProperty());
+            mailFields.managedProperty().bind(mailFields.visibleProperty());
+            mailPane = new VBox(8, subLabel("拆分后邮件分发"), mailBox, mailFields);
+            mailPane.managedProperty().bind(mailPane.visibleProperty());
+
+            getChildren().addAll(configTitle, summaryCard, sep, outputTitle, dirBtn, dirLabel,
+                                 valuesOnlyBox, largeFileBox, metadataBox, compressionLbl, compressionCombo, mailPane);
         }
 
         void refresh(SplitConfig cfg) {
             summaryContent.getChildren().clear();
+            // Streaming modes already write cached formula results; only POI-copied sheets keep formulas
+            valuesOnlyBox.setVisible(cfg.mode == SplitConfig.SplitMode.COMPLEX);
+            if (!valuesOnlyBox.isVisible()) valuesOnlyBox.setSelected(false);
+            largeFileBox.setVisible(cfg.sourceFile != null && XlsxStreamReader.supports(cfg.sourceFile));
+            if (!largeFileBox.isVisible()) largeFileBox.setSelected(false);
+            mailPane.setVisible(cfg.mode == SplitConfig.SplitMode.BY_COLUMN);
+            if (mailPane.isVisible()) loadMailTasks();
+            else mailBox.setSelected(false);
             if (cfg.analysisResult == null) return;
 
-            addRow("来源文件", cfg.sourceFile != null ? cfg.sourceFile.getFileName().toString() : "—");
+            if (cfg.sourceFiles.size() > 1) {
+                addRow("来源文件", cfg.sourceFiles.size() + " 个（" + cfg.sourceFile.getParent() + "）");
+            } else {
+                addRow("来源文件", cfg.sourceFile != null ? cfg.sourceFile.getFileName().toString() : "—");
+            }
             addRow("文件总 Sheet 数", String.valueOf(cfg.analysisResult.size()));
 
             switch (cfg.mode) {
@@ -659,15 +1104,52 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
                         addRow("导出 Sheet", String.join("、", sel));
                     }
                 }
-                case BY_COLUMN -> {
+                case BY_COLUMN, BY_COLUMN_TO_SHEETS -> {
                     Map<Integer, String> headers = cfg.analysisResult.get(cfg.splitSheet);
                     int totalCols = headers != null ? headers.size() : 0;
                     // Find 1-based column position
                     int colPos = cfg.splitColumnIndex + 1;
-                    addRow("拆分模式", "按列值拆分");
+                    boolean toSheets = cfg.mode == SplitConfig.SplitMode.BY_COLUMN_TO_SHEETS;
+                    addRow("拆分模式", toSheets ? "按列值拆分到Sheet" : "按列值拆分");
                     addRow("目标 Sheet", cfg.splitSheet != null ? cfg.splitSheet : "—");
                     addRow("拆分列", (cfg.splitColumn != null ? cfg.splitColumn : "—")
                         + "（第 " + colPos + " 列，共 " + totalCols + " 列）");
+                    if (cfg.rowFilter != null) {
+                        addRow("行过滤条件", cfg.rowFilter);
+                    }
+                    if (cfg.outputColumns.isEmpty()) {
+                        addRow("输出列", "全部 " + totalCols + " 列");
+                    } else if (headers != null) {
+                        addRow("输出列", cfg.outputColumns.size() + " / " + totalCols + " 列："
+                            + cfg.outputColumns.stream().map(headers::get).collect(Collectors.joining("、")));
+                    }
+                    if (cfg.sortColumnIndex >= 0 && headers != null) {
+                        addRow("组内排序", headers.get(cfg.sortColumnIndex) + (cfg.sortDescending ? "（降序）" : "（升序）"));
+                    }
+                    addDedupRow(cfg, headers);
+                    if (toSheets) {
+                        addRow("预计输出文件数", "1");
+                        addRow("超出行数上限", switch (cfg.overflowPolicy) {
+                            case NEW_SHEET -> "续写到新Sheet";
+                            case TRUNCATE  -> "截断多余行";
+                            case FAIL      -> "终止拆分";
+                        });
+                    }
+                }
+                case SORT -> {
+                    Map<Integer, String> headers = cfg.analysisResult.get(cfg.splitSheet);
+                    int totalCols = headers != null ? headers.size() : 0;
+                    addRow("拆分模式", "排序整表");
+                    addRow("目标 Sheet", cfg.splitSheet != null ? cfg.splitSheet : "—");
+                    addRow("排序列", (headers != null && cfg.sortColumnIndex >= 0 ? headers.get(cfg.sortColumnIndex) : "—")
+                        + (cfg.sortDescending ? "（降序）" : "（升序）"));
+                    if (cfg.rowFilter != null) {
+                        addRow("行过滤条件", cfg.rowFilter);
+                    }
+                    addRow("输出列", cfg.outputColumns.isEmpty()
+                        ? "全部 " + totalCols + " 列" : cfg.outputColumns.size() + " / " + totalCols + " 列");
+                    addDedupRow(cfg, headers);
+                    addRow("预计输出文件数", "1");
                 }
                 case COMPLEX -> {
                     addRow("拆分模式", "复杂拆分");
@@ -683,7 +1165,8 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
                                              && Integer.valueOf(-1).equals(r.getColumnIndex());
                             String detail = isCopyAll
                                 ? "整Sheet复制"
-                                : "表头行 " + r.getHeaderIndex() + "，拆分列 " + r.getColumnIndex();
+                                : "表头行 " + r.getHeaderIndex() + "，拆分列 " + r.getColumnIndex()
+                                  + (r.getFilterExpr() != null ? "，过滤：" + r.getFilterExpr() : "");
                             addDetailRow("• " + r.getSheetName(), detail);
                         }
                     }
@@ -691,6 +1174,49 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             }
         }
 
+        /**
+         * Copies the mailing choices into the config. Called on the FX thread when the split
+         * starts, since the body editor can only be read there.
+         */
+        void applyMailOptions() {
+            boolean on = mailPane.isVisible() && mailBox.isSelected() && mailTaskCombo.getValue() != null;
+            config.mailTaskId  = on ? mailTaskCombo.getValue().getTaskId() : null;
+            config.mailSubject = on ? mailSubjectField.getText().trim() : null;
+            config.mailBody    = on ? mailBodyEditor.getHtml() : null;
+        }
+
+        private void loadMailTasks() {
+            String selected = mailTaskCombo.getValue() != null ? mailTaskCombo.getValue().getTaskId() : null;
+            List<EmailMassSentConfigEntity> tasks = List.of();
+            Map<String, String> tagNames = new HashMap<>();
+            try (SqlSession session = DatabaseInit.getSqlSession()) {
+                tasks = session.getMapper(EmailMassSentConfigMapper.class).selectAll();
+                session.getMapper(EmailTagMapper.class).selectAll()
+                       .forEach(t -> tagNames.put(String.valueOf(t.getId()), t.getTag()));
+            } catch (Exception ignored) {}
+            mailTaskCombo.setConverter(new StringConverter<>() {
+                @Override
+                public String toString(EmailMassSentConfigEntity t) {
+                    if (t == null) return "";
+                    return t.getTaskId() + "（收件人：" + tagNames.getOrDefault(t.getToTag(), "—")
+                        + "，抄送：" + tagNames.getOrDefault(t.getCcTag(), "—")
+                        + (t.isSentAtt() ? "，带附件）" : "，不带附件）");
+                }
+                @Override
+                public EmailMassSentConfigEntity fromString(String s) { return null; }
+            });
+            mailTaskCombo.getItems().setAll(tasks);
+            tasks.stream().filter(t -> t.getTaskId().equals(selected)).findFirst()
+                 .ifPresent(mailTaskCombo::setValue);
+        }
+
+        private void addDedupRow(SplitConfig cfg, Map<Integer, String> headers) {
+            if (cfg.dedupColumns.isEmpty() || headers == null) return;
+            addRow("去重关键列", cfg.dedupColumns.stream().map(headers::get).collect(Collectors.joining("、"))
+                + (cfg.dedupKeep == RowDeduplicator.Keep.LAST ? "（保留最后出现" : "（保留首次出现")
+                + (cfg.dedupExact ? "，精确比较）" : "）"));
+        }
+
         private void addRow(String key, String value) {
             Label keyL = new Label(key + "：");
             keyL.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 12px; -fx-min-width: 130;");
@@ -716,7 +1242,10 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
         }
 
         java.util.function.BooleanSupplier canProceedSupplier() {
-            return () -> config.outputDir != null && Files.isDirectory(config.outputDir);
+            return () -> config.outputDir != null && Files.isDirectory(config.outputDir)
+                && (!mailPane.isVisible() || !mailBox.isSelected()
+                    || (mailTaskCombo.getValue() != null && !mailSubjectField.getText().isBlank()
+                        && !mailBodyEditor.getPlainText().isBlank()));
         }
     }
 
@@ -728,7 +1257,13 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
         private final SplitConfig config;
         private final ProgressBar progressBar;
         private final Label progressLabel;
+        private final Label telemetryLabel;
         private final VBox resultBox;
+        private final Button cancelBtn;
+        private final Label mailLabel;
+        private volatile ExcelSplitter splitter;
+        private volatile EmailSendService.MassDispatch mailDispatch;
+        private volatile EmailSendService.Result mailResult;
         private boolean started = false;
 
         Step4View(SplitConfig config) {
@@ -744,27 +1279,76 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             progressLabel = new Label("准备中...");
             progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
 
+            telemetryLabel = new Label();
+            telemetryLabel.setStyle(
+                "-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;" +
+                "-fx-font-family: 'SF Mono','Consolas',monospace;"
+            );
+            telemetryLabel.setWrapText(true);
+
             resultBox = new VBox(8);
             resultBox.setStyle("-fx-background-color: transparent;");
 
-            getChildren().addAll(title, progressBar, progressLabel, resultBox);
+            cancelBtn = glassBtn("⏹  取消", false);
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                // Queued emails are dropped first, so the split does not wait for them
+                EmailSendService.MassDispatch mail = mailDispatch;
+                if (mail != null) mail.cancel();
+                if (splitter != null) splitter.cancel();
+                cancelBtn.setDisable(true);
+                progressLabel.setText("正在取消...");
+            });
+
+            mailLabel = new Label();
+            mailLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            mailLabel.setWrapText(true);
+            mailLabel.managedProperty().bind(mailLabel.visibleProperty());
+
+            getChildren().addAll(title, progressBar, progressLabel, telemetryLabel, mailLabel, cancelBtn, resultBox);
         }
 
         void startSplit() {
             if (started) return;
             started = true;
             resultBox.getChildren().clear();
-
+            progressBar.getStyleClass().removeAll("success", "danger");
+            progressBar.setProgress(0);
+            progressLabel.setText("准备中...");
+            progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(true);
+
+            splitter = new ExcelSplitter(config, (pct, msg) ->
+                Platform.runLater(() -> {
+                    // Late progress updates must not overwrite the cancelling notice
+                    if (splitter.isCancelled()) return;
+                    progressBar.setProgress(pct);
+                    progressLabel.setText(msg);
+                })
+            );
+            telemetryLabel.setText("");
+            splitter.setTelemetryListener(snapshot ->
+                Platform.runLater(() -> telemetryLabel.setText(formatTelemetry(snapshot))));
+            mailResult = null;
+            mailLabel.setText("");
+            mailLabel.setVisible(config.mode == SplitConfig.SplitMode.BY_COLUMN && config.mailTaskId != null);
             Task<ExcelSplitter.SplitResult> task = new Task<>() {
                 @Override
                 protected ExcelSplitter.SplitResult call() throws Exception {
-                    ExcelSplitter splitter = new ExcelSplitter(config, (pct, msg) ->
-                        Platform.runLater(() -> {
-                            progressBar.setProgress(pct);
-                            progressLabel.setText(msg);
-                        })
-                    );
-                    return splitter.split();
+                    EmailSendService.MassDispatch mail = startMailing();
+                    if (mail == null) return splitter.split();
+                    mailDispatch = mail;
+                    splitter.setOutputListener((key, out) -> mail.submit(key, List.of(out.toFile())));
+                    try {
+                        // Waits for the emails too: the checkpoint records the outputs mailed, so a
+                        // rerun mails again those whose email failed, was cancelled or never went out
+                        return splitter.split();
+                    } finally {
+                        mailResult = mail.finish();
+                        mailDispatch = null;
+                    }
                 }
             };
 
@@ -774,13 +1358,84 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             new Thread(task) {{ setDaemon(true); }}.start();
         }
 
+        private EmailSendService.MassDispatch startMailing() {
+            if (config.mode != SplitConfig.SplitMode.BY_COLUMN || config.mailTaskId == null) return null;
+            return new EmailSendService().startMass(config.mailSubject, config.mailBody, config.mailTaskId,
+                (pct, msg) -> Platform.runLater(() -> mailLabel.setText("邮件分发：" + msg)));
+        }
+
+        private void addMailResult() {
+            EmailSendService.Result r = mailResult;
+            if (r == null) return;
+            resultBox.getChildren().add(subLabel("邮件分发"));
+            Label l = new Label("成功 " + r.successCount + " 封，失败 " + r.failCount + " 封"
+                + (r.skippedCount > 0 ? "，跳过 " + r.skippedCount + " 个拆分值（无同名标签或无收件人）" : "")
+                + (r.cancelledCount > 0 ? "，取消 " + r.cancelledCount + " 封（重新运行时补发）" : ""));
+            l.setStyle("-fx-text-fill: " + (r.failCount > 0 ? "#f25c5c" : "rgba(255,255,255,0.70)")
+                + "; -fx-font-size: 12px;");
+            l.setWrapText(true);
+            resultBox.getChildren().add(l);
+        }
+
+        private static String formatTelemetry(SplitTelemetry.Snapshot s) {
+            StringBuilder sb = new StringBuilder(s.phase().getLabel())
+                .append("  ·  已读 ").append(String.format("%,d", s.rowsRead())).append(" 行")
+                .append("  ·  已写 ").append(String.format("%,d", s.rowsWritten())).append(" 行")
+                .append("  ·  ").append(String.format("%,.0f", s.rowsPerSecond())).append(" 行/秒")
+                .append("  ·  ").append(String.format("%.1f", s.mbPerSecond())).append(" MB/s")
+                .append("  ·  已用 ").append(formatSeconds(s.elapsedMillis() / 1000));
+            if (s.phase() != SplitTelemetry.Phase.DONE) {
+                sb.append("  ·  预计剩余 ").append(s.etaSeconds() < 0 ? "估算中" : formatSeconds(s.etaSeconds()));
+            }
+            return sb.toString();
+        }
+
+        private static String formatSeconds(long seconds) {
+            if (seconds < 60) return seconds + " 秒";
+            if (seconds < 3600) return seconds / 60 + " 分 " + seconds % 60 + " 秒";
+            return seconds / 3600 + " 小时 " + seconds % 3600 / 60 + " 分";
+        }
+
         private void showSuccess(ExcelSplitter.SplitResult result) {
+            cancelBtn.setVisible(false);
             progressBar.setProgress(1.0);
             progressBar.getStyleClass().removeAll("success", "danger");
             progressBar.getStyleClass().add("success");
             progressLabel.setText("✓ 拆分完成，输出 " + result.fileCount() + " 个文件");
             progressLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
 
+            SplitManifest manifest = result.manifest();
+            if (manifest != null) {
+                resultBox.getChildren().add(subLabel("行数对账"));
+                String detail = "输入 " + manifest.getInputRows() + " 行 = 输出 " + manifest.getOutputRows()
+                    + " + 过滤 " + manifest.getFilteredRows()
+                    + (manifest.getDuplicateRows() > 0 ? " + 去重 " + manifest.getDuplicateRows() : "")
+                    + " + 截断 " + manifest.getTruncatedRows()
+                    + "（其中 INVALID " + manifest.getInvalidRows() + " 行）";
+                Label l = new Label((manifest.isBalanced() ? "✓ " : "❌ 不一致：") + detail);
+                l.setStyle("-fx-text-fill: " + (manifest.isBalanced() ? "rgba(255,255,255,0.70)" : "#f25c5c")
+                    + "; -fx-font-size: 12px;");
+                l.setWrapText(true);
+                resultBox.getChildren().add(l);
+                if (manifest.getResumedOutputs() > 0) {
+                    Label resumed = new Label("断点续跑：跳过 " + manifest.getResumedOutputs() + " 个已完成且校验一致的文件");
+                    resumed.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+                    resultBox.getChildren().add(resumed);
+                }
+            }
+
+            addMailResult();
+
+            if (!result.filteredRows().isEmpty()) {
+                resultBox.getChildren().add(subLabel("过滤掉的行数"));
+                result.filteredRows().forEach((cfgLabel, count) -> {
+                    Label l = new Label(cfgLabel + "：" + count + " 行");
+                    l.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+                    l.setWrapText(true);
+                    resultBox.getChildren().add(l);
+                });
+            }
+
             resultBox.getChildren().add(subLabel("输出文件列表"));
 
             ScrollPane scroll = new ScrollPane();
@@ -831,6 +1486,25 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
         }
 
         private void showError(Throwable err) {
+            cancelBtn.setVisible(false);
+            Button retryBtn = glassBtn("重新运行（跳过已完成的文件）", true);
+            retryBtn.setOnAction(e -> {
+                started = false;
+                startSplit();
+            });
+
+            if (err instanceof CancellationException) {
+                progressLabel.setText("已取消");
+                progressLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                Label note = new Label("已取消，未完成的文件已清理；已完成的文件已记录断点，重新运行时将跳过");
+                note.setStyle("-fx-text-fill: rgba(255,255,255,0.70); -fx-font-size: 12px;");
+                note.setWrapText(true);
+                resultBox.getChildren().add(note);
+                addMailResult();
+                resultBox.getChildren().add(retryBtn);
+                return;
+            }
+
             progressBar.setProgress(1.0);
             progressBar.getStyleClass().removeAll("success", "danger");
             progressBar.getStyleClass().add("danger");
@@ -845,60 +1519,8 @@ public class ExcelSplitterPlugin implements SwissKitJPlugin {
             );
             errLabel.setWrapText(true);
             resultBox.getChildren().add(errLabel);
+            addMailResult();
+            resultBox.getChildren().add(retryBtn);
         }
     }
-
-    // ════════════════════════════════════════════════════
-    // Shared UI helpers (package-accessible for inner classes)
-    // ════════════════════════════════════════════════════
-
-    static Label sectionTitle(String text) {
-        Label l = new Label(text);
-        l.setStyle("-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 15px; -fx-font-weight: 500;");
-        return l;
-    }
-
-    static Label subLabel(String text) {
-        Label l = new Label(text.toUpperCase());
-        l.setStyle(
-            "-fx-text-fill: rgba(255,255,255,0.30); -fx-font-size: 10px;" +
-            "-fx-font-weight: bold;"
-        );
-        return l;
-    }
-
-    static Button glassBtn(String text, boolean primary) {
-        Button btn = new Button(text);
-        if (primary) {
-            btn.setStyle(
-                "-fx-background-color: #5b8cf7; -fx-text-fill: white; -fx-font-size: 13px;" +
-                "-fx-font-weight: 500; -fx-background-radius: 8; -fx-border-width: 0;" +
-                "-fx-padding: 10 20 10 20; -fx-cursor: hand;"
-            );
-        } else {
-            btn.setStyle(
-                "-fx-background-color: rgba(255,255,255,0.07);" +
-                "-fx-border-color: rgba(255,255,255,0.12); -fx-border-width: 1;" +
-                "-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 13px;" +
-                "-fx-background-radius: 8; -fx-border-radius: 8;" +
-                "-fx-padding: 10 20 10 20; -fx-cursor: hand;"
-            );
-        }
-        return btn;
-    }
-
-    private static String fieldStyle() {
-        return "-fx-background-color: rgba(255,255,255,0.05);" +
-               "-fx-border-color: rgba(255,255,255,0.12); -fx-border-width: 1;" +
-               "-fx-border-radius: 8; -fx-background-radius: 8;" +
-               "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 13px;" +
-               "-fx-padding: 9 12 9 12;";
-    }
-
-    private static String comboStyle() {
-        return "-fx-background-color: rgba(255,255,255,0.05);" +
-               "-fx-border-color: rgba(255,255,255,0.12); -fx-border-width: 1;" +
-               "-fx-border-radius: 8; -fx-background-radius: 8;" +
-               "-fx-text-fill: rgba(255,255,255,0.88);";
-    }
 }
@@ -1,16 +1,23 @@
 package fan.summer.buildintool.excelsplitter;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,6 +33,8 @@ import java.util.Set;
 public class ExcelUtil {
     private static final Logger logger = LoggerFactory.getLogger(ExcelUtil.class);
 
+    private static final int DEFAULT_OPEN_SOURCES = 4;
+
     private static final Set<String> INVALID_VALUES = Set.of(
             "NA", "N/A", "NULL", "NIL", "NONE", "NAN",
             "#N/A", "#NULL!", "#REF!", "#DIV/0!", "#VALUE!", "#NAME?", "#NUM!", "#ERROR!",
@@ -35,6 +44,7 @@ public class ExcelUtil {
     /**
      * Appends rows from 0 to endRowIndex of the specified sheet (by name) in source file to target file.
      * Creates target file if it doesn't exist; appends to existing sheet without overwriting.
+     * Opens and rewrites both files per call; use a {@link Session} for many operations.
      *
      * @param sourceFilePath source file path
      * @param targetFilePath target file path (creates if not exists)
@@ -43,37 +53,8 @@ public class ExcelUtil {
      */
     public static void appendSheet(String sourceFilePath, String targetFilePath,
                                    String sheetName, int endRowIndex) throws IOException {
-        if (endRowIndex < 0) throw new IllegalArgumentException("endRowIndex cannot be negative");
-
-        // 1. Read source file and locate sheet
-        try (FileInputStream srcFis = new FileInputStream(sourceFilePath);
-             Workbook sourceWorkbook = WorkbookFactory.create(srcFis)) {
-
-            Sheet sourceSheet = sourceWorkbook.getSheet(sheetName);
-            if (sourceSheet == null) {
-                throw new IllegalArgumentException("Sheet not found: " + sheetName
-                        + ", available sheets: " + getSheetNames(sourceWorkbook));
-            }
-
-            // 2. Load or create target workbook
-            Workbook targetWorkbook = loadOrCreate(targetFilePath);
-
-            // 3. Target file must not have a sheet with the same name
-            if (targetWorkbook.getSheet(sheetName) != null) {
-                targetWorkbook.close();
-                throw new IllegalArgumentException("Target file already has sheet: " + sheetName);
-            }
-
-            // 4. Append sheet
-            copySheetRows(sourceSheet, targetWorkbook, sheetName, endRowIndex);
-
-            // 5. Write back to target file
-            try (FileOutputStream fos = new FileOutputStream(targetFilePath)) {
-                targetWorkbook.write(fos);
-            }
-            targetWorkbook.close();
-
-            logger.debug("Sheet appended | sheet={}, rows=0-{}, target={}", sheetName, endRowIndex, targetFilePath);
+        try (Session session = openSession(1)) {
+            session.appendSheet(sourceFilePath, targetFilePath, sheetName, endRowIndex);
         }
     }
 
@@ -87,18 +68,8 @@ public class ExcelUtil {
      */
     public static void appendSheet(String sourceFilePath, String targetFilePath,
                                    int sheetIndex, int endRowIndex) throws IOException {
-        if (endRowIndex < 0) throw new IllegalArgumentException("endRowIndex cannot be negative");
-
-        try (FileInputStream srcFis = new FileInputStream(sourceFilePath);
-             Workbook sourceWorkbook = WorkbookFactory.create(srcFis)) {
-
-            if (sheetIndex < 0 || sheetIndex >= sourceWorkbook.getNumberOfSheets()) {
-                throw new IllegalArgumentException("sheetIndex out of bounds: " + sheetIndex
-                        + ", total sheets: " + sourceWorkbook.getNumberOfSheets());
-            }
-
-            Sheet sourceSheet = sourceWorkbook.getSheetAt(sheetIndex);
-            appendSheet(sourceFilePath, targetFilePath, sourceSheet.getSheetName(), endRowIndex);
+        try (Session session = openSession(1)) {
+            session.appendSheet(sourceFilePath, targetFilePath, sheetIndex, endRowIndex);
         }
     }
 
@@ -113,31 +84,8 @@ public class ExcelUtil {
      */
     public static void copyEntireSheet(String sourceFilePath, String targetFilePath,
                                        String sheetName) throws IOException {
-        try (FileInputStream srcFis = new FileInputStream(sourceFilePath);
-             Workbook sourceWorkbook = WorkbookFactory.create(srcFis)) {
-
-            Sheet sourceSheet = sourceWorkbook.getSheet(sheetName);
-            if (sourceSheet == null) {
-                throw new IllegalArgumentException("Sheet not found: " + sheetName
-                        + ", available sheets: " + getSheetNames(sourceWorkbook));
-            }
-
-            Workbook targetWorkbook = loadOrCreate(targetFilePath);
-
-            if (targetWorkbook.getSheet(sheetName) != null) {
-                targetWorkbook.close();
-                throw new IllegalArgumentException("Target file already has sheet: " + sheetName);
-            }
-
-            copySheetRows(sourceSheet, targetWorkbook, sheetName, sourceSheet.getLastRowNum());
-
-            try (FileOutputStream fos = new FileOutputStream(targetFilePath)) {
-                targetWorkbook.write(fos);
-            }
-            targetWorkbook.close();
-
-            logger.debug("Entire sheet copied | sheet={}, rows=0-{}, target={}",
-                    sheetName, sourceSheet.getLastRowNum(), targetFilePath);
+        try (Session session = openSession(1)) {
+            session.copyEntireSheet(sourceFilePath, targetFilePath, sheetName);
         }
     }
 
@@ -156,61 +104,23 @@ public class ExcelUtil {
             String sheetName,
             int startRowIndex,
             List<Map<Integer, Object>> rows) throws IOException {
-        // Get style template row from source file
-        Row templateRow = null;
-        try (FileInputStream srcFis = new FileInputStream(orgFilePath);
-             Workbook srcWb = WorkbookFactory.create(srcFis)) {
-            Sheet srcSheet = srcWb.getSheet(sheetName);
-            if (srcSheet != null) {
-                templateRow = srcSheet.getRow(startRowIndex);
-            }
+        try (Session session = openSession(1)) {
+            session.appendDataRowsByPoi(orgFilePath, targetFilePath, sheetName, startRowIndex, rows);
         }
+    }
 
-        // Open target file for appending
-        File file = new File(targetFilePath);
-        Workbook workbook;
-        try (FileInputStream fis = new FileInputStream(file)) {
-            workbook = WorkbookFactory.create(fis);
-        }
-        try {
-            Sheet sheet = workbook.getSheet(sheetName);
-            Map<Integer, CellStyle> styleCache = new HashMap<>();
-            final Row finalTemplateRow = templateRow;
-
-            int rowIdx = startRowIndex;
-            for (Map<Integer, Object> rowData : rows) {
-                Row row = sheet.createRow(rowIdx++);
-                rowData.forEach((colIdx, value) -> {
-                    Cell cell = row.createCell(colIdx);
-
-                    if (finalTemplateRow != null) {
-                        Cell templateCell = finalTemplateRow.getCell(colIdx);
-                        if (templateCell != null) {
-                            CellStyle style = styleCache.computeIfAbsent(colIdx, k -> {
-                                CellStyle newStyle = workbook.createCellStyle();
-                                newStyle.cloneStyleFrom(templateCell.getCellStyle());
-                                return newStyle;
-                            });
-                            cell.setCellStyle(style);
-                        }
-                    }
-
-                    if (value instanceof Number) {
-                        cell.setCellValue(((Number) value).doubleValue());
-                    } else if (value instanceof Boolean) {
-                        cell.setCellValue((Boolean) value);
-                    } else if (value != null) {
-                        cell.setCellValue(value.toString());
-                    }
-                });
-            }
+    /**
+     * Opens a session that keeps up to {@value #DEFAULT_OPEN_SOURCES} source workbooks open.
+     */
+    public static Session openSession() {
+        return new Session(DEFAULT_OPEN_SOURCES);
+    }
 
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                workbook.write(fos);
-            }
-        } finally {
-            workbook.close();
-        }
+    /**
+     * Opens a session that keeps up to maxOpenSources source workbooks open, least recently used first out.
+     */
+    public static Session openSession(int maxOpenSources) {
+        return new Session(maxOpenSources);
     }
 
     /**
@@ -240,7 +150,19 @@ public class ExcelUtil {
      */
     public static void copyHeaderToWorkbook(Sheet sourceSheet, Workbook targetWorkbook,
                                              String sheetName, int endRowIndex) {
-        copySheetRows(sourceSheet, targetWorkbook, sheetName, endRowIndex);
+        copySheetRows(sourceSheet, targetWorkbook, sheetName, endRowIndex, null);
+    }
+
+    /**
+     * Same as {@link #copyHeaderToWorkbook(Sheet, Workbook, String, int)}, but formula cells
+     * are written as the plain values pre-computed by {@link #evaluateFormulas}.
+     *
+     * @param formulaValues pre-evaluated formula results of sourceSheet, or null to copy formulas
+     */
+    public static void copyHeaderToWorkbook(Sheet sourceSheet, Workbook targetWorkbook,
+                                             String sheetName, int endRowIndex,
+                                             Map<CellAddress, CellValue> formulaValues) {
+        copySheetRows(sourceSheet, targetWorkbook, sheetName, endRowIndex, formulaValues);
     }
 
     /**
@@ -288,7 +210,266 @@ public class ExcelUtil {
      * @param targetWorkbook already-open target Workbook (in memory)
      */
     public static void copySheetToWorkbook(Sheet sourceSheet, Workbook targetWorkbook) {
-        copySheetRows(sourceSheet, targetWorkbook, sourceSheet.getSheetName(), sourceSheet.getLastRowNum());
+        copySheetRows(sourceSheet, targetWorkbook, sourceSheet.getSheetName(), sourceSheet.getLastRowNum(), null);
+    }
+
+    /**
+     * Same as {@link #copySheetToWorkbook(Sheet, Workbook)}, but formula cells are written
+     * as the plain values pre-computed by {@link #evaluateFormulas}.
+     *
+     * @param formulaValues pre-evaluated formula results of sourceSheet, or null to copy formulas
+     */
+    public static void copySheetToWorkbook(Sheet sourceSheet, Workbook targetWorkbook,
+                                           Map<CellAddress, CellValue> formulaValues) {
+        copySheetRows(sourceSheet, targetWorkbook, sourceSheet.getSheetName(),
+                sourceSheet.getLastRowNum(), formulaValues);
+    }
+
+    /**
+     * Evaluates every formula cell in rows 0 to lastRowIndex of the given sheets against the
+     * source workbook and returns the results by sheet name. POI workbooks are not thread-safe
+     * (evaluators share the workbook's cell and name caches), so the sheets are evaluated one
+     * after another by a single FormulaEvaluator, whose cache also spares re-evaluating cells
+     * referenced from several sheets.
+     * When a formula cannot be evaluated (unsupported function, external link) the cached
+     * result stored in the file is used instead.
+     *
+     * @param workbook      already-open source Workbook
+     * @param sheetLastRows sheet name → last row index (0-based, inclusive) to evaluate
+     * @return sheet name → cell address → evaluated value
+     */
+    public static Map<String, Map<CellAddress, CellValue>> evaluateFormulas(
+            Workbook workbook, Map<String, Integer> sheetLastRows) {
+        Map<String, Map<CellAddress, CellValue>> result = new HashMap<>();
+        FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        sheetLastRows.forEach((sheetName, lastRow) -> {
+            Sheet sheet = workbook.getSheet(sheetName);
+            if (sheet == null) return;
+            Map<CellAddress, CellValue> values = new HashMap<>();
+            int end = Math.min(lastRow, sheet.getLastRowNum());
+            for (int rowIdx = 0; rowIdx <= end; rowIdx++) {
+                Row row = sheet.getRow(rowIdx);
+                if (row == null) continue;
+                for (Cell cell : row) {
+                    if (cell.getCellType() == CellType.FORMULA) {
+                        values.put(cell.getAddress(), evaluateOrCached(evaluator, cell));
+                    }
+                }
+            }
+            result.put(sheetName, values);
+            logger.debug("Formulas evaluated | sheet={}, cells={}", sheetName, values.size());
+        });
+        return result;
+    }
+
+    /**
+     * Batch form of the file-based operations above. Source workbooks are opened once and
+     * kept in an LRU shared by all operations; target workbooks are loaded on first use,
+     * kept in memory, and written once by {@link #flush()} or {@link #close()}. N appends
+     * into one target thus cost one load and one write instead of N of each.
+     * An operation that fails after it started changing a target discards that target's
+     * unflushed changes, so a half-applied operation is never written. Reading a file that
+     * is also a pending target flushes it first, and writing a target drops its cached source.
+     * Not thread-safe.
+     * <pre>
+     * try (ExcelUtil.Session session = ExcelUtil.openSession()) {
+     *     session.appendSheet(src, target, "明细", 0);
+     *     session.appendDataRowsByPoi(src, target, "明细", 1, rows);
+     * }
+     * </pre>
+     */
+    public static final class Session implements Closeable {
+        private final Map<String, Workbook> sources;
+        private final Map<String, Workbook> targets = new LinkedHashMap<>();
+        private final Set<String> dirtyTargets = new LinkedHashSet<>();
+        private int sourceLoads;
+
+        private Session(int maxOpenSources) {
+            if (maxOpenSources < 1) throw new IllegalArgumentException("maxOpenSources must be at least 1");
+            // Access-ordered, so the eldest entry is the least recently used source
+            sources = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Workbook> eldest) {
+                    if (size() <= maxOpenSources) return false;
+                    closeQuietly(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Same as {@link ExcelUtil#appendSheet(String, String, String, int)}; written on flush.
+         */
+        public void appendSheet(String sourceFilePath, String targetFilePath,
+                                String sheetName, int endRowIndex) throws IOException {
+            if (endRowIndex < 0) throw new IllegalArgumentException("endRowIndex cannot be negative");
+            Sheet sourceSheet = sourceSheet(sourceFilePath, sheetName);
+            Workbook targetWorkbook = newSheetTarget(targetFilePath, sheetName);
+            mutate(targetFilePath, () -> copySheetRows(sourceSheet, targetWorkbook, sheetName, endRowIndex, null));
+            logger.debug("Sheet appended | sheet={}, rows=0-{}, target={}", sheetName, endRowIndex, targetFilePath);
+        }
+
+        /**
+         * Same as {@link ExcelUtil#appendSheet(String, String, int, int)}; written on flush.
+         */
+        public void appendSheet(String sourceFilePath, String targetFilePath,
+                                int sheetIndex, int endRowIndex) throws IOException {
+            if (endRowIndex < 0) throw new IllegalArgumentException("endRowIndex cannot be negative");
+            Workbook sourceWorkbook = source(sourceFilePath);
+            if (sheetIndex < 0 || sheetIndex >= sourceWorkbook.getNumberOfSheets()) {
+                throw new IllegalArgumentException("sheetIndex out of bounds: " + sheetIndex
+                        + ", total sheets: " + sourceWorkbook.getNumberOfSheets());
+            }
+            appendSheet(sourceFilePath, targetFilePath, sourceWorkbook.getSheetName(sheetIndex), endRowIndex);
+        }
+
+        /**
+         * Same as {@link ExcelUtil#copyEntireSheet(String, String, String)}; written on flush.
+         */
+        public void copyEntireSheet(String sourceFilePath, String targetFilePath,
+                                    String sheetName) throws IOException {
+            Sheet sourceSheet = sourceSheet(sourceFilePath, sheetName);
+            Workbook targetWorkbook = newSheetTarget(targetFilePath, sheetName);
+            mutate(targetFilePath, () ->
+                    copySheetRows(sourceSheet, targetWorkbook, sheetName, sourceSheet.getLastRowNum(), null));
+            logger.debug("Entire sheet copied | sheet={}, rows=0-{}, target={}",
+                    sheetName, sourceSheet.getLastRowNum(), targetFilePath);
+        }
+
+        /**
+         * Same as {@link ExcelUtil#appendDataRowsByPoi(String, String, String, int, List)}; written on flush.
+         * The target sheet must exist in the file or have been added earlier in this session.
+         */
+        public void appendDataRowsByPoi(String orgFilePath, String targetFilePath, String sheetName,
+                                        int startRowIndex, List<Map<Integer, Object>> rows) throws IOException {
+            // Get style template row from source file
+            Sheet srcSheet = source(orgFilePath).getSheet(sheetName);
+            Row templateRow = srcSheet == null ? null : srcSheet.getRow(startRowIndex);
+
+            if (!new File(targetFilePath).exists() && !targets.containsKey(key(targetFilePath))) {
+                throw new FileNotFoundException(targetFilePath);
+            }
+            Workbook workbook = target(targetFilePath);
+            Sheet sheet = workbook.getSheet(sheetName);
+            if (sheet == null) throw new IllegalArgumentException("Target file has no sheet: " + sheetName);
+            mutate(targetFilePath, () -> writeDataRowsToSheet(sheet, workbook, templateRow, startRowIndex, rows));
+        }
+
+        /**
+         * Writes every target changed since the last flush, each exactly once.
+         */
+        public void flush() throws IOException {
+            for (Iterator<String> it = dirtyTargets.iterator(); it.hasNext(); ) {
+                write(it.next());
+                it.remove();
+            }
+        }
+
+        /**
+         * Flushes pending changes, then closes every open source and target workbook.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                sources.forEach(Session::closeQuietly);
+                targets.forEach(Session::closeQuietly);
+                logger.debug("Workbook session closed | sourceLoads={}, targets={}", sourceLoads, targets.size());
+                sources.clear();
+                targets.clear();
+            }
+        }
+
+        private Workbook source(String path) throws IOException {
+            String key = key(path);
+            // Read what earlier operations wrote to it, as the file-based methods would
+            if (dirtyTargets.remove(key)) write(key);
+            Workbook workbook = sources.get(key);
+            if (workbook == null) {
+                try (FileInputStream fis = new FileInputStream(path)) {
+                    workbook = WorkbookFactory.create(fis);
+                }
+                sources.put(key, workbook);
+                sourceLoads++;
+            }
+            return workbook;
+        }
+
+        private Sheet sourceSheet(String path, String sheetName) throws IOException {
+            Workbook sourceWorkbook = source(path);
+            Sheet sourceSheet = sourceWorkbook.getSheet(sheetName);
+            if (sourceSheet == null) {
+                throw new IllegalArgumentException("Sheet not found: " + sheetName
+                        + ", available sheets: " + getSheetNames(sourceWorkbook));
+            }
+            return sourceSheet;
+        }
+
+        private Workbook target(String path) throws IOException {
+            String key = key(path);
+            Workbook workbook = targets.get(key);
+            if (workbook == null) {
+                workbook = loadOrCreate(path);
+                targets.put(key, workbook);
+            }
+            return workbook;
+        }
+
+        /**
+         * Target workbook that is about to get a new sheet; it must not have one by that name yet.
+         */
+        private Workbook newSheetTarget(String path, String sheetName) throws IOException {
+            Workbook targetWorkbook = target(path);
+            if (targetWorkbook.getSheet(sheetName) != null) {
+                throw new IllegalArgumentException("Target file already has sheet: " + sheetName);
+            }
+            return targetWorkbook;
+        }
+
+        /**
+         * Marks the target dirty once the change succeeded; a failed change evicts the target
+         * with all its unflushed changes, so it is reloaded from disk on next use.
+         */
+        private void mutate(String targetFilePath, TargetChange change) throws IOException {
+            String key = key(targetFilePath);
+            try {
+                change.apply();
+            } catch (IOException | RuntimeException e) {
+                dirtyTargets.remove(key);
+                Workbook failed = targets.remove(key);
+                if (failed != null) closeQuietly(key, failed);
+                logger.warn("Workbook session target discarded after a failed change | file={}", key);
+                throw e;
+            }
+            dirtyTargets.add(key);
+        }
+
+        private void write(String key) throws IOException {
+            try (FileOutputStream fos = new FileOutputStream(key)) {
+                targets.get(key).write(fos);
+            }
+            // A cached copy of the file as a source is now stale
+            Workbook stale = sources.remove(key);
+            if (stale != null) closeQuietly(key, stale);
+        }
+
+        private static String key(String path) {
+            return Path.of(path).toAbsolutePath().normalize().toString();
+        }
+
+        @FunctionalInterface
+        private interface TargetChange {
+            void apply() throws IOException;
+        }
+
+        private static void closeQuietly(String path, Workbook workbook) {
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close workbook | file={}", path, e);
+            }
+        }
     }
 
     // ==================== Private Helper Methods ====================
@@ -308,9 +489,11 @@ public class ExcelUtil {
 
     /**
      * Copies rows 0 to endRowIndex from sourceSheet to a new sheet in targetWorkbook.
+     * When formulaValues is non-null, formula cells are written as their pre-evaluated values.
      */
     private static void copySheetRows(Sheet sourceSheet, Workbook targetWorkbook,
-                                      String targetSheetName, int endRowIndex) {
+                                      String targetSheetName, int endRowIndex,
+                                      Map<CellAddress, CellValue> formulaValues) {
         Sheet targetSheet = targetWorkbook.createSheet(targetSheetName);
         copyColumnWidths(sourceSheet, targetSheet);
         targetSheet.setDefaultRowHeight(sourceSheet.getDefaultRowHeight());
@@ -323,7 +506,7 @@ public class ExcelUtil {
             if (srcRow == null) continue;
             Row dstRow = targetSheet.createRow(rowIdx);
             dstRow.setHeight(srcRow.getHeight());
-            copyCells(srcRow, dstRow, targetWorkbook, styleCache);
+            copyCells(srcRow, dstRow, targetWorkbook, styleCache, formulaValues);
         }
 
         copyMergedRegions(sourceSheet, targetSheet, actualEnd);
@@ -331,7 +514,8 @@ public class ExcelUtil {
 
     private static void copyCells(Row srcRow, Row dstRow,
                                   Workbook targetWb,
-                                  Map<Integer, CellStyle> styleCache) {
+                                  Map<Integer, CellStyle> styleCache,
+                                  Map<CellAddress, CellValue> formulaValues) {
         for (int col = srcRow.getFirstCellNum(); col < srcRow.getLastCellNum(); col++) {
             Cell src = srcRow.getCell(col);
             if (src == null) continue;
@@ -361,7 +545,11 @@ public class ExcelUtil {
                     dst.setCellValue(src.getBooleanCellValue());
                     break;
                 case FORMULA:
-                    dst.setCellFormula(src.getCellFormula());
+                    if (formulaValues != null) {
+                        setCellValue(dst, formulaValues.get(src.getAddress()));
+                    } else {
+                        dst.setCellFormula(src.getCellFormula());
+                    }
                     break;
                 case BLANK:
                     dst.setBlank();
@@ -375,6 +563,36 @@ public class ExcelUtil {
         }
     }
 
+    private static CellValue evaluateOrCached(FormulaEvaluator evaluator, Cell cell) {
+        try {
+            return evaluator.evaluate(cell);
+        } catch (RuntimeException e) {
+            logger.debug("Formula not evaluable, using cached result | cell={}, formula={}",
+                    cell.getAddress(), cell.getCellFormula());
+            return switch (cell.getCachedFormulaResultType()) {
+                case NUMERIC -> new CellValue(cell.getNumericCellValue());
+                case STRING  -> new CellValue(cell.getStringCellValue());
+                case BOOLEAN -> CellValue.valueOf(cell.getBooleanCellValue());
+                case ERROR   -> CellValue.getError(cell.getErrorCellValue());
+                default      -> null;
+            };
+        }
+    }
+
+    private static void setCellValue(Cell dst, CellValue value) {
+        if (value == null) {
+            dst.setBlank();
+            return;
+        }
+        switch (value.getCellType()) {
+            case NUMERIC -> dst.setCellValue(value.getNumberValue());
+            case STRING  -> dst.setCellValue(value.getStringValue());
+            case BOOLEAN -> dst.setCellValue(value.getBooleanValue());
+            case ERROR   -> dst.setCellErrorValue(value.getErrorValue());
+            default      -> dst.setBlank();
+        }
+    }
+
     private static void copyColumnWidths(Sheet src, Sheet dst) {
         int maxCol = 0;
         for (Row row : src) {
@@ -0,0 +1,273 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts rows by one column without holding them all in memory (external merge sort).
+ * Rows are collected up to a memory budget, sorted on all cores and spilled to a temp
+ * file as a sorted run ({@link RowCodec}); {@link #forEachSorted} then merges the
+ * runs and the rows still in memory in one streaming k-way pass.
+ * <p>
+ * Cells are compared the way {@link RowFilter} compares them: numbers numerically, dates
+ * (yyyy-MM-dd and friends) chronologically, anything else as text; numbers sort before
+ * dates before text, and blank cells always come last. The sort is stable, so rows with
+ * equal keys keep their source order. Not thread-safe.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class ExternalRowSorter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalRowSorter.class);
+
+    /** Heap share used for in-memory runs unless a budget is given. */
+    public static final long DEFAULT_MEMORY_BUDGET = Math.max(32L << 20, Runtime.getRuntime().maxMemory() / 4);
+
+    private static final int IO_BUFFER = 1 << 16;
+    // Rough heap cost of a buffered row and of each of its cells, on top of the characters
+    private static final int ROW_OVERHEAD = 96;
+    private static final int CELL_OVERHEAD = 48;
+
+    /**
+     * Receives the rows in sorted order; may throw to abort the merge.
+     */
+    public interface RowConsumer {
+        void accept(List<Object> row) throws Exception;
+    }
+
+    private enum Kind { NUMBER, DATE, TEXT, BLANK }
+
+    /** Sort key of a cell, parsed once per row rather than once per comparison. */
+    private record SortKey(Kind kind, double number, String text) {
+        static SortKey of(Object cell) {
+            String s = cell == null ? "" : String.valueOf(cell).trim();
+            if (s.isEmpty()) return new SortKey(Kind.BLANK, 0, "");
+            Double n = RowFilter.numberOf(s);
+            if (n != null) return new SortKey(Kind.NUMBER, n, s);
+            LocalDate d = RowFilter.dateOf(s);
+            if (d != null) return new SortKey(Kind.DATE, d.toEpochDay(), s);
+            return new SortKey(Kind.TEXT, 0, s);
+        }
+    }
+
+    private record Keyed(SortKey key, List<Object> row) {}
+
+    private final int sortColumn;
+    private final long memoryBudget;
+    private final Comparator<SortKey> keyOrder;
+    private final Comparator<Keyed> rowOrder;
+    private final List<Path> runs = new ArrayList<>();
+    private List<Keyed> buffer = new ArrayList<>();
+    private long bufferedBytes;
+    private long rowCount;
+
+    /**
+     * @param sortColumn   position of the sort column in the rows added
+     * @param descending   largest first; blank cells stay last either way
+     * @param memoryBudget approximate heap for buffered rows before a run is spilled
+     */
+    public ExternalRowSorter(int sortColumn, boolean descending, long memoryBudget) {
+        if (sortColumn < 0) throw new IllegalArgumentException("Sort column must be >= 0: " + sortColumn);
+        this.sortColumn = sortColumn;
+        this.memoryBudget = Math.max(1, memoryBudget);
+        Comparator<SortKey> values = (a, b) -> {
+            int c = a.kind().compareTo(b.kind());
+            if (c != 0) return c;
+            return a.kind() == Kind.TEXT ? a.text().compareTo(b.text()) : Double.compare(a.number(), b.number());
+        };
+        Comparator<SortKey> ordered = descending ? values.reversed() : values;
+        this.keyOrder = (a, b) -> {
+            boolean blankA = a.kind() == Kind.BLANK;
+            boolean blankB = b.kind() == Kind.BLANK;
+            if (blankA || blankB) return Boolean.compare(blankA, blankB);
+            return ordered.compare(a, b);
+        };
+        this.rowOrder = Comparator.comparing(Keyed::key, keyOrder);
+    }
+
+    /**
+     * Sorts rows already in memory in place, with the same ordering as the external sort.
+     */
+    public static void sort(List<List<Object>> rows, int sortColumn, boolean descending) {
+        ExternalRowSorter sorter = new ExternalRowSorter(sortColumn, descending, Long.MAX_VALUE);
+        Keyed[] keyed = new Keyed[rows.size()];
+        for (int i = 0; i < keyed.length; i++) keyed[i] = sorter.keyed(rows.get(i));
+        Arrays.parallelSort(keyed, sorter.rowOrder);
+        for (int i = 0; i < keyed.length; i++) rows.set(i, keyed[i].row());
+    }
+
+    /**
+     * Adds a row; spills a sorted run to disk when the memory budget is reached.
+     *
+     * @throws UncheckedIOException when a run cannot be written
+     */
+    public void add(List<Object> row) {
+        buffer.add(keyed(row));
+        bufferedBytes += estimateBytes(row);
+        rowCount++;
+        if (bufferedBytes >= memoryBudget) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to spill sort run", e);
+            }
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /** Number of runs spilled to disk so far; 0 while everything fits in memory. */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Hands every added row to the consumer in sorted order. Can be called once.
+     */
+    public void forEachSorted(RowConsumer consumer) throws Exception {
+        Keyed[] memory = buffer.toArray(new Keyed[0]);
+        buffer = null;
+        Arrays.parallelSort(memory, rowOrder);
+        if (runs.isEmpty()) {
+            for (Keyed k : memory) consumer.accept(k.row());
+            return;
+        }
+        logger.info("External sort merging | rows={}, runs={}", rowCount, runs.size() + (memory.length > 0 ? 1 : 0));
+
+        // Ties go to the earlier run, which holds the earlier rows, so the merge stays stable
+        PriorityQueue<Cursor> heap = new PriorityQueue<>((a, b) -> {
+            int c = keyOrder.compare(a.current.key(), b.current.key());
+            return c != 0 ? c : Integer.compare(a.run, b.run);
+        });
+        List<Cursor> cursors = new ArrayList<>();
+        try {
+            for (int i = 0; i < runs.size(); i++) cursors.add(new FileCursor(i, runs.get(i)));
+            cursors.add(new MemoryCursor(runs.size(), memory));
+            for (Cursor c : cursors) {
+                if (c.advance()) heap.add(c);
+            }
+            while (!heap.isEmpty()) {
+                Cursor c = heap.poll();
+                consumer.accept(c.current.row());
+                if (c.advance()) heap.add(c);
+            }
+        } finally {
+            for (Cursor c : cursors) c.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                logger.warn("Failed to delete sort run | file={}", run, e);
+            }
+        }
+        runs.clear();
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private Keyed keyed(List<Object> row) {
+        return new Keyed(SortKey.of(sortColumn < row.size() ? row.get(sortColumn) : null), row);
+    }
+
+    private static long estimateBytes(List<Object> row) {
+        long bytes = ROW_OVERHEAD;
+        for (Object cell : row) {
+            bytes += CELL_OVERHEAD + (cell instanceof String s ? 2L * s.length() : 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the buffered rows as one sorted run in {@link RowCodec} form.
+     */
+    private void spill() throws IOException {
+        Keyed[] sorted = buffer.toArray(new Keyed[0]);
+        Arrays.parallelSort(sorted, rowOrder);
+        Path run = Files.createTempFile("swisskit-sort-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER))) {
+            for (Keyed k : sorted) RowCodec.write(out, k.row());
+        }
+        logger.debug("Sort run spilled | run={}, rows={}, bytes={}", runs.size(), sorted.length, Files.size(run));
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+    }
+
+    private abstract static class Cursor implements Closeable {
+        final int run;
+        Keyed current;
+
+        Cursor(int run) {
+            this.run = run;
+        }
+
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException { }
+    }
+
+    private static final class MemoryCursor extends Cursor {
+        private final Keyed[] rows;
+        private int next;
+
+        MemoryCursor(int run, Keyed[] rows) {
+            super(run);
+            this.rows = rows;
+        }
+
+        @Override
+        boolean advance() {
+            if (next >= rows.length) return false;
+            current = rows[next];
+            rows[next++] = null;
+            return true;
+        }
+    }
+
+    private final class FileCursor extends Cursor {
+        private final DataInputStream in;
+
+        FileCursor(int run, Path file) throws IOException {
+            super(run);
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER));
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            List<Object> row = RowCodec.read(in);
+            current = row == null ? null : keyed(row);
+            return row != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.fesod.sheet.ExcelWriter;
+import org.apache.fesod.sheet.FesodSheet;
+import org.apache.fesod.sheet.write.metadata.WriteSheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Streams grouped rows into one sheet per group key of a single output workbook.
+ * Rows are buffered per group in small windows and flushed through the FESOD
+ * streaming writer, so memory is bounded by (groups × window) rather than by sheet size.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class GroupSheetWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupSheetWriter.class);
+
+    /** Excel row limit (1,048,576) minus the header row. */
+    public static final int MAX_DATA_ROWS = 1_048_575;
+    static final int ROW_WINDOW = 1_000;
+    private static final int MAX_SHEET_NAME_LENGTH = 31;
+
+    private final ExcelWriter writer;
+    private final List<List<String>> head;
+    private final SplitConfig.OverflowPolicy overflowPolicy;
+    private final int maxRowsPerSheet;
+    private final Set<String> usedNames = new HashSet<>();
+    private final Map<Object, GroupSheet> groups = new LinkedHashMap<>();
+    private final Map<Object, List<List<String>>> groupHeads = new HashMap<>();
+    private final List<String> sheetNames = new ArrayList<>();
+    private int nextSheetNo = 0;
+    private long truncatedRows = 0;
+    private long writtenRows = 0;
+
+    private final class GroupSheet {
+        final String baseName;
+        final List<List<String>> head;
+        WriteSheet sheet;
+        int part = 1;
+        int rowsInSheet = 0;
+        long rows = 0;
+        List<List<Object>> window = new ArrayList<>(ROW_WINDOW);
+
+        GroupSheet(String baseName, List<List<String>> head) {
+            this.baseName = baseName;
+            this.head = head;
+            this.sheet = newSheet(baseName, head);
+        }
+    }
+
+    public GroupSheetWriter(Path out, List<List<String>> head, SplitConfig.OverflowPolicy overflowPolicy) {
+        this(FesodSheet.write(out.toFile()).build(), head, overflowPolicy, MAX_DATA_ROWS);
+    }
+
+    /**
+     * Writes to a caller-owned stream, e.g. one that checksums the output while it is written.
+     */
+    public GroupSheetWriter(OutputStream out, List<List<String>> head, SplitConfig.OverflowPolicy overflowPolicy) {
+        this(FesodSheet.write(out).build(), head, overflowPolicy, MAX_DATA_ROWS);
+    }
+
+    GroupSheetWriter(ExcelWriter writer, List<List<String>> head,
+                     SplitConfig.OverflowPolicy overflowPolicy, int maxRowsPerSheet) {
+        this.writer = writer;
+        this.head = head;
+        this.overflowPolicy = overflowPolicy;
+        this.maxRowsPerSheet = maxRowsPerSheet;
+    }
+
+    /**
+     * Appends one row to the sheet of the given group, creating the sheet on first use.
+     *
+     * @return false when the row was dropped by the TRUNCATE overflow policy
+     */
+    public boolean accept(Object key, List<Object> row) {
+        GroupSheet group = groups.computeIfAbsent(key,
+                k -> new GroupSheet(String.valueOf(k), groupHeads.getOrDefault(k, head)));
+
+        if (group.rowsInSheet >= maxRowsPerSheet) {
+            switch (overflowPolicy) {
+                case FAIL -> throw new IllegalStateException("Group '" + key + "' exceeds the Excel limit of "
+                        + maxRowsPerSheet + " rows per sheet");
+                case TRUNCATE -> {
+                    truncatedRows++;
+                    return false;
+                }
+                case NEW_SHEET -> {
+                    flush(group);
+                    group.part++;
+                    group.sheet = newSheet(group.baseName + " (" + group.part + ")", group.head);
+                    group.rowsInSheet = 0;
+                }
+            }
+        }
+
+        group.window.add(row);
+        group.rowsInSheet++;
+        group.rows++;
+        writtenRows++;
+        if (group.window.size() >= ROW_WINDOW) {
+            flush(group);
+        }
+        return true;
+    }
+
+    /**
+     * Gives the sheets of one group their own header, e.g. for a report sheet next to the
+     * data sheets. Call before the group's first row.
+     */
+    public void head(Object key, List<List<String>> groupHead) {
+        groupHeads.put(key, groupHead);
+    }
+
+    public List<String> getSheetNames() {
+        return sheetNames;
+    }
+
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    /** Data rows written across all groups; truncated rows are not included. */
+    public long getRowCount() {
+        return writtenRows;
+    }
+
+    /** Data rows written for one group key, 0 if the key never occurred. */
+    public long getRowCount(Object key) {
+        GroupSheet group = groups.get(key);
+        return group == null ? 0 : group.rows;
+    }
+
+    public long getTruncatedRows() {
+        return truncatedRows;
+    }
+
+    @Override
+    public void close() {
+        try {
+            groups.values().forEach(this::flush);
+        } finally {
+            writer.finish();
+        }
+        if (truncatedRows > 0) {
+            logger.warn("Groups exceeded the sheet row limit, {} rows were truncated", truncatedRows);
+        }
+    }
+
+    private void flush(GroupSheet group) {
+        if (group.window.isEmpty()) return;
+        writer.write(group.window, group.sheet);
+        group.window = new ArrayList<>(ROW_WINDOW);
+    }
+
+    private WriteSheet newSheet(String rawName, List<List<String>> sheetHead) {
+        String name = uniqueSheetName(rawName);
+        sheetNames.add(name);
+        return FesodSheet.writerSheet(nextSheetNo++, name).head(sheetHead).build();
+    }
+
+    /**
+     * Makes a group key usable as a sheet name: strips characters Excel rejects,
+     * caps the length at 31 and appends " (n)" on case-insensitive collisions.
+     */
+    private String uniqueSheetName(String rawName) {
+        String base = WorkbookUtil.createSafeSheetName(rawName == null || rawName.isBlank() ? "Sheet" : rawName, '_');
+        if (base.equalsIgnoreCase("History")) base = base + "_";
+        String name = base;
+        for (int n = 2; !usedNames.add(name.toLowerCase(Locale.ROOT)); n++) {
+            String suffix = " (" + n + ")";
+            name = base.substring(0, Math.min(base.length(), MAX_SHEET_NAME_LENGTH - suffix.length())) + suffix;
+        }
+        return name;
+    }
+}
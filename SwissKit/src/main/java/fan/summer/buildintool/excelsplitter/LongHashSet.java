@@ -0,0 +1,79 @@
+package fan.summer.buildintool.excelsplitter;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing set of longs with linear probing, for 64-bit value fingerprints (distinct
+ * counts, seen keys): 8 bytes per slot instead of a boxed entry. 0 marks a free slot, so a
+ * value of 0 is stored as 1. Not thread-safe.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public final class LongHashSet {
+
+    private long[] table = new long[8];
+    private int size;
+
+    /**
+     * 64-bit fingerprint of a value: FNV-1a over the chars, finished with the MurmurHash3
+     * mixer. Collisions are negligible below billions of distinct values.
+     */
+    public static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Adds a value; returns false when it was already present.
+     */
+    public boolean add(long value) {
+        if (value == 0) value = 1;
+        int mask = table.length - 1;
+        int i = (int) (value ^ (value >>> 32)) & mask;
+        while (table[i] != 0) {
+            if (table[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        if (++size * 2 > table.length) grow();
+        return true;
+    }
+
+    public void addAll(LongHashSet other) {
+        for (long v : other.table) {
+            if (v != 0) add(v);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(LongConsumer consumer) {
+        for (long v : table) {
+            if (v != 0) consumer.accept(v);
+        }
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        size = 0;
+        for (long v : old) {
+            if (v != 0) add(v);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.poi.util.XMLHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk-backed shared strings table for very large workbooks.
+ * The sharedStrings.xml part is streamed once into two temp files — the UTF-8 string
+ * bytes and a table of 8-byte offsets — which are then memory-mapped. Strings are
+ * decoded on demand and kept in a small LRU, so heap usage does not grow with the
+ * size of the table. Lookups are safe to call from several parser threads.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class MappedSharedStrings implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedSharedStrings.class);
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final int LRU_CAPACITY = 8_192;
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final List<MappedByteBuffer> dataSegments = new ArrayList<>();
+    private final List<MappedByteBuffer> indexSegments = new ArrayList<>();
+    private final int count;
+    private final Map<Integer, String> lru = new LinkedHashMap<>(LRU_CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > LRU_CAPACITY;
+        }
+    };
+
+    /**
+     * Builds the on-disk store from a sharedStrings.xml stream.
+     *
+     * @param sharedStringsXml the sharedStrings part, or null when the workbook has none
+     */
+    public MappedSharedStrings(InputStream sharedStringsXml) throws IOException {
+        dataFile = Files.createTempFile("swisskit-sst-", ".dat");
+        indexFile = Files.createTempFile("swisskit-sst-", ".idx");
+        // Mapped files cannot be deleted on Windows until the buffers are collected
+        dataFile.toFile().deleteOnExit();
+        indexFile.toFile().deleteOnExit();
+        FileChannel data = null;
+        FileChannel index = null;
+        try {
+            count = sharedStringsXml == null ? 0 : spill(sharedStringsXml);
+            data = FileChannel.open(dataFile, StandardOpenOption.READ);
+            index = FileChannel.open(indexFile, StandardOpenOption.READ);
+            map(data, dataSegments);
+            map(index, indexSegments);
+        } catch (IOException | RuntimeException e) {
+            dataSegments.clear();
+            indexSegments.clear();
+            closeQuietly(data);
+            closeQuietly(index);
+            deleteTempFiles();
+            throw e;
+        }
+        dataChannel = data;
+        indexChannel = index;
+        logger.info("Shared strings spilled to disk | strings={}, bytes={}", count, Files.size(dataFile));
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the shared string at the given index.
+     */
+    public String get(int idx) {
+        if (idx < 0 || idx >= count) {
+            throw new IndexOutOfBoundsException("Shared string index " + idx + " out of range, count=" + count);
+        }
+        synchronized (lru) {
+            String cached = lru.get(idx);
+            if (cached != null) return cached;
+        }
+        long start = offset(idx);
+        int length = (int) (offset(idx + 1) - start);
+        if (length == 0) return "";
+        String value = new String(readData(start, length), StandardCharsets.UTF_8);
+        synchronized (lru) {
+            lru.put(idx, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataSegments.clear();
+        indexSegments.clear();
+        try {
+            dataChannel.close();
+            indexChannel.close();
+        } finally {
+            deleteTempFiles();
+        }
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    /**
+     * Streams every &lt;si&gt; item to the data file and its start offset to the index file.
+     * Phonetic runs (&lt;rPh&gt;) are skipped, matching what Excel displays.
+     */
+    private int spill(InputStream xml) throws IOException {
+        int n = 0;
+        try (OutputStream data = new BufferedOutputStream(Files.newOutputStream(dataFile), 1 << 16);
+             DataOutputStream index = new DataOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(indexFile), 1 << 16))) {
+            XMLStreamReader reader = XMLHelper.newXMLInputFactory().createXMLStreamReader(xml);
+            long offset = 0;
+            StringBuilder item = new StringBuilder();
+            boolean inItem = false;
+            boolean inText = false;
+            int phoneticDepth = 0;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        String name = reader.getLocalName();
+                        if (name.equals("si")) {
+                            inItem = true;
+                            item.setLength(0);
+                        } else if (name.equals("rPh")) {
+                            phoneticDepth++;
+                        } else if (name.equals("t") && inItem && phoneticDepth == 0) {
+                            inText = true;
+                        }
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                        if (inText) item.append(reader.getText());
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        String name = reader.getLocalName();
+                        if (name.equals("t")) {
+                            inText = false;
+                        } else if (name.equals("rPh")) {
+                            phoneticDepth--;
+                        } else if (name.equals("si")) {
+                            byte[] bytes = item.toString().getBytes(StandardCharsets.UTF_8);
+                            index.writeLong(offset);
+                            data.write(bytes);
+                            offset += bytes.length;
+                            inItem = false;
+                            n++;
+                        }
+                    }
+                    default -> { }
+                }
+            }
+            reader.close();
+            // Sentinel so the length of item i is always offset(i + 1) - offset(i)
+            index.writeLong(offset);
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse shared strings", e);
+        }
+        return n;
+    }
+
+    private static void map(FileChannel channel, List<MappedByteBuffer> segments) throws IOException {
+        long size = channel.size();
+        for (long pos = 0; pos < size; pos += SEGMENT_SIZE) {
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(SEGMENT_SIZE, size - pos)));
+        }
+    }
+
+    private long offset(int idx) {
+        long pos = (long) idx * Long.BYTES;
+        // SEGMENT_SIZE is a multiple of 8, so an offset never straddles two index segments
+        return indexSegments.get((int) (pos / SEGMENT_SIZE)).getLong((int) (pos % SEGMENT_SIZE));
+    }
+
+    private byte[] readData(long start, int length) {
+        byte[] bytes = new byte[length];
+        int segment = (int) (start / SEGMENT_SIZE);
+        int pos = (int) (start % SEGMENT_SIZE);
+        if (pos + (long) length <= SEGMENT_SIZE) {
+            dataSegments.get(segment).get(pos, bytes);
+            return bytes;
+        }
+        // Rare: the string crosses a segment boundary, fall back to a positional read
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) {
+                int read = dataChannel.read(buf, start + buf.position());
+                if (read < 0) throw new EOFException("Shared string data truncated at " + start);
+            }
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close shared strings channel", e);
+        }
+    }
+
+    private void deleteTempFiles() {
+        try {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(indexFile);
+        } catch (IOException e) {
+            logger.warn("Failed to delete shared strings temp files | data={}, index={}", dataFile, indexFile, e);
+        }
+    }
+}
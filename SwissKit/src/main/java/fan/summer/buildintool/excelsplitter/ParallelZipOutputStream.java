@@ -0,0 +1,331 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.archivers.zip.ZipMethod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Zip output stream that deflates entries on all cores at a chosen compression level.
+ * Every entry is cut into 1 MiB blocks that are deflated independently (each primed with
+ * the previous block's last 32 KiB as dictionary and ended with a sync flush, as pigz does),
+ * so a single large sheet part is compressed in parallel too, and blocks of consecutive
+ * entries overlap. Entries are written in their original order as raw pre-compressed data.
+ * The local header needs an entry's CRC and compressed size, so an entry can only be written
+ * once complete; the finished blocks of a large entry are spilled in order to a temp file
+ * meanwhile, and at most about {@code 2 × cores} blocks per stream are held in memory.
+ * <p>
+ * POI's {@code XSSFWorkbook.write} writes into a given {@link ZipArchiveOutputStream}
+ * directly; for workbooks written by other means {@link #recompressing} re-encodes the
+ * finished file, which costs an extra inflate and deflate pass over every entry.
+ * Level 0 stores entries uncompressed. Not thread-safe.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public final class ParallelZipOutputStream extends ZipArchiveOutputStream {
+
+    /** Level used when no level is configured: zlib's default trade-off. */
+    public static final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    // Blocks of one stream in flight before the writer waits, and blocks of one entry kept in
+    // memory before the oldest are spilled; together they bound the buffered data per stream
+    private static final int MAX_PENDING_BLOCKS = THREADS * 2;
+
+    // Shared by all streams so concurrent writers do not multiply the thread count
+    private static final ExecutorService DEFLATERS = Executors.newFixedThreadPool(THREADS, new DaemonFactory());
+
+    private static final class PendingEntry {
+        final ZipArchiveEntry entry;
+        final CRC32 crc = new CRC32();
+        final List<Future<byte[]>> blocks = new ArrayList<>();
+        long size;
+        // Compressed blocks already written out in order, ahead of those still in blocks
+        Path spill;
+        OutputStream spillOut;
+        long spilledBytes;
+
+        PendingEntry(ZipArchiveEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final ZipArchiveOutputStream target;
+    private final int level;
+    private final Deque<PendingEntry> pending = new ArrayDeque<>();
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private PendingEntry current;
+    private byte[] block;
+    private int blockLength;
+    private byte[] previousBlock;
+    private boolean finished;
+
+    /**
+     * @param level 0 (stored) to 9 (best), or {@link #DEFAULT_LEVEL}
+     */
+    public ParallelZipOutputStream(OutputStream out, int level) {
+        // The superclass only ever sees an empty archive; entries go to target as raw data
+        super(OutputStream.nullOutputStream());
+        if (level != DEFAULT_LEVEL && (level < 0 || level > 9)) {
+            throw new IllegalArgumentException("Compression level must be 0-9: " + level);
+        }
+        this.target = new ZipArchiveOutputStream(out);
+        this.level = level;
+    }
+
+    /**
+     * Stream for a writer that produces a complete zip file itself (e.g. FESOD): the file is
+     * buffered to a temp file and re-encoded into out with this class on close.
+     * Closing the returned stream closes out.
+     */
+    static OutputStream recompressing(OutputStream target, int level) throws IOException {
+        Path temp = Files.createTempFile("swisskit-zip-", ".tmp");
+        return new FilterOutputStream(Files.newOutputStream(temp)) {
+            private boolean closed;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                try {
+                    super.close();
+                    try (ZipFile zip = ZipFile.builder().setPath(temp).get();
+                         ParallelZipOutputStream zos = new ParallelZipOutputStream(target, level)) {
+                        for (ZipArchiveEntry e : Collections.list(zip.getEntriesInPhysicalOrder())) {
+                            zos.putArchiveEntry(new ZipArchiveEntry(e.getName()));
+                            try (InputStream in = zip.getInputStream(e)) {
+                                in.transferTo(zos);
+                            }
+                            zos.closeArchiveEntry();
+                        }
+                    }
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void putArchiveEntry(ZipArchiveEntry entry) throws IOException {
+        if (current != null) closeArchiveEntry();
+        current = new PendingEntry(entry);
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+        previousBlock = null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (current == null) throw new IOException("No current zip entry");
+        current.crc.update(b, off, len);
+        current.size += len;
+        while (len > 0) {
+            int n = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == BLOCK_SIZE) submitBlock(false);
+        }
+    }
+
+    @Override
+    public void closeArchiveEntry() throws IOException {
+        if (current == null) return;
+        submitBlock(true);
+        pending.add(current);
+        current = null;
+        previousBlock = null;
+        // Write out whatever is already compressed so finished entries do not pile up
+        while (!pending.isEmpty() && isDone(pending.peek())) writeEntry(pending.poll());
+    }
+
+    @Override
+    public void flush() {
+        // Entries can only be written once complete; nothing to flush early
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) return;
+        closeArchiveEntry();
+        while (!pending.isEmpty()) writeEntry(pending.poll());
+        target.finish();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+            target.close();
+        } finally {
+            inFlight.forEach(f -> f.cancel(false));
+            pending.forEach(ParallelZipOutputStream::discard);
+            if (current != null) discard(current);
+            super.close();
+        }
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void submitBlock(boolean last) throws IOException {
+        byte[] data = blockLength == block.length ? block : Arrays.copyOf(block, blockLength);
+        byte[] dictionary = previousBlock;
+        Future<byte[]> compressed = DEFLATERS.submit(() -> deflate(data, dictionary, last));
+        current.blocks.add(compressed);
+        inFlight.add(compressed);
+        previousBlock = data;
+        block = last ? null : new byte[BLOCK_SIZE];
+        blockLength = 0;
+
+        while (inFlight.size() > MAX_PENDING_BLOCKS) await(inFlight.poll());
+        while (!inFlight.isEmpty() && inFlight.peek().isDone()) inFlight.poll();
+        while (current.blocks.size() > MAX_PENDING_BLOCKS) spillOldest(current);
+        // Earlier entries finished meanwhile are written now rather than kept until the next entry
+        while (!pending.isEmpty() && isDone(pending.peek())) writeEntry(pending.poll());
+    }
+
+    private void spillOldest(PendingEntry p) throws IOException {
+        byte[] data = await(p.blocks.remove(0));
+        if (p.spill == null) {
+            p.spill = Files.createTempFile("swisskit-zip-", ".blocks");
+            p.spillOut = new BufferedOutputStream(Files.newOutputStream(p.spill), 1 << 16);
+        }
+        p.spillOut.write(data);
+        p.spilledBytes += data.length;
+    }
+
+    private byte[] deflate(byte[] data, byte[] dictionary, boolean last) {
+        if (level == 0) return data;
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+            byte[] buf = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) out.write(buf, 0, deflater.deflate(buf));
+            } else {
+                // A sync flush ends the block on a byte boundary so the next block can follow it
+                int n;
+                do {
+                    n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    out.write(buf, 0, n);
+                } while (n == buf.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeEntry(PendingEntry p) throws IOException {
+        List<InputStream> parts = new ArrayList<>(p.blocks.size() + 1);
+        long compressedSize = p.spilledBytes;
+        if (p.spill != null) {
+            p.spillOut.close();
+            parts.add(new BufferedInputStream(Files.newInputStream(p.spill), 1 << 16));
+        }
+        for (Future<byte[]> b : p.blocks) {
+            byte[] data = await(b);
+            parts.add(new ByteArrayInputStream(data));
+            compressedSize += data.length;
+        }
+        ZipArchiveEntry entry = new ZipArchiveEntry(p.entry.getName());
+        if (p.entry.getTime() != -1) entry.setTime(p.entry.getTime());
+        entry.setMethod(level == 0 ? ZipMethod.STORED.getCode() : ZipMethod.DEFLATED.getCode());
+        entry.setCrc(p.crc.getValue());
+        entry.setSize(p.size);
+        entry.setCompressedSize(compressedSize);
+        Enumeration<InputStream> e = Collections.enumeration(parts);
+        try (InputStream raw = new SequenceInputStream(e)) {
+            target.addRawArchiveEntry(entry, raw);
+        } finally {
+            discard(p);
+        }
+    }
+
+    private static void discard(PendingEntry p) {
+        p.blocks.clear();
+        if (p.spill == null) return;
+        try {
+            p.spillOut.close();
+            Files.deleteIfExists(p.spill);
+        } catch (IOException e) {
+            // A leftover temp file is not worth failing the archive for
+        }
+        p.spill = null;
+    }
+
+    private static boolean isDone(PendingEntry p) {
+        return p.blocks.stream().allMatch(Future::isDone);
+    }
+
+    private static byte[] await(Future<byte[]> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+    }
+
+    private static final class DaemonFactory implements ThreadFactory {
+        private final AtomicInteger n = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "zip-deflate-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package fan.summer.buildintool.excelsplitter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary form of a row for temp files (sort runs, join partitions): the cell
+ * count, then per cell a tag byte and, for text, the UTF-8 length and bytes, with counts
+ * and lengths as unsigned varints. Readers hand over text cells; decimals and booleans, which
+ * the JSON import produces, keep their type, and anything else is written as its text form.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public final class RowCodec {
+
+    private static final byte NULL_CELL = 0;
+    private static final byte TEXT_CELL = 1;
+    private static final byte DECIMAL_CELL = 2;
+    private static final byte TRUE_CELL = 3;
+    private static final byte FALSE_CELL = 4;
+
+    private RowCodec() {}
+
+    public static void write(DataOutputStream out, List<Object> row) throws IOException {
+        writeVarInt(out, row.size());
+        for (Object cell : row) {
+            if (cell == null) {
+                out.writeByte(NULL_CELL);
+            } else if (cell instanceof Boolean b) {
+                out.writeByte(b ? TRUE_CELL : FALSE_CELL);
+            } else {
+                byte[] utf8 = String.valueOf(cell).getBytes(StandardCharsets.UTF_8);
+                out.writeByte(cell instanceof BigDecimal ? DECIMAL_CELL : TEXT_CELL);
+                writeVarInt(out, utf8.length);
+                out.write(utf8);
+            }
+        }
+    }
+
+    /**
+     * Reads the next row, or returns null at the end of the stream.
+     */
+    public static List<Object> read(DataInputStream in) throws IOException {
+        int cells;
+        try {
+            cells = readVarInt(in);
+        } catch (EOFException e) {
+            return null;
+        }
+        List<Object> row = new ArrayList<>(cells);
+        for (int i = 0; i < cells; i++) {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL_CELL -> row.add(null);
+                case TRUE_CELL -> row.add(Boolean.TRUE);
+                case FALSE_CELL -> row.add(Boolean.FALSE);
+                default -> {
+                    byte[] utf8 = new byte[readVarInt(in)];
+                    in.readFully(utf8);
+                    String text = new String(utf8, StandardCharsets.UTF_8);
+                    row.add(tag == DECIMAL_CELL ? new BigDecimal(text) : text);
+                }
+            }
+        }
+        return row;
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Decides which rows of a sheet are duplicates by key columns, for the split pre-stage and
+ * the dedup tool. Rows are fed in sheet order; rows whose key cells are all blank are never
+ * duplicates.
+ * <p>
+ * Keys are tracked as 64-bit fingerprints in a {@link LongHashSet} (8 bytes per key), or, in
+ * exact mode, as the key text itself in a hash map that is partitioned to temp files by key
+ * hash once it outgrows the memory budget. Keeping the first occurrence by fingerprint is
+ * decided while streaming; keeping the last occurrence, or exact mode, needs a first pass
+ * ({@link #scan}) that records the row number to keep per key, after which
+ * {@link #accept} replays the sheet against a bitmap of kept rows.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class RowDeduplicator implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowDeduplicator.class);
+
+    public enum Keep { FIRST, LAST }
+
+    private static final int PARTITIONS = 64;
+    private static final char KEY_SEPARATOR = '\u0001';
+    private static final int IO_BUFFER = 1 << 16;
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final List<Integer> keyColumns;
+    private final Keep keep;
+    private final boolean exact;
+    private final long memoryBudget;
+
+    // Streaming FIRST by fingerprint
+    private final LongHashSet seen = new LongHashSet();
+    // Scan pass: key → number of the row to keep, by fingerprint or by exact key. Only rows with
+    // a key are numbered: readers skip rows that are empty in the decoded columns, so a scan that
+    // decodes the key columns alone sees fewer rows than a full read, but the same keyed rows.
+    private FingerprintMap fingerprints;
+    private Map<String, long[]> exactKeys;
+    private long exactBytes;
+    private List<Path> parts;
+    private List<DataOutputStream> outs;
+    private BitSet kept;
+
+    private long scanned;
+    private long accepted;
+    private long duplicates;
+
+    /**
+     * @param keyColumns   columns whose trimmed values identify a row
+     * @param exact        compare keys exactly instead of by 64-bit fingerprint
+     * @param memoryBudget heap for exact keys before they are partitioned to disk
+     */
+    public RowDeduplicator(List<Integer> keyColumns, Keep keep, boolean exact, long memoryBudget) {
+        if (keyColumns.isEmpty()) throw new IllegalArgumentException("At least one key column is required");
+        this.keyColumns = List.copyOf(keyColumns);
+        this.keep = keep;
+        this.exact = exact;
+        this.memoryBudget = memoryBudget;
+        if (needsScan()) {
+            if (exact) exactKeys = new HashMap<>();
+            else fingerprints = new FingerprintMap();
+        }
+    }
+
+    /**
+     * True when every row must go through {@link #scan} and {@link #finishScan} before
+     * {@link #accept}; otherwise rows can be accepted in a single streaming pass.
+     */
+    public boolean needsScan() {
+        return exact || keep == Keep.LAST;
+    }
+
+    /**
+     * First pass: records one row, in sheet order.
+     *
+     * @throws UncheckedIOException when a partition cannot be written
+     */
+    public void scan(Map<Integer, Object> row) {
+        String key = key(row);
+        if (key == null) return;
+        long seq = scanned++;
+        if (!exact) {
+            fingerprints.put(LongHashSet.hash64(key), seq, keep == Keep.LAST);
+            return;
+        }
+        try {
+            if (outs != null) {
+                writePart(key, seq);
+                return;
+            }
+            long[] slot = exactKeys.get(key);
+            if (slot == null) {
+                exactKeys.put(key, new long[]{seq});
+                exactBytes += ENTRY_OVERHEAD + 2L * key.length();
+                if (exactBytes > memoryBudget) spill();
+            } else if (keep == Keep.LAST) {
+                slot[0] = seq;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write dedup partition", e);
+        }
+    }
+
+    /**
+     * Ends the first pass: turns the recorded row numbers into the bitmap of kept rows.
+     */
+    public void finishScan() throws IOException {
+        kept = new BitSet();
+        // Rows with a blank key are kept whatever the mode
+        if (fingerprints != null) {
+            fingerprints.forEachValue(seq -> kept.set(index(seq)));
+            fingerprints = null;
+        } else if (outs == null) {
+            exactKeys.values().forEach(slot -> kept.set(index(slot[0])));
+        } else {
+            for (DataOutputStream out : outs) out.close();
+            for (int p = 0; p < PARTITIONS; p++) {
+                // Rows reach a partition in sheet order, so the first / last entry of a key wins
+                Map<String, long[]> slots = new HashMap<>();
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(parts.get(p)), IO_BUFFER))) {
+                    for (List<Object> row; (row = RowCodec.read(in)) != null; ) {
+                        long seq = Long.parseLong((String) row.get(0));
+                        long[] slot = slots.putIfAbsent((String) row.get(1), new long[]{seq});
+                        if (slot != null && keep == Keep.LAST) slot[0] = seq;
+                    }
+                }
+                slots.values().forEach(slot -> kept.set(index(slot[0])));
+                Files.deleteIfExists(parts.get(p));
+            }
+        }
+        exactKeys = null;
+        logger.info("Dedup scan completed | keyedRows={}, keptRows={}, exact={}, keep={}, partitioned={}",
+                scanned, kept.cardinality(), exact, keep, parts != null);
+    }
+
+    /**
+     * Second pass (or the only pass, see {@link #needsScan}): true when the row is kept,
+     * false when it is a duplicate. Rows must come in the same order as in the scan, read
+     * with at least the key columns decoded.
+     */
+    public boolean accept(Map<Integer, Object> row) {
+        String key = key(row);
+        boolean keepRow;
+        if (key == null) {
+            keepRow = true;
+        } else if (kept != null) {
+            keepRow = kept.get(index(accepted++));
+        } else {
+            keepRow = seen.add(LongHashSet.hash64(key));
+        }
+        if (!keepRow) duplicates++;
+        return keepRow;
+    }
+
+    public long getDuplicateCount() {
+        return duplicates;
+    }
+
+    public boolean isPartitioned() {
+        return parts != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (parts == null) return;
+        if (outs != null) {
+            for (DataOutputStream out : outs) out.close();
+        }
+        for (Path part : parts) Files.deleteIfExists(part);
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private String key(Map<Integer, Object> row) {
+        StringBuilder sb = new StringBuilder();
+        boolean blank = true;
+        for (int i = 0; i < keyColumns.size(); i++) {
+            Object v = row.get(keyColumns.get(i));
+            String s = v == null ? "" : v.toString().trim();
+            if (!s.isEmpty()) blank = false;
+            if (i > 0) sb.append(KEY_SEPARATOR);
+            sb.append(s);
+        }
+        return blank ? null : sb.toString();
+    }
+
+    private static int index(long seq) {
+        if (seq > Integer.MAX_VALUE) throw new IllegalStateException("Too many rows to deduplicate: " + seq);
+        return (int) seq;
+    }
+
+    private void spill() throws IOException {
+        logger.info("Dedup keys exceed memory budget, partitioning to disk | keys={}, budgetBytes={}",
+                exactKeys.size(), memoryBudget);
+        parts = new ArrayList<>(PARTITIONS);
+        outs = new ArrayList<>(PARTITIONS);
+        for (int p = 0; p < PARTITIONS; p++) {
+            Path file = Files.createTempFile("swisskit-dedup-", ".part");
+            parts.add(file);
+            outs.add(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER)));
+        }
+        // Each key has one entry so far, so partition order among keys does not matter
+        for (Map.Entry<String, long[]> e : exactKeys.entrySet()) writePart(e.getKey(), e.getValue()[0]);
+        exactKeys = Map.of();
+    }
+
+    private void writePart(String key, long seq) throws IOException {
+        List<Object> row = new ArrayList<>(2);
+        row.add(String.valueOf(seq));
+        row.add(key);
+        RowCodec.write(outs.get(Math.floorMod(key.hashCode() * 0x9E3779B9, PARTITIONS)), row);
+    }
+
+    /**
+     * Fingerprint → row number, open addressing over two parallel long arrays (16 bytes per
+     * key). Fingerprint 0 is stored as 1, as in {@link LongHashSet}.
+     */
+    private static final class FingerprintMap {
+        private long[] keys = new long[16];
+        private long[] values = new long[16];
+        private int size;
+
+        void put(long key, long value, boolean replace) {
+            if (key == 0) key = 1;
+            int mask = keys.length - 1;
+            int i = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == key) {
+                    if (replace) values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            if (++size * 2 > keys.length) grow();
+        }
+
+        void forEachValue(LongConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) consumer.accept(values[i]);
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i], true);
+            }
+        }
+    }
+}
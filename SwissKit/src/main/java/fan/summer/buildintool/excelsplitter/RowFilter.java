@@ -0,0 +1,511 @@
+package fan.summer.buildintool.excelsplitter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Row filter expressions for split configs, parsed once and bound to a header row
+ * into a plain {@link Predicate} that the read listener evaluates per row.
+ *
+ * <pre>
+ *   金额 &gt; 0 and 状态 in (A, B)
+ *   [Posting Date] in this_month or #3 is invalid
+ *   not (branch startswith 'HK' or amount between 100 and 500)
+ * </pre>
+ *
+ * Columns are header names, {@code [bracketed names]} or 1-based {@code #n} positions.
+ * Operators: {@code = != > >= < <= in, not in, between, contains, startswith, endswith,
+ * is [not] empty, is [not] invalid}. Comparisons are numeric or by date when the literal
+ * is a number or date, otherwise textual. {@code in today | this_week | this_month |
+ * last_month | this_year} match date cells against the current calendar period.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public final class RowFilter {
+
+    private final String expression;
+    private final Node root;
+
+    private RowFilter(String expression, Node root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * Parses a filter expression. Column names are not resolved until {@link #bind}.
+     *
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public static RowFilter parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("Filter expression is empty");
+        }
+        Parser parser = new Parser(tokenize(expression));
+        Node root = parser.parseOr();
+        if (!parser.atEnd()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek().text + "' in filter: " + expression);
+        }
+        return new RowFilter(expression.trim(), root);
+    }
+
+    /**
+     * Resolves column references against a header row and returns the compiled predicate.
+     *
+     * @param headerMap column index → header text of the sheet being read
+     * @throws IllegalArgumentException if a referenced column does not exist
+     */
+    public Predicate<Map<Integer, Object>> bind(Map<Integer, String> headerMap) {
+        Map<String, Integer> byName = new HashMap<>();
+        headerMap.forEach((idx, name) -> {
+            if (name != null) byName.putIfAbsent(name.trim(), idx);
+        });
+        return root.compile(byName, LocalDate.now());
+    }
+
+    /**
+     * Returns the column indices the expression reads, resolved like {@link #bind}.
+     * Unknown column names are ignored here; {@link #bind} reports them.
+     */
+    public BitSet referencedColumns(Map<Integer, String> headerMap) {
+        Map<String, Integer> byName = new HashMap<>();
+        headerMap.forEach((idx, name) -> {
+            if (name != null) byName.putIfAbsent(name.trim(), idx);
+        });
+        BitSet columns = new BitSet();
+        collectColumns(root, byName, columns);
+        return columns;
+    }
+
+    private static void collectColumns(Node node, Map<String, Integer> byName, BitSet columns) {
+        switch (node) {
+            case Or or   -> { collectColumns(or.left(), byName, columns); collectColumns(or.right(), byName, columns); }
+            case And and -> { collectColumns(and.left(), byName, columns); collectColumns(and.right(), byName, columns); }
+            case Not not -> collectColumns(not.inner(), byName, columns);
+            case Condition c -> {
+                Integer idx = c.byPosition() ? Integer.valueOf(Integer.parseInt(c.column()) - 1) : byName.get(c.column());
+                if (idx != null && idx >= 0) columns.set(idx);
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * Numeric value of a cell as comparisons see it, or null when it is not a number.
+     */
+    public static Double numberOf(String cell) {
+        return Literal.parseNumber(cell);
+    }
+
+    /**
+     * Date value of a cell as comparisons see it (yyyy-MM-dd, yyyy/MM/dd, yyyy.MM.dd, yyyyMMdd), or null.
+     */
+    public static LocalDate dateOf(String cell) {
+        return Literal.parseDate(cell, false);
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // ==================== AST ====================
+
+    private interface Node {
+        Predicate<Map<Integer, Object>> compile(Map<String, Integer> columns, LocalDate today);
+    }
+
+    private record Or(Node left, Node right) implements Node {
+        public Predicate<Map<Integer, Object>> compile(Map<String, Integer> columns, LocalDate today) {
+            return left.compile(columns, today).or(right.compile(columns, today));
+        }
+    }
+
+    private record And(Node left, Node right) implements Node {
+        public Predicate<Map<Integer, Object>> compile(Map<String, Integer> columns, LocalDate today) {
+            return left.compile(columns, today).and(right.compile(columns, today));
+        }
+    }
+
+    private record Not(Node inner) implements Node {
+        public Predicate<Map<Integer, Object>> compile(Map<String, Integer> columns, LocalDate today) {
+            return inner.compile(columns, today).negate();
+        }
+    }
+
+    private enum Op { EQ, NE, GT, GE, LT, LE, IN, BETWEEN, CONTAINS, STARTS, ENDS, EMPTY, INVALID, PERIOD }
+
+    private record Condition(String column, boolean byPosition, Op op, List<String> literals) implements Node {
+        public Predicate<Map<Integer, Object>> compile(Map<String, Integer> columns, LocalDate today) {
+            Integer idx = byPosition ? Integer.valueOf(Integer.parseInt(column) - 1) : columns.get(column);
+            if (idx == null || idx < 0) {
+                throw new IllegalArgumentException("Unknown filter column: " + column);
+            }
+            final int col = idx;
+            return switch (op) {
+                case EMPTY   -> row -> text(row, col).isEmpty();
+                case INVALID -> row -> "INVALID".equals(ExcelUtil.normalizeOrInvalid(row.get(col)));
+                case CONTAINS -> {
+                    String lit = literals.get(0);
+                    yield row -> text(row, col).contains(lit);
+                }
+                case STARTS -> {
+                    String lit = literals.get(0);
+                    yield row -> text(row, col).startsWith(lit);
+                }
+                case ENDS -> {
+                    String lit = literals.get(0);
+                    yield row -> text(row, col).endsWith(lit);
+                }
+                case IN -> {
+                    List<Literal> set = literals.stream().map(Literal::of).toList();
+                    yield row -> {
+                        String cell = text(row, col);
+                        for (Literal lit : set) {
+                            if (lit.compare(cell) == 0) return true;
+                        }
+                        return false;
+                    };
+                }
+                case BETWEEN -> {
+                    Literal lo = Literal.of(literals.get(0));
+                    Literal hi = Literal.of(literals.get(1));
+                    yield row -> {
+                        String cell = text(row, col);
+                        Integer a = lo.compare(cell);
+                        Integer b = hi.compare(cell);
+                        return a != null && b != null && a >= 0 && b <= 0;
+                    };
+                }
+                case PERIOD -> {
+                    LocalDate[] range = period(literals.get(0), today);
+                    yield row -> {
+                        LocalDate d = Literal.parseDate(text(row, col), true);
+                        return d != null && !d.isBefore(range[0]) && !d.isAfter(range[1]);
+                    };
+                }
+                default -> {
+                    Literal lit = Literal.of(literals.get(0));
+                    Op cmp = op;
+                    yield row -> {
+                        Integer c = lit.compare(text(row, col));
+                        if (c == null) return cmp == Op.NE;
+                        return switch (cmp) {
+                            case EQ -> c == 0;
+                            case NE -> c != 0;
+                            case GT -> c > 0;
+                            case GE -> c >= 0;
+                            case LT -> c < 0;
+                            default -> c <= 0;
+                        };
+                    };
+                }
+            };
+        }
+    }
+
+    private static String text(Map<Integer, Object> row, int col) {
+        Object v = row.get(col);
+        return v == null ? "" : v.toString().trim();
+    }
+
+    private static LocalDate[] period(String name, LocalDate today) {
+        return switch (name) {
+            case "today"      -> new LocalDate[]{today, today};
+            case "this_week"  -> {
+                LocalDate start = today.minusDays(today.getDayOfWeek().getValue() - 1L);
+                yield new LocalDate[]{start, start.plus(6, ChronoUnit.DAYS)};
+            }
+            case "this_month" -> {
+                YearMonth ym = YearMonth.from(today);
+                yield new LocalDate[]{ym.atDay(1), ym.atEndOfMonth()};
+            }
+            case "last_month" -> {
+                YearMonth ym = YearMonth.from(today).minusMonths(1);
+                yield new LocalDate[]{ym.atDay(1), ym.atEndOfMonth()};
+            }
+            default -> new LocalDate[]{today.withDayOfYear(1), today.withDayOfYear(today.lengthOfYear())};
+        };
+    }
+
+    private static final Set<String> PERIODS = Set.of("today", "this_week", "this_month", "last_month", "this_year");
+
+    /**
+     * A comparison literal with its numeric and date forms pre-parsed, so per-row
+     * evaluation only has to parse the cell side.
+     */
+    private record Literal(String text, Double number, LocalDate date) {
+        static Literal of(String text) {
+            return new Literal(text, parseNumber(text), parseDate(text, false));
+        }
+
+        /** Compares the cell to this literal; null when the cell is not comparable. */
+        Integer compare(String cell) {
+            if (number != null) {
+                Double v = parseNumber(cell);
+                return v == null ? null : Double.compare(v, number);
+            }
+            if (date != null) {
+                LocalDate d = parseDate(cell, true);
+                return d == null ? null : d.compareTo(date);
+            }
+            return Integer.signum(cell.compareTo(text));
+        }
+
+        private static int digitsEnd(String s, int from) {
+            int i = from;
+            while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') i++;
+            return i;
+        }
+
+        static Double parseNumber(String s) {
+            if (s.isEmpty()) return null;
+            char c = s.charAt(0);
+            if (!(c >= '0' && c <= '9') && c != '-' && c != '+' && c != '.') return null;
+            try {
+                return Double.parseDouble(s.replace(",", ""));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Parses yyyy-MM-dd, yyyy/MM/dd, yyyy.MM.dd with or without zero padding (optionally
+         * followed by a time) or yyyyMMdd; with allowSerial, Excel serial day numbers are accepted too.
+         */
+        static LocalDate parseDate(String s, boolean allowSerial) {
+            int len = s.length();
+            try {
+                if (len >= 8 && "-/.".indexOf(s.charAt(4)) >= 0) {
+                    char sep = s.charAt(4);
+                    int monthEnd = digitsEnd(s, 5);
+                    int dayEnd = monthEnd < len && s.charAt(monthEnd) == sep ? digitsEnd(s, monthEnd + 1) : -1;
+                    if (monthEnd - 5 >= 1 && monthEnd - 5 <= 2 && dayEnd - monthEnd - 1 >= 1 && dayEnd - monthEnd - 1 <= 2
+                            && (dayEnd == len || s.charAt(dayEnd) == ' ' || s.charAt(dayEnd) == 'T')) {
+                        return LocalDate.of(Integer.parseInt(s, 0, 4, 10),
+                                Integer.parseInt(s, 5, monthEnd, 10), Integer.parseInt(s, monthEnd + 1, dayEnd, 10));
+                    }
+                }
+                if (len == 8 && s.chars().allMatch(Character::isDigit)) {
+                    return LocalDate.of(Integer.parseInt(s, 0, 4, 10),
+                            Integer.parseInt(s, 4, 6, 10), Integer.parseInt(s, 6, 8, 10));
+                }
+            } catch (RuntimeException e) {
+                return null;
+            }
+            if (allowSerial) {
+                Double serial = parseNumber(s);
+                if (serial != null && serial >= 1 && serial < 2_958_466) {
+                    return LocalDate.of(1899, 12, 30).plusDays(serial.longValue());
+                }
+            }
+            return null;
+        }
+    }
+
+    // ==================== Tokenizer / parser ====================
+
+    private enum Kind { WORD, STRING, COLUMN, POSITION, SYMBOL }
+
+    private record Token(Kind kind, String text) {
+        boolean is(String keyword) {
+            return (kind == Kind.WORD || kind == Kind.SYMBOL) && text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    private static List<Token> tokenize(String s) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int n = s.length();
+        while (i < n) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == ',') {
+                tokens.add(new Token(Kind.SYMBOL, String.valueOf(c)));
+                i++;
+            } else if (c == '=' || c == '!' || c == '<' || c == '>') {
+                int end = i + 1;
+                if (end < n && (s.charAt(end) == '=' || (c == '<' && s.charAt(end) == '>'))) end++;
+                String op = s.substring(i, end);
+                if (op.equals("!")) throw new IllegalArgumentException("Unexpected '!' in filter: " + s);
+                tokens.add(new Token(Kind.SYMBOL, op));
+                i = end;
+            } else if (c == '\'' || c == '"') {
+                StringBuilder sb = new StringBuilder();
+                int j = i + 1;
+                while (true) {
+                    if (j >= n) throw new IllegalArgumentException("Unterminated string in filter: " + s);
+                    char d = s.charAt(j);
+                    if (d == c) {
+                        if (j + 1 < n && s.charAt(j + 1) == c) {
+                            sb.append(c);
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    sb.append(d);
+                    j++;
+                }
+                tokens.add(new Token(Kind.STRING, sb.toString()));
+                i = j + 1;
+            } else if (c == '[') {
+                int end = s.indexOf(']', i);
+                if (end < 0) throw new IllegalArgumentException("Unterminated [column] in filter: " + s);
+                tokens.add(new Token(Kind.COLUMN, s.substring(i + 1, end).trim()));
+                i = end + 1;
+            } else if (c == '#') {
+                int j = i + 1;
+                while (j < n && Character.isDigit(s.charAt(j))) j++;
+                if (j == i + 1) throw new IllegalArgumentException("Expected column number after '#' in filter: " + s);
+                tokens.add(new Token(Kind.POSITION, s.substring(i + 1, j)));
+                i = j;
+            } else {
+                int j = i;
+                while (j < n && !Character.isWhitespace(s.charAt(j)) && "(),=!<>'\"[#".indexOf(s.charAt(j)) < 0) j++;
+                tokens.add(new Token(Kind.WORD, s.substring(i, j)));
+                i = j;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+        private final List<Token> tokens;
+        private int pos;
+
+        Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        boolean atEnd() {
+            return pos >= tokens.size();
+        }
+
+        Token peek() {
+            if (atEnd()) throw new IllegalArgumentException("Unexpected end of filter expression");
+            return tokens.get(pos);
+        }
+
+        Token next() {
+            Token t = peek();
+            pos++;
+            return t;
+        }
+
+        boolean accept(String keyword) {
+            if (!atEnd() && tokens.get(pos).is(keyword)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String keyword) {
+            if (!accept(keyword)) {
+                throw new IllegalArgumentException("Expected '" + keyword + "' but found '"
+                        + (atEnd() ? "end of expression" : peek().text) + "'");
+            }
+        }
+
+        Node parseOr() {
+            Node left = parseAnd();
+            while (accept("or")) left = new Or(left, parseAnd());
+            return left;
+        }
+
+        Node parseAnd() {
+            Node left = parseUnary();
+            while (accept("and")) left = new And(left, parseUnary());
+            return left;
+        }
+
+        Node parseUnary() {
+            if (accept("not")) return new Not(parseUnary());
+            if (accept("(")) {
+                Node inner = parseOr();
+                expect(")");
+                return inner;
+            }
+            return parseCondition();
+        }
+
+        Node parseCondition() {
+            Token col = next();
+            if (col.kind == Kind.SYMBOL || col.kind == Kind.STRING) {
+                throw new IllegalArgumentException("Expected a column but found '" + col.text + "'");
+            }
+            boolean byPosition = col.kind == Kind.POSITION;
+            String name = col.text;
+
+            Token t = next();
+            switch (t.text.toLowerCase(Locale.ROOT)) {
+                case "=", "==" -> { return new Condition(name, byPosition, Op.EQ, List.of(literal())); }
+                case "!=", "<>" -> { return new Condition(name, byPosition, Op.NE, List.of(literal())); }
+                case ">"  -> { return new Condition(name, byPosition, Op.GT, List.of(literal())); }
+                case ">=" -> { return new Condition(name, byPosition, Op.GE, List.of(literal())); }
+                case "<"  -> { return new Condition(name, byPosition, Op.LT, List.of(literal())); }
+                case "<=" -> { return new Condition(name, byPosition, Op.LE, List.of(literal())); }
+                case "contains"   -> { return new Condition(name, byPosition, Op.CONTAINS, List.of(literal())); }
+                case "startswith" -> { return new Condition(name, byPosition, Op.STARTS, List.of(literal())); }
+                case "endswith"   -> { return new Condition(name, byPosition, Op.ENDS, List.of(literal())); }
+                case "between" -> {
+                    String lo = literal();
+                    expect("and");
+                    return new Condition(name, byPosition, Op.BETWEEN, List.of(lo, literal()));
+                }
+                case "in" -> { return inClause(name, byPosition); }
+                case "not" -> {
+                    if (accept("in")) return new Not(inClause(name, byPosition));
+                    expect("contains");
+                    return new Not(new Condition(name, byPosition, Op.CONTAINS, List.of(literal())));
+                }
+                case "is" -> {
+                    boolean negate = accept("not");
+                    Node cond;
+                    if (accept("empty") || accept("null")) {
+                        cond = new Condition(name, byPosition, Op.EMPTY, List.of());
+                    } else {
+                        expect("invalid");
+                        cond = new Condition(name, byPosition, Op.INVALID, List.of());
+                    }
+                    return negate ? new Not(cond) : cond;
+                }
+                default -> throw new IllegalArgumentException("Unknown operator '" + t.text + "' after column " + name);
+            }
+        }
+
+        Node inClause(String name, boolean byPosition) {
+            if (!accept("(")) {
+                String period = next().text.toLowerCase(Locale.ROOT);
+                if (!PERIODS.contains(period)) {
+                    throw new IllegalArgumentException("Expected '(' or one of " + PERIODS + " after 'in'");
+                }
+                return new Condition(name, byPosition, Op.PERIOD, List.of(period));
+            }
+            List<String> values = new ArrayList<>();
+            do {
+                values.add(literal());
+            } while (accept(","));
+            expect(")");
+            return new Condition(name, byPosition, Op.IN, values);
+        }
+
+        String literal() {
+            Token t = next();
+            if (t.kind == Kind.SYMBOL) {
+                throw new IllegalArgumentException("Expected a value but found '" + t.text + "'");
+            }
+            return t.text;
+        }
+    }
+}
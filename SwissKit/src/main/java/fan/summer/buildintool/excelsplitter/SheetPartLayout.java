@@ -0,0 +1,256 @@
+package fan.summer.buildintool.excelsplitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Byte layout of an inflated worksheet part, found by a raw byte scan rather than an XML
+ * parse: where &lt;sheetData&gt; starts and ends and where any &lt;row&gt; element begins.
+ * A row-aligned byte range served through {@link #document} is a well-formed document on
+ * its own (the root start tag with all namespace declarations, then the rows), so ranges
+ * of one sheet can be parsed independently and in parallel.
+ * Relies on the writer escaping '&lt;' in text, which every spreadsheet writer does.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+final class SheetPartLayout {
+
+    private static final int WINDOW = 1 << 20;
+    private static final int HEAD_WINDOW = 64 * 1024;
+    private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+    private static final Pattern ROW_REF = Pattern.compile("\\sr\\s*=");
+
+    private final FileChannel channel;
+    private final byte[] prefix;
+    private final byte[] suffix;
+    private final byte[] rowTag;
+    private final long dataStart;
+    private final long dataEnd;
+
+    private SheetPartLayout(FileChannel channel, byte[] prefix, byte[] suffix, byte[] rowTag,
+                            long dataStart, long dataEnd) {
+        this.channel = channel;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.rowTag = rowTag;
+        this.dataStart = dataStart;
+        this.dataEnd = dataEnd;
+    }
+
+    /**
+     * Scans the part, or returns null when it cannot be split safely: not UTF-8, no root
+     * element or sheetData found, or an empty sheetData.
+     */
+    static SheetPartLayout scan(FileChannel channel) throws IOException {
+        byte[] head = read(channel, 0, (int) Math.min(HEAD_WINDOW, channel.size()));
+        String text = new String(head, StandardCharsets.ISO_8859_1);
+        int pos = text.startsWith("\u00EF\u00BB\u00BF") ? 3 : 0;
+        if (text.startsWith("<?xml", pos)) {
+            int end = text.indexOf("?>", pos);
+            if (end < 0) return null;
+            Matcher m = ENCODING.matcher(text.substring(pos, end));
+            if (m.find() && !m.group(1).equalsIgnoreCase("UTF-8")) return null;
+            pos = end + 2;
+        }
+        // Skip comments and whitespace up to the root element
+        while (true) {
+            pos = text.indexOf('<', pos);
+            if (pos < 0) return null;
+            if (text.startsWith("<!--", pos)) {
+                pos = text.indexOf("-->", pos);
+                if (pos < 0) return null;
+            } else if (text.startsWith("<?", pos) || text.startsWith("<!", pos)) {
+                pos = text.indexOf('>', pos);
+                if (pos < 0) return null;
+            } else {
+                break;
+            }
+        }
+        int rootStart = pos;
+        int nameEnd = rootStart + 1;
+        while (nameEnd < text.length() && !isDelimiter(text.charAt(nameEnd))) nameEnd++;
+        String rootName = text.substring(rootStart + 1, nameEnd);
+        int rootEnd = tagEnd(text, nameEnd);
+        if (rootEnd < 0 || text.charAt(rootEnd - 1) == '/') return null;
+        int colon = rootName.indexOf(':');
+        String nsPrefix = colon >= 0 ? rootName.substring(0, colon + 1) : "";
+
+        byte[] sheetDataOpen = ("<" + nsPrefix + "sheetData").getBytes(StandardCharsets.US_ASCII);
+        byte[] sheetDataClose = ("</" + nsPrefix + "sheetData>").getBytes(StandardCharsets.US_ASCII);
+        long size = channel.size();
+        long open = indexOfElement(channel, sheetDataOpen, rootEnd + 1, size);
+        if (open < 0) return null;
+        byte[] openTag = read(channel, open, (int) Math.min(HEAD_WINDOW, size - open));
+        int openEnd = tagEnd(new String(openTag, StandardCharsets.ISO_8859_1), sheetDataOpen.length);
+        if (openEnd < 0 || openTag[openEnd - 1] == '/') return null;
+        long dataStart = open + openEnd + 1;
+        long dataEnd = lastIndexOf(channel, sheetDataClose, dataStart, size);
+        if (dataEnd < 0) return null;
+
+        byte[] prefix = text.substring(0, rootEnd + 1).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] suffix = ("</" + rootName + ">").getBytes(StandardCharsets.ISO_8859_1);
+        byte[] rowTag = ("<" + nsPrefix + "row").getBytes(StandardCharsets.US_ASCII);
+        return new SheetPartLayout(channel, prefix, suffix, rowTag, dataStart, dataEnd);
+    }
+
+    /** First byte of the rows, right after the sheetData start tag. */
+    long dataStart() {
+        return dataStart;
+    }
+
+    /** Start of the sheetData end tag. */
+    long dataEnd() {
+        return dataEnd;
+    }
+
+    /**
+     * Position of the first row element starting at or after from, or {@link #dataEnd()} when there is none.
+     */
+    long nextRow(long from) throws IOException {
+        if (from >= dataEnd) return dataEnd;
+        long pos = indexOfElement(channel, rowTag, from, dataEnd);
+        return pos < 0 ? dataEnd : pos;
+    }
+
+    /**
+     * True when the row element starting at pos carries an r attribute, so its index is
+     * known without the rows before it.
+     */
+    boolean hasRowRef(long pos) throws IOException {
+        byte[] tag = read(channel, pos, (int) Math.min(4096, dataEnd - pos));
+        String text = new String(tag, StandardCharsets.ISO_8859_1);
+        int end = tagEnd(text, rowTag.length);
+        return end > 0 && ROW_REF.matcher(text.substring(0, end)).find();
+    }
+
+    /**
+     * The byte range [start, end) as a standalone document.
+     */
+    InputStream document(long start, long end) {
+        return new InputStream() {
+            private int prefixPos;
+            private long pos = start;
+            private int suffixPos;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                if (prefixPos < prefix.length) {
+                    int n = Math.min(len, prefix.length - prefixPos);
+                    System.arraycopy(prefix, prefixPos, b, off, n);
+                    prefixPos += n;
+                    return n;
+                }
+                if (pos < end) {
+                    int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - pos)), pos);
+                    if (n < 0) throw new IOException("Sheet part truncated at " + pos);
+                    pos += n;
+                    return n;
+                }
+                if (suffixPos < suffix.length) {
+                    int n = Math.min(len, suffix.length - suffixPos);
+                    System.arraycopy(suffix, suffixPos, b, off, n);
+                    suffixPos += n;
+                    return n;
+                }
+                return -1;
+            }
+        };
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private static boolean isDelimiter(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '>' || c == '/';
+    }
+
+    /** Index of the '>' closing the start tag whose name ends at from, skipping quoted attribute values. */
+    private static int tagEnd(String text, int from) {
+        char quote = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Next occurrence of an element start (pattern followed by a delimiter) in [from, to). */
+    private static long indexOfElement(FileChannel channel, byte[] pattern, long from, long to) throws IOException {
+        long pos = from;
+        while (true) {
+            long found = indexOf(channel, pattern, pos, to);
+            if (found < 0) return -1;
+            long next = found + pattern.length;
+            if (next >= to) return -1;
+            if (isDelimiter((char) read(channel, next, 1)[0])) return found;
+            pos = found + 1;
+        }
+    }
+
+    private static long indexOf(FileChannel channel, byte[] pattern, long from, long to) throws IOException {
+        for (long pos = from; pos < to; pos += WINDOW - pattern.length + 1) {
+            int length = (int) Math.min(WINDOW, to - pos);
+            if (length < pattern.length) return -1;
+            byte[] window = read(channel, pos, length);
+            int i = indexOf(window, length, pattern);
+            if (i >= 0) return pos + i;
+            if (pos + length >= to) return -1;
+        }
+        return -1;
+    }
+
+    private static long lastIndexOf(FileChannel channel, byte[] pattern, long from, long to) throws IOException {
+        for (long end = to; end > from; end -= WINDOW - pattern.length + 1) {
+            long start = Math.max(from, end - WINDOW);
+            byte[] window = read(channel, start, (int) (end - start));
+            for (int i = window.length - pattern.length; i >= 0; i--) {
+                if (matches(window, i, pattern)) return start + i;
+            }
+            if (start == from) return -1;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] data, int length, byte[] pattern) {
+        byte first = pattern[0];
+        for (int i = 0, last = length - pattern.length; i <= last; i++) {
+            if (data[i] == first && matches(data, i, pattern)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] data, int at, byte[] pattern) {
+        for (int j = 0; j < pattern.length; j++) {
+            if (data[at + j] != pattern[j]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] read(FileChannel channel, long pos, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(0, length));
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) break;
+        }
+        return buf.position() == buf.capacity() ? buf.array() : Arrays.copyOf(buf.array(), buf.position());
+    }
+}
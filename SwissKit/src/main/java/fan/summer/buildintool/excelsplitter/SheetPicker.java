@@ -0,0 +1,190 @@
+package fan.summer.buildintool.excelsplitter;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.concurrent.Task;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.cell.CheckBoxListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.util.StringConverter;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * File → sheet → column picker shared by the tools built on the splitter: choosing a file
+ * analyzes it in the background, choosing a sheet fills the column checklists added with
+ * {@link #addColumnList}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class SheetPicker extends VBox {
+
+    private final Label fileLabel = new Label("未选择文件");
+    private final Label statusLabel = new Label();
+    private final ComboBox<String> sheetCombo = new ComboBox<>();
+    private final List<ColumnList> columnLists = new ArrayList<>();
+    private Path file;
+    private Map<String, Map<Integer, String>> analysis;
+    private Runnable onChange = () -> {};
+
+    /**
+     * A checklist of the chosen sheet's columns, in sheet order.
+     */
+    public final class ColumnList {
+        private final ListView<Integer> list = new ListView<>();
+        private final Map<Integer, BooleanProperty> checks = new HashMap<>();
+        private final boolean defaultChecked;
+
+        private ColumnList(boolean defaultChecked) {
+            this.defaultChecked = defaultChecked;
+            list.setPrefHeight(140);
+            list.setStyle(
+                "-fx-background-color: rgba(255,255,255,0.04);" +
+                "-fx-border-color: rgba(255,255,255,0.10); -fx-border-radius: 8;" +
+                "-fx-background-radius: 8;"
+            );
+        }
+
+        /** Checked column indexes in sheet order. */
+        public List<Integer> selected() {
+            return list.getItems().stream().filter(idx -> checks.get(idx).get()).toList();
+        }
+
+        private void fill(Map<Integer, String> headers) {
+            list.getItems().clear();
+            checks.clear();
+            if (headers == null) return;
+            for (Integer idx : new TreeMap<>(headers).keySet()) {
+                BooleanProperty checked = new SimpleBooleanProperty(defaultChecked);
+                checked.addListener((o, ov, nv) -> onChange.run());
+                checks.put(idx, checked);
+                list.getItems().add(idx);
+            }
+            list.setCellFactory(CheckBoxListCell.forListView(checks::get, new StringConverter<>() {
+                @Override public String toString(Integer idx) { return headers.get(idx); }
+                @Override public Integer fromString(String s) { return null; }
+            }));
+        }
+    }
+
+    public SheetPicker(String title) {
+        setSpacing(8);
+        setStyle("-fx-background-color: transparent;");
+
+        Button pickBtn = glassBtn("📂  选择文件", false);
+        pickBtn.setOnAction(e -> pickFile());
+        fileLabel.setStyle(
+            "-fx-text-fill: rgba(255,255,255,0.40); -fx-font-size: 12px;" +
+            "-fx-font-family: 'SF Mono','Consolas',monospace;"
+        );
+        HBox fileRow = new HBox(12, pickBtn, fileLabel);
+        fileRow.setAlignment(Pos.CENTER_LEFT);
+        statusLabel.setWrapText(true);
+
+        sheetCombo.setMaxWidth(Double.MAX_VALUE);
+        sheetCombo.setPromptText("请先选择文件...");
+        sheetCombo.setStyle(comboStyle());
+        sheetCombo.setDisable(true);
+        sheetCombo.valueProperty().addListener((o, ov, nv) -> {
+            for (ColumnList columns : columnLists) columns.fill(headers());
+            onChange.run();
+        });
+
+        getChildren().addAll(sectionTitle(title), fileRow, statusLabel, subLabel("选择Sheet"), sheetCombo);
+    }
+
+    public ColumnList addColumnList(String label, boolean defaultChecked) {
+        ColumnList columns = new ColumnList(defaultChecked);
+        columns.fill(headers());
+        columnLists.add(columns);
+        getChildren().addAll(subLabel(label), columns.list);
+        return columns;
+    }
+
+    /** Runs whenever the file, sheet or a column check changes. */
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public String sheet() {
+        return sheetCombo.getValue();
+    }
+
+    /** Header names of the chosen sheet by column index, or null before a sheet is chosen. */
+    public Map<Integer, String> headers() {
+        return analysis == null || sheet() == null ? null : analysis.get(sheet());
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void pickFile() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("选择 Excel / CSV 文件");
+        fc.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Excel / CSV 文件", "*.xlsx", "*.xls", "*.xlsm", "*.csv", "*.tsv"),
+            new FileChooser.ExtensionFilter("Excel 文件", "*.xlsx", "*.xls", "*.xlsm"),
+            new FileChooser.ExtensionFilter("CSV / TSV 文件", "*.csv", "*.tsv")
+        );
+        File f = fc.showOpenDialog(getScene() != null ? getScene().getWindow() : null);
+        if (f != null) load(f.toPath());
+    }
+
+    private void load(Path path) {
+        file = path;
+        analysis = null;
+        sheetCombo.getItems().clear();
+        sheetCombo.setDisable(true);
+        fileLabel.setText(path.getFileName().toString());
+        fileLabel.setStyle(
+            "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 12px;" +
+            "-fx-font-family: 'SF Mono','Consolas',monospace;"
+        );
+        statusLabel.setText("正在分析...");
+        statusLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+        onChange.run();
+
+        Task<Map<String, Map<Integer, String>>> task = new Task<>() {
+            @Override
+            protected Map<String, Map<Integer, String>> call() throws Exception {
+                return ExcelSplitter.analyze(path);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            // A newer pick supersedes this analysis
+            if (!path.equals(file)) return;
+            analysis = task.getValue();
+            sheetCombo.getItems().setAll(analysis.keySet());
+            sheetCombo.setDisable(false);
+            sheetCombo.setPromptText("请选择Sheet...");
+            if (analysis.size() == 1) sheetCombo.getSelectionModel().selectFirst();
+            statusLabel.setText("✓ 共 " + analysis.size() + " 个Sheet");
+            statusLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+        });
+        task.setOnFailed(e -> {
+            if (!path.equals(file)) return;
+            statusLabel.setText("❌ 分析失败：" + task.getException().getMessage());
+            statusLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+        });
+        new Thread(task) {{ setDaemon(true); }}.start();
+    }
+}
@@ -0,0 +1,51 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.fesod.sheet.ExcelReader;
+import org.apache.fesod.sheet.FesodSheet;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+/**
+ * One-shot streaming read of a single sheet with one header row, for the tools built on the
+ * splitter's read pipeline (lookup, aggregation, diff, ...). .xlsx / .xlsm files go through
+ * {@link XlsxStreamReader} with a disk-backed shared strings table and a very large sheet
+ * parsed on all cores; CSV / TSV through {@link CsvRowReader}; .xls through FESOD.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public final class SheetRowReader {
+
+    private SheetRowReader() {}
+
+    /**
+     * Streams the sheet into the listener, header row first.
+     *
+     * @param decodeColumns data-row columns to decode, or null for all
+     */
+    public static void read(Path file, String sheetName, BitSet decodeColumns,
+                            StreamingRowListener listener) throws IOException {
+        if (CsvRowReader.supports(file)) {
+            try (CsvRowReader csv = new CsvRowReader(file)) {
+                csv.read(1, decodeColumns, listener);
+            }
+            return;
+        }
+        if (XlsxStreamReader.supports(file)) {
+            try (XlsxStreamReader reader = new XlsxStreamReader(file)) {
+                reader.setParseThreads(Runtime.getRuntime().availableProcessors());
+                reader.read(sheetName, 1, decodeColumns, listener);
+            }
+            return;
+        }
+        ExcelReader reader = FesodSheet.read(file.toFile()).build();
+        try {
+            reader.read(FesodSheet.readSheet(sheetName).registerReadListener(listener).build());
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SAX handler for a worksheet part that turns &lt;row&gt;/&lt;c&gt; elements into the same
+ * column index → string value maps FESOD produces for no-model reads: numbers in the General
+ * format as FESOD's general number format writes them, other formats (dates included) through
+ * the format string, with the workbook's 1900 or 1904 date system, and rows without any
+ * value skipped as FESOD's ignoreEmptyRow does.
+ * Cells outside the decode column set are skipped before their value is read, so
+ * their shared strings are never looked up and their numbers never formatted.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+class SheetXmlHandler extends DefaultHandler {
+
+    /**
+     * Receives the decoded rows of a sheet.
+     */
+    interface RowSink {
+        void head(int rowIndex, Map<Integer, String> headMap);
+
+        void row(int rowIndex, Map<Integer, Object> row);
+    }
+
+    private record NumberFormat(int index, String format) {}
+
+    // General numbers: integers in full, others to 10 significant digits and at most 10 decimals
+    private static final MathContext GENERAL_DIGITS = new MathContext(10, RoundingMode.HALF_UP);
+    private static final int GENERAL_DECIMALS = 10;
+    // FESOD's built-in short date and date-time formats under a Chinese locale
+    private static final Map<Integer, String> BUILTIN_FORMATS_CN = Map.of(14, "yyyy/m/d", 22, "yyyy/m/d h:mm");
+
+    private final MappedSharedStrings strings;
+    private final StylesTable styles;
+    private final BitSet decodeColumns;
+    private final int headRowNumber;
+    private final boolean date1904;
+    private final RowSink sink;
+    private final DataFormatter formatter = new DataFormatter();
+    private final Map<Integer, NumberFormat> formatCache = new HashMap<>();
+    private final StringBuilder text = new StringBuilder();
+
+    private int rowIndex = -1;
+    private Map<Integer, Object> row;
+    private int column;
+    private String cellType;
+    private int styleIndex;
+    private boolean skipCell;
+    private boolean collecting;
+    private boolean hasValue;
+    private boolean rowHasValue;
+
+    /**
+     * @param decodeColumns columns to decode in data rows, or null for all; header rows are always fully decoded
+     * @param date1904      whether the workbook uses the 1904 date system
+     */
+    SheetXmlHandler(MappedSharedStrings strings, StylesTable styles, BitSet decodeColumns,
+                    int headRowNumber, boolean date1904, RowSink sink) {
+        this.strings = strings;
+        this.styles = styles;
+        this.decodeColumns = decodeColumns;
+        this.headRowNumber = headRowNumber;
+        this.date1904 = date1904;
+        this.sink = sink;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attrs) {
+        switch (localName(localName, qName)) {
+            case "row" -> {
+                String r = attrs.getValue("r");
+                rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                row = new LinkedHashMap<>();
+                column = -1;
+                rowHasValue = false;
+            }
+            case "c" -> {
+                String ref = attrs.getValue("r");
+                column = ref != null ? columnOf(ref) : column + 1;
+                cellType = attrs.getValue("t");
+                String s = attrs.getValue("s");
+                styleIndex = s != null ? Integer.parseInt(s) : 0;
+                skipCell = rowIndex >= headRowNumber && decodeColumns != null && !decodeColumns.get(column);
+                hasValue = false;
+                text.setLength(0);
+            }
+            case "v", "t" -> {
+                if (row == null) return;
+                // Skipped cells still make the row non-empty, so row counts match the full read
+                rowHasValue = true;
+                if (!skipCell) {
+                    collecting = true;
+                    hasValue = true;
+                }
+            }
+            default -> { }
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (collecting) text.append(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        switch (localName(localName, qName)) {
+            case "v", "t" -> collecting = false;
+            case "c" -> {
+                if (!skipCell && hasValue) {
+                    String value = decode(text.toString());
+                    if (value != null) row.put(column, value);
+                }
+            }
+            case "row" -> {
+                if (rowIndex < headRowNumber) {
+                    Map<Integer, String> head = new LinkedHashMap<>();
+                    row.forEach((k, v) -> head.put(k, String.valueOf(v)));
+                    sink.head(rowIndex, head);
+                } else if (rowHasValue) {
+                    sink.row(rowIndex, row);
+                }
+                row = null;
+            }
+            default -> { }
+        }
+    }
+
+    private String decode(String raw) {
+        if (cellType == null || cellType.equals("n")) {
+            return raw.isEmpty() ? null : formatNumber(raw);
+        }
+        return switch (cellType) {
+            case "s" -> strings.get(Integer.parseInt(raw.trim()));
+            case "b" -> raw.equals("1") ? "TRUE" : "FALSE";
+            default  -> raw; // inlineStr, str (formula string result), e (error), d (ISO date)
+        };
+    }
+
+    private String formatNumber(String raw) {
+        NumberFormat fmt = formatCache.computeIfAbsent(styleIndex, idx -> {
+            if (styles == null || idx >= styles.getNumCellStyles()) return new NumberFormat(0, "General");
+            XSSFCellStyle style = styles.getStyleAt(idx);
+            int formatIndex = style.getDataFormat();
+            String format = style.getDataFormatString();
+            if (BUILTIN_FORMATS_CN.containsKey(formatIndex)
+                    && Locale.getDefault().getLanguage().equals(Locale.CHINESE.getLanguage())) {
+                format = BUILTIN_FORMATS_CN.get(formatIndex);
+            }
+            if (format == null) format = BuiltinFormats.getBuiltinFormat(formatIndex);
+            return new NumberFormat(formatIndex, format == null ? "General" : format);
+        });
+        try {
+            if (fmt.index() == 0 || "General".equalsIgnoreCase(fmt.format()) || "@".equals(fmt.format())) {
+                return generalNumber(new BigDecimal(raw));
+            }
+            return formatter.formatRawCellContents(Double.parseDouble(raw), fmt.index(), fmt.format(), date1904);
+        } catch (NumberFormatException e) {
+            return raw;
+        }
+    }
+
+    private static String generalNumber(BigDecimal value) {
+        if (value.signum() == 0) return "0";
+        if (value.stripTrailingZeros().scale() <= 0) return value.setScale(0, RoundingMode.UNNECESSARY).toPlainString();
+        BigDecimal rounded = value.round(GENERAL_DIGITS);
+        if (rounded.scale() > GENERAL_DECIMALS) rounded = rounded.setScale(GENERAL_DECIMALS, RoundingMode.HALF_UP);
+        return rounded.signum() == 0 ? "0" : rounded.stripTrailingZeros().toPlainString();
+    }
+
+    /** Column index of an A1-style reference, without CellReference's regex parsing. */
+    private static int columnOf(String ref) {
+        int col = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c < 'A' || c > 'Z') break;
+            col = col * 26 + (c - 'A' + 1);
+        }
+        return col - 1;
+    }
+
+    private static String localName(String localName, String qName) {
+        if (localName != null && !localName.isEmpty()) return localName;
+        int colon = qName.indexOf(':');
+        return colon >= 0 ? qName.substring(colon + 1) : qName;
+    }
+}
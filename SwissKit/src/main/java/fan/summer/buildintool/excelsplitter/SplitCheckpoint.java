@@ -0,0 +1,239 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only record of the outputs a split job has completed, so that a restarted job
+ * can skip them. The first lines hold a fingerprint of the job (sources and settings);
+ * a checkpoint with a different fingerprint is discarded. Every completed output is
+ * appended as one line and flushed right away, so the record survives a crash or the
+ * app being closed. An output is only skipped after its size and SHA-256 on disk match
+ * the recorded values and it holds the expected number of rows. Every {@code .part} file
+ * the job opens is listed as well, so a later run removes exactly the parts this job left.
+ * Outputs handed on successfully (e.g. mailed) are recorded too, so a rerun hands on only
+ * those that were not.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+class SplitCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(SplitCheckpoint.class);
+
+    private static final String HEADER = "# SwissKit split checkpoint v1";
+    private static final String FINGERPRINT = "fingerprint=";
+    private static final String STARTED = "started\t";
+    private static final String DELIVERED = "delivered\t";
+
+    /**
+     * A completed output as recorded in the checkpoint.
+     */
+    record Entry(String file, String key, long rows, long bytes, String sha256) {}
+
+    private final Path file;
+    private final Map<String, Entry> completed = new ConcurrentHashMap<>();
+    private final Set<String> delivered = ConcurrentHashMap.newKeySet();
+    private final List<Path> staleParts = new ArrayList<>();
+    private BufferedWriter writer;
+
+    private SplitCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the checkpoint of a previous run of the same job, or starts an empty one when the
+     * file is missing or belongs to a different job.
+     *
+     * @param fingerprint identifies sources and settings, see {@link #fingerprint}
+     */
+    static SplitCheckpoint open(Path file, String fingerprint) throws IOException {
+        SplitCheckpoint checkpoint = new SplitCheckpoint(file);
+        if (Files.exists(file)) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            // Parts are listed whatever the fingerprint: the same checkpoint name means the same outputs
+            for (String line : lines) {
+                if (line.startsWith(STARTED)) {
+                    checkpoint.staleParts.add(file.resolveSibling(unescape(line.substring(STARTED.length()))));
+                }
+            }
+            if (lines.size() >= 2 && lines.get(0).equals(HEADER) && lines.get(1).equals(FINGERPRINT + fingerprint)) {
+                for (String line : lines.subList(2, lines.size())) {
+                    if (line.startsWith(DELIVERED)) {
+                        checkpoint.delivered.add(unescape(line.substring(DELIVERED.length())));
+                        continue;
+                    }
+                    Entry entry = line.startsWith(STARTED) ? null : parse(line);
+                    // A line cut short by a crash is simply not trusted
+                    if (entry != null) checkpoint.completed.put(entry.file(), entry);
+                }
+                logger.info("Split checkpoint loaded | file={}, completedOutputs={}", file.getFileName(),
+                        checkpoint.completed.size());
+            } else {
+                logger.info("Split checkpoint belongs to another job, starting over | file={}", file.getFileName());
+            }
+        }
+        checkpoint.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        checkpoint.writer.write(HEADER + "\n" + FINGERPRINT + fingerprint + "\n");
+        for (Entry entry : checkpoint.completed.values()) checkpoint.writer.write(format(entry));
+        // Only outputs that are still completed can count as delivered
+        checkpoint.delivered.retainAll(checkpoint.completed.keySet());
+        for (String name : checkpoint.delivered) checkpoint.writer.write(DELIVERED + escape(name) + '\n');
+        checkpoint.writer.flush();
+        return checkpoint;
+    }
+
+    /**
+     * SHA-256 over the description of a job; equal descriptions mean the same job.
+     */
+    static String fingerprint(String jobDescription) {
+        return HexFormat.of().formatHex(sha256().digest(jobDescription.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * True when an earlier run recorded the output as completed; it still has to be {@link #verified}.
+     */
+    boolean contains(Path output) {
+        return completed.containsKey(output.getFileName().toString());
+    }
+
+    /**
+     * Returns the recorded entry when the output was completed by an earlier run with the
+     * expected row count and the file on disk still matches its recorded size and SHA-256.
+     */
+    Entry verified(Path output, long expectedRows) {
+        Entry entry = completed.get(output.getFileName().toString());
+        if (entry == null || entry.rows() != expectedRows) return null;
+        try {
+            if (!Files.isRegularFile(output) || Files.size(output) != entry.bytes()) return null;
+            MessageDigest digest = sha256();
+            byte[] buf = new byte[1 << 16];
+            try (InputStream in = Files.newInputStream(output)) {
+                for (int n; (n = in.read(buf)) > 0; ) digest.update(buf, 0, n);
+            }
+            return HexFormat.of().formatHex(digest.digest()).equals(entry.sha256()) ? entry : null;
+        } catch (IOException e) {
+            logger.warn("Checkpointed output could not be verified | file={}", output.getFileName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * The {@code .part} files an earlier run opened; those it did not complete are left on disk.
+     */
+    List<Path> staleParts() {
+        return List.copyOf(staleParts);
+    }
+
+    /**
+     * Records a {@code .part} file about to be written and flushes it to disk.
+     */
+    synchronized void started(Path part) throws IOException {
+        writer.write(STARTED + escape(part.getFileName().toString()) + '\n');
+        writer.flush();
+    }
+
+    /**
+     * Records a completed output and flushes it to disk.
+     */
+    synchronized void completed(Entry entry) throws IOException {
+        completed.put(entry.file(), entry);
+        writer.write(format(entry));
+        writer.flush();
+    }
+
+    /**
+     * True when an earlier run (or this one) recorded the output as {@link #delivered}.
+     */
+    boolean isDelivered(Path output) {
+        return delivered.contains(output.getFileName().toString());
+    }
+
+    /**
+     * Records that a completed output was handed on successfully and flushes it to disk.
+     */
+    synchronized void delivered(Path output) throws IOException {
+        String name = output.getFileName().toString();
+        delivered.add(name);
+        writer.write(DELIVERED + escape(name) + '\n');
+        writer.flush();
+    }
+
+    /**
+     * Closes the checkpoint; deletes it when the job finished, keeps it for a resume otherwise.
+     */
+    synchronized void close(boolean jobFinished) {
+        try {
+            writer.close();
+            if (jobFinished) Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to close split checkpoint | file={}", file.getFileName(), e);
+        }
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private static String format(Entry e) {
+        return escape(e.file()) + '\t' + escape(e.key()) + '\t' + e.rows() + '\t' + e.bytes() + '\t' + e.sha256() + '\n';
+    }
+
+    private static Entry parse(String line) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 5 || parts[4].length() != 64) return null;
+        try {
+            return new Entry(unescape(parts[0]), unescape(parts[1]),
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3]), parts[4]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(switch (n) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> n;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
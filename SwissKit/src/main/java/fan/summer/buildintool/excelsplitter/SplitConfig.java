@@ -7,11 +7,18 @@ import java.util.Map;
 
 public class SplitConfig {
 
-    public enum SplitMode { BY_SHEET, BY_COLUMN, COMPLEX }
+    /** SORT writes a sorted copy of one sheet instead of splitting it. */
+    public enum SplitMode { BY_SHEET, BY_COLUMN, BY_COLUMN_TO_SHEETS, COMPLEX, SORT }
+
+    /** What to do when a group has more rows than a single Excel sheet can hold. */
+    public enum OverflowPolicy { NEW_SHEET, TRUNCATE, FAIL }
 
     // Step 1: source file + analysis result (populated after async analysis)
     public Path sourceFile;
     public Map<String, Map<Integer, String>> analysisResult; // sheetName → colIndex → header
+    // Multi-source split: all same-layout sources in read order (empty for a single file).
+    // sourceFile is then the first of them and provides the analysis result.
+    public List<Path> sourceFiles = new ArrayList<>();
 
     // Step 2: mode
     public SplitMode mode = SplitMode.BY_SHEET;
@@ -19,15 +26,50 @@ public class SplitConfig {
     // BY_SHEET: which sheets to export (all if empty)
     public List<String> selectedSheets = new ArrayList<>();
 
-    // BY_COLUMN: sheet and column to group by
+    // BY_COLUMN / BY_COLUMN_TO_SHEETS: sheet and column to group by
     public String splitSheet;
     public String splitColumn;
     public int    splitColumnIndex = -1;
 
+    // BY_COLUMN / BY_COLUMN_TO_SHEETS: output columns in output order (all header columns if empty)
+    public List<Integer> outputColumns = new ArrayList<>();
+
+    // BY_COLUMN / BY_COLUMN_TO_SHEETS: optional row filter expression (see RowFilter)
+    public String rowFilter;
+
+    // BY_COLUMN / BY_COLUMN_TO_SHEETS / SORT: rows of each output sorted by this source column
+    // (-1 keeps source order; required for SORT). Must be one of the output columns.
+    public int     sortColumnIndex = -1;
+    public boolean sortDescending = false;
+
+    // BY_COLUMN / BY_COLUMN_TO_SHEETS / SORT: dedup pre-stage (single source only). Rows whose
+    // trimmed values in these columns repeat another row are dropped (off if empty); exact compares
+    // the key text instead of a 64-bit fingerprint.
+    public List<Integer> dedupColumns = new ArrayList<>();
+    public RowDeduplicator.Keep dedupKeep = RowDeduplicator.Keep.FIRST;
+    public boolean dedupExact = false;
+
+    // BY_COLUMN: mail each output through this mass-send task as soon as it is written, with the
+    // split value as the tag (off if null). The body is HTML.
+    public String mailTaskId;
+    public String mailSubject;
+    public String mailBody;
+
+    // BY_COLUMN_TO_SHEETS: handling of groups beyond the Excel row limit
+    public OverflowPolicy overflowPolicy = OverflowPolicy.NEW_SHEET;
+
     // COMPLEX: DB-backed config task ID
     public String complexTaskId;
 
     // Step 3: output options
     public Path   outputDir;
     public String filePrefix = "";
+    // Large-file mode: read .xlsx sources with a disk-backed shared strings table
+    public boolean diskBackedStrings = false;
+    // Also write <name>_metadata.xlsx next to the always-written <name>_manifest.json
+    public boolean metadataWorkbook = false;
+    // Write formula results instead of formulas into POI-copied sheets (COMPLEX)
+    public boolean valuesOnly = false;
+    // Output zip compression: 0 (stored, fastest) to 9 (smallest), -1 for the default level
+    public int compressionLevel = -1;
 }
@@ -0,0 +1,335 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reconciliation record of one split job: row count, byte size and SHA-256 of every output,
+ * plus the input, filtered, duplicate, truncated and INVALID row totals.
+ * Sizes and checksums are taken from {@link HashingOutputStream} while the outputs are
+ * written and row counts come from the routing itself, so no output is read back.
+ * Written as {@code <name>_manifest.json} and optionally {@code <name>_metadata.xlsx}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class SplitManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SplitManifest.class);
+
+    /**
+     * One output file. rows counts data rows routed to it (header rows excluded).
+     */
+    public record Output(String file, String key, long rows, long bytes, String sha256) {}
+
+    private final SplitConfig.SplitMode mode;
+    private final List<Path> sources;
+    private final List<Output> outputs = new ArrayList<>();
+    private final List<String> copiedSheets = new ArrayList<>();
+    private final AtomicLong inputRows = new AtomicLong();
+    private final AtomicLong filteredRows = new AtomicLong();
+    private final AtomicLong duplicateRows = new AtomicLong();
+    private final AtomicLong truncatedRows = new AtomicLong();
+    private final AtomicLong invalidRows = new AtomicLong();
+    private int resumedOutputs;
+
+    public SplitManifest(SplitConfig.SplitMode mode, List<Path> sources) {
+        this.mode = mode;
+        this.sources = List.copyOf(sources);
+    }
+
+    /**
+     * Opens an output file whose size and SHA-256 are computed as it is written.
+     */
+    public static HashingOutputStream open(Path file) throws IOException {
+        return new HashingOutputStream(Files.newOutputStream(file));
+    }
+
+    /**
+     * Adds rows read from the source and how many of them the row filter rejected.
+     */
+    public void addInput(long rows, long filtered) {
+        inputRows.addAndGet(rows);
+        filteredRows.addAndGet(filtered);
+    }
+
+    /**
+     * Adds rows dropped by the dedup pre-stage as repeats of an earlier (or later) row.
+     */
+    public void addDuplicates(long rows) {
+        duplicateRows.addAndGet(rows);
+    }
+
+    public void addTruncated(long rows) {
+        truncatedRows.addAndGet(rows);
+    }
+
+    public void addInvalid(long rows) {
+        invalidRows.addAndGet(rows);
+    }
+
+    public synchronized void addCopiedSheet(String sheetName) {
+        if (!copiedSheets.contains(sheetName)) copiedSheets.add(sheetName);
+    }
+
+    /**
+     * Records a finished output. Call after the stream has been closed.
+     */
+    public synchronized void record(String key, Path file, long rows, HashingOutputStream out) {
+        outputs.add(new Output(file.getFileName().toString(), key, rows, out.getByteCount(), out.getSha256()));
+    }
+
+    /**
+     * Records an output completed and verified by an earlier run of the same job, which this run skipped.
+     */
+    public synchronized void resumed(String key, Path file, long rows, long bytes, String sha256) {
+        outputs.add(new Output(file.getFileName().toString(), key, rows, bytes, sha256));
+        resumedOutputs++;
+    }
+
+    public synchronized List<Output> getOutputs() {
+        return List.copyOf(outputs);
+    }
+
+    /**
+     * Number of outputs taken over from an earlier, interrupted run instead of being written again.
+     */
+    public synchronized int getResumedOutputs() {
+        return resumedOutputs;
+    }
+
+    public long getInputRows() {
+        return inputRows.get();
+    }
+
+    public long getFilteredRows() {
+        return filteredRows.get();
+    }
+
+    public long getDuplicateRows() {
+        return duplicateRows.get();
+    }
+
+    public long getTruncatedRows() {
+        return truncatedRows.get();
+    }
+
+    public long getInvalidRows() {
+        return invalidRows.get();
+    }
+
+    public synchronized long getOutputRows() {
+        return outputs.stream().mapToLong(Output::rows).sum();
+    }
+
+    /**
+     * True when every input row is accounted for: input = outputs + filtered + duplicates + truncated.
+     */
+    public boolean isBalanced() {
+        return getInputRows() == getOutputRows() + getFilteredRows() + getDuplicateRows() + getTruncatedRows();
+    }
+
+    /**
+     * Writes {@code <baseName>_manifest.json}, and {@code <baseName>_metadata.xlsx} when asked.
+     *
+     * @return the files written
+     */
+    public List<Path> write(Path dir, String baseName, boolean metadataWorkbook) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path json = dir.resolve(baseName + "_manifest.json");
+        Files.writeString(json, toJson(), StandardCharsets.UTF_8);
+        files.add(json);
+        if (metadataWorkbook) {
+            Path xlsx = dir.resolve(baseName + "_metadata.xlsx");
+            writeWorkbook(xlsx);
+            files.add(xlsx);
+        }
+        if (isBalanced()) {
+            logger.info("Split manifest written | outputs={}, inputRows={}, outputRows={}, filtered={}, duplicates={}, truncated={}",
+                    outputs.size(), getInputRows(), getOutputRows(), getFilteredRows(), getDuplicateRows(),
+                    getTruncatedRows());
+        } else {
+            logger.warn("Split rows do not reconcile | inputRows={}, outputRows={}, filtered={}, duplicates={}, truncated={}",
+                    getInputRows(), getOutputRows(), getFilteredRows(), getDuplicateRows(), getTruncatedRows());
+        }
+        return files;
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private synchronized String toJson() {
+        StringBuilder sb = new StringBuilder(256 + outputs.size() * 160);
+        sb.append("{\n");
+        sb.append("  \"createdAt\": ").append(quote(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))).append(",\n");
+        sb.append("  \"mode\": ").append(quote(mode.name())).append(",\n");
+        sb.append("  \"sources\": [");
+        for (int i = 0; i < sources.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(quote(sources.get(i).getFileName().toString()));
+        }
+        sb.append("],\n");
+        sb.append("  \"inputRows\": ").append(getInputRows()).append(",\n");
+        sb.append("  \"outputRows\": ").append(getOutputRows()).append(",\n");
+        sb.append("  \"filteredRows\": ").append(getFilteredRows()).append(",\n");
+        sb.append("  \"duplicateRows\": ").append(getDuplicateRows()).append(",\n");
+        sb.append("  \"truncatedRows\": ").append(getTruncatedRows()).append(",\n");
+        sb.append("  \"invalidRows\": ").append(getInvalidRows()).append(",\n");
+        sb.append("  \"balanced\": ").append(isBalanced()).append(",\n");
+        sb.append("  \"resumedOutputs\": ").append(resumedOutputs).append(",\n");
+        sb.append("  \"copiedSheets\": [");
+        for (int i = 0; i < copiedSheets.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(quote(copiedSheets.get(i)));
+        }
+        sb.append("],\n");
+        sb.append("  \"outputs\": [");
+        for (int i = 0; i < outputs.size(); i++) {
+            Output o = outputs.get(i);
+            sb.append(i == 0 ? "\n" : ",\n")
+              .append("    {\"file\": ").append(quote(o.file()))
+              .append(", \"key\": ").append(quote(o.key()))
+              .append(", \"rows\": ").append(o.rows())
+              .append(", \"bytes\": ").append(o.bytes())
+              .append(", \"sha256\": ").append(quote(o.sha256())).append('}');
+        }
+        sb.append(outputs.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private synchronized void writeWorkbook(Path file) throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            Sheet summary = wb.createSheet("对账");
+            Object[][] totals = {
+                    {"来源文件", String.join("、", sources.stream().map(p -> p.getFileName().toString()).toList())},
+                    {"拆分模式", mode.name()},
+                    {"输入行数", getInputRows()},
+                    {"输出行数合计", getOutputRows()},
+                    {"过滤行数", getFilteredRows()},
+                    {"去重行数", getDuplicateRows()},
+                    {"截断行数", getTruncatedRows()},
+                    {"INVALID 行数", getInvalidRows()},
+                    {"对账结果", isBalanced() ? "一致" : "不一致"},
+                    {"断点续跑跳过文件数", (long) resumedOutputs},
+            };
+            for (int i = 0; i < totals.length; i++) {
+                Row row = summary.createRow(i);
+                row.createCell(0).setCellValue((String) totals[i][0]);
+                if (totals[i][1] instanceof Long n) row.createCell(1).setCellValue(n);
+                else row.createCell(1).setCellValue(String.valueOf(totals[i][1]));
+            }
+            summary.setColumnWidth(0, 16 * 256);
+            summary.setColumnWidth(1, 40 * 256);
+
+            Sheet detail = wb.createSheet("输出文件");
+            Row head = detail.createRow(0);
+            String[] headers = {"文件", "分组", "行数", "字节数", "SHA-256"};
+            for (int c = 0; c < headers.length; c++) head.createCell(c).setCellValue(headers[c]);
+            for (int i = 0; i < outputs.size(); i++) {
+                Output o = outputs.get(i);
+                Row row = detail.createRow(i + 1);
+                row.createCell(0).setCellValue(o.file());
+                row.createCell(1).setCellValue(o.key());
+                row.createCell(2).setCellValue(o.rows());
+                row.createCell(3).setCellValue(o.bytes());
+                row.createCell(4).setCellValue(o.sha256());
+            }
+            detail.setColumnWidth(0, 40 * 256);
+            detail.setColumnWidth(1, 20 * 256);
+            detail.setColumnWidth(4, 68 * 256);
+
+            try (OutputStream out = Files.newOutputStream(file)) {
+                wb.write(out);
+            }
+        }
+    }
+
+    private static String quote(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"'  -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Output stream that counts bytes and feeds them into a SHA-256 digest on the way to disk.
+     */
+    public static final class HashingOutputStream extends FilterOutputStream {
+        private final MessageDigest digest;
+        // Read by the telemetry sampler while the output is being written
+        private volatile long byteCount;
+        private String sha256;
+
+        HashingOutputStream(OutputStream out) {
+            super(out);
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            digest.update((byte) b);
+            byteCount++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            digest.update(b, off, len);
+            byteCount += len;
+        }
+
+        public long getByteCount() {
+            return byteCount;
+        }
+
+        /**
+         * Hex SHA-256 of everything written, available once the stream is closed.
+         */
+        public String getSha256() {
+            if (sha256 == null) throw new IllegalStateException("Output not closed yet");
+            return sha256;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // FESOD may close the stream itself before the caller does
+            if (sha256 == null) sha256 = HexFormat.of().formatHex(digest.digest());
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live throughput counters of one split job: rows read and written, source bytes read and
+ * output bytes written, the current phase, and rates and an ETA derived from them.
+ * Counters are updated from reader and writer threads; {@link #sample()} is called
+ * periodically from one thread and smooths rates and ETA over the samples
+ * (exponential moving average), so a single slow output does not make the ETA jump.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class SplitTelemetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SplitTelemetry.class);
+
+    // Weight of the newest sample in the smoothed rates
+    private static final double SMOOTHING = 0.3;
+
+    public enum Phase {
+        STARTING("准备"), READING("读取"), SORTING("排序"), EVALUATING("计算公式"), WRITING("写出"), COPYING("复制工作表"), DONE("完成");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * One published reading of the counters.
+     *
+     * @param rowsPerSecond smoothed rows per second of the current phase (read rows while reading, else written rows)
+     * @param mbPerSecond   smoothed MB per second of source bytes read plus output bytes written
+     * @param etaSeconds    smoothed remaining time, or -1 while it cannot be estimated yet
+     */
+    public record Snapshot(Phase phase, long rowsRead, long rowsWritten, long bytesRead, long bytesWritten,
+                           long elapsedMillis, double rowsPerSecond, double mbPerSecond, long etaSeconds) {}
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder closedBytesWritten = new LongAdder();
+    private final Set<SplitManifest.HashingOutputStream> openOutputs = ConcurrentHashMap.newKeySet();
+    private volatile Phase phase = Phase.STARTING;
+    private volatile double progress;
+
+    // Sampling state, guarded by sample()
+    private long lastNanos = startNanos;
+    private long lastRows;
+    private long lastBytes;
+    private double lastProgress;
+    private double rowRate = -1;
+    private double byteRate = -1;
+    private double progressRate = -1;
+
+    public void phase(Phase phase) {
+        this.phase = phase;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Overall job fraction (0..1) as reported to the progress callback; the ETA extrapolates it.
+     */
+    void progress(double fraction) {
+        progress = Math.max(progress, fraction);
+    }
+
+    void addRowsRead(long rows) {
+        rowsRead.add(rows);
+    }
+
+    void addRowsWritten(long rows) {
+        rowsWritten.add(rows);
+    }
+
+    void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Counts the bytes of an output while it is written, not just once it is closed.
+     */
+    void track(SplitManifest.HashingOutputStream out) {
+        openOutputs.add(out);
+    }
+
+    void untrack(SplitManifest.HashingOutputStream out) {
+        if (openOutputs.remove(out)) closedBytesWritten.add(out.getByteCount());
+    }
+
+    public long getBytesWritten() {
+        long bytes = closedBytesWritten.sum();
+        for (SplitManifest.HashingOutputStream out : openOutputs) bytes += out.getByteCount();
+        return bytes;
+    }
+
+    /**
+     * Takes a reading and updates the smoothed rates.
+     */
+    synchronized Snapshot sample() {
+        long now = System.nanoTime();
+        Phase current = phase;
+        long read = rowsRead.sum();
+        long written = rowsWritten.sum();
+        long bytes = bytesRead.sum() + getBytesWritten();
+        double fraction = progress;
+
+        double seconds = (now - lastNanos) / 1e9;
+        if (seconds > 0.05) {
+            long rows = current == Phase.READING ? read : written;
+            // Switching from read to written rows must not show up as a negative rate
+            long rowDelta = Math.max(0, rows - lastRows);
+            rowRate = smooth(rowRate, rowDelta / seconds);
+            byteRate = smooth(byteRate, (bytes - lastBytes) / seconds);
+            progressRate = smooth(progressRate, (fraction - lastProgress) / seconds);
+            lastNanos = now;
+            lastRows = rows;
+            lastBytes = bytes;
+            lastProgress = fraction;
+        }
+
+        long eta = current == Phase.DONE ? 0
+                : progressRate > 1e-6 ? Math.round((1.0 - fraction) / progressRate) : -1;
+        return new Snapshot(current, read, written, bytesRead.sum(), getBytesWritten(),
+                (now - startNanos) / 1_000_000, Math.max(0, rowRate), Math.max(0, byteRate) / (1 << 20), eta);
+    }
+
+    /**
+     * Logs the job totals and average rates, for capacity planning.
+     */
+    void logSummary(SplitConfig.SplitMode mode, int sources, boolean completed) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        long read = rowsRead.sum();
+        long written = rowsWritten.sum();
+        long in = bytesRead.sum();
+        long out = getBytesWritten();
+        logger.info("Split telemetry | mode={}, sources={}, completed={}, elapsedMs={}, rowsRead={}, rowsWritten={}, "
+                        + "bytesRead={}, bytesWritten={}, readRowsPerSec={}, writeRowsPerSec={}, readMBPerSec={}, writeMBPerSec={}",
+                mode, sources, completed, Math.round(seconds * 1000), read, written, in, out,
+                Math.round(read / seconds), Math.round(written / seconds),
+                String.format("%.2f", in / seconds / (1 << 20)), String.format("%.2f", out / seconds / (1 << 20)));
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private static double smooth(double previous, double current) {
+        return previous < 0 ? current : previous + SMOOTHING * (current - previous);
+    }
+}
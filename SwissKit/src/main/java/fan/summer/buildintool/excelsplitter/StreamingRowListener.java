@@ -0,0 +1,153 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.fesod.sheet.context.AnalysisContext;
+import org.apache.fesod.sheet.event.AnalysisEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Apache FESOD event listener that hands every parsed row straight to a consumer
+ * instead of caching the whole sheet like {@link NoModelDataListener}.
+ * An optional {@link RowFilter} is bound to the header row once and evaluated per row;
+ * rejected rows are counted and never reach the consumer.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class StreamingRowListener extends AnalysisEventListener<Map<Integer, Object>> {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingRowListener.class);
+
+    private static final int TICK_ROWS = 1024;
+
+    private final Consumer<Map<Integer, Object>> sink;
+    private final RowFilter filter;
+    private Predicate<Map<Integer, Object>> predicate;
+    private Predicate<Map<Integer, Object>> gate;
+    private Consumer<Map<Integer, String>> headCheck;
+    private LongConsumer rowTicker;
+    private long tickedRows;
+    private long rowCount;
+    private long filteredCount;
+    private long gatedCount;
+    private int rowIndex = -1;
+
+    public StreamingRowListener(Consumer<Map<Integer, Object>> sink) {
+        this(sink, null);
+    }
+
+    public StreamingRowListener(Consumer<Map<Integer, Object>> sink, RowFilter filter) {
+        this.sink = sink;
+        this.filter = filter;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getFilteredCount() {
+        return filteredCount;
+    }
+
+    /** Rows rejected by the row gate; not included in the filtered count. */
+    public long getGatedCount() {
+        return gatedCount;
+    }
+
+    /**
+     * 1-based sheet row number of the data row being delivered, as Excel shows it. Blank rows
+     * the readers skip still count, so it is only valid inside the sink or row gate.
+     */
+    public long getRowNumber() {
+        return rowIndex + 1L;
+    }
+
+    /**
+     * Sets a check run on every header row before it is used, e.g. to reject a source
+     * whose layout differs from the others. The check throws to abort the read.
+     */
+    void setHeadCheck(Consumer<Map<Integer, String>> headCheck) {
+        this.headCheck = headCheck;
+    }
+
+    /**
+     * Sets a callback that gets the number of rows read since its last call, every
+     * {@value #TICK_ROWS} rows and once more when the sheet ends. It may throw to abort
+     * the read, e.g. when the job has been cancelled.
+     */
+    public void setRowTicker(LongConsumer rowTicker) {
+        this.rowTicker = rowTicker;
+    }
+
+    /**
+     * Sets a check run on every data row before the row filter, e.g. the dedup pre-stage.
+     * Rows it rejects are counted apart from filtered rows and never reach the consumer.
+     */
+    public void setRowGate(Predicate<Map<Integer, Object>> gate) {
+        this.gate = gate;
+    }
+
+    @Override
+    public void invokeHeadMap(Map<Integer, String> headMap, AnalysisContext context) {
+        onHead(headMap);
+    }
+
+    @Override
+    public void invoke(Map<Integer, Object> data, AnalysisContext context) {
+        onRow(context.readRowHolder().getRowIndex(), data);
+    }
+
+    /**
+     * Header row callback, shared by the FESOD reader and {@link XlsxStreamReader}.
+     */
+    void onHead(Map<Integer, String> headMap) {
+        if (headCheck != null) headCheck.accept(headMap);
+        // With several header rows the last one names the columns
+        if (filter != null) predicate = filter.bind(headMap);
+    }
+
+    /**
+     * Data row callback, shared by the FESOD reader and {@link XlsxStreamReader}.
+     *
+     * @param rowIndex 0-based index of the row in the sheet
+     */
+    void onRow(int rowIndex, Map<Integer, Object> data) {
+        if (rowTicker != null && rowCount - tickedRows >= TICK_ROWS) tick();
+        rowCount++;
+        this.rowIndex = rowIndex;
+        if (gate != null && !gate.test(data)) {
+            gatedCount++;
+            return;
+        }
+        if (filter != null) {
+            if (predicate == null) predicate = filter.bind(Map.of());
+            if (!predicate.test(data)) {
+                filteredCount++;
+                return;
+            }
+        }
+        sink.accept(data);
+    }
+
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        onFinish();
+    }
+
+    void onFinish() {
+        if (rowTicker != null) tick();
+        log.info("Streaming read completed | rows={}, filtered={}", rowCount, filteredCount);
+    }
+
+    private void tick() {
+        long rows = rowCount - tickedRows;
+        tickedRows = rowCount;
+        rowTicker.accept(rows);
+    }
+}
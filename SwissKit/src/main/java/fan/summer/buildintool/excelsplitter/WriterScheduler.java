@@ -0,0 +1,139 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes one output per group on a bounded pool of writer threads, largest group first.
+ * Workers pull from a single queue sorted by row count (longest-processing-time first),
+ * so a giant group starts at once instead of being left alone at the tail of the job.
+ * The thread count follows the core count and the free heap rather than a fixed cap,
+ * and each worker's utilization is logged when the job ends.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public final class WriterScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriterScheduler.class);
+
+    // Rough heap a FESOD writer needs on top of the rows it writes (row window, buffers, zip stream)
+    private static final long WRITER_HEAP_BYTES = 64L << 20;
+
+    /**
+     * Writes one group's rows to its output.
+     */
+    public interface GroupWriter<K, V> {
+        void write(K key, List<V> rows) throws Exception;
+    }
+
+    /**
+     * What one writer thread did: groups and rows written and time spent writing.
+     */
+    public record ThreadStats(String thread, int groups, long rows, long busyNanos) {}
+
+    private WriterScheduler() {}
+
+    /**
+     * Number of writer threads for the given number of groups: one core is left for the
+     * caller, and each writer must fit into the currently free heap.
+     */
+    static int parallelism(int groupCount) {
+        int cpuBound = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        Runtime rt = Runtime.getRuntime();
+        long freeHeap = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+        int memoryBound = (int) Math.max(1, Math.min(Integer.MAX_VALUE, freeHeap / WRITER_HEAP_BYTES));
+        return Math.max(1, Math.min(groupCount, Math.min(cpuBound, memoryBound)));
+    }
+
+    /**
+     * Writes every group and blocks until all are done. The first failure stops workers
+     * from taking new groups and is rethrown once the running writes have finished.
+     *
+     * @return per-thread statistics, one entry per worker
+     */
+    public static <K, V> List<ThreadStats> run(Map<K, List<V>> groups, GroupWriter<K, V> writer) throws Exception {
+        List<Map.Entry<K, List<V>>> queue = new ArrayList<>(groups.entrySet());
+        queue.sort(Comparator.comparingInt((Map.Entry<K, List<V>> e) -> e.getValue().size()).reversed());
+
+        int threads = parallelism(queue.size());
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "split-writer-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long start = System.nanoTime();
+        List<Future<ThreadStats>> futures = new ArrayList<>(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    int groupCount = 0;
+                    long rows = 0;
+                    long busy = 0;
+                    int idx;
+                    while (!failed.get() && (idx = next.getAndIncrement()) < queue.size()) {
+                        Map.Entry<K, List<V>> group = queue.get(idx);
+                        long t0 = System.nanoTime();
+                        try {
+                            writer.write(group.getKey(), group.getValue());
+                        } catch (Exception e) {
+                            failed.set(true);
+                            throw e;
+                        }
+                        busy += System.nanoTime() - t0;
+                        groupCount++;
+                        rows += group.getValue().size();
+                    }
+                    return new ThreadStats(Thread.currentThread().getName(), groupCount, rows, busy);
+                }));
+            }
+
+            List<ThreadStats> stats = new ArrayList<>(threads);
+            Exception failure = null;
+            for (Future<ThreadStats> f : futures) {
+                try {
+                    stats.add(f.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause() instanceof Exception ex ? ex : e;
+                }
+            }
+            if (failure != null) throw failure;
+
+            logStats(stats, queue, System.nanoTime() - start);
+            return stats;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private static <K, V> void logStats(List<ThreadStats> stats, List<Map.Entry<K, List<V>>> queue, long wallNanos) {
+        long wall = Math.max(1, wallNanos);
+        long busyTotal = 0;
+        for (ThreadStats s : stats) {
+            busyTotal += s.busyNanos();
+            logger.info("Writer thread | thread={}, groups={}, rows={}, busyMs={}, utilization={}%",
+                    s.thread(), s.groups(), s.rows(), s.busyNanos() / 1_000_000, s.busyNanos() * 100 / wall);
+        }
+        logger.info("Writer schedule completed | threads={}, groups={}, largestGroup={}, wallMs={}, utilization={}%",
+                stats.size(), queue.size(), queue.isEmpty() ? 0 : queue.get(0).getValue().size(),
+                wall / 1_000_000, busyTotal * 100 / (wall * Math.max(1, stats.size())));
+    }
+}
@@ -0,0 +1,310 @@
+package fan.summer.buildintool.excelsplitter;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streaming .xlsx sheet reader for the splitter's large-file mode.
+ * Unlike the FESOD read path it keeps the shared strings table on disk
+ * ({@link MappedSharedStrings}) and only decodes the columns a split needs, so heap
+ * usage is independent of both the shared strings count and the sheet width.
+ * The package is opened once and can serve several sheet reads. A very large sheet can
+ * be parsed on several cores, see {@link #setParseThreads}.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class XlsxStreamReader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(XlsxStreamReader.class);
+
+    /** Uncompressed sheet part size from which a sheet is parsed in parallel. */
+    static final long PARALLEL_MIN_BYTES = 64L << 20;
+
+    private static final int CHUNK_BYTES = 4 << 20;
+
+    // Shared by all readers so concurrently read sources do not multiply the thread count
+    private static final ExecutorService PARSERS = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()), new DaemonFactory());
+
+    private final OPCPackage pkg;
+    private final XSSFReader reader;
+    private final StylesTable styles;
+    private final MappedSharedStrings strings;
+    private final boolean date1904;
+    private int parseThreads = 1;
+
+    public XlsxStreamReader(Path file) throws IOException {
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Not a readable .xlsx file: " + file.getFileName(), e);
+        }
+        try {
+            reader = new XSSFReader(pkg);
+            styles = reader.getStylesTable();
+            try (InputStream workbook = reader.getWorkbookData()) {
+                date1904 = isDate1904(workbook);
+            }
+            List<PackagePart> sstParts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+            if (sstParts.isEmpty()) {
+                strings = new MappedSharedStrings(null);
+            } else {
+                try (InputStream in = sstParts.get(0).getInputStream()) {
+                    strings = new MappedSharedStrings(in);
+                }
+            }
+        } catch (IOException | OpenXML4JException | RuntimeException e) {
+            pkg.revert();
+            throw e instanceof IOException io ? io : new IOException("Failed to open workbook parts", e);
+        }
+    }
+
+    /**
+     * Returns true when the file can be read by this reader (.xlsx / .xlsm).
+     */
+    public static boolean supports(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".xlsx") || name.endsWith(".xlsm");
+    }
+
+    /**
+     * Number of cores one large sheet may be parsed on; 1 (the default) parses sequentially.
+     * Sheets whose XML part is at least {@value #PARALLEL_MIN_BYTES} bytes uncompressed are
+     * then cut into row-aligned chunks that are parsed concurrently and replayed in order.
+     */
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = Math.max(1, parseThreads);
+    }
+
+    /**
+     * Streams one sheet into the listener, header rows first. Rows always reach the listener
+     * in sheet order and on the calling thread, also when the sheet is parsed in parallel.
+     *
+     * @param sheetName     sheet to read
+     * @param headRowNumber number of leading header rows (as FESOD's headRowNumber)
+     * @param decodeColumns data-row columns to decode, or null for all
+     * @param listener      receives header and data rows
+     */
+    public void read(String sheetName, int headRowNumber, BitSet decodeColumns,
+                     StreamingRowListener listener) throws IOException {
+        PackagePart part = sheetPart(sheetName);
+        if (parseThreads > 1 && part.getSize() >= PARALLEL_MIN_BYTES) {
+            readParallel(part, sheetName, headRowNumber, decodeColumns, listener);
+        } else {
+            try (InputStream sheet = part.getInputStream()) {
+                parse(sheet, sheetName, handler(headRowNumber, decodeColumns, listener));
+            }
+        }
+        listener.onFinish();
+        logger.debug("Sheet streamed | sheet={}, decodeColumns={}", sheetName, decodeColumns);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            strings.close();
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private PackagePart sheetPart(String sheetName) throws IOException {
+        try {
+            XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (it.hasNext()) {
+                it.next().close();
+                if (it.getSheetName().equals(sheetName)) return it.getSheetPart();
+            }
+        } catch (OpenXML4JException e) {
+            throw new IOException("Failed to list sheets", e);
+        }
+        throw new IllegalArgumentException("Sheet not found: " + sheetName);
+    }
+
+    private SheetXmlHandler handler(int headRowNumber, BitSet decodeColumns, StreamingRowListener listener) {
+        return new SheetXmlHandler(strings, styles, decodeColumns, headRowNumber, date1904,
+                new SheetXmlHandler.RowSink() {
+                    @Override
+                    public void head(int rowIndex, Map<Integer, String> headMap) {
+                        listener.onHead(headMap);
+                    }
+
+                    @Override
+                    public void row(int rowIndex, Map<Integer, Object> row) {
+                        listener.onRow(rowIndex, row);
+                    }
+                });
+    }
+
+    /** Reads workbookPr/@date1904 from the workbook part, stopping at the sheet list. */
+    private static boolean isDate1904(InputStream workbook) throws IOException {
+        try {
+            XMLStreamReader xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(workbook);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() != XMLStreamConstants.START_ELEMENT) continue;
+                    if (xml.getLocalName().equals("sheets")) return false;
+                    if (xml.getLocalName().equals("workbookPr")) {
+                        String value = xml.getAttributeValue(null, "date1904");
+                        return "1".equals(value) || "true".equals(value);
+                    }
+                }
+                return false;
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse workbook part", e);
+        }
+    }
+
+    private static void parse(InputStream xml, String sheetName, SheetXmlHandler handler) throws IOException {
+        try {
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+            xmlReader.setContentHandler(handler);
+            xmlReader.parse(new InputSource(xml));
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Failed to parse sheet: " + sheetName, e);
+        }
+    }
+
+    /**
+     * Inflates the sheet part to a temp file, cuts its rows into chunks of about
+     * {@value #CHUNK_BYTES} bytes that start on a row element, and parses up to twice the
+     * configured thread count of chunks ahead on the shared pool. The calling thread hands
+     * each finished chunk to the listener in order, so filtering, routing and cancellation
+     * stay single-threaded and see the rows in sheet order.
+     */
+    private void readParallel(PackagePart part, String sheetName, int headRowNumber, BitSet decodeColumns,
+                              StreamingRowListener listener) throws IOException {
+        Path temp = Files.createTempFile("swisskit-sheet-", ".xml");
+        Deque<Future<List<ParsedRow>>> inFlight = new ArrayDeque<>();
+        try {
+            try (InputStream in = part.getInputStream()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ)) {
+                SheetPartLayout layout = SheetPartLayout.scan(channel);
+                // A chunk can only start mid-sheet when rows carry their own index (r attribute)
+                long firstCut = layout == null ? -1 : layout.nextRow(layout.dataStart() + CHUNK_BYTES);
+                if (layout == null || (firstCut < layout.dataEnd() && !layout.hasRowRef(firstCut))) {
+                    logger.info("Sheet layout not splittable, parsing sequentially | sheet={}", sheetName);
+                    try (InputStream sheet = Files.newInputStream(temp)) {
+                        parse(sheet, sheetName, handler(headRowNumber, decodeColumns, listener));
+                    }
+                    return;
+                }
+                int maxInFlight = parseThreads * 2;
+                int chunks = 0;
+                long pos = layout.dataStart();
+                while (pos < layout.dataEnd() || !inFlight.isEmpty()) {
+                    while (pos < layout.dataEnd() && inFlight.size() < maxInFlight) {
+                        long cut = layout.nextRow(pos + CHUNK_BYTES);
+                        while (cut < layout.dataEnd() && !layout.hasRowRef(cut)) cut = layout.nextRow(cut + 1);
+                        long start = pos;
+                        long end = cut;
+                        inFlight.add(PARSERS.submit(() -> parseChunk(layout, start, end, sheetName, headRowNumber, decodeColumns)));
+                        pos = end;
+                        chunks++;
+                    }
+                    for (ParsedRow row : await(inFlight.poll(), sheetName)) {
+                        if (row.head() != null) listener.onHead(row.head());
+                        else listener.onRow(row.rowIndex(), row.row());
+                    }
+                }
+                logger.info("Sheet parsed in parallel | sheet={}, bytes={}, chunks={}, threads={}",
+                        sheetName, channel.size(), chunks, parseThreads);
+            }
+        } finally {
+            // Workers still running only read the temp file, which they may lose now
+            inFlight.forEach(f -> f.cancel(false));
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private List<ParsedRow> parseChunk(SheetPartLayout layout, long start, long end, String sheetName,
+                                       int headRowNumber, BitSet decodeColumns) throws IOException {
+        List<ParsedRow> rows = new ArrayList<>();
+        SheetXmlHandler handler = new SheetXmlHandler(strings, styles, decodeColumns, headRowNumber, date1904,
+                new SheetXmlHandler.RowSink() {
+                    @Override
+                    public void head(int rowIndex, Map<Integer, String> headMap) {
+                        rows.add(new ParsedRow(rowIndex, headMap, null));
+                    }
+
+                    @Override
+                    public void row(int rowIndex, Map<Integer, Object> row) {
+                        rows.add(new ParsedRow(rowIndex, null, row));
+                    }
+                });
+        try (InputStream xml = layout.document(start, end)) {
+            parse(xml, sheetName, handler);
+        }
+        return rows;
+    }
+
+    private static List<ParsedRow> await(Future<List<ParsedRow>> chunk, String sheetName) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing sheet: " + sheetName, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException("Failed to parse sheet: " + sheetName, e.getCause());
+        }
+    }
+
+    /** A decoded header row (head set) or data row (row set) of a chunk. */
+    private record ParsedRow(int rowIndex, Map<Integer, String> head, Map<Integer, Object> row) {}
+
+    private static final class DaemonFactory implements ThreadFactory {
+        private final AtomicInteger n = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "xlsx-parse-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
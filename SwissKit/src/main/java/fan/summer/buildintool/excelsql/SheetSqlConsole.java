@@ -0,0 +1,285 @@
+package fan.summer.buildintool.excelsql;
+
+import fan.summer.buildintool.excelsplitter.GroupSheetWriter;
+import fan.summer.buildintool.excelsplitter.SplitConfig;
+import fan.summer.database.DatabaseInit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * Runs SQL over the tables {@link SheetTableImporter} created, with the {@value
+ * SheetTableImporter#SCHEMA} schema as the default, so imported tables need no schema prefix.
+ * <p>
+ * Queries run with H2's lazy query execution, so rows are produced as they are fetched
+ * instead of the whole result being built first. The console hands rows to the grid in
+ * pages and stops at a row cap; an export runs the statement again and streams every row
+ * to .xlsx (through {@link GroupSheetWriter}, continuing on new sheets past the Excel row
+ * limit) or to UTF-8 CSV.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class SheetSqlConsole {
+
+    private static final Logger logger = LoggerFactory.getLogger(SheetSqlConsole.class);
+
+    public static final int MAX_GRID_ROWS = 100_000;
+
+    static final String EXPORT_SHEET = "查询结果";
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int PAGE_ROWS = 500;
+
+    public record TableInfo(String name, long rows, int columns) {}
+
+    /**
+     * @param columns     result column labels, empty for statements without a result set
+     * @param rows        rows handed to the grid, or exported
+     * @param truncated   the result had more rows than the cap
+     * @param updateCount rows changed by a statement without a result set, else -1
+     */
+    public record QueryResult(List<String> columns, long rows, boolean truncated, long updateCount, long elapsedMs) {}
+
+    private volatile Statement running;
+    private volatile boolean cancelled;
+
+    /**
+     * Imported tables with their row and column counts, by name.
+     */
+    public static List<TableInfo> listTables() throws SQLException {
+        List<TableInfo> tables = new ArrayList<>();
+        try (Connection conn = open();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT T.TABLE_NAME, (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS C"
+                             + " WHERE C.TABLE_SCHEMA = T.TABLE_SCHEMA AND C.TABLE_NAME = T.TABLE_NAME)"
+                             + " FROM INFORMATION_SCHEMA.TABLES T WHERE T.TABLE_SCHEMA = ? AND T.TABLE_TYPE = 'BASE TABLE'"
+                             + " ORDER BY T.TABLE_NAME")) {
+            ps.setString(1, SheetTableImporter.SCHEMA);
+            try (ResultSet rs = ps.executeQuery(); Statement count = conn.createStatement()) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    try (ResultSet c = count.executeQuery("SELECT COUNT(*) FROM " + SheetTableImporter.quote(name))) {
+                        c.next();
+                        tables.add(new TableInfo(name, c.getLong(1), rs.getInt(2)));
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+
+    public static void dropTable(String name) throws SQLException {
+        try (Connection conn = open(); Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + SheetTableImporter.quote(name));
+        }
+        logger.info("Table dropped | table={}.{}", SheetTableImporter.SCHEMA, name);
+    }
+
+    /**
+     * Stops the statement currently running in {@link #query} or {@link #export}; it throws
+     * {@link CancellationException}. Safe from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        Statement st = running;
+        if (st != null) {
+            try {
+                st.cancel();
+            } catch (SQLException e) {
+                logger.warn("Failed to cancel statement", e);
+            }
+        }
+    }
+
+    /**
+     * Runs one statement. Result columns go to columnsSink once, then rows as display text to
+     * pageSink in pages of up to {@value #PAGE_ROWS}, until the result ends or maxRows is reached.
+     */
+    public QueryResult query(String sql, Consumer<List<String>> columnsSink,
+                             Consumer<List<List<String>>> pageSink, int maxRows) throws SQLException {
+        long start = System.nanoTime();
+        cancelled = false;
+        try (Connection conn = open(); Statement st = conn.createStatement()) {
+            running = st;
+            st.setFetchSize(FETCH_SIZE);
+            if (!st.execute(sql)) {
+                long updated = st.getLargeUpdateCount();
+                logger.info("Statement executed | updateCount={}, elapsedMs={}", updated, elapsedMs(start));
+                return new QueryResult(List.of(), 0, false, updated, elapsedMs(start));
+            }
+            try (ResultSet rs = st.getResultSet()) {
+                List<String> columns = columnLabels(rs.getMetaData());
+                columnsSink.accept(columns);
+                long rows = 0;
+                boolean truncated = false;
+                List<List<String>> page = new ArrayList<>(PAGE_ROWS);
+                while (rs.next()) {
+                    if (rows == maxRows) {
+                        truncated = true;
+                        break;
+                    }
+                    List<String> row = new ArrayList<>(columns.size());
+                    for (int i = 1; i <= columns.size(); i++) row.add(display(rs.getObject(i)));
+                    page.add(row);
+                    rows++;
+                    if (page.size() == PAGE_ROWS) {
+                        pageSink.accept(page);
+                        page = new ArrayList<>(PAGE_ROWS);
+                    }
+                }
+                if (!page.isEmpty()) pageSink.accept(page);
+                logger.info("Query executed | rows={}, truncated={}, elapsedMs={}", rows, truncated, elapsedMs(start));
+                return new QueryResult(columns, rows, truncated, -1, elapsedMs(start));
+            }
+        } catch (SQLException e) {
+            if (cancelled) throw new CancellationException("Query cancelled");
+            throw e;
+        } finally {
+            running = null;
+        }
+    }
+
+    /**
+     * Runs the query again and writes every row to the file: CSV for a .csv name, else .xlsx.
+     * The file is deleted when the export fails or is cancelled.
+     */
+    public QueryResult export(String sql, Path out) throws Exception {
+        long start = System.nanoTime();
+        cancelled = false;
+        boolean csv = out.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        try (Connection conn = open(); Statement st = conn.createStatement()) {
+            running = st;
+            st.setFetchSize(FETCH_SIZE);
+            if (!st.execute(sql)) throw new IllegalArgumentException("Only statements returning rows can be exported");
+            long rows;
+            List<String> columns;
+            try (ResultSet rs = st.getResultSet()) {
+                columns = columnLabels(rs.getMetaData());
+                rows = csv ? writeCsv(rs, columns, out) : writeXlsx(rs, columns, out);
+            }
+            logger.info("Query exported | file={}, rows={}, elapsedMs={}", out.getFileName(), rows, elapsedMs(start));
+            return new QueryResult(columns, rows, false, -1, elapsedMs(start));
+        } catch (Exception e) {
+            Files.deleteIfExists(out);
+            if (cancelled) throw new CancellationException("Export cancelled");
+            throw e;
+        } finally {
+            running = null;
+        }
+    }
+
+    /**
+     * Cell text as the grid and CSV show it: decimals in plain notation, timestamps without the 'T'.
+     */
+    static String display(Object value) {
+        if (value == null) return "";
+        if (value instanceof BigDecimal d) return d.toPlainString();
+        if (value instanceof Timestamp t) value = t.toLocalDateTime();
+        if (value instanceof LocalDateTime t) return t.toString().replace('T', ' ');
+        return value.toString();
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private static Connection open() throws SQLException {
+        // The sheet database's user can reach nothing outside its own schema
+        Connection conn = DatabaseInit.getSheetsConnection();
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET SCHEMA " + SheetTableImporter.SCHEMA);
+            st.execute("SET LAZY_QUERY_EXECUTION TRUE");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    private static List<String> columnLabels(ResultSetMetaData meta) throws SQLException {
+        List<String> columns = new ArrayList<>(meta.getColumnCount());
+        for (int i = 1; i <= meta.getColumnCount(); i++) columns.add(meta.getColumnLabel(i));
+        return columns;
+    }
+
+    private long writeXlsx(ResultSet rs, List<String> columns, Path out) throws Exception {
+        List<List<String>> head = new ArrayList<>(columns.size());
+        columns.forEach(c -> head.add(Collections.singletonList(c)));
+        long rows = 0;
+        try (OutputStream os = Files.newOutputStream(out);
+             GroupSheetWriter writer = new GroupSheetWriter(os, head, SplitConfig.OverflowPolicy.NEW_SHEET)) {
+            while (rs.next()) {
+                List<Object> row = new ArrayList<>(columns.size());
+                for (int i = 1; i <= columns.size(); i++) {
+                    Object v = rs.getObject(i);
+                    // Numbers stay numeric cells; everything else is written as its display text
+                    row.add(v instanceof Long || v instanceof Integer || v instanceof BigDecimal || v instanceof Double
+                            ? v : display(v));
+                }
+                writer.accept(EXPORT_SHEET, row);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private long writeCsv(ResultSet rs, List<String> columns, Path out) throws IOException, SQLException {
+        long rows = 0;
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(out), StandardCharsets.UTF_8),
+                1 << 16)) {
+            // BOM so Excel opens the UTF-8 file with the right encoding
+            w.write('\uFEFF');
+            writeCsvRecord(w, columns);
+            List<String> record = new ArrayList<>(columns.size());
+            while (rs.next()) {
+                record.clear();
+                for (int i = 1; i <= columns.size(); i++) record.add(display(rs.getObject(i)));
+                writeCsvRecord(w, record);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static void writeCsvRecord(Writer w, List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) w.write(',');
+            String f = fields.get(i);
+            if (f.indexOf(',') >= 0 || f.indexOf('"') >= 0 || f.indexOf('\n') >= 0 || f.indexOf('\r') >= 0) {
+                w.write('"');
+                w.write(f.replace("\"", "\"\""));
+                w.write('"');
+            } else {
+                w.write(f);
+            }
+        }
+        w.write("\r\n");
+    }
+
+    private static long elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,395 @@
+package fan.summer.buildintool.excelsql;
+
+import fan.summer.buildintool.excelsplitter.SheetRowReader;
+import fan.summer.buildintool.excelsplitter.StreamingRowListener;
+import fan.summer.database.DatabaseInit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams one sheet into a typed H2 table of the sheet database
+ * ({@link DatabaseInit#getSheetsConnection()}), in the {@value #SCHEMA} schema, so it can be
+ * queried with SQL ({@link SheetSqlConsole}). An existing table of the same name is only
+ * replaced when the config says so.
+ * <p>
+ * Column types are inferred from the first rows: BIGINT, NUMERIC with the largest scale
+ * seen, DATE, TIMESTAMP or VARCHAR. Integers with leading zeros stay text, so codes such as
+ * account numbers keep their zeros. A later value that does not fit its column widens the
+ * column in place (BIGINT → NUMERIC → VARCHAR, DATE → TIMESTAMP → VARCHAR), so no value is
+ * lost. Rows are inserted through batched prepared statements, one commit per batch.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class SheetTableImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SheetTableImporter.class);
+
+    public static final String SCHEMA = DatabaseInit.SHEETS_SCHEMA;
+
+    private static final int PROGRESS_ROWS = 65_536;
+    private static final int MAX_PRECISION = 38;
+    private static final int MAX_SCALE = 18;
+    private static final Pattern INTEGER = Pattern.compile("-?(0|[1-9]\\d{0,17})");
+    private static final Pattern DECIMAL = Pattern.compile("-?(0|[1-9]\\d*|[1-9]\\d{0,2}(,\\d{3})+)(\\.\\d+)?");
+    private static final Pattern DATE = Pattern.compile("\\d{4}([-/.])\\d{1,2}\\1\\d{1,2}");
+    private static final Pattern TIMESTAMP = Pattern.compile(
+            "(\\d{4}([-/.])\\d{1,2}\\2\\d{1,2})[ T](\\d{1,2}:\\d{2}(:\\d{2}(\\.\\d{1,9})?)?)");
+
+    /** Column types in widening order within the numeric and the date family. */
+    public enum Kind { BIGINT, NUMERIC, DATE, TIMESTAMP, VARCHAR }
+
+    /**
+     * @param name   column name in the table
+     * @param header header text in the sheet
+     * @param type   SQL type the column ended with
+     */
+    public record Column(String name, String header, String type) {}
+
+    public record ImportResult(String table, long rows, List<Column> columns, int widenedColumns) {}
+
+    private final SqlImportConfig config;
+    private final BiConsumer<Double, String> progress;
+    private final int[] sourceColumns;
+    private final String[] names;
+    private final Kind[] kinds;
+    private final int[] scales;
+    private final String table;
+    private volatile boolean cancelled;
+
+    private Connection conn;
+    private PreparedStatement insert;
+    private final List<Map<Integer, Object>> sample = new ArrayList<>();
+    private int pending;
+    private long rows;
+    private final Set<Integer> widened = new HashSet<>();
+
+    public SheetTableImporter(SqlImportConfig config, BiConsumer<Double, String> progress) {
+        this.config = config;
+        this.progress = progress;
+        this.table = identifier(config.tableName, "SHEET");
+        Map<Integer, String> headers = new TreeMap<>(config.headers);
+        sourceColumns = headers.keySet().stream().mapToInt(Integer::intValue).toArray();
+        names = new String[sourceColumns.length];
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < sourceColumns.length; i++) {
+            String base = identifier(headers.get(sourceColumns[i]), "COL_" + (sourceColumns[i] + 1));
+            String name = base;
+            for (int n = 2; !used.add(name); n++) name = base + "_" + n;
+            names[i] = name;
+        }
+        kinds = new Kind[sourceColumns.length];
+        scales = new int[sourceColumns.length];
+    }
+
+    /**
+     * Table name as it will be created: the name made a valid identifier, ASCII letters upper-cased.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Asks a running {@link #importSheet()} to stop; it throws {@link CancellationException}
+     * and the partly filled table is dropped.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * True when the sheet database already has a table of that name, which an import replaces
+     * only when asked to ({@link SqlImportConfig#replaceExisting}).
+     */
+    public static boolean tableExists(String table) throws SQLException {
+        try (Connection c = DatabaseInit.getSheetsConnection()) {
+            return exists(c, table);
+        }
+    }
+
+    public ImportResult importSheet() throws Exception {
+        logger.info("Sheet import started | file={}, sheet={}, table={}.{}, columns={}",
+                config.sourceFile.getFileName(), config.sheet, SCHEMA, table, names.length);
+        long start = System.nanoTime();
+        try (Connection c = DatabaseInit.getSheetsConnection()) {
+            conn = c;
+            if (exists(conn, table)) {
+                if (!config.replaceExisting) throw new IllegalStateException("Table already exists: " + table);
+                try (Statement st = conn.createStatement()) {
+                    st.execute("DROP TABLE " + qualified());
+                }
+                logger.info("Existing table replaced | table={}.{}", SCHEMA, table);
+            }
+            conn.setAutoCommit(false);
+            try {
+                StreamingRowListener listener = new StreamingRowListener(this::accept);
+                listener.setRowTicker(n -> {
+                    if (cancelled) throw new CancellationException("Import cancelled");
+                });
+                progress.accept(-1.0, "Reading: " + config.sheet);
+                SheetRowReader.read(config.sourceFile, config.sheet, null, listener);
+                if (insert == null) createTable();
+                flush();
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                try (Statement st = conn.createStatement()) {
+                    st.execute("DROP TABLE IF EXISTS " + qualified());
+                }
+                throw e;
+            } finally {
+                if (insert != null) insert.close();
+            }
+        }
+
+        List<Column> columns = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            columns.add(new Column(names[i], config.headers.get(sourceColumns[i]), sqlType(i)));
+        }
+        progress.accept(1.0, "Done");
+        logger.info("Sheet import completed | table={}.{}, rows={}, widenedColumns={}, elapsedMs={}",
+                SCHEMA, table, rows, widened.size(), (System.nanoTime() - start) / 1_000_000);
+        return new ImportResult(table, rows, columns, widened.size());
+    }
+
+    /**
+     * Turns a header or sheet name into an H2 identifier that needs no quotes where possible:
+     * letters (including CJK), digits and underscores, not starting with a digit, ASCII
+     * letters upper-cased as H2 does with unquoted names.
+     */
+    static String identifier(String text, String fallback) {
+        StringBuilder sb = new StringBuilder();
+        if (text != null) {
+            for (int i = 0; i < text.trim().length(); i++) {
+                char c = text.trim().charAt(i);
+                boolean ok = Character.isLetterOrDigit(c) || c == '_';
+                if (ok) sb.append(c);
+                else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '_') sb.append('_');
+            }
+        }
+        while (sb.length() > 0 && sb.charAt(sb.length() - 1) == '_') sb.setLength(sb.length() - 1);
+        if (sb.isEmpty()) return fallback;
+        if (Character.isDigit(sb.charAt(0))) sb.insert(0, '_');
+        return sb.toString().toUpperCase(Locale.ROOT);
+    }
+
+    // ==================== Private Helper Methods ====================
+
+    private void accept(Map<Integer, Object> row) {
+        try {
+            if (insert == null) {
+                sample.add(row);
+                if (sample.size() < config.sampleRows) return;
+                createTable();
+                return;
+            }
+            insert(row);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Insert into " + table + " failed at data row " + (rows + 1)
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Infers the column types from the sample, creates the table and inserts the sample.
+     */
+    private void createTable() throws SQLException {
+        for (Map<Integer, Object> row : sample) {
+            for (int i = 0; i < sourceColumns.length; i++) {
+                String text = cell(row, i);
+                if (text == null) continue;
+                Kind kind = classify(text);
+                int scale = kind == Kind.NUMERIC ? scaleOf(text) : 0;
+                kinds[i] = kinds[i] == null ? kind : merge(kinds[i], kind);
+                scales[i] = Math.max(scales[i], scale);
+            }
+        }
+        StringBuilder ddl = new StringBuilder("CREATE TABLE ").append(qualified()).append(" (");
+        for (int i = 0; i < names.length; i++) {
+            if (kinds[i] == null) kinds[i] = Kind.VARCHAR;
+            ddl.append(i == 0 ? "" : ", ").append(quote(names[i])).append(' ').append(sqlType(i));
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute(ddl.append(')').toString());
+        }
+        logger.info("Table created | table={}.{}, sampleRows={}, ddl={}", SCHEMA, table, sample.size(), ddl);
+        prepareInsert();
+        for (Map<Integer, Object> row : sample) insert(row);
+        sample.clear();
+    }
+
+    private void insert(Map<Integer, Object> row) throws SQLException {
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String text = cell(row, i);
+            if (text == null) continue;
+            Object value = parse(i, text);
+            if (value == null) {
+                widen(i, text);
+                value = parse(i, text);
+            }
+            values[i] = value;
+        }
+        for (int i = 0; i < values.length; i++) insert.setObject(i + 1, values[i]);
+        insert.addBatch();
+        rows++;
+        if (++pending >= config.batchSize) flush();
+        if (rows % PROGRESS_ROWS == 0) progress.accept(-1.0, "Importing: " + rows + " rows");
+    }
+
+    private void flush() throws SQLException {
+        if (pending == 0) return;
+        insert.executeBatch();
+        conn.commit();
+        pending = 0;
+    }
+
+    /**
+     * Widens a column so the value fits, after writing the rows batched under the old type.
+     */
+    private void widen(int i, String text) throws SQLException {
+        flush();
+        Kind kind = classify(text);
+        String beforeType = sqlType(i);
+        kinds[i] = merge(kinds[i], kind);
+        if (kind == Kind.NUMERIC) scales[i] = Math.max(scales[i], scaleOf(text));
+        // A value needing more integer digits than NUMERIC(38, scale) leaves falls back to text
+        if (kinds[i] == Kind.NUMERIC && parse(i, text) == null) kinds[i] = Kind.VARCHAR;
+        try (Statement st = conn.createStatement()) {
+            st.execute("ALTER TABLE " + qualified() + " ALTER COLUMN " + quote(names[i])
+                    + " SET DATA TYPE " + sqlType(i));
+        }
+        insert.close();
+        prepareInsert();
+        widened.add(i);
+        logger.info("Column widened | table={}.{}, column={}, from={}, to={}, dataRow={}, value={}",
+                SCHEMA, table, names[i], beforeType, sqlType(i), rows + 1, text);
+    }
+
+    private void prepareInsert() throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(qualified()).append(" VALUES (");
+        for (int i = 0; i < names.length; i++) sql.append(i == 0 ? "?" : ", ?");
+        insert = conn.prepareStatement(sql.append(')').toString());
+    }
+
+    /**
+     * Value of the text as the column's current type, or null when it does not fit.
+     */
+    private Object parse(int i, String text) {
+        return switch (kinds[i]) {
+            case BIGINT -> INTEGER.matcher(text).matches() ? Long.parseLong(text) : null;
+            case NUMERIC -> {
+                if (!INTEGER.matcher(text).matches() && !DECIMAL.matcher(text).matches()) yield null;
+                BigDecimal value = new BigDecimal(text.replace(",", ""));
+                yield value.scale() <= scales[i] && value.precision() - value.scale() <= MAX_PRECISION - scales[i]
+                        ? value : null;
+            }
+            case DATE -> date(text);
+            case TIMESTAMP -> {
+                LocalDate date = date(text);
+                yield date != null ? date.atStartOfDay() : timestamp(text);
+            }
+            case VARCHAR -> text;
+        };
+    }
+
+    public static Kind classify(String text) {
+        if (INTEGER.matcher(text).matches()) return Kind.BIGINT;
+        if (DECIMAL.matcher(text).matches()) return scaleOf(text) <= MAX_SCALE ? Kind.NUMERIC : Kind.VARCHAR;
+        if (date(text) != null) return Kind.DATE;
+        if (timestamp(text) != null) return Kind.TIMESTAMP;
+        return Kind.VARCHAR;
+    }
+
+    public static Kind merge(Kind a, Kind b) {
+        if (a == b) return a;
+        boolean numeric = a.ordinal() <= Kind.NUMERIC.ordinal() && b.ordinal() <= Kind.NUMERIC.ordinal();
+        boolean temporal = (a == Kind.DATE || a == Kind.TIMESTAMP) && (b == Kind.DATE || b == Kind.TIMESTAMP);
+        return numeric ? Kind.NUMERIC : temporal ? Kind.TIMESTAMP : Kind.VARCHAR;
+    }
+
+    private static int scaleOf(String text) {
+        int dot = text.indexOf('.');
+        return dot < 0 ? 0 : text.length() - dot - 1;
+    }
+
+    public static LocalDate date(String text) {
+        if (!DATE.matcher(text).matches()) return null;
+        String[] parts = text.split("[-/.]");
+        try {
+            return LocalDate.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static LocalDateTime timestamp(String text) {
+        Matcher m = TIMESTAMP.matcher(text);
+        if (!m.matches()) return null;
+        LocalDate date = date(m.group(1));
+        if (date == null) return null;
+        try {
+            String time = m.group(3);
+            if (time.indexOf(':') == 1) time = "0" + time;
+            return date.atTime(LocalTime.parse(time));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private String sqlType(int i) {
+        return switch (kinds[i]) {
+            case NUMERIC -> "NUMERIC(" + MAX_PRECISION + ", " + scales[i] + ")";
+            case VARCHAR -> "VARCHAR";
+            default -> kinds[i].name();
+        };
+    }
+
+    private String cell(Map<Integer, Object> row, int i) {
+        Object v = row.get(sourceColumns[i]);
+        if (v == null) return null;
+        String s = v.toString().trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static boolean exists(Connection c, String table) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT 1 FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?")) {
+            ps.setString(1, SCHEMA);
+            ps.setString(2, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private String qualified() {
+        return SCHEMA + "." + quote(table);
+    }
+
+    static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,20 @@
+package fan.summer.buildintool.excelsql;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+public class SqlImportConfig {
+
+    public Path   sourceFile;
+    public String sheet;
+    public Map<Integer, String> headers;   // colIndex → header
+
+    // Target table in the SHEETS schema of the sheet database
+    public String tableName;
+    // Replace an existing table of that name; otherwise the import fails instead of dropping it
+    public boolean replaceExisting;
+    // Leading data rows used to infer column types; later rows that do not fit widen the column
+    public int sampleRows = 1000;
+    // Rows per JDBC batch, each batch committed on its own
+    public int batchSize = 5000;
+}
@@ -0,0 +1,409 @@
+package fan.summer.buildintool.excelsql;
+
+import fan.summer.api.IconStyle;
+import fan.summer.api.SwissKitJPlugin;
+import fan.summer.api.ToolCategory;
+import fan.summer.api.ToolType;
+import fan.summer.buildintool.excelsplitter.SheetPicker;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+
+import static fan.summer.ui.ToolStyles.*;
+
+/**
+ * Excel SQL tool: imports sheets into typed tables of the embedded H2 database
+ * ({@link SheetTableImporter}) and runs SQL over them ({@link SheetSqlConsole}), with the
+ * results in a virtualized grid and exportable to .xlsx or CSV.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public class SqlPlugin implements SwissKitJPlugin {
+
+    private Node view;
+
+    @Override public String getId()          { return "fan.summer.buildin.excelsql"; }
+    @Override public String getName()        { return "Excel SQL查询"; }
+    @Override public String getDescription() { return "将表导入内置 H2 数据库，用 SQL 查询超大表并导出结果"; }
+    @Override public ToolCategory getCategory()    { return ToolCategory.OTHER; }
+    @Override public String getVersion()     { return "1.0.0"; }
+    @Override public String getMdiIcon()    { return "database-search"; }
+    @Override public IconStyle getIconStyle()   { return IconStyle.TEAL; }
+    @Override public ToolType getType()        { return ToolType.BUILTIN; }
+
+    @Override
+    public void onActivate() {
+        view = null;
+    }
+
+    @Override
+    public Node createView() {
+        if (view != null) return view;
+        view = new SqlView();
+        return view;
+    }
+
+    static class SqlView extends ScrollPane {
+        // Import
+        private final SheetPicker picker = new SheetPicker("导入数据表");
+        private final TextField tableField = new TextField();
+        private final Label importHint = new Label();
+        private final Button importBtn = glassBtn("⇩  导入", true);
+        private final Button importCancelBtn = glassBtn("⏹  取消", false);
+        private final ProgressBar importProgress = new ProgressBar(0);
+        private final Label importLabel = new Label();
+        private volatile SheetTableImporter importer;
+        // Tables
+        private final ListView<SheetSqlConsole.TableInfo> tableList = new ListView<>();
+        // Query
+        private final TextArea sqlArea = new TextArea();
+        private final Button runBtn = glassBtn("▶  执行", true);
+        private final Button cancelBtn = glassBtn("⏹  取消", false);
+        private final Button xlsxBtn = glassBtn("导出为 xlsx", false);
+        private final Button csvBtn = glassBtn("导出为 CSV", false);
+        private final Label queryLabel = new Label();
+        private final TableView<List<String>> grid = new TableView<>();
+        private final SheetSqlConsole console = new SheetSqlConsole();
+        private boolean queryRunning;
+
+        SqlView() {
+            picker.setOnChange(this::sheetChanged);
+            tableField.setPromptText("表名（默认为Sheet名）");
+            tableField.setStyle(fieldStyle());
+            tableField.textProperty().addListener((o, ov, nv) -> validateImport());
+            importHint.setWrapText(true);
+            importHint.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 11px;");
+            Label typeHint = new Label("按前 1000 行推断列类型（整数 / 小数 / 日期 / 时间 / 文本），后续不符合的值会自动放宽该列类型；"
+                + "带前导零的编号保留为文本。同名表将被替换");
+            typeHint.setWrapText(true);
+            typeHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            importBtn.setOnAction(e -> startImport());
+            importCancelBtn.setVisible(false);
+            importCancelBtn.managedProperty().bind(importCancelBtn.visibleProperty());
+            importCancelBtn.setOnAction(e -> {
+                if (importer != null) importer.cancel();
+                importCancelBtn.setDisable(true);
+                importLabel.setText("正在取消...");
+            });
+            HBox importActions = new HBox(12, importBtn, importCancelBtn);
+            importActions.setAlignment(Pos.CENTER_LEFT);
+            importProgress.setMaxWidth(Double.MAX_VALUE);
+            importLabel.setWrapText(true);
+            importLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+
+            tableList.setPrefHeight(140);
+            tableList.setStyle(
+                "-fx-background-color: rgba(255,255,255,0.04);" +
+                "-fx-border-color: rgba(255,255,255,0.10); -fx-border-radius: 8;" +
+                "-fx-background-radius: 8;"
+            );
+            tableList.setPlaceholder(new Label("暂无已导入的表"));
+            tableList.setCellFactory(lv -> new ListCell<>() {
+                @Override
+                protected void updateItem(SheetSqlConsole.TableInfo t, boolean empty) {
+                    super.updateItem(t, empty);
+                    setText(empty || t == null ? null : t.name() + " · " + t.rows() + " 行 · " + t.columns() + " 列");
+                }
+            });
+            tableList.setOnMouseClicked(e -> {
+                SheetSqlConsole.TableInfo t = tableList.getSelectionModel().getSelectedItem();
+                if (e.getClickCount() == 2 && t != null) {
+                    sqlArea.setText("SELECT * FROM " + SheetTableImporter.quote(t.name()));
+                }
+            });
+            Button refreshBtn = glassBtn("刷新", false);
+            refreshBtn.setOnAction(e -> refreshTables());
+            Button dropBtn = glassBtn("删除所选", false);
+            dropBtn.setOnAction(e -> dropSelected());
+            HBox tableActions = new HBox(8, refreshBtn, dropBtn);
+
+            sqlArea.setPromptText("SELECT 账号, SUM(金额) FROM 表名 GROUP BY 账号");
+            sqlArea.setPrefRowCount(6);
+            sqlArea.setWrapText(true);
+            sqlArea.setStyle(
+                "-fx-background-color: rgba(255,255,255,0.04);" +
+                "-fx-border-color: rgba(255,255,255,0.10); -fx-border-width: 1;" +
+                "-fx-border-radius: 10; -fx-background-radius: 10;" +
+                "-fx-text-fill: rgba(255,255,255,0.88);" +
+                "-fx-font-size: 13px; -fx-font-family: 'SF Mono','Consolas',monospace;" +
+                "-fx-control-inner-background: transparent; -fx-highlight-fill: #5b8cf7;"
+            );
+            sqlArea.setOnKeyPressed(e -> {
+                if (e.getCode() == KeyCode.ENTER && e.isShortcutDown() && !runBtn.isDisabled()) {
+                    e.consume();
+                    startQuery();
+                }
+            });
+            sqlArea.textProperty().addListener((o, ov, nv) -> updateQueryButtons());
+            Label sqlHint = new Label("Ctrl+Enter 执行。表名与列名即导入时显示的名称，与 SQL 关键字同名时需加双引号，如 \"ORDER\"。"
+                + "结果最多显示前 " + SheetSqlConsole.MAX_GRID_ROWS + " 行，导出包含全部行");
+            sqlHint.setWrapText(true);
+            sqlHint.setStyle("-fx-text-fill: rgba(255,255,255,0.45); -fx-font-size: 11px;");
+
+            runBtn.setOnAction(e -> startQuery());
+            cancelBtn.setVisible(false);
+            cancelBtn.managedProperty().bind(cancelBtn.visibleProperty());
+            cancelBtn.setOnAction(e -> {
+                console.cancel();
+                cancelBtn.setDisable(true);
+                queryLabel.setText("正在取消...");
+            });
+            xlsxBtn.setOnAction(e -> startExport("xlsx"));
+            csvBtn.setOnAction(e -> startExport("csv"));
+            HBox queryActions = new HBox(12, runBtn, cancelBtn, xlsxBtn, csvBtn);
+            queryActions.setAlignment(Pos.CENTER_LEFT);
+            queryLabel.setWrapText(true);
+            queryLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+
+            // TableView only creates cells for the visible rows, so large results scroll smoothly
+            grid.setPrefHeight(360);
+            grid.setStyle("-fx-background-color: transparent;");
+            grid.setPlaceholder(new Label("无数据"));
+
+            VBox content = new VBox(16, picker, subLabel("表名"), tableField, typeHint,
+                importHint, importActions, importProgress, importLabel, new Separator(),
+                sectionTitle("已导入的表"), subLabel("双击表名生成查询语句"), tableList, tableActions, new Separator(),
+                sectionTitle("SQL查询"), sqlArea, sqlHint, queryActions, queryLabel, grid);
+            content.setPadding(new Insets(24));
+            content.setStyle("-fx-background-color: transparent;");
+
+            setContent(content);
+            setFitToWidth(true);
+            setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+            validateImport();
+            updateQueryButtons();
+            refreshTables();
+        }
+
+        // ==================== Private Helper Methods ====================
+
+        private void sheetChanged() {
+            if (picker.sheet() != null) tableField.setText(SheetTableImporter.identifier(picker.sheet(), "SHEET"));
+            validateImport();
+        }
+
+        private void validateImport() {
+            String error = null;
+            if (picker.headers() == null) {
+                error = "请先选择文件和Sheet";
+            } else if (tableField.getText().isBlank()) {
+                error = "请输入表名";
+            }
+            importHint.setText(error != null ? "❌ " + error : "");
+            importBtn.setDisable(error != null || importer != null);
+        }
+
+        private void startImport() {
+            SqlImportConfig config = new SqlImportConfig();
+            config.sourceFile = picker.file();
+            config.sheet = picker.sheet();
+            config.headers = picker.headers();
+            config.tableName = tableField.getText().trim();
+            String table = SheetTableImporter.identifier(config.tableName, "SHEET");
+            try {
+                if (SheetTableImporter.tableExists(table)) {
+                    Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "表 " + table + " 已存在，是否用本次导入替换？原表数据将被删除",
+                        ButtonType.OK, ButtonType.CANCEL);
+                    confirm.setHeaderText(null);
+                    if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+                    config.replaceExisting = true;
+                }
+            } catch (SQLException ex) {
+                importLabel.setText("❌ 无法检查表是否存在：" + ex.getMessage());
+                importLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+
+            importProgress.getStyleClass().removeAll("success", "danger");
+            importProgress.setProgress(-1);
+            importLabel.setText("准备中...");
+            importLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            importCancelBtn.setDisable(false);
+            importCancelBtn.setVisible(true);
+
+            SheetTableImporter current = new SheetTableImporter(config, (pct, msg) ->
+                Platform.runLater(() -> {
+                    if (importCancelBtn.isDisabled()) return;
+                    importProgress.setProgress(pct);
+                    importLabel.setText(msg);
+                })
+            );
+            importer = current;
+            importBtn.setDisable(true);
+            Task<SheetTableImporter.ImportResult> task = new Task<>() {
+                @Override
+                protected SheetTableImporter.ImportResult call() throws Exception {
+                    return current.importSheet();
+                }
+            };
+            task.setOnSucceeded(e -> finishImport(task.getValue(), null));
+            task.setOnFailed(e -> finishImport(null, task.getException()));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void finishImport(SheetTableImporter.ImportResult result, Throwable err) {
+            importer = null;
+            importCancelBtn.setVisible(false);
+            validateImport();
+            importProgress.setProgress(1.0);
+            importProgress.getStyleClass().removeAll("success", "danger");
+            if (err instanceof CancellationException) {
+                importProgress.setProgress(0);
+                importLabel.setText("已取消");
+                importLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+                return;
+            }
+            if (err != null) {
+                importProgress.getStyleClass().add("danger");
+                importLabel.setText("❌ 导入失败：" + (err.getMessage() != null ? err.getMessage() : err));
+                importLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+                return;
+            }
+            importProgress.getStyleClass().add("success");
+            StringBuilder columns = new StringBuilder();
+            for (SheetTableImporter.Column c : result.columns()) {
+                columns.append(columns.isEmpty() ? "" : "、").append(c.name()).append(' ').append(c.type());
+            }
+            importLabel.setText("✓ 已导入表 " + result.table() + "，共 " + result.rows() + " 行"
+                + (result.widenedColumns() > 0 ? "（" + result.widenedColumns() + " 列按后续数据放宽了类型）" : "")
+                + "\n列：" + columns);
+            importLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+            if (sqlArea.getText().isBlank()) sqlArea.setText("SELECT * FROM " + SheetTableImporter.quote(result.table()));
+            refreshTables();
+        }
+
+        private void refreshTables() {
+            Task<List<SheetSqlConsole.TableInfo>> task = new Task<>() {
+                @Override
+                protected List<SheetSqlConsole.TableInfo> call() throws Exception {
+                    return SheetSqlConsole.listTables();
+                }
+            };
+            task.setOnSucceeded(e -> tableList.getItems().setAll(task.getValue()));
+            task.setOnFailed(e -> tableList.getItems().clear());
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void dropSelected() {
+            SheetSqlConsole.TableInfo t = tableList.getSelectionModel().getSelectedItem();
+            if (t == null) return;
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "确定删除表 " + t.name() + "？", ButtonType.OK, ButtonType.CANCEL);
+            confirm.setHeaderText(null);
+            if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+            try {
+                SheetSqlConsole.dropTable(t.name());
+            } catch (Exception ex) {
+                queryLabel.setText("❌ 删除失败：" + ex.getMessage());
+                queryLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+            }
+            refreshTables();
+        }
+
+        private void updateQueryButtons() {
+            boolean noSql = sqlArea.getText().isBlank();
+            runBtn.setDisable(noSql || queryRunning);
+            xlsxBtn.setDisable(noSql || queryRunning);
+            csvBtn.setDisable(noSql || queryRunning);
+        }
+
+        private void setQueryRunning(boolean running, String text) {
+            queryRunning = running;
+            cancelBtn.setDisable(false);
+            cancelBtn.setVisible(running);
+            queryLabel.setText(text);
+            queryLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.55); -fx-font-size: 12px;");
+            updateQueryButtons();
+        }
+
+        private void startQuery() {
+            String sql = sqlArea.getText().trim();
+            grid.getItems().clear();
+            grid.getColumns().clear();
+            setQueryRunning(true, "执行中...");
+
+            Task<SheetSqlConsole.QueryResult> task = new Task<>() {
+                @Override
+                protected SheetSqlConsole.QueryResult call() throws Exception {
+                    return console.query(sql,
+                        columns -> Platform.runLater(() -> setColumns(columns)),
+                        page -> Platform.runLater(() -> grid.getItems().addAll(page)),
+                        SheetSqlConsole.MAX_GRID_ROWS);
+                }
+            };
+            task.setOnSucceeded(e -> {
+                SheetSqlConsole.QueryResult r = task.getValue();
+                setQueryRunning(false, r.updateCount() >= 0
+                    ? "✓ 执行成功，影响 " + r.updateCount() + " 行（" + r.elapsedMs() + " ms）"
+                    : "✓ " + (r.truncated() ? "仅显示前 " + r.rows() + " 行，导出可得到全部结果" : "共 " + r.rows() + " 行")
+                        + "（" + r.elapsedMs() + " ms）");
+                queryLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+                // DDL and updates may have changed the tables
+                if (r.updateCount() >= 0) refreshTables();
+            });
+            task.setOnFailed(e -> queryFailed(task.getException(), "执行失败"));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void startExport(String extension) {
+            String sql = sqlArea.getText().trim();
+            FileChooser fc = new FileChooser();
+            fc.setTitle("导出查询结果");
+            fc.setInitialFileName("query_result." + extension);
+            fc.getExtensionFilters().add(extension.equals("csv")
+                ? new FileChooser.ExtensionFilter("CSV 文件", "*.csv")
+                : new FileChooser.ExtensionFilter("Excel 文件", "*.xlsx"));
+            File file = fc.showSaveDialog(getScene() != null ? getScene().getWindow() : null);
+            if (file == null) return;
+            setQueryRunning(true, "导出中...");
+
+            Task<SheetSqlConsole.QueryResult> task = new Task<>() {
+                @Override
+                protected SheetSqlConsole.QueryResult call() throws Exception {
+                    return console.export(sql, file.toPath());
+                }
+            };
+            task.setOnSucceeded(e -> {
+                SheetSqlConsole.QueryResult r = task.getValue();
+                setQueryRunning(false, "✓ 已导出 " + r.rows() + " 行到 " + file.getName() + "（" + r.elapsedMs() + " ms）");
+                queryLabel.setStyle("-fx-text-fill: #4cd97b; -fx-font-size: 12px;");
+            });
+            task.setOnFailed(e -> queryFailed(task.getException(), "导出失败"));
+            new Thread(task) {{ setDaemon(true); }}.start();
+        }
+
+        private void queryFailed(Throwable err, String what) {
+            if (err instanceof CancellationException) {
+                setQueryRunning(false, "已取消");
+                return;
+            }
+            setQueryRunning(false, "❌ " + what + "：" + (err.getMessage() != null ? err.getMessage() : err));
+            queryLabel.setStyle("-fx-text-fill: #f25c5c; -fx-font-size: 12px;");
+        }
+
+        private void setColumns(List<String> columns) {
+            for (int i = 0; i < columns.size(); i++) {
+                int idx = i;
+                TableColumn<List<String>, String> col = new TableColumn<>(columns.get(i));
+                col.setCellValueFactory(c -> new ReadOnlyStringWrapper(c.getValue().get(idx)));
+                col.setPrefWidth(140);
+                grid.getColumns().add(col);
+            }
+        }
+    }
+}
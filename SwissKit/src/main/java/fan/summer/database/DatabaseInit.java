@@ -11,6 +11,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Properties;
 
@@ -20,6 +21,15 @@ public class DatabaseInit {
 
     private static final String DB_URL;
 
+    /** Schema of the sheet database that imported sheets go to. */
+    public static final String SHEETS_SCHEMA = "SHEETS";
+
+    // Owner of the SHEETS schema, without admin rights
+    private static final String SHEETS_USER = "SHEETS";
+    private static final String SHEETS_PASSWORD = "sheets";
+    private static final String SHEETS_URL;
+    private static volatile boolean sheetsReady;
+
     static {
         String dbPath = Path.of(System.getProperty("user.dir"))
                 .resolve(".swisskit")
@@ -30,6 +40,8 @@ public class DatabaseInit {
         DB_URL = "jdbc:h2:file:" + dbPath
                 + ";AUTO_SERVER=TRUE"
                 + ";INIT=CREATE SCHEMA IF NOT EXISTS PUBLIC\\;SET SCHEMA PUBLIC";
+        SHEETS_URL = "jdbc:h2:file:" + dbPath.substring(0, dbPath.lastIndexOf('/') + 1) + "sheets"
+                + ";AUTO_SERVER=TRUE";
     }
 
     private static SqlSessionFactory sqlSessionFactory;
@@ -147,6 +159,35 @@ public class DatabaseInit {
         return sqlSessionFactory;
     }
 
+    /**
+     * Opens a JDBC connection to the sheet database ({@code .swisskit/sheets}), a separate H2
+     * file that sheets are imported into for ad-hoc SQL, so bulk data and typed statements never
+     * reach the application database. The connection's user owns only the {@value #SHEETS_SCHEMA}
+     * schema and has no admin rights.
+     * Caller is responsible for closing the connection after use.
+     *
+     * @return a new Connection
+     * @throws SQLException if the connection cannot be opened
+     */
+    public static Connection getSheetsConnection() throws SQLException {
+        if (!sheetsReady) initSheetsDatabase();
+        return DriverManager.getConnection(SHEETS_URL, SHEETS_USER, SHEETS_PASSWORD);
+    }
+
+    /**
+     * Creates the restricted user and its schema; the admin user is used for nothing else.
+     */
+    private static synchronized void initSheetsDatabase() throws SQLException {
+        if (sheetsReady) return;
+        try (Connection conn = DriverManager.getConnection(SHEETS_URL, "SA", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE USER IF NOT EXISTS " + SHEETS_USER + " PASSWORD '" + SHEETS_PASSWORD + "'");
+            stmt.execute("CREATE SCHEMA IF NOT EXISTS " + SHEETS_SCHEMA + " AUTHORIZATION " + SHEETS_USER);
+        }
+        sheetsReady = true;
+        logger.info("Sheet database ready, url={}", SHEETS_URL);
+    }
+
     /**
      * Checks if the database has been initialized.
      *
@@ -10,4 +10,5 @@ public class ComplexSplitConfigEntity {
     private String sheetName;
     private Integer headerIndex;
     private Integer columnIndex;
+    private String filterExpr;
 }
@@ -0,0 +1,67 @@
+package fan.summer.ui;
+
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+
+/**
+ * Glass-style labels, buttons and field styles shared by the built-in tool views.
+ *
+ * @author summer
+ * @version 1.00
+ * @date 2026/10/19
+ */
+public final class ToolStyles {
+
+    private ToolStyles() {
+    }
+
+    public static Label sectionTitle(String text) {
+        Label l = new Label(text);
+        l.setStyle("-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 15px; -fx-font-weight: 500;");
+        return l;
+    }
+
+    public static Label subLabel(String text) {
+        Label l = new Label(text.toUpperCase());
+        l.setStyle(
+            "-fx-text-fill: rgba(255,255,255,0.30); -fx-font-size: 10px;" +
+            "-fx-font-weight: bold;"
+        );
+        return l;
+    }
+
+    public static Button glassBtn(String text, boolean primary) {
+        Button btn = new Button(text);
+        if (primary) {
+            btn.setStyle(
+                "-fx-background-color: #5b8cf7; -fx-text-fill: white; -fx-font-size: 13px;" +
+                "-fx-font-weight: 500; -fx-background-radius: 8; -fx-border-width: 0;" +
+                "-fx-padding: 10 20 10 20; -fx-cursor: hand;"
+            );
+        } else {
+            btn.setStyle(
+                "-fx-background-color: rgba(255,255,255,0.07);" +
+                "-fx-border-color: rgba(255,255,255,0.12); -fx-border-width: 1;" +
+                "-fx-text-fill: rgba(255,255,255,0.75); -fx-font-size: 13px;" +
+                "-fx-background-radius: 8; -fx-border-radius: 8;" +
+                "-fx-padding: 10 20 10 20; -fx-cursor: hand;"
+            );
+        }
+        return btn;
+    }
+
+    public static String fieldStyle() {
+        return "-fx-background-color: rgba(255,255,255,0.05);" +
+               "-fx-border-color: rgba(255,255,255,0.12); -fx-border-width: 1;" +
+               "-fx-border-radius: 8; -fx-background-radius: 8;" +
+               "-fx-text-fill: rgba(255,255,255,0.88); -fx-font-size: 13px;" +
+               "-fx-padding: 9 12 9 12;";
+    }
+
+    public static String comboStyle() {
+        return "-fx-background-color: rgba(255,255,255,0.05);" +
+               "-fx-border-color: rgba(255,255,255,0.12); -fx-border-width: 1;" +
+               "-fx-border-radius: 8; -fx-background-radius: 8;" +
+               "-fx-text-fill: rgba(255,255,255,0.88);";
+    }
+}
@@ -21,9 +21,13 @@ CREATE TABLE IF NOT EXISTS complex_split_config
     field_name   VARCHAR(255) NOT NULL,
     sheet_name   VARCHAR(255) NOT NULL,
     header_index INTEGER      NOT NULL,
-    column_index INTEGER      NOT NULL
+    column_index INTEGER      NOT NULL,
+    filter_expr  VARCHAR(1000)
 );
 
+-- Row filter per complex split config (added after the table was first shipped)
+ALTER TABLE complex_split_config ADD COLUMN IF NOT EXISTS filter_expr VARCHAR(1000);
+
 -- Email Address Book Table
 CREATE TABLE IF NOT EXISTS email_address_book
 (